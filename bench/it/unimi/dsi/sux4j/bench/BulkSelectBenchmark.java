@@ -0,0 +1,125 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.sux4j.bits.Rank9;
+import it.unimi.dsi.sux4j.bits.Select;
+import it.unimi.dsi.sux4j.bits.Select9;
+import it.unimi.dsi.sux4j.bits.SimpleSelect;
+import it.unimi.dsi.sux4j.bits.SparseSelect;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandomGenerator;
+
+/**
+ * Compares {@link Select#select(long[], long[])} with repeated calls to {@link Select#select(long)}
+ * on batches of sorted ranks.
+ *
+ * <p>
+ * Each batch starts at a random rank, and consecutive ranks differ by a random gap between zero and
+ * twice {@link #gap} (so the average gap is {@link #gap}). Results are expressed in time per rank.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkSelectBenchmark {
+	/** The number of ranks in a batch. */
+	private static final int BATCH = 4096;
+	/** The number of batches (a power of two). */
+	private static final int BATCHES = 256;
+
+	@Param({ "SimpleSelect", "Select9", "SparseSelect" })
+	public String implementation;
+
+	@Param({ "16777216" })
+	public long numBits;
+
+	@Param({ "0.01", "0.5", "0.99" })
+	public double density;
+
+	@Param({ "1", "16", "256" })
+	public int gap;
+
+	private Select select;
+	private long[][] rank;
+	private long[] dest;
+	private int next;
+
+	@Setup
+	public void setup() {
+		final LongArrayBitVector bitVector = RankBenchmark.randomBitVector(numBits, density);
+		final long numOnes = bitVector.count();
+		switch (implementation) {
+		case "SimpleSelect":
+			select = new SimpleSelect(bitVector);
+			break;
+		case "Select9":
+			select = new Select9(new Rank9(bitVector));
+			break;
+		case "SparseSelect":
+			select = new SparseSelect(bitVector);
+			break;
+		default:
+			throw new IllegalArgumentException(implementation);
+		}
+
+		final XoRoShiRo128PlusRandomGenerator random = new XoRoShiRo128PlusRandomGenerator(1);
+		rank = new long[BATCHES][BATCH];
+		for (final long[] r : rank) {
+			r[0] = random.nextLong(numOnes);
+			for (int i = 1; i < BATCH; i++) r[i] = Math.min(numOnes - 1, r[i - 1] + random.nextInt(2 * gap + 1));
+		}
+		dest = new long[BATCH];
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public long[] perRank() {
+		final long[] r = rank[next++ & BATCHES - 1];
+		final long[] dest = this.dest;
+		for (int i = 0; i < BATCH; i++) dest[i] = select.select(r[i]);
+		return dest;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public long[] bulk() {
+		return select.select(rank[next++ & BATCHES - 1], dest);
+	}
+}
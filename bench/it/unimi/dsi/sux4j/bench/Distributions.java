@@ -0,0 +1,149 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import com.martiansoftware.jsap.JSAPException;
+
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.io.FileLinesCollection;
+import it.unimi.dsi.lang.MutableString;
+import it.unimi.dsi.sux4j.test.GeneratePowerLawValues;
+import it.unimi.dsi.sux4j.test.GenerateRandom64BitIntegers;
+import it.unimi.dsi.sux4j.test.GenerateRandom64BitStrings;
+import it.unimi.dsi.sux4j.test.GenerateUniformValues;
+
+/**
+ * Key and value distributions for benchmarks.
+ *
+ * <p>
+ * All data is generated by the command-line generators in {@link it.unimi.dsi.sux4j.test}, so
+ * benchmarks measure the same distributions used by the speed tests. Data is written to a temporary
+ * file and then loaded into memory.
+ */
+
+public final class Distributions {
+
+	private Distributions() {}
+
+	private static File tempFile() throws IOException {
+		final File file = File.createTempFile(Distributions.class.getSimpleName(), ".data");
+		file.deleteOnExit();
+		return file;
+	}
+
+	/**
+	 * Returns sorted random 64-bit integers generated by {@link GenerateRandom64BitIntegers}.
+	 *
+	 * @param n the number of integers.
+	 * @return an array of {@code n} increasing longs.
+	 */
+	public static long[] random64BitIntegers(final int n) throws IOException, JSAPException {
+		final File file = tempFile();
+		GenerateRandom64BitIntegers.main(new String[] { Integer.toString(n), file.toString() });
+		final long[] a = BinIO.loadLongs(file);
+		file.delete();
+		return a;
+	}
+
+	/**
+	 * Returns sorted random strings of eight ISO-8859-1 characters generated by
+	 * {@link GenerateRandom64BitStrings}.
+	 *
+	 * @param n the number of strings.
+	 * @return a list of {@code n} lexicographically increasing strings.
+	 */
+	public static List<MutableString> random64BitStrings(final int n) throws IOException, JSAPException {
+		final File file = tempFile();
+		GenerateRandom64BitStrings.main(new String[] { Integer.toString(n), file.toString() });
+		final List<MutableString> list = new ArrayList<>(n);
+		for (final MutableString s : new FileLinesCollection(file.toString(), StandardCharsets.ISO_8859_1.name())) list.add(s.copy());
+		file.delete();
+		return list;
+	}
+
+	/**
+	 * Returns the distinct lines of a file, in lexicographical order.
+	 *
+	 * <p>
+	 * This method makes it possible to benchmark string-based structures on real data sets (e.g., URLs
+	 * or terms).
+	 *
+	 * @param file a file containing newline-separated UTF-8 strings.
+	 * @return a list of lexicographically increasing strings.
+	 */
+	public static List<MutableString> lines(final String file) {
+		final TreeSet<MutableString> set = new TreeSet<>();
+		for (final MutableString s : new FileLinesCollection(file, StandardCharsets.UTF_8.name())) set.add(s.copy());
+		return new ArrayList<>(set);
+	}
+
+	/**
+	 * Returns power-law distributed values generated by {@link GeneratePowerLawValues}.
+	 *
+	 * @param gamma the power-law exponent.
+	 * @param max the strict upper bound for the values.
+	 * @param n the number of values.
+	 * @return an array of {@code n} power-law distributed longs.
+	 */
+	public static long[] powerLawValues(final double gamma, final int max, final int n) throws IOException, JSAPException {
+		final File file = tempFile();
+		GeneratePowerLawValues.main(new String[] { Double.toString(gamma), Integer.toString(max), Integer.toString(n), file.toString() });
+		final long[] a = BinIO.loadLongs(file);
+		file.delete();
+		return a;
+	}
+
+	/**
+	 * Returns uniformly distributed values generated by {@link GenerateUniformValues}.
+	 *
+	 * @param bits the number of bits of each value.
+	 * @param n the number of values.
+	 * @return an array of {@code n} uniformly distributed {@code bits}-bit longs.
+	 */
+	public static long[] uniformValues(final int bits, final int n) throws IOException, JSAPException {
+		final File file = tempFile();
+		GenerateUniformValues.main(new String[] { Integer.toString(bits), Integer.toString(n), file.toString() });
+		final long[] a = BinIO.loadLongs(file);
+		file.delete();
+		return a;
+	}
+
+	/**
+	 * Returns the number of bits used by a structure, using its {@code numBits()} method.
+	 *
+	 * @param structure a structure with a public {@code numBits()} method.
+	 * @return the number of bits used by {@code structure}.
+	 */
+	public static long numBits(final Object structure) {
+		try {
+			return ((Number)structure.getClass().getMethod("numBits").invoke(structure)).longValue();
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalArgumentException(structure.getClass().getName() + " has no numBits() method", e);
+		}
+	}
+}
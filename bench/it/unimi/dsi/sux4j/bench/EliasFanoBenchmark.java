@@ -0,0 +1,152 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.martiansoftware.jsap.JSAPException;
+
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongBigList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.sux4j.util.EliasFanoIndexedMonotoneLongBigList;
+import it.unimi.dsi.sux4j.util.EliasFanoLongBigList;
+import it.unimi.dsi.sux4j.util.EliasFanoMonotoneLongBigList;
+import it.unimi.dsi.sux4j.util.EliasFanoMonotoneLongBigList16;
+import it.unimi.dsi.sux4j.util.EliasFanoPrefixSumLongBigList;
+import it.unimi.dsi.sux4j.util.PartitionedEliasFanoMonotoneLongBigList;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandomGenerator;
+
+/**
+ * Benchmarks random access and sequential iteration on Elias&ndash;Fano lists.
+ *
+ * <p>
+ * Monotone lists contain the sorted random integers generated by
+ * {@link it.unimi.dsi.sux4j.test.GenerateRandom64BitIntegers}, shifted right so that the lower bits
+ * fit the limit of {@link EliasFanoMonotoneLongBigList16}; other lists contain power-law distributed values generated by
+ * {@link it.unimi.dsi.sux4j.test.GeneratePowerLawValues}. The space used by each list is recorded by
+ * {@link Space}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EliasFanoBenchmark {
+	/** The number of random indices queried (a power of two). */
+	private static final int QUERIES = 1 << 20;
+	/** The number of consecutive values decoded by {@link #block()}. */
+	private static final int BLOCK = 64;
+
+	@Param({ "EliasFanoMonotoneLongBigList", "EliasFanoMonotoneLongBigList16", "EliasFanoIndexedMonotoneLongBigList", "PartitionedEliasFanoMonotoneLongBigList", "EliasFanoLongBigList", "EliasFanoPrefixSumLongBigList" })
+	public String list;
+
+	@Param({ "10000000" })
+	public int n;
+
+	private LongBigList l;
+	private long[] index;
+	private long[] block;
+	private int next;
+
+	@Setup
+	public void setup(final BenchmarkParams params) throws IOException, JSAPException {
+		final LongArrayList values;
+		if (list.startsWith("EliasFanoMonotone") || list.startsWith("EliasFanoIndexed") || list.startsWith("Partitioned")) {
+			final long[] a = Distributions.random64BitIntegers(n);
+			// Keep at most 16 lower bits, as required by EliasFanoMonotoneLongBigList16
+			final int shift = 64 - Fast.ceilLog2(n) - 16;
+			for (int i = a.length; i-- != 0;) a[i] >>>= shift;
+			values = LongArrayList.wrap(a);
+		} else values = LongArrayList.wrap(Distributions.powerLawValues(2, 1 << 20, n));
+
+		switch (list) {
+		case "EliasFanoMonotoneLongBigList":
+			l = new EliasFanoMonotoneLongBigList(values);
+			break;
+		case "EliasFanoMonotoneLongBigList16":
+			l = new EliasFanoMonotoneLongBigList16(values);
+			break;
+		case "EliasFanoIndexedMonotoneLongBigList":
+			l = new EliasFanoIndexedMonotoneLongBigList(values);
+			break;
+		case "PartitionedEliasFanoMonotoneLongBigList":
+			l = new PartitionedEliasFanoMonotoneLongBigList(values);
+			break;
+		case "EliasFanoLongBigList":
+			l = new EliasFanoLongBigList(values);
+			break;
+		case "EliasFanoPrefixSumLongBigList":
+			l = new EliasFanoPrefixSumLongBigList(values);
+			break;
+		default:
+			throw new IllegalArgumentException(list);
+		}
+
+		final XoRoShiRo128PlusRandomGenerator random = new XoRoShiRo128PlusRandomGenerator(0);
+		index = new long[QUERIES];
+		for (int i = QUERIES; i-- != 0;) index[i] = random.nextInt(n - BLOCK);
+		block = new long[BLOCK];
+		Space.record(params, (double)Distributions.numBits(l) / n);
+	}
+
+	@Benchmark
+	public long getLong() {
+		return l.getLong(index[next++ & QUERIES - 1]);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BLOCK)
+	public long block() {
+		final long from = index[next++ & QUERIES - 1];
+		if (l instanceof EliasFanoMonotoneLongBigList) ((EliasFanoMonotoneLongBigList)l).get(from, block);
+		else for (int i = 0; i < BLOCK; i++) block[i] = l.getLong(from + i);
+		return block[BLOCK - 1];
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 5)
+	@Measurement(iterations = 5)
+	public void iterate(final Blackhole blackhole) {
+		for (final LongIterator iterator = l.iterator(); iterator.hasNext();) blackhole.consume(iterator.nextLong());
+	}
+}
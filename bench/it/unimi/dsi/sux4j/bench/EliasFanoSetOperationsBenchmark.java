@@ -0,0 +1,146 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bench;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.sux4j.util.EliasFanoIndexedMonotoneLongBigList;
+import it.unimi.dsi.sux4j.util.EliasFanoIndexedMonotoneLongBigList.EliasFanoIndexedMonotoneLongBigListIterator;
+import it.unimi.dsi.sux4j.util.EliasFanoIndexedMonotoneLongBigLists.Intersection;
+import it.unimi.dsi.sux4j.util.EliasFanoIndexedMonotoneLongBigLists.Union;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandomGenerator;
+
+/**
+ * Benchmarks intersections and unions of indexed Elias&ndash;Fano lists, comparing
+ * {@link Intersection} and {@link Union} with the equivalent loops on
+ * {@linkplain EliasFanoIndexedMonotoneLongBigListIterator iterators}.
+ *
+ * <p>
+ * The <var>i</var>-th list contains <var>n</var>/2<sup><var>i</var></sup> random values in an
+ * interval of size 4<var>n</var>, so intersections are driven by a short list that skips over
+ * longer ones.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EliasFanoSetOperationsBenchmark {
+	/** The size of the buffer used by batched operations. */
+	private static final int BUFFER_SIZE = 1024;
+
+	@Param({ "2", "4", "8" })
+	public int k;
+
+	@Param({ "1000000" })
+	public int n;
+
+	private EliasFanoIndexedMonotoneLongBigList[] list;
+	private final long[] buffer = new long[BUFFER_SIZE];
+
+	@Setup
+	public void setup() {
+		final XoRoShiRo128PlusRandomGenerator random = new XoRoShiRo128PlusRandomGenerator(0);
+		list = new EliasFanoIndexedMonotoneLongBigList[k];
+		for (int i = 0; i < k; i++) {
+			final long[] a = new long[n >> i];
+			for (int j = a.length; j-- != 0;) a[j] = random.nextLong(4L * n);
+			Arrays.sort(a);
+			list[i] = new EliasFanoIndexedMonotoneLongBigList(LongArrayList.wrap(a));
+		}
+	}
+
+	@Benchmark
+	public long intersection() {
+		final Intersection intersection = new Intersection(list);
+		long s = 0;
+		for (int r; (r = intersection.next(buffer)) != 0;) s += buffer[r - 1];
+		return s;
+	}
+
+	@Benchmark
+	public long intersectionIterators() {
+		final EliasFanoIndexedMonotoneLongBigList[] sorted = list.clone();
+		Arrays.sort(sorted, Comparator.comparingLong(EliasFanoIndexedMonotoneLongBigList::size64));
+		final EliasFanoIndexedMonotoneLongBigListIterator[] iterator = new EliasFanoIndexedMonotoneLongBigListIterator[k];
+		for (int i = 0; i < k; i++) iterator[i] = sorted[i].iterator();
+
+		long s = 0;
+		long x = iterator[0].skipTo(0);
+		while (x != Long.MAX_VALUE) {
+			int i;
+			for (i = 1; i < k; i++) {
+				final long y = iterator[i].skipTo(x);
+				if (y != x) {
+					x = y == Long.MAX_VALUE ? y : iterator[0].skipTo(y);
+					break;
+				}
+			}
+			if (i == k) {
+				s += x;
+				x = iterator[0].skipTo(x + 1);
+			}
+		}
+		return s;
+	}
+
+	@Benchmark
+	public long union() {
+		final Union union = new Union(list);
+		long s = 0;
+		for (int r; (r = union.next(buffer)) != 0;) s += buffer[r - 1];
+		return s;
+	}
+
+	@Benchmark
+	public long unionIterators() {
+		final EliasFanoIndexedMonotoneLongBigListIterator[] iterator = new EliasFanoIndexedMonotoneLongBigListIterator[k];
+		final long[] head = new long[k];
+		for (int i = 0; i < k; i++) head[i] = (iterator[i] = list[i].iterator()).nextLong();
+
+		long s = 0;
+		for (;;) {
+			long min = head[0];
+			for (int i = 1; i < k; i++) if (head[i] < min) min = head[i];
+			if (min == Long.MAX_VALUE) break;
+			s += min;
+			for (int i = 0; i < k; i++) while (head[i] == min) head[i] = iterator[i].hasNext() ? iterator[i].nextLong() : Long.MAX_VALUE;
+		}
+		return s;
+	}
+}
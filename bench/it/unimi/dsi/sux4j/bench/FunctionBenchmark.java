@@ -0,0 +1,164 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import com.martiansoftware.jsap.JSAPException;
+
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.bits.TransformationStrategy;
+import it.unimi.dsi.fastutil.BigArrays;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongBigArrayBigList;
+import it.unimi.dsi.fastutil.objects.Object2LongFunction;
+import it.unimi.dsi.lang.MutableString;
+import it.unimi.dsi.sux4j.mph.CHDMinimalPerfectHashFunction;
+import it.unimi.dsi.sux4j.mph.GOV3Function;
+import it.unimi.dsi.sux4j.mph.GOV4Function;
+import it.unimi.dsi.sux4j.mph.GOVMinimalPerfectHashFunction;
+import it.unimi.dsi.sux4j.mph.GV3CompressedFunction;
+import it.unimi.dsi.sux4j.mph.GV4CompressedFunction;
+import it.unimi.dsi.sux4j.mph.HollowTrieDistributorMonotoneMinimalPerfectHashFunction;
+import it.unimi.dsi.sux4j.mph.HollowTrieMonotoneMinimalPerfectHashFunction;
+import it.unimi.dsi.sux4j.mph.LcpMonotoneMinimalPerfectHashFunction;
+import it.unimi.dsi.sux4j.mph.PaCoTrieDistributorMonotoneMinimalPerfectHashFunction;
+import it.unimi.dsi.sux4j.mph.TwoStepsGOV3Function;
+import it.unimi.dsi.sux4j.mph.TwoStepsLcpMonotoneMinimalPerfectHashFunction;
+import it.unimi.dsi.sux4j.mph.VLLcpMonotoneMinimalPerfectHashFunction;
+import it.unimi.dsi.sux4j.mph.VLPaCoTrieDistributorMonotoneMinimalPerfectHashFunction;
+import it.unimi.dsi.sux4j.mph.ZFastTrieDistributorMonotoneMinimalPerfectHashFunction;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandomGenerator;
+
+/**
+ * Benchmarks random lookups on all (nondeprecated) function families in
+ * {@link it.unimi.dsi.sux4j.mph}.
+ *
+ * <p>
+ * Keys are sorted random strings generated by
+ * {@link it.unimi.dsi.sux4j.test.GenerateRandom64BitStrings}, so that monotone functions can be
+ * built on them. Functions that store arbitrary values associate with each key a power-law
+ * distributed value generated by {@link it.unimi.dsi.sux4j.test.GeneratePowerLawValues}. The
+ * space used by each function is recorded by {@link Space}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionBenchmark {
+	/** The number of random keys queried (a power of two). */
+	private static final int QUERIES = 1 << 20;
+
+	@Param({ "GOV3Function", "GOV4Function", "GV3CompressedFunction", "GV4CompressedFunction", "TwoStepsGOV3Function", "GOVMinimalPerfectHashFunction", "CHDMinimalPerfectHashFunction", "LcpMonotoneMinimalPerfectHashFunction", "TwoStepsLcpMonotoneMinimalPerfectHashFunction", "VLLcpMonotoneMinimalPerfectHashFunction", "HollowTrieMonotoneMinimalPerfectHashFunction", "HollowTrieDistributorMonotoneMinimalPerfectHashFunction", "PaCoTrieDistributorMonotoneMinimalPerfectHashFunction", "VLPaCoTrieDistributorMonotoneMinimalPerfectHashFunction", "ZFastTrieDistributorMonotoneMinimalPerfectHashFunction" })
+	public String function;
+
+	@Param({ "1000000" })
+	public int n;
+
+	private Object2LongFunction<CharSequence> f;
+	private MutableString[] query;
+	private int next;
+
+	@Setup
+	public void setup(final BenchmarkParams params) throws IOException, JSAPException {
+		final List<MutableString> keys = Distributions.random64BitStrings(n);
+		final LongArrayList values = LongArrayList.wrap(Distributions.powerLawValues(2, 1 << 20, n));
+		final TransformationStrategy<CharSequence> transform = TransformationStrategies.prefixFreeIso();
+
+		switch (function) {
+		case "GOV3Function":
+			f = new GOV3Function.Builder<CharSequence>().keys(keys).transform(transform).values(values).build();
+			break;
+		case "GOV4Function":
+			f = new GOV4Function.Builder<CharSequence>().keys(keys).transform(transform).values(values).build();
+			break;
+		case "GV3CompressedFunction":
+			f = new GV3CompressedFunction.Builder<CharSequence>().keys(keys).transform(transform).values(values).build();
+			break;
+		case "GV4CompressedFunction":
+			f = new GV4CompressedFunction.Builder<CharSequence>().keys(keys).transform(transform).values(values).build();
+			break;
+		case "TwoStepsGOV3Function":
+			f = new TwoStepsGOV3Function.Builder<CharSequence>().keys(keys).transform(transform).values(LongBigArrayBigList.wrap(BigArrays.wrap(values.toLongArray()))).build();
+			break;
+		case "GOVMinimalPerfectHashFunction":
+			f = new GOVMinimalPerfectHashFunction.Builder<CharSequence>().keys(keys).transform(transform).build();
+			break;
+		case "CHDMinimalPerfectHashFunction":
+			f = new CHDMinimalPerfectHashFunction.Builder<CharSequence>().keys(keys).transform(transform).build();
+			break;
+		case "LcpMonotoneMinimalPerfectHashFunction":
+			f = new LcpMonotoneMinimalPerfectHashFunction.Builder<CharSequence>().keys(keys).transform(transform).build();
+			break;
+		case "TwoStepsLcpMonotoneMinimalPerfectHashFunction":
+			f = new TwoStepsLcpMonotoneMinimalPerfectHashFunction.Builder<CharSequence>().keys(keys).transform(transform).build();
+			break;
+		case "VLLcpMonotoneMinimalPerfectHashFunction":
+			f = new VLLcpMonotoneMinimalPerfectHashFunction<>(keys, transform);
+			break;
+		case "HollowTrieMonotoneMinimalPerfectHashFunction":
+			f = new HollowTrieMonotoneMinimalPerfectHashFunction<>(keys, transform);
+			break;
+		case "HollowTrieDistributorMonotoneMinimalPerfectHashFunction":
+			f = new HollowTrieDistributorMonotoneMinimalPerfectHashFunction<>(keys, transform);
+			break;
+		case "PaCoTrieDistributorMonotoneMinimalPerfectHashFunction":
+			f = new PaCoTrieDistributorMonotoneMinimalPerfectHashFunction<>(keys, transform);
+			break;
+		case "VLPaCoTrieDistributorMonotoneMinimalPerfectHashFunction":
+			f = new VLPaCoTrieDistributorMonotoneMinimalPerfectHashFunction<>(keys, transform);
+			break;
+		case "ZFastTrieDistributorMonotoneMinimalPerfectHashFunction":
+			f = new ZFastTrieDistributorMonotoneMinimalPerfectHashFunction.Builder<CharSequence>().keys(keys).transform(transform).build();
+			break;
+		default:
+			throw new IllegalArgumentException(function);
+		}
+
+		final XoRoShiRo128PlusRandomGenerator random = new XoRoShiRo128PlusRandomGenerator(0);
+		query = new MutableString[QUERIES];
+		for (int i = QUERIES; i-- != 0;) query[i] = keys.get(random.nextInt(n));
+		Space.record(params, (double)Distributions.numBits(f) / n);
+	}
+
+	@Benchmark
+	public long getLong() {
+		return f.getLong(query[next++ & QUERIES - 1]);
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.martiansoftware.jsap.JSAPException;
+
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.lang.MutableString;
+import it.unimi.dsi.sux4j.mph.HollowTrieMonotoneMinimalPerfectHashFunction;
+import it.unimi.dsi.sux4j.mph.InterleavedHollowTrieMonotoneMinimalPerfectHashFunction;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandomGenerator;
+
+/**
+ * Benchmarks lookups in a {@link HollowTrieMonotoneMinimalPerfectHashFunction} against lookups in
+ * an {@link InterleavedHollowTrieMonotoneMinimalPerfectHashFunction} built from it.
+ *
+ * <p>
+ * Keys are read from the file specified by the {@code file} parameter (e.g., a list of URLs, as in
+ * {@code -p file=urls.txt}); if the parameter is empty, the keys are the random strings generated
+ * by {@link it.unimi.dsi.sux4j.test.GenerateRandom64BitStrings}, which however yield quite shallow
+ * tries. The space used by each structure is printed at setup time.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HollowTrieBenchmark {
+	/** The number of random queries (a power of two). */
+	private static final int QUERIES = 1 << 20;
+
+	@Param({ "" })
+	public String file;
+
+	@Param({ "1000000" })
+	public int n;
+
+	private HollowTrieMonotoneMinimalPerfectHashFunction<CharSequence> hollowTrie;
+	private InterleavedHollowTrieMonotoneMinimalPerfectHashFunction<CharSequence> interleaved;
+	private MutableString[] query;
+	private int next;
+
+	@Setup
+	public void setup() throws IOException, JSAPException {
+		final List<MutableString> strings = file.isEmpty() ? Distributions.random64BitStrings(n) : Distributions.lines(file);
+		hollowTrie = new HollowTrieMonotoneMinimalPerfectHashFunction<>(strings, TransformationStrategies.prefixFreeUtf16());
+		interleaved = new InterleavedHollowTrieMonotoneMinimalPerfectHashFunction<>(hollowTrie);
+		System.err.println("Keys: " + strings.size() + "; bits per key: " + (double)hollowTrie.numBits() / strings.size() + " (hollow), " + (double)interleaved.numBits() / strings.size() + " (interleaved)");
+
+		final XoRoShiRo128PlusRandomGenerator random = new XoRoShiRo128PlusRandomGenerator(0);
+		query = new MutableString[QUERIES];
+		for (int i = QUERIES; i-- != 0;) query[i] = strings.get(random.nextInt(strings.size()));
+	}
+
+	@Benchmark
+	public long hollow() {
+		return hollowTrie.getLong(query[next++ & QUERIES - 1]);
+	}
+
+	@Benchmark
+	public long interleaved() {
+		return interleaved.getLong(query[next++ & QUERIES - 1]);
+	}
+}
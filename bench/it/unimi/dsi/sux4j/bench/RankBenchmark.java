@@ -0,0 +1,146 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bench;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.sux4j.bits.HybridRankSelect;
+import it.unimi.dsi.sux4j.bits.InterleavedRank;
+import it.unimi.dsi.sux4j.bits.Rank;
+import it.unimi.dsi.sux4j.bits.Rank11;
+import it.unimi.dsi.sux4j.bits.Rank12;
+import it.unimi.dsi.sux4j.bits.Rank16;
+import it.unimi.dsi.sux4j.bits.Rank9;
+import it.unimi.dsi.sux4j.bits.SparseRank;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandomGenerator;
+
+/**
+ * Benchmarks random-access {@link Rank#rank(long)} and {@link Rank#rank(long[], long[])} on all rank
+ * implementations. The space used by each structure is recorded by {@link Space}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RankBenchmark {
+	/** The number of random positions queried (a power of two). */
+	private static final int POSITIONS = 1 << 20;
+	/** The number of positions queried by each call to {@link Rank#rank(long[], long[])}. */
+	private static final int BATCH = 1024;
+
+	@Param({ "Rank9", "InterleavedRank", "Rank11", "Rank12", "Rank16", "SparseRank", "HybridRankSelect" })
+	public String implementation;
+
+	@Param({ "16777216" })
+	public long numBits;
+
+	@Param({ "0.01", "0.1", "0.5", "0.99" })
+	public double density;
+
+	private Rank rank;
+	private long[] position;
+	private long[][] batch;
+	private long[] dest;
+	private int next;
+
+	/**
+	 * Builds a random bit vector with the given density.
+	 *
+	 * @param numBits the length of the bit vector.
+	 * @param density the probability that a bit is set.
+	 * @return a random bit vector.
+	 */
+	static LongArrayBitVector randomBitVector(final long numBits, final double density) {
+		final XoRoShiRo128PlusRandomGenerator random = new XoRoShiRo128PlusRandomGenerator(0);
+		final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length(numBits);
+		for (long i = numBits; i-- != 0;) if (random.nextDouble() < density) bitVector.set(i);
+		return bitVector;
+	}
+
+	@Setup
+	public void setup(final BenchmarkParams params) throws IOException {
+		final LongArrayBitVector bitVector = randomBitVector(numBits, density);
+		switch (implementation) {
+		case "Rank9":
+			rank = new Rank9(bitVector);
+			break;
+		case "InterleavedRank":
+			rank = new InterleavedRank(bitVector);
+			break;
+		case "Rank11":
+			rank = new Rank11(bitVector);
+			break;
+		case "Rank12":
+			rank = new Rank12(bitVector);
+			break;
+		case "Rank16":
+			rank = new Rank16(bitVector);
+			break;
+		case "SparseRank":
+			rank = new SparseRank(bitVector);
+			break;
+		case "HybridRankSelect":
+			rank = new HybridRankSelect(bitVector);
+			break;
+		default:
+			throw new IllegalArgumentException(implementation);
+		}
+
+		final XoRoShiRo128PlusRandomGenerator random = new XoRoShiRo128PlusRandomGenerator(1);
+		position = new long[POSITIONS];
+		for (int i = POSITIONS; i-- != 0;) position[i] = random.nextLong(numBits);
+		batch = new long[POSITIONS / BATCH][];
+		for (int i = batch.length; i-- != 0;) batch[i] = Arrays.copyOfRange(position, i * BATCH, (i + 1) * BATCH);
+		dest = new long[BATCH];
+		Space.record(params, (double)rank.numBits() / numBits);
+	}
+
+	@Benchmark
+	public long rank() {
+		return rank.rank(position[next++ & POSITIONS - 1]);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public long[] rankBatch() {
+		return rank.rank(batch[next++ & batch.length - 1], dest);
+	}
+}
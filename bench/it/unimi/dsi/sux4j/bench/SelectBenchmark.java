@@ -0,0 +1,122 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.sux4j.bits.HintedBsearchSelect;
+import it.unimi.dsi.sux4j.bits.HybridRankSelect;
+import it.unimi.dsi.sux4j.bits.Rank9;
+import it.unimi.dsi.sux4j.bits.Select;
+import it.unimi.dsi.sux4j.bits.Select9;
+import it.unimi.dsi.sux4j.bits.SelectZero;
+import it.unimi.dsi.sux4j.bits.SimpleSelect;
+import it.unimi.dsi.sux4j.bits.SimpleSelectZero;
+import it.unimi.dsi.sux4j.bits.SparseSelect;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandomGenerator;
+
+/**
+ * Benchmarks random-access {@link Select#select(long)} on all select implementations, and
+ * {@link SelectZero#selectZero(long)} on {@link SimpleSelectZero} (denoted by
+ * <code>SimpleSelectZero</code>). The space used by each structure is recorded by {@link Space}.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectBenchmark {
+	/** The number of random ranks queried (a power of two). */
+	private static final int RANKS = 1 << 20;
+
+	@Param({ "SimpleSelect", "Select9", "SparseSelect", "HintedBsearchSelect", "SimpleSelectZero", "HybridRankSelect" })
+	public String implementation;
+
+	@Param({ "16777216" })
+	public long numBits;
+
+	@Param({ "0.01", "0.1", "0.5", "0.99" })
+	public double density;
+
+	private Select select;
+	private SelectZero selectZero;
+	private long[] rank;
+	private int next;
+
+	@Setup
+	public void setup(final BenchmarkParams params) throws IOException {
+		final LongArrayBitVector bitVector = RankBenchmark.randomBitVector(numBits, density);
+		final long numOnes = bitVector.count();
+		final long numberOfRanks;
+		final long numBits;
+		switch (implementation) {
+		case "SimpleSelect":
+			numBits = (select = new SimpleSelect(bitVector)).numBits();
+			break;
+		case "Select9":
+			numBits = (select = new Select9(new Rank9(bitVector))).numBits();
+			break;
+		case "SparseSelect":
+			numBits = (select = new SparseSelect(bitVector)).numBits();
+			break;
+		case "HintedBsearchSelect":
+			numBits = (select = new HintedBsearchSelect(new Rank9(bitVector))).numBits();
+			break;
+		case "SimpleSelectZero":
+			numBits = (selectZero = new SimpleSelectZero(bitVector)).numBits();
+			break;
+		case "HybridRankSelect":
+			numBits = (select = new HybridRankSelect(bitVector)).numBits();
+			break;
+		default:
+			throw new IllegalArgumentException(implementation);
+		}
+		numberOfRanks = selectZero != null ? this.numBits - numOnes : numOnes;
+
+		final XoRoShiRo128PlusRandomGenerator random = new XoRoShiRo128PlusRandomGenerator(1);
+		rank = new long[RANKS];
+		for (int i = RANKS; i-- != 0;) rank[i] = random.nextLong(numberOfRanks);
+		Space.record(params, (double)numBits / this.numBits);
+	}
+
+	@Benchmark
+	public long select() {
+		final long r = rank[next++ & RANKS - 1];
+		return select != null ? select.select(r) : selectZero.selectZero(r);
+	}
+}
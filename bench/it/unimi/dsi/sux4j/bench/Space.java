@@ -0,0 +1,77 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Records the space used by benchmarked structures.
+ *
+ * <p>
+ * Space is not a per-operation quantity, so it cannot be reported by JMH auxiliary counters (which
+ * are either summed over iterations or normalized to time). Setup methods pass to
+ * {@link #record(BenchmarkParams, double)} the parameters of the current benchmark and the space of
+ * the structure they built, which is appended as a JSON object to a side file (one object per
+ * line). The benchmark name and parameters are written as in the JSON output of JMH
+ * ({@code -rf json}), so the two files can be joined.
+ *
+ * <p>
+ * The side file is {@value #DEFAULT_FILE} in the current directory, unless the system property
+ * {@value #FILE_PROPERTY} is set (note that it must be set in the forked virtual machines, e.g.,
+ * with {@code -jvmArgsAppend -Dit.unimi.dsi.sux4j.bench.space=...}).
+ */
+
+public final class Space {
+
+	private Space() {}
+
+	/** The system property specifying the side file. */
+	public static final String FILE_PROPERTY = "it.unimi.dsi.sux4j.bench.space";
+	/** The default side file. */
+	public static final String DEFAULT_FILE = "space.json";
+
+	/**
+	 * Appends the space used by a benchmarked structure to the side file.
+	 *
+	 * @param params the parameters of the current benchmark, as injected by JMH in setup methods.
+	 * @param bitsPerElement the number of bits per element (e.g., per key or per bit) of the
+	 *            benchmarked structure.
+	 */
+	public static synchronized void record(final BenchmarkParams params, final double bitsPerElement) throws IOException {
+		final StringBuilder s = new StringBuilder();
+		s.append("{\"benchmark\":\"").append(params.getBenchmark()).append("\",\"params\":{");
+		boolean first = true;
+		for (final String key : params.getParamsKeys()) {
+			if (!first) s.append(',');
+			first = false;
+			s.append('"').append(key).append("\":\"").append(params.getParam(key)).append('"');
+		}
+		s.append("},\"bitsPerElement\":").append(bitsPerElement).append('}');
+		Files.write(Paths.get(System.getProperty(FILE_PROPERTY, DEFAULT_FILE)), Collections.singletonList(s), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+}
@@ -0,0 +1,449 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bits;
+
+import static it.unimi.dsi.bits.LongArrayBitVector.words;
+
+import java.util.Arrays;
+
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+
+/**
+ * A compressed bit vector providing ranking and selection, in which each block is encoded using
+ * the most compact among several representations.
+ *
+ * <p>
+ * {@link Rank9} and {@link SimpleSelect} are fast, but need the whole bit vector, whereas
+ * {@link SparseRank} and {@link SparseSelect} are compact only for very sparse bit vectors. Bit
+ * vectors of medium density, or with long runs of ones, waste space with both. This class divides
+ * the bit vector into blocks of {@value #BLOCK_SIZE} bits, and stores each block using one of the
+ * following encodings, choosing the smallest one (in case of ties, preferring the fastest):
+ *
+ * <ul>
+ * <li>no data, if the block is made of zeroes, or of ones;
+ * <li>a plain bitmap, with seven 12-bit cumulative counts for sub-blocks of 512 bits;
+ * <li>an Elias&ndash;Fano representation of the positions of the ones;
+ * <li>a run-length representation, containing the starting position of each run of ones and the
+ * number of ones preceding the run.
+ * </ul>
+ *
+ * <p>
+ * A directory contains for each block the number of ones before the block, the position of its data
+ * and its encoding; moreover, the block containing a one of rank multiple of {@value
+ * #SELECT_SAMPLE} is recorded to speed up selection. The directory costs 3.3% of the bit vector.
+ *
+ * <p>
+ * Since this class replaces the indexed bit vector, {@link #numBits()} returns the overall space
+ * occupied, and {@link #bitVector()} returns a newly decoded copy.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class HybridRankSelect extends AbstractRank implements Select {
+	private static final long serialVersionUID = 0L;
+	/** The base-2 logarithm of {@link #BLOCK_SIZE}. */
+	private static final int LOG2_BLOCK_SIZE = 12;
+	/** The number of bits in a block. */
+	public static final int BLOCK_SIZE = 1 << LOG2_BLOCK_SIZE;
+	/** The number of words in a block. */
+	private static final int WORDS_PER_BLOCK = BLOCK_SIZE / Long.SIZE;
+	/** The base-2 logarithm of {@link #SELECT_SAMPLE}. */
+	private static final int LOG2_SELECT_SAMPLE = 12;
+	/** The number of ones between selection hints. */
+	public static final int SELECT_SAMPLE = 1 << LOG2_SELECT_SAMPLE;
+	/** The width of the fields of a run-length encoded block. */
+	private static final int RUN_FIELD_WIDTH = LOG2_BLOCK_SIZE + 1;
+	/** The width of the cumulative counts of a plain block. */
+	private static final int COUNT_WIDTH = 12;
+	/** The number of words of a plain block (two words of counts, plus the bitmap). */
+	private static final int PLAIN_WORDS = 2 + WORDS_PER_BLOCK;
+
+	/** A block made of zeroes. */
+	private static final byte ZEROES = 0;
+	/** A block made of ones. */
+	private static final byte ONES = 1;
+	/** A plain block. */
+	private static final byte PLAIN = 2;
+	/** An Elias&ndash;Fano block. */
+	private static final byte ELIAS_FANO = 3;
+	/** A run-length block. */
+	private static final byte RUNS = 4;
+
+	/** The length of the bit vector. */
+	protected final long length;
+	/** The number of blocks. */
+	protected final int numBlocks;
+	/** The number of ones before each block, plus a final entry containing the number of ones. */
+	protected final long[] ranks;
+	/** The word offset of the data of each block in {@link #data}, plus a final entry. */
+	protected final long[] offsets;
+	/** The encoding of each block. */
+	protected final byte[] types;
+	/** The block containing the one of rank <var>k</var>{@link #SELECT_SAMPLE}, for each <var>k</var>. */
+	protected final int[] hints;
+	/** The encoded blocks, each starting at a word boundary. */
+	protected final long[] data;
+
+	/** A supplier of the content of blocks, which are requested in increasing order. */
+	@FunctionalInterface
+	private interface BlockSupplier {
+		/**
+		 * Sets the ones of a block.
+		 *
+		 * @param block the index of a block.
+		 * @param words an array of {@link #WORDS_PER_BLOCK} zeroes that will be filled with the
+		 *            content of the block.
+		 */
+		void fill(int block, long[] words);
+	}
+
+	/**
+	 * Creates a new hybrid rank/select structure for a bit vector specified by an array of longs and a
+	 * number of bits.
+	 *
+	 * @param bits an array of longs representing a bit array.
+	 * @param length the number of bits to use from <code>bits</code>.
+	 */
+	public HybridRankSelect(final long[] bits, final long length) {
+		this(LongArrayBitVector.wrap(bits, length));
+	}
+
+	/**
+	 * Creates a new hybrid rank/select structure for a bit vector.
+	 *
+	 * @param bitVector a bit vector.
+	 */
+	public HybridRankSelect(final BitVector bitVector) {
+		this(bitVector.length(), (block, words) -> {
+			final long start = (long)block << LOG2_BLOCK_SIZE, end = Math.min(bitVector.length(), start + BLOCK_SIZE);
+			for (long from = start; from < end; from += Long.SIZE) words[(int)(from - start >>> 6)] = bitVector.getLong(from, Math.min(end, from + Long.SIZE));
+		});
+	}
+
+	/**
+	 * Creates a new hybrid rank/select structure for a bit vector specified by the positions of its
+	 * ones, without materializing the bit vector.
+	 *
+	 * @param length the length of the bit vector.
+	 * @param ones an iterator returning the positions of the ones in increasing order.
+	 */
+	public HybridRankSelect(final long length, final LongIterator ones) {
+		this(length, new BlockSupplier() {
+			private long next = ones.hasNext() ? ones.nextLong() : Long.MAX_VALUE;
+
+			@Override
+			public void fill(final int block, final long[] words) {
+				final long end = Math.min(length, (long)(block + 1) << LOG2_BLOCK_SIZE);
+				while (next < end) {
+					final int p = (int)(next & BLOCK_SIZE - 1);
+					words[p >>> 6] |= 1L << p;
+					final long prev = next;
+					next = ones.hasNext() ? ones.nextLong() : Long.MAX_VALUE;
+					if (next <= prev) throw new IllegalArgumentException("The positions are not strictly increasing: " + prev + ", " + next);
+				}
+				if (block == numBlocks(length) - 1 && next != Long.MAX_VALUE) throw new IllegalArgumentException("Position " + next + " larger than or equal to length " + length);
+			}
+		});
+	}
+
+	private static int numBlocks(final long length) {
+		final long numBlocks = length + BLOCK_SIZE - 1 >>> LOG2_BLOCK_SIZE;
+		if (numBlocks >= Integer.MAX_VALUE) throw new IllegalArgumentException("Bit vector too long: " + length);
+		return (int)numBlocks;
+	}
+
+	/** Returns the number of lower bits of the Elias&ndash;Fano representation of a block with the given number of ones. */
+	private static int lowerBits(final int m) {
+		return Fast.mostSignificantBit(BLOCK_SIZE / m);
+	}
+
+	private HybridRankSelect(final long length, final BlockSupplier supplier) {
+		this.length = length;
+		numBlocks = numBlocks(length);
+		ranks = new long[numBlocks + 1];
+		offsets = new long[numBlocks + 1];
+		types = new byte[numBlocks];
+		final IntArrayList hints = new IntArrayList();
+		final LongArrayBitVector out = LongArrayBitVector.getInstance();
+		final long[] words = new long[WORDS_PER_BLOCK];
+		final LongArrayBitVector block = LongArrayBitVector.wrap(words, BLOCK_SIZE);
+		final int[] start = new int[BLOCK_SIZE / 2], onesBefore = new int[BLOCK_SIZE / 2];
+		long count = 0;
+
+		for (int b = 0; b < numBlocks; b++) {
+			Arrays.fill(words, 0);
+			supplier.fill(b, words);
+			int m = 0;
+			for (final long w : words) m += Long.bitCount(w);
+
+			ranks[b] = count;
+			offsets[b] = out.length() >>> 6;
+			while ((long)hints.size() << LOG2_SELECT_SAMPLE < count + m) hints.add(b);
+			count += m;
+
+			if (m == 0) types[b] = ZEROES;
+			else if (m == BLOCK_SIZE) types[b] = ONES;
+			else {
+				int runs = 0, ones = 0;
+				for (long p = block.nextOne(0); p != -1; runs++) {
+					final long end = block.nextZero(p);
+					start[runs] = (int)p;
+					onesBefore[runs] = ones;
+					ones += (end == -1 ? BLOCK_SIZE : end) - p;
+					p = end == -1 ? -1 : block.nextOne(end);
+				}
+
+				final int l = lowerBits(m);
+				final long plainCost = PLAIN_WORDS;
+				final long runsCost = words(RUN_FIELD_WIDTH + 2L * RUN_FIELD_WIDTH * runs);
+				final long eliasFanoCost = words(m + (BLOCK_SIZE >>> l)) + words((long)m * l);
+
+				if (plainCost <= runsCost && plainCost <= eliasFanoCost) {
+					types[b] = PLAIN;
+					long c0 = 0, c1 = 0, c = 0;
+					for (int sub = 0; sub < 8; sub++) {
+						if (sub != 0) {
+							if (sub <= 5) c0 |= c << COUNT_WIDTH * (sub - 1);
+							else c1 |= c << COUNT_WIDTH * (sub - 6);
+						}
+						for (int j = sub * 8; j < sub * 8 + 8; j++) c += Long.bitCount(words[j]);
+					}
+					out.append(c0, Long.SIZE);
+					out.append(c1, Long.SIZE);
+					for (final long w : words) out.append(w, Long.SIZE);
+				} else if (runsCost <= eliasFanoCost) {
+					types[b] = RUNS;
+					out.append(runs, RUN_FIELD_WIDTH);
+					for (int i = 0; i < runs; i++) {
+						out.append(start[i], RUN_FIELD_WIDTH);
+						out.append(onesBefore[i], RUN_FIELD_WIDTH);
+					}
+				} else {
+					types[b] = ELIAS_FANO;
+					final long base = out.length();
+					out.length(base + words(m + (BLOCK_SIZE >>> l)) * Long.SIZE);
+					int i = 0;
+					for (long p = block.nextOne(0); p != -1; p = block.nextOne(p + 1)) out.set(base + (p >>> l) + i++);
+					if (l != 0) for (long p = block.nextOne(0); p != -1; p = block.nextOne(p + 1)) out.append(p & (1L << l) - 1, l);
+				}
+				out.length(words(out.length()) * (long)Long.SIZE);
+			}
+		}
+
+		ranks[numBlocks] = count;
+		offsets[numBlocks] = out.length() >>> 6;
+		this.hints = hints.toIntArray();
+		out.trim();
+		data = out.bits();
+	}
+
+	/** Returns a field of at most 64 bits of {@link #data}. */
+	private long field(final long from, final int width) {
+		if (width == 0) return 0;
+		final int word = (int)(from >>> 6);
+		final int bit = (int)(from & 63);
+		final long mask = -1L >>> -width;
+		if (bit + width <= Long.SIZE) return data[word] >>> bit & mask;
+		return (data[word] >>> bit | data[word + 1] << -bit) & mask;
+	}
+
+	@Override
+	public long count() {
+		return ranks[numBlocks];
+	}
+
+	@Override
+	public long rank(final long pos) {
+		final int b = (int)(pos >>> LOG2_BLOCK_SIZE);
+		if (b >= numBlocks) return ranks[numBlocks];
+		return ranks[b] + blockRank(b, (int)(pos & BLOCK_SIZE - 1));
+	}
+
+	/** Returns the number of ones before a given position of a block. */
+	private long blockRank(final int b, final int p) {
+		final long[] data = this.data;
+		switch (types[b]) {
+		case ZEROES:
+			return 0;
+		case ONES:
+			return p;
+		case PLAIN: {
+			final int base = (int)offsets[b];
+			final int sub = p >>> 9;
+			long r = sub == 0 ? 0 : sub <= 5 ? data[base] >>> COUNT_WIDTH * (sub - 1) & (1 << COUNT_WIDTH) - 1 : data[base + 1] >>> COUNT_WIDTH * (sub - 6) & (1 << COUNT_WIDTH) - 1;
+			final int word = p >>> 6;
+			for (int j = sub << 3; j < word; j++) r += Long.bitCount(data[base + 2 + j]);
+			return r + Long.bitCount(data[base + 2 + word] & (1L << p) - 1);
+		}
+		case RUNS: {
+			final long base = offsets[b] << 6;
+			final int runs = (int)field(base, RUN_FIELD_WIDTH);
+			// Find the last run starting at or before p
+			int lo = 0, hi = runs - 1;
+			while (lo < hi) {
+				final int mid = lo + hi + 1 >>> 1;
+				if (field(base + RUN_FIELD_WIDTH + 2L * RUN_FIELD_WIDTH * mid, RUN_FIELD_WIDTH) <= p) lo = mid;
+				else hi = mid - 1;
+			}
+			final long start = field(base + RUN_FIELD_WIDTH + 2L * RUN_FIELD_WIDTH * lo, RUN_FIELD_WIDTH);
+			if (start > p) return 0;
+			final long before = field(base + 2L * RUN_FIELD_WIDTH * (lo + 1), RUN_FIELD_WIDTH);
+			final long after = lo + 1 < runs ? field(base + 2L * RUN_FIELD_WIDTH * (lo + 2), RUN_FIELD_WIDTH) : ranks[b + 1] - ranks[b];
+			return before + Math.min(p - start, after - before);
+		}
+		default: {
+			final int m = (int)(ranks[b + 1] - ranks[b]);
+			final int l = lowerBits(m);
+			final int base = (int)offsets[b];
+			final long lowerBase = (base + words(m + (BLOCK_SIZE >>> l))) * (long)Long.SIZE;
+			final int high = p >>> l;
+			// Find the start of the bucket of p in the upper bits, that is, the position after the (high - 1)-th zero
+			long z = 0;
+			if (high != 0) {
+				int r = high - 1;
+				for (int j = base;; j++) {
+					final long x = ~data[j];
+					final int c = Long.bitCount(x);
+					if (r < c) {
+						z = (long)(j - base) * Long.SIZE + Fast.select(x, r) + 1;
+						break;
+					}
+					r -= c;
+				}
+			}
+			int count = (int)(z - high);
+			final long low = p & (1L << l) - 1;
+			while (count < m && (data[base + (int)(z >>> 6)] & 1L << z) != 0 && field(lowerBase + (long)count * l, l) < low) {
+				count++;
+				z++;
+			}
+			return count;
+		}
+		}
+	}
+
+	@Override
+	public long select(final long rank) {
+		if (rank < 0 || rank >= ranks[numBlocks]) return -1;
+		final int h = (int)(rank >>> LOG2_SELECT_SAMPLE);
+		int lo = hints[h], hi = h + 1 < hints.length ? hints[h + 1] : numBlocks - 1;
+		// Find the last block whose rank is at most rank
+		while (lo < hi) {
+			final int mid = lo + hi + 1 >>> 1;
+			if (ranks[mid] <= rank) lo = mid;
+			else hi = mid - 1;
+		}
+		return ((long)lo << LOG2_BLOCK_SIZE) + blockSelect(lo, (int)(rank - ranks[lo]));
+	}
+
+	/** Returns the position in a block of the one of given rank in the block. */
+	private int blockSelect(final int b, int k) {
+		final long[] data = this.data;
+		switch (types[b]) {
+		case ONES:
+			return k;
+		case PLAIN: {
+			final int base = (int)offsets[b];
+			int sub = 0;
+			long c = 0;
+			for (int s = 1; s < 8; s++) {
+				final long t = s <= 5 ? data[base] >>> COUNT_WIDTH * (s - 1) & (1 << COUNT_WIDTH) - 1 : data[base + 1] >>> COUNT_WIDTH * (s - 6) & (1 << COUNT_WIDTH) - 1;
+				if (t > k) break;
+				sub = s;
+				c = t;
+			}
+			k -= c;
+			for (int j = sub << 3;; j++) {
+				final long x = data[base + 2 + j];
+				final int bc = Long.bitCount(x);
+				if (k < bc) return j * Long.SIZE + Fast.select(x, k);
+				k -= bc;
+			}
+		}
+		case RUNS: {
+			final long base = offsets[b] << 6;
+			final int runs = (int)field(base, RUN_FIELD_WIDTH);
+			// Find the last run preceded by at most k ones
+			int lo = 0, hi = runs - 1;
+			while (lo < hi) {
+				final int mid = lo + hi + 1 >>> 1;
+				if (field(base + 2L * RUN_FIELD_WIDTH * (mid + 1), RUN_FIELD_WIDTH) <= k) lo = mid;
+				else hi = mid - 1;
+			}
+			return (int)(field(base + RUN_FIELD_WIDTH + 2L * RUN_FIELD_WIDTH * lo, RUN_FIELD_WIDTH) + k - field(base + 2L * RUN_FIELD_WIDTH * (lo + 1), RUN_FIELD_WIDTH));
+		}
+		case ELIAS_FANO: {
+			final int m = (int)(ranks[b + 1] - ranks[b]);
+			final int l = lowerBits(m);
+			final int base = (int)offsets[b];
+			final long lowerBase = (base + words(m + (BLOCK_SIZE >>> l))) * (long)Long.SIZE;
+			int r = k;
+			for (int j = base;; j++) {
+				final long x = data[j];
+				final int c = Long.bitCount(x);
+				if (r < c) return (int)(((long)(j - base) * Long.SIZE + Fast.select(x, r) - k) << l | field(lowerBase + (long)k * l, l));
+				r -= c;
+			}
+		}
+		default:
+			throw new IllegalStateException();
+		}
+	}
+
+	/**
+	 * Returns a copy of the bit vector represented by this structure.
+	 *
+	 * <p>
+	 * Note that the bit vector is decoded each time this method is called.
+	 *
+	 * @return a newly decoded copy of the bit vector represented by this structure.
+	 */
+	@Override
+	public BitVector bitVector() {
+		final LongArrayBitVector result = LongArrayBitVector.getInstance().length(length);
+		for (int b = 0; b < numBlocks; b++) {
+			final long start = (long)b << LOG2_BLOCK_SIZE;
+			switch (types[b]) {
+			case ZEROES:
+				break;
+			case ONES:
+				result.fill(start, start + BLOCK_SIZE, true);
+				break;
+			case PLAIN:
+				for (int j = 0; j < WORDS_PER_BLOCK && start + j * Long.SIZE < length; j++) result.bits()[(int)(start >>> 6) + j] = data[(int)offsets[b] + 2 + j];
+				break;
+			default:
+				for (int k = (int)(ranks[b + 1] - ranks[b]); k-- != 0;) result.set(start + blockSelect(b, k));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public long numBits() {
+		return (long)data.length * Long.SIZE + (ranks.length + offsets.length) * (long)Long.SIZE + types.length * (long)Byte.SIZE + hints.length * (long)Integer.SIZE;
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bits;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import it.unimi.dsi.bits.AbstractBitVector;
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.sux4j.util.OffHeapLongArray;
+
+/**
+ * A bit vector whose words are stored outside of the Java heap, in direct memory or in a
+ * memory-mapped file.
+ *
+ * <p>
+ * Bits are packed in longs following the same conventions of
+ * {@link it.unimi.dsi.bits.LongArrayBitVector} (bit <var>k</var> is bit <var>k</var> mod 64 of
+ * word &lfloor;<var>k</var> / 64&rfloor;), and words are stored in native byte order. Since
+ * addressing is not limited by the size of a Java array, instances of this class can contain more
+ * than 2<sup>37</sup> bits.
+ *
+ * <p>
+ * Instances are created by {@linkplain #copy(BitVector) copying} a bit vector in direct memory, or
+ * by {@linkplain #map(String, long) mapping} a file previously written by
+ * {@link #store(BitVector, String)}. Mapped instances are read-only, but they are excluded from
+ * garbage collection and shared between processes through the page cache.
+ *
+ * <p>
+ * Rank and selection structures over instances of this class are provided by
+ * {@link OffHeapRank9}, {@link OffHeapSelect9} and {@link OffHeapSimpleSelect}.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class OffHeapBitVector extends AbstractBitVector {
+	/** The words of this bit vector. */
+	private final OffHeapLongArray words;
+	/** The length of this bit vector. */
+	private final long length;
+
+	private OffHeapBitVector(final OffHeapLongArray words, final long length) {
+		this.words = words;
+		this.length = length;
+	}
+
+	/** Returns the number of words necessary to store the given number of bits.
+	 *
+	 * @param length a number of bits.
+	 * @return the number of words necessary to store {@code length} bits.
+	 */
+	static long words(final long length) {
+		return (length + Long.SIZE - 1) >>> 6;
+	}
+
+	/**
+	 * Wraps an off-heap array of longs.
+	 *
+	 * @param words an array of longs.
+	 * @param length the number of bits of the bit vector.
+	 * @return a bit vector of length {@code length} backed by {@code words}.
+	 */
+	public static OffHeapBitVector wrap(final OffHeapLongArray words, final long length) {
+		if (words(length) > words.length()) throw new IllegalArgumentException("The number of words (" + words.length() + ") is not sufficient to store " + length + " bits");
+		return new OffHeapBitVector(words, length);
+	}
+
+	/**
+	 * Copies a bit vector in direct memory.
+	 *
+	 * @param bitVector a bit vector.
+	 * @return a copy of {@code bitVector} stored in direct memory.
+	 */
+	public static OffHeapBitVector copy(final BitVector bitVector) {
+		final long length = bitVector.length();
+		final OffHeapLongArray words = OffHeapLongArray.allocate(words(length));
+		for (long i = 0; i < length; i += Long.SIZE) words.set(i >>> 6, bitVector.getLong(i, Math.min(i + Long.SIZE, length)));
+		return new OffHeapBitVector(words, length);
+	}
+
+	/**
+	 * Stores the bits of a bit vector in a file so that it can be {@linkplain #map(String, long) mapped}
+	 * later.
+	 *
+	 * <p>
+	 * The file contains &lceil;<var>n</var> / 64&rceil; longs in native byte order, where <var>n</var>
+	 * is the length of the bit vector. The length of the bit vector is not stored and must be provided
+	 * to {@link #map(String, long)}.
+	 *
+	 * @param bitVector a bit vector.
+	 * @param filename the name of the file where {@code bitVector} will be stored.
+	 */
+	public static void store(final BitVector bitVector, final String filename) throws IOException {
+		final long length = bitVector.length();
+		try (final FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.nativeOrder());
+			for (long i = 0; i < length; i += Long.SIZE) {
+				buffer.putLong(bitVector.getLong(i, Math.min(i + Long.SIZE, length)));
+				if (!buffer.hasRemaining()) {
+					buffer.flip();
+					while (buffer.hasRemaining()) channel.write(buffer);
+					buffer.clear();
+				}
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Maps in read-only mode a file written by {@link #store(BitVector, String)}.
+	 *
+	 * @param filename the name of a file written by {@link #store(BitVector, String)}.
+	 * @param length the length of the stored bit vector.
+	 * @return a read-only bit vector backed by the mapped file.
+	 */
+	public static OffHeapBitVector map(final String filename, final long length) throws IOException {
+		try (final FileChannel channel = FileChannel.open(Paths.get(filename))) {
+			if (channel.size() < words(length) * Long.BYTES) throw new IllegalArgumentException("File " + filename + " is too short to contain " + length + " bits");
+			return new OffHeapBitVector(OffHeapLongArray.map(channel, FileChannel.MapMode.READ_ONLY, 0, words(length)), length);
+		}
+	}
+
+	/**
+	 * Returns the array of longs backing this bit vector.
+	 *
+	 * @return the array of longs backing this bit vector.
+	 */
+	public OffHeapLongArray words() {
+		return words;
+	}
+
+	@Override
+	public long length() {
+		return length;
+	}
+
+	@Override
+	public boolean getBoolean(final long index) {
+		ensureRestrictedIndex(index);
+		return (words.get(index >>> 6) & 1L << index) != 0;
+	}
+
+	@Override
+	public boolean set(final long index, final boolean value) {
+		ensureRestrictedIndex(index);
+		final long word = words.get(index >>> 6);
+		final long mask = 1L << index;
+		if (value) words.set(index >>> 6, word | mask);
+		else words.set(index >>> 6, word & ~mask);
+		return (word & mask) != 0;
+	}
+
+	@Override
+	public long getLong(final long from, final long to) {
+		if (from < 0 || from > to || to > length) throw new IndexOutOfBoundsException("Illegal range [" + from + ".." + to + ") for a bit vector of length " + length);
+		final long l = Long.SIZE - (to - from);
+		final long startWord = from >>> 6;
+		final int startBit = (int)(from & 63);
+		if (l == Long.SIZE) return 0;
+		if (startBit <= l) return words.get(startWord) << l - startBit >>> l;
+		return words.get(startWord) >>> startBit | words.get(startWord + 1) << Long.SIZE + l - startBit >>> l;
+	}
+
+	@Override
+	public long count() {
+		final long numWords = words(length);
+		if (numWords == 0) return 0;
+		long c = 0;
+		for (long i = numWords - 1; i-- != 0;) c += Long.bitCount(words.get(i));
+		final int residual = (int)(length & 63);
+		final long last = words.get(numWords - 1);
+		return c + Long.bitCount(residual == 0 ? last : last & (1L << residual) - 1);
+	}
+}
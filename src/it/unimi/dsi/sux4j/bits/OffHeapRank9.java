@@ -0,0 +1,195 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bits;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.sux4j.util.OffHeapLongArray;
+
+/**
+ * A <code>{@linkplain Rank9 rank9}</code> implementation whose bits and counts are stored outside
+ * of the Java heap.
+ *
+ * <p>
+ * This class uses the same layout of {@link Rank9}, but both the {@linkplain OffHeapBitVector bit
+ * vector} and the counts are stored in {@linkplain OffHeapLongArray off-heap arrays} addressed by
+ * longs, so it is not limited to 2<sup>37</sup> bits. Counts can be built in direct memory, or
+ * directly in a file using {@link #OffHeapRank9(OffHeapBitVector, String)}; in the latter case,
+ * the structure can be later {@linkplain #map(OffHeapBitVector, String) mapped} in constant time.
+ *
+ * <p>
+ * Instances of this class cannot be serialized: store the bit vector using
+ * {@link OffHeapBitVector#store(BitVector, String)} and the counts using
+ * {@link #OffHeapRank9(OffHeapBitVector, String)} instead.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class OffHeapRank9 extends AbstractRank {
+	private static final long serialVersionUID = 0L;
+
+	/** The underlying bit vector. */
+	protected final OffHeapBitVector bitVector;
+	/** The words of {@link #bitVector}. */
+	protected final OffHeapLongArray bits;
+	/**
+	 * The counts, in the same format of {@link Rank9}, followed by {@link #numOnes} and by
+	 * {@link #lastOne}.
+	 */
+	protected final OffHeapLongArray count;
+	/** The number of words in {@link #bitVector}. */
+	protected final long numWords;
+	/** The number of ones in {@link #bitVector}. */
+	protected final long numOnes;
+	/** The position of the last one in {@link #bitVector}, or -1. */
+	protected final long lastOne;
+
+	/** Returns the number of counts (excluding the final number of ones) for a bit vector of given length.
+	 *
+	 * @param length a number of bits.
+	 * @return the number of counts.
+	 */
+	private static long numCounts(final long length) {
+		return (length + 8 * Long.SIZE - 1) / (8 * Long.SIZE) * 2;
+	}
+
+	/**
+	 * Creates a new <code>rank9</code> structure with counts stored in direct memory.
+	 *
+	 * @param bitVector a bit vector.
+	 */
+	public OffHeapRank9(final OffHeapBitVector bitVector) {
+		this(bitVector, OffHeapLongArray.allocate(numCounts(bitVector.length()) + 2), true);
+	}
+
+	/**
+	 * Creates a new <code>rank9</code> structure with counts stored in a file.
+	 *
+	 * <p>
+	 * The file will be mapped into memory and filled with the counts, so that it can be
+	 * {@linkplain #map(OffHeapBitVector, String) mapped} again later.
+	 *
+	 * @param bitVector a bit vector.
+	 * @param filename the name of the file that will contain the counts.
+	 */
+	public OffHeapRank9(final OffHeapBitVector bitVector, final String filename) throws IOException {
+		this(bitVector, OffHeapLongArray.create(filename, numCounts(bitVector.length()) + 2), true);
+	}
+
+	private OffHeapRank9(final OffHeapBitVector bitVector, final OffHeapLongArray count, final boolean build) {
+		this.bitVector = bitVector;
+		this.bits = bitVector.words();
+		this.count = count;
+		final long length = bitVector.length();
+		numWords = OffHeapBitVector.words(length);
+		final long numCounts = numCounts(length);
+
+		if (build) {
+			final OffHeapLongArray bits = this.bits;
+			final long numWords = this.numWords;
+			long c = 0, l = -1;
+			long pos = 0;
+			for (long i = 0; i < numWords; i += 8, pos += 2) {
+				final long countAtStart = c;
+				long subcounts = 0;
+				long word = bits.get(i);
+				count.set(pos, c);
+				c += Long.bitCount(word);
+				if (word != 0) l = i * Long.SIZE + Fast.mostSignificantBit(word);
+				for (int j = 1; j < 8; j++) {
+					subcounts |= (i + j <= numWords ? c - countAtStart : 0x1FFL) << 9 * (j - 1);
+					if (i + j < numWords) {
+						word = bits.get(i + j);
+						c += Long.bitCount(word);
+						if (word != 0) l = (i + j) * Long.SIZE + Fast.mostSignificantBit(word);
+					}
+				}
+				count.set(pos + 1, subcounts);
+			}
+
+			count.set(numCounts, c);
+			count.set(numCounts + 1, l);
+		}
+
+		numOnes = count.get(numCounts);
+		lastOne = count.get(numCounts + 1);
+	}
+
+	/**
+	 * Maps in read-only mode the counts of a <code>rank9</code> structure built by
+	 * {@link #OffHeapRank9(OffHeapBitVector, String)}.
+	 *
+	 * @param bitVector the bit vector used to build the structure.
+	 * @param filename the name of the file containing the counts.
+	 * @return a <code>rank9</code> structure backed by the mapped file.
+	 */
+	public static OffHeapRank9 map(final OffHeapBitVector bitVector, final String filename) throws IOException {
+		final OffHeapLongArray count = OffHeapLongArray.map(filename);
+		if (count.length() != numCounts(bitVector.length()) + 2) throw new IllegalArgumentException("The length of file " + filename + " is not compatible with a bit vector of length " + bitVector.length());
+		return new OffHeapRank9(bitVector, count, false);
+	}
+
+	@Override
+	public long rank(final long pos) {
+		assert pos >= 0;
+		assert pos <= bitVector.length();
+		if (pos > lastOne) return numOnes;
+
+		final long word = pos >>> 6;
+		final long block = (word >>> 2) & ~1;
+		final int offset = (int)(word & 0x7) - 1;
+
+		return count.get(block) + (count.get(block + 1) >>> (offset + (offset >>> 32 - 4 & 0x8)) * 9 & 0x1FF) + Long.bitCount(bits.get(word) & ((1L << pos) - 1));
+	}
+
+	@Override
+	public long numBits() {
+		return count.length() * Long.SIZE;
+	}
+
+	@Override
+	public long count() {
+		return numOnes;
+	}
+
+	@Override
+	public long rank(final long from, final long to) {
+		return rank(to) - rank(from);
+	}
+
+	public long lastOne() {
+		return lastOne;
+	}
+
+	private void writeObject(final ObjectOutputStream s) throws IOException {
+		throw new NotSerializableException(getClass().getName() + " is stored off heap: use map() instead");
+	}
+
+	@Override
+	public OffHeapBitVector bitVector() {
+		return bitVector;
+	}
+}
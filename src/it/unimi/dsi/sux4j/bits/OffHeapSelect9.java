@@ -0,0 +1,330 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bits;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.sux4j.util.OffHeapLongArray;
+
+/**
+ * A <code>{@linkplain Select9 select9}</code> implementation whose inventories are stored outside
+ * of the Java heap.
+ *
+ * <p>
+ * This class is based on an underlying {@link OffHeapRank9} instance and uses the same layout of
+ * {@link Select9}, but the inventory and the subinventory are stored consecutively in an
+ * {@linkplain OffHeapLongArray off-heap array} addressed by longs. They can be built in direct
+ * memory, or directly in a file using {@link #OffHeapSelect9(OffHeapRank9, String)}; in the latter
+ * case, the structure can be later {@linkplain #map(OffHeapRank9, String) mapped} in constant time.
+ *
+ * <p>
+ * Instances of this class cannot be serialized.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class OffHeapSelect9 implements Select {
+	private static final long serialVersionUID = 0L;
+
+	private final static long ONES_STEP_16 = 1L << 0 | 1L << 16 | 1L << 32 | 1L << 48;
+	private final static long MSBS_STEP_16 = 0x8000L * ONES_STEP_16;
+
+	private final static long ONES_STEP_9 = 1L << 0 | 1L << 9 | 1L << 18 | 1L << 27 | 1L << 36 | 1L << 45 | 1L << 54;
+	private final static long MSBS_STEP_9 = 0x100L * ONES_STEP_9;
+
+	private final static int LOG2_ONES_PER_INVENTORY = 9;
+	private final static int ONES_PER_INVENTORY = 1 << LOG2_ONES_PER_INVENTORY;
+	private final static int INVENTORY_MASK = ONES_PER_INVENTORY - 1;
+
+	/** The inventory, followed by the subinventory (starting at {@link #subinventoryStart}). */
+	private final OffHeapLongArray inventory;
+	/** The index of the first word of the subinventory in {@link #inventory}. */
+	private final long subinventoryStart;
+	private final long numOnes;
+	private final long numWords;
+	private final OffHeapLongArray bits;
+	private final OffHeapLongArray count;
+	private final OffHeapRank9 rank9;
+
+	/** Returns the number of longs used by the inventory and the subinventory.
+	 *
+	 * @param rank9 an off-heap <code>rank9</code> structure.
+	 * @return the number of longs used by the inventory and the subinventory.
+	 */
+	private static long size(final OffHeapRank9 rank9) {
+		return inventorySize(rank9.numOnes) + 1 + (rank9.numWords + 3 >> 2);
+	}
+
+	private static long inventorySize(final long numOnes) {
+		return (numOnes + ONES_PER_INVENTORY - 1) / ONES_PER_INVENTORY;
+	}
+
+	/**
+	 * Creates a new <code>select9</code> structure with inventories stored in direct memory.
+	 *
+	 * @param rank9 an off-heap <code>rank9</code> structure.
+	 */
+	public OffHeapSelect9(final OffHeapRank9 rank9) {
+		this(rank9, OffHeapLongArray.allocate(size(rank9)), true);
+	}
+
+	/**
+	 * Creates a new <code>select9</code> structure with inventories stored in a file.
+	 *
+	 * <p>
+	 * The file will be mapped into memory and filled with the inventories, so that it can be
+	 * {@linkplain #map(OffHeapRank9, String) mapped} again later.
+	 *
+	 * @param rank9 an off-heap <code>rank9</code> structure.
+	 * @param filename the name of the file that will contain the inventories.
+	 */
+	public OffHeapSelect9(final OffHeapRank9 rank9, final String filename) throws IOException {
+		this(rank9, OffHeapLongArray.create(filename, size(rank9)), true);
+	}
+
+	/**
+	 * Maps in read-only mode the inventories of a <code>select9</code> structure built by
+	 * {@link #OffHeapSelect9(OffHeapRank9, String)}.
+	 *
+	 * @param rank9 the <code>rank9</code> structure used to build the structure.
+	 * @param filename the name of the file containing the inventories.
+	 * @return a <code>select9</code> structure backed by the mapped file.
+	 */
+	public static OffHeapSelect9 map(final OffHeapRank9 rank9, final String filename) throws IOException {
+		final OffHeapLongArray inventory = OffHeapLongArray.map(filename);
+		if (inventory.length() != size(rank9)) throw new IllegalArgumentException("The length of file " + filename + " is not compatible with the given rank9 structure");
+		return new OffHeapSelect9(rank9, inventory, false);
+	}
+
+	private void setShort(final long index, final long value) {
+		final long word = subinventoryStart + (index >>> 2);
+		final int shift = (int)((index & 3) << 4);
+		inventory.set(word, inventory.get(word) & ~(0xFFFFL << shift) | value << shift);
+	}
+
+	private long getShort(final long index) {
+		return inventory.get(subinventoryStart + (index >>> 2)) >>> ((index & 3) << 4) & 0xFFFF;
+	}
+
+	private void setInt(final long index, final long value) {
+		final long word = subinventoryStart + (index >>> 1);
+		final int shift = (int)((index & 1) << 5);
+		inventory.set(word, inventory.get(word) & ~(0xFFFFFFFFL << shift) | value << shift);
+	}
+
+	private OffHeapSelect9(final OffHeapRank9 rank9, final OffHeapLongArray inventory, final boolean build) {
+		this.rank9 = rank9;
+		this.inventory = inventory;
+		numOnes = rank9.numOnes;
+		numWords = rank9.numWords;
+		bits = rank9.bits;
+		count = rank9.count;
+		final long inventorySize = inventorySize(numOnes);
+		subinventoryStart = inventorySize + 1;
+
+		if (!build) return;
+
+		final long numWords = this.numWords;
+		final OffHeapLongArray bits = this.bits;
+		final OffHeapLongArray count = this.count;
+		final long subinventoryStart = this.subinventoryStart;
+
+		long d = 0;
+		for (long i = 0; i < numWords; i++)
+			for (long word = bits.get(i); word != 0; word &= word - 1) {
+				if ((d & INVENTORY_MASK) == 0) inventory.set(d >> LOG2_ONES_PER_INVENTORY, i * Long.SIZE + Long.numberOfTrailingZeros(word));
+				d++;
+			}
+
+		inventory.set(inventorySize, ((numWords + 3) & ~3L) * Long.SIZE);
+
+		d = 0;
+		int state = 0;
+		long firstBit = 0;
+		long subinventoryPosition = 0;
+
+		for (long i = 0; i < numWords; i++)
+			for (long word = bits.get(i); word != 0; word &= word - 1) {
+				final long p = i * Long.SIZE + Long.numberOfTrailingZeros(word);
+				if ((d & INVENTORY_MASK) == 0) {
+					firstBit = p;
+					final long index = d >> LOG2_ONES_PER_INVENTORY;
+					final long wordLeft = inventory.get(index) >>> 6;
+					final long wordRight = inventory.get(index + 1) >>> 6;
+					assert inventory.get(index) == firstBit;
+
+					subinventoryPosition = wordLeft >>> 2;
+
+					final long span = (wordRight >>> 2) - (wordLeft >>> 2);
+					state = -1;
+					final long countsAtStart = count.get((wordLeft >>> 3) << 1);
+					final long blockSpan = (wordRight >>> 3) - (wordLeft >>> 3);
+					final long blockLeft = wordLeft >>> 3;
+
+					if (span >= 512) state = 0;
+					else if (span >= 256) state = 1;
+					else if (span >= 128) state = 2;
+					else if (span >= 16) {
+						assert (blockSpan + 8 & -8L) + 8 <= span * 4;
+						final long s = subinventoryPosition * 4;
+
+						long k;
+						for (k = 0; k < blockSpan; k++) setShort(s + k + 8, count.get((blockLeft + k + 1) * 2) - countsAtStart);
+						for (; k < (blockSpan + 8 & -8L); k++) setShort(s + k + 8, 0xFFFF);
+
+						assert blockSpan / 8 <= 8;
+
+						for (k = 0; k < blockSpan >>> 3; k++) setShort(s + k, count.get((blockLeft + (k + 1) * 8) * 2) - countsAtStart);
+						for (; k < 8; k++) setShort(s + k, 0xFFFF);
+					} else if (span >= 2) {
+						assert (blockSpan + 8 & -8L) <= span * 4;
+						final long s = subinventoryPosition * 4;
+
+						long k;
+						for (k = 0; k < blockSpan; k++) setShort(s + k, count.get((blockLeft + k + 1) * 2) - countsAtStart);
+						for (; k < (blockSpan + 8 & -8L); k++) setShort(s + k, 0xFFFF);
+					}
+				}
+
+				switch (state) {
+				case 0:
+					inventory.set(subinventoryStart + subinventoryPosition + (d & INVENTORY_MASK), p);
+					break;
+				case 1:
+					assert p - firstBit < (1L << 32);
+					setInt((subinventoryPosition << 1) + (d & INVENTORY_MASK), p - firstBit);
+					break;
+				case 2:
+					assert p - firstBit < (1 << 16);
+					setShort((subinventoryPosition << 2) + (d & INVENTORY_MASK), p - firstBit);
+					break;
+				}
+
+				d++;
+			}
+	}
+
+	@Override
+	public long select(final long rank) {
+		final long inventoryIndexLeft = rank >> LOG2_ONES_PER_INVENTORY;
+
+		final long inventoryLeft = inventory.get(inventoryIndexLeft);
+		final long blockRight = inventory.get(inventoryIndexLeft + 1) >>> 6;
+		long blockLeft = inventoryLeft >>> 6;
+		final long subinventoryIndex = subinventoryStart + (blockLeft >>> 2);
+		final long span = (blockRight >>> 2) - (blockLeft >>> 2);
+		long countLeft;
+		int rankInBlock;
+		final OffHeapLongArray count = this.count;
+
+		if (span < 2) {
+			blockLeft &= ~7;
+			countLeft = (blockLeft >> 2) & ~1;
+			assert rank >= count.get(countLeft) : rank + " < " + count.get(countLeft);
+			assert rank < count.get(countLeft + 2) : rank + " >= " + count.get(countLeft + 2);
+			rankInBlock = (int)(rank - count.get(countLeft));
+		} else if (span < 16) {
+			blockLeft &= ~7;
+			countLeft = (blockLeft >> 2) & ~1;
+			final long rankInSuperblock = rank - count.get(countLeft);
+			final long rankInSuperblockStep16 = rankInSuperblock * ONES_STEP_16;
+
+			final long first = inventory.get(subinventoryIndex), second = inventory.get(subinventoryIndex + 1);
+
+			final int where = (int)((
+					((((((rankInSuperblockStep16 | MSBS_STEP_16) - (first & ~MSBS_STEP_16)) | (first ^ rankInSuperblockStep16)) ^ (first & ~rankInSuperblockStep16)) & MSBS_STEP_16) >>> 15) +
+					((((((rankInSuperblockStep16 | MSBS_STEP_16) - (second & ~MSBS_STEP_16)) | (second ^ rankInSuperblockStep16)) ^ (second & ~rankInSuperblockStep16)) & MSBS_STEP_16) >>> 15)
+			) * ONES_STEP_16 >>> 47);
+
+			assert where >= 0;
+			assert where <= 16;
+
+			blockLeft += where * 4;
+			countLeft += where;
+			rankInBlock = (int)(rank - count.get(countLeft));
+			assert rankInBlock >= 0;
+			assert rankInBlock < 512;
+		} else if (span < 128) {
+			blockLeft &= ~7;
+			countLeft = (blockLeft >> 2) & ~1;
+			final long rankInSuperblock = rank - count.get(countLeft);
+			final long rankInSuperblockStep16 = rankInSuperblock * ONES_STEP_16;
+
+			final long first = inventory.get(subinventoryIndex), second = inventory.get(subinventoryIndex + 1);
+			final int where0 = (int)((
+					((((((rankInSuperblockStep16 | MSBS_STEP_16) - (first & ~MSBS_STEP_16)) | (first ^ rankInSuperblockStep16)) ^ (first & ~rankInSuperblockStep16)) & MSBS_STEP_16) >>> 15) +
+					((((((rankInSuperblockStep16 | MSBS_STEP_16) - (second & ~MSBS_STEP_16)) | (second ^ rankInSuperblockStep16)) ^ (second & ~rankInSuperblockStep16)) & MSBS_STEP_16) >>> 15)
+			) * ONES_STEP_16 >>> 47);
+			assert where0 <= 16;
+			final long first_bis = inventory.get(subinventoryIndex + where0 + 2), second_bis = inventory.get(subinventoryIndex + where0 + 2 + 1);
+			final int where1 = (where0 << 3) + (int)((
+					((((((rankInSuperblockStep16 | MSBS_STEP_16) - (first_bis & ~MSBS_STEP_16)) | (first_bis ^ rankInSuperblockStep16)) ^ (first_bis & ~rankInSuperblockStep16)) & MSBS_STEP_16) >>> 15) +
+					((((((rankInSuperblockStep16 | MSBS_STEP_16) - (second_bis & ~MSBS_STEP_16)) | (second_bis ^ rankInSuperblockStep16)) ^ (second_bis & ~rankInSuperblockStep16)) & MSBS_STEP_16) >>> 15)
+			) * ONES_STEP_16 >>> 47);
+
+			blockLeft += where1 << 2;
+			countLeft += where1;
+			rankInBlock = (int)(rank - count.get(countLeft));
+			assert rankInBlock >= 0;
+			assert rankInBlock < 512;
+		} else if (span < 256) {
+			return getShort(((subinventoryIndex - subinventoryStart) << 2) + (rank & ~-ONES_PER_INVENTORY)) + inventoryLeft;
+		} else if (span < 512) {
+			final long index32 = ((subinventoryIndex - subinventoryStart) << 1) + (rank & ~-ONES_PER_INVENTORY);
+			return (inventory.get(subinventoryStart + (index32 >>> 1)) >>> ((index32 & 1) << 5) & 0xFFFFFFFFL) + inventoryLeft;
+		} else {
+			return inventory.get(subinventoryIndex + (rank & ~-ONES_PER_INVENTORY));
+		}
+
+		final long rankInBlockStep9 = rankInBlock * ONES_STEP_9;
+		final long subcounts = count.get(countLeft + 1);
+		final int offsetInBlock = (int)(((((((rankInBlockStep9 | MSBS_STEP_9) - (subcounts & ~MSBS_STEP_9)) | (subcounts ^ rankInBlockStep9)) ^ (subcounts & ~rankInBlockStep9)) & MSBS_STEP_9) >>> 8) * ONES_STEP_9 >>> 54 & 0x7);
+
+		final long word = blockLeft + offsetInBlock;
+		final int rankInWord = (int)(rankInBlock - (subcounts >>> (offsetInBlock - 1 & 7) * 9 & 0x1FF));
+		assert offsetInBlock >= 0;
+		assert offsetInBlock <= 7;
+
+		assert rankInWord < Long.SIZE;
+		assert rankInWord >= 0;
+
+		return word * Long.SIZE + Fast.select(bits.get(word), rankInWord);
+	}
+
+	@Override
+	public long numBits() {
+		return rank9.numBits() + inventory.length() * Long.SIZE;
+	}
+
+	private void writeObject(final ObjectOutputStream s) throws IOException {
+		throw new NotSerializableException(getClass().getName() + " is stored off heap: use map() instead");
+	}
+
+	@Override
+	public BitVector bitVector() {
+		return rank9.bitVector();
+	}
+}
@@ -0,0 +1,350 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bits;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.sux4j.util.OffHeapLongArray;
+
+/**
+ * A {@linkplain SimpleSelect simple select} implementation whose inventories are stored outside
+ * of the Java heap.
+ *
+ * <p>
+ * This class uses the same layout of {@link SimpleSelect}, but the underlying
+ * {@linkplain OffHeapBitVector bit vector} and the inventories are stored in
+ * {@linkplain OffHeapLongArray off-heap arrays} addressed by longs, so it is not limited to
+ * 2<sup>37</sup> bits. The inventories can be built in direct memory, or directly in a file using
+ * {@link #OffHeapSimpleSelect(OffHeapBitVector, String)}; in the latter case, the structure can be
+ * later {@linkplain #map(OffHeapBitVector, String) mapped} in constant time.
+ *
+ * <p>
+ * Instances of this class cannot be serialized.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class OffHeapSimpleSelect implements Select {
+	private static final long serialVersionUID = 0L;
+	private static final int MAX_ONES_PER_INVENTORY = 8192;
+	private static final int MAX_LOG2_LONGWORDS_PER_SUBINVENTORY = 3;
+	/** The maximum size of span to qualify for a subinventory made of 16-bit offsets. */
+	private static final int MAX_SPAN = (1 << 16);
+	/**
+	 * The number of longs in the header of {@link #data}: number of ones, logarithm of the number of
+	 * ones per inventory, and lengths of the inventory, of the subinventory and of the exact spill.
+	 */
+	private static final int HEADER_SIZE = 5;
+
+	/** The underlying bit vector. */
+	private final OffHeapBitVector bitVector;
+	/** The words of {@link #bitVector}. */
+	private final OffHeapLongArray bits;
+	/** The header, followed by the inventory, the subinventory and the exact spill. */
+	private final OffHeapLongArray data;
+	/** The number of ones in {@link #bitVector}. */
+	private final long numOnes;
+	/** The index of the first word of the inventory in {@link #data}. */
+	private final long inventoryStart;
+	/** The index of the first word of the subinventory in {@link #data}. */
+	private final long subinventoryStart;
+	/** The index of the first word of the exact spill in {@link #data}. */
+	private final long exactSpillStart;
+	/** The logarithm of the number of ones per inventory entry. */
+	private final int log2OnesPerInventory;
+	/** The mask associated to the number of ones per inventory entry. */
+	private final int onesPerInventoryMask;
+	/** The logarithm of the number of longwords used in the part of the subinventory associated to an inventory entry. */
+	private final int log2LongwordsPerSubinventory;
+	/** The logarithm of the number of ones for each subinventory short. */
+	private final int log2OnesPerSub16;
+	/** The mask associated to number of ones for each subinventory short. */
+	private final int onesPerSub16Mask;
+
+	/**
+	 * Creates a new selection structure with inventories stored in direct memory.
+	 *
+	 * @param bitVector a bit vector.
+	 */
+	public OffHeapSimpleSelect(final OffHeapBitVector bitVector) {
+		this(bitVector, build(bitVector));
+	}
+
+	/**
+	 * Creates a new selection structure with inventories stored in a file.
+	 *
+	 * <p>
+	 * The file will be mapped into memory and filled with the inventories, so that it can be
+	 * {@linkplain #map(OffHeapBitVector, String) mapped} again later.
+	 *
+	 * <p>
+	 * Note that if {@code filename} is {@code null}, the inventories will be stored in direct memory.
+	 *
+	 * @param bitVector a bit vector.
+	 * @param filename the name of the file that will contain the inventories, or {@code null}.
+	 */
+	public OffHeapSimpleSelect(final OffHeapBitVector bitVector, final String filename) throws IOException {
+		this(bitVector, build(bitVector, filename));
+	}
+
+	/**
+	 * Maps in read-only mode the inventories of a selection structure built by
+	 * {@link #OffHeapSimpleSelect(OffHeapBitVector, String)}.
+	 *
+	 * @param bitVector the bit vector used to build the structure.
+	 * @param filename the name of the file containing the inventories.
+	 * @return a selection structure backed by the mapped file.
+	 */
+	public static OffHeapSimpleSelect map(final OffHeapBitVector bitVector, final String filename) throws IOException {
+		final OffHeapLongArray data = OffHeapLongArray.map(filename);
+		if (data.length() < HEADER_SIZE || data.length() != HEADER_SIZE + data.get(2) + data.get(3) + data.get(4)) throw new IllegalArgumentException("File " + filename + " does not contain a valid selection structure");
+		return new OffHeapSimpleSelect(bitVector, data);
+	}
+
+	private OffHeapSimpleSelect(final OffHeapBitVector bitVector, final OffHeapLongArray data) {
+		this.bitVector = bitVector;
+		this.bits = bitVector.words();
+		this.data = data;
+		numOnes = data.get(0);
+		log2OnesPerInventory = (int)data.get(1);
+		onesPerInventoryMask = (1 << log2OnesPerInventory) - 1;
+		log2LongwordsPerSubinventory = Math.min(MAX_LOG2_LONGWORDS_PER_SUBINVENTORY, Math.max(0, log2OnesPerInventory - 2));
+		log2OnesPerSub16 = Math.max(0, log2OnesPerInventory - log2LongwordsPerSubinventory - 2);
+		onesPerSub16Mask = (1 << log2OnesPerSub16) - 1;
+		inventoryStart = HEADER_SIZE;
+		subinventoryStart = inventoryStart + data.get(2);
+		exactSpillStart = subinventoryStart + data.get(3);
+	}
+
+	/**
+	 * Builds the inventories of a selection structure in direct memory.
+	 *
+	 * @param bitVector a bit vector.
+	 * @return an array containing a header, followed by the inventory, the subinventory and the exact
+	 *         spill.
+	 */
+	private static OffHeapLongArray build(final OffHeapBitVector bitVector) {
+		try {
+			return build(bitVector, null);
+		} catch(final IOException cantHappen) {
+			throw new RuntimeException(cantHappen);
+		}
+	}
+
+	/**
+	 * Builds the inventories of a selection structure.
+	 *
+	 * @param bitVector a bit vector.
+	 * @param filename the name of the file that will contain the inventories, or {@code null} for
+	 *            direct memory.
+	 * @return an array containing a header, followed by the inventory, the subinventory and the exact
+	 *         spill.
+	 */
+	private static OffHeapLongArray build(final OffHeapBitVector bitVector, final String filename) throws IOException {
+		final OffHeapLongArray bits = bitVector.words();
+		final long length = bitVector.length();
+		final long numWords = OffHeapBitVector.words(length);
+
+		final long numOnes = bitVector.count();
+		final int log2OnesPerInventory = Fast.mostSignificantBit(length == 0 ? 1 : (int)((numOnes * MAX_ONES_PER_INVENTORY + length - 1) / length));
+		final int onesPerInventory = 1 << log2OnesPerInventory;
+		final int onesPerInventoryMask = onesPerInventory - 1;
+		final long inventorySize = (numOnes + onesPerInventory - 1) / onesPerInventory;
+
+		final int log2LongwordsPerSubinventory = Math.min(MAX_LOG2_LONGWORDS_PER_SUBINVENTORY, Math.max(0, log2OnesPerInventory - 2));
+		final int log2OnesPerSub64 = Math.max(0, log2OnesPerInventory - log2LongwordsPerSubinventory);
+		final int log2OnesPerSub16 = Math.max(0, log2OnesPerSub64 - 2);
+		final int onesPerSub64 = (1 << log2OnesPerSub64);
+		final int onesPerSub16 = (1 << log2OnesPerSub16);
+		final int onesPerSub16Mask = onesPerSub16 - 1;
+
+		long subinventorySize = 0, exactSpillSize = 0;
+
+		if (onesPerInventory > 1) {
+			// We estimate the subinventory and exact spill size, closing each inventory block when the next one starts
+			long d = 0, diff16 = 0, start = 0;
+			for (long i = 0; i < numWords; i++)
+				for (long word = bits.get(i); word != 0; word &= word - 1) {
+					if ((d & onesPerInventoryMask) == 0) {
+						final long p = i * Long.SIZE + Long.numberOfTrailingZeros(word);
+						if (d != 0 && p - start >= MAX_SPAN && onesPerSub64 > 1) exactSpillSize += onesPerInventory;
+						start = p;
+						// We must always count (possibly unused) diff16's. And we cannot store less then 4 diff16.
+						diff16 += Math.max(4, (Math.min(numOnes - d, onesPerInventory) + onesPerSub16 - 1) >>> log2OnesPerSub16);
+					}
+					d++;
+				}
+			if (numOnes != 0 && length - start >= MAX_SPAN && onesPerSub64 > 1) exactSpillSize += numOnes - (inventorySize - 1) * onesPerInventory;
+			subinventorySize = (diff16 + 3) >> 2;
+		}
+
+		final long inventoryStart = HEADER_SIZE;
+		final long subinventoryStart = inventoryStart + inventorySize + 1;
+		final long exactSpillStart = subinventoryStart + subinventorySize;
+		final long size = exactSpillStart + exactSpillSize;
+		final OffHeapLongArray data = filename == null ? OffHeapLongArray.allocate(size) : OffHeapLongArray.create(filename, size);
+		data.set(0, numOnes);
+		data.set(1, log2OnesPerInventory);
+		data.set(2, inventorySize + 1);
+		data.set(3, subinventorySize);
+		data.set(4, exactSpillSize);
+
+		// First phase: we build an inventory for each one out of onesPerInventory.
+		long d = 0;
+		for (long i = 0; i < numWords; i++)
+			for (long word = bits.get(i); word != 0; word &= word - 1) {
+				if ((d & onesPerInventoryMask) == 0) data.set(inventoryStart + (d >>> log2OnesPerInventory), i * Long.SIZE + Long.numberOfTrailingZeros(word));
+				d++;
+			}
+
+		data.set(inventoryStart + inventorySize, length);
+
+		if (onesPerInventory > 1) {
+			long start = 0, span = 0, inventoryIndex = 0, spilled = 0;
+			int offset = 0;
+			d = 0;
+			for (long i = 0; i < numWords; i++)
+				for (long word = bits.get(i); word != 0; word &= word - 1) {
+					final long p = i * Long.SIZE + Long.numberOfTrailingZeros(word);
+					if ((d & onesPerInventoryMask) == 0) {
+						inventoryIndex = d >>> log2OnesPerInventory;
+						start = data.get(inventoryStart + inventoryIndex);
+						span = data.get(inventoryStart + inventoryIndex + 1) - start;
+						offset = 0;
+					}
+
+					if (span < MAX_SPAN) {
+						assert p - start <= MAX_SPAN;
+						if ((d & onesPerSub16Mask) == 0) {
+							final long index16 = (inventoryIndex << log2LongwordsPerSubinventory + 2) + offset++;
+							final long w = subinventoryStart + (index16 >>> 2);
+							data.set(w, data.get(w) | p - start << ((index16 & 3) << 4));
+						}
+					} else {
+						assert onesPerSub64 > 1;
+						if ((d & onesPerInventoryMask) == 0) {
+							data.set(inventoryStart + inventoryIndex, start | 1L << 63);
+							data.set(subinventoryStart + (inventoryIndex << log2LongwordsPerSubinventory), spilled);
+						}
+						data.set(exactSpillStart + spilled++, p);
+					}
+
+					d++;
+				}
+			assert spilled == exactSpillSize;
+		}
+
+		return data;
+	}
+
+	@Override
+	public long select(final long rank) {
+		assert rank >= 0;
+		assert rank < numOnes;
+
+		final long inventoryIndex = rank >>> log2OnesPerInventory;
+
+		final long inventoryRank = data.get(inventoryStart + inventoryIndex);
+		final int subrank = (int)(rank & onesPerInventoryMask);
+
+		if (subrank == 0) return inventoryRank & ~(1L << 63);
+
+		long start;
+		int residual;
+
+		if (inventoryRank >= 0) {
+			final long index16 = (inventoryIndex << log2LongwordsPerSubinventory + 2) + (subrank >>> log2OnesPerSub16);
+			start = inventoryRank + ((data.get(subinventoryStart + (index16 >>> 2)) >>> ((index16 & 3) << 4) & 0xFFFF));
+			residual = subrank & onesPerSub16Mask;
+		} else return data.get(exactSpillStart + data.get(subinventoryStart + (inventoryIndex << log2LongwordsPerSubinventory)) + subrank);
+
+		if (residual == 0) return start;
+
+		final OffHeapLongArray bits = this.bits;
+		long wordIndex = start >>> 6;
+		long word = bits.get(wordIndex) & -1L << start;
+
+		for (;;) {
+			final int bitCount = Long.bitCount(word);
+			if (residual < bitCount) break;
+			word = bits.get(++wordIndex);
+			residual -= bitCount;
+		}
+
+		return wordIndex * Long.SIZE + Fast.select(word, residual);
+	}
+
+	/**
+	 * Performs a bulk select of consecutive ranks into a given array fragment.
+	 *
+	 * @param rank the first rank to select.
+	 * @param dest the destination array; it will be filled with {@code length} positions of consecutive
+	 *            bits starting at position {@code offset}; must be of length greater than
+	 *            {@code offset}.
+	 * @param offset the first bit position written in {@code dest}.
+	 * @param length the number of bit positions in {@code dest} starting at {@code offset}.
+	 * @return {@code dest}
+	 * @see SimpleSelect#select(long, long[], int, int)
+	 */
+	public long[] select(final long rank, final long[] dest, int offset, final int length) {
+		assert rank >= 0;
+		assert rank < numOnes;
+		assert offset >= 0;
+		assert dest != null;
+		assert offset < dest.length;
+		assert length >= 0;
+		assert offset + length <= dest.length;
+
+		final long s = select(rank);
+		dest[offset] = s;
+		long curr = s >>> 6;
+
+		final OffHeapLongArray bits = this.bits;
+		long window = bits.get(curr) & -1L << s;
+		window &= window - 1;
+
+		for (int i = 1; i < length; i++) {
+			while (window == 0) window = bits.get(++curr);
+			dest[++offset] = curr * Long.SIZE + Long.numberOfTrailingZeros(window);
+			window &= window - 1;
+		}
+
+		return dest;
+	}
+
+	@Override
+	public long numBits() {
+		return data.length() * Long.SIZE;
+	}
+
+	private void writeObject(final ObjectOutputStream s) throws IOException {
+		throw new NotSerializableException(getClass().getName() + " is stored off heap: use map() instead");
+	}
+
+	@Override
+	public OffHeapBitVector bitVector() {
+		return bitVector;
+	}
+}
@@ -0,0 +1,569 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bits;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.LongArrayBitVector;
+
+/**
+ * An implementation of balanced parentheses based on a range min tree.
+ *
+ * <p>
+ * Let the <em>excess</em> <var>E</var>(<var>p</var>) of a position <var>p</var> be the number of
+ * open parentheses minus the number of closed parentheses in the positions from 0 to <var>p</var>
+ * (included), and let <var>E</var>(&minus;1) = 0. All navigation operations on balanced
+ * parentheses can be reduced to searching forward or backward for the first position whose excess
+ * is at most a given target (Sadakane and Navarro, &ldquo;Fully-functional succinct trees&rdquo;).
+ *
+ * <p>
+ * This class divides the bit vector into blocks of {@value #BLOCK_SIZE} bits, and stores the
+ * excess at the start of each block and a complete binary tree containing, for each subtree, the
+ * minimum excess in the corresponding blocks (since all operations search for excesses not larger than
+ * the current one, maxima are not necessary). To save space, block excesses are stored as integers
+ * relative to a sparse sample of absolute excesses, and the minimum of a node, but for the few nodes
+ * at the top of the tree, as an integer relative to the minimum of its parent; minima are decoded
+ * along the paths followed by searches. A search scans the current block, using 8-bit lookup
+ * tables to skip bytes that cannot contain the answer; if the answer is not found, the tree is used
+ * to locate the block containing it in logarithmic time (in the number of blocks), and the block is
+ * scanned. Contrarily to {@link JacobsonBalancedParentheses}, there are no pioneers, and the cost of
+ * an operation does not depend on the shape of the tree.
+ *
+ * <p>
+ * Besides the methods of {@link BalancedParentheses}, this class provides {@linkplain #excess(long)
+ * excess}, {@linkplain #rmq(long, long) range minimum queries}, {@linkplain #levelAncestor(long, long)
+ * level ancestors} and {@linkplain #subtreeSize(long) subtree sizes}. Parentheses are interpreted as
+ * the nodes of an ordinal tree (or a forest) in the usual way: the node is represented by its open
+ * parenthesis, and its descendants by the parentheses enclosed by its matching pair.
+ *
+ * <p>
+ * The space overhead is between 9% and 16% of the original bit vector, depending on the number of
+ * blocks.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class RangeMinMaxBalancedParentheses implements BalancedParentheses {
+	private static final long serialVersionUID = 0L;
+	/** The base-2 logarithm of {@link #BLOCK_SIZE}. */
+	private static final int LOG2_BLOCK_SIZE = 10;
+	/** The number of bits in a block. */
+	public static final int BLOCK_SIZE = 1 << LOG2_BLOCK_SIZE;
+	/** The base-2 logarithm of the number of blocks between two absolute excess samples. */
+	private static final int LOG2_EXCESS_SAMPLE = 20;
+	/**
+	 * The base-2 logarithm of the maximum number of blocks spanned by the parent of a node whose
+	 * minimum is stored relatively (so that relative minima are smaller than 2<sup>30</sup>).
+	 */
+	private static final int LOG2_RELATIVE_SPAN = 20;
+	/** The relative minimum of a node with no blocks. */
+	private static final int MISSING = Integer.MAX_VALUE;
+	/** The value returned by backward searches if no position (not even &minus;1) satisfies the constraint. */
+	private static final long NONE = -2;
+
+	/** For each byte, its excess. */
+	private static final byte[] EXCESS = new byte[256];
+	/** For each byte, the minimum excess after each of its bits, relative to the excess before the byte. */
+	private static final byte[] FORWARD_MIN = new byte[256];
+	/** For each byte, the minimum excess after each of its bits, relative to the excess after the byte. */
+	private static final byte[] BACKWARD_MIN = new byte[256];
+
+	static {
+		for (int b = 0; b < 256; b++) {
+			int e = 0, min = Integer.MAX_VALUE;
+			for (int t = 0; t < 8; t++) {
+				e += (b >>> t & 1) != 0 ? 1 : -1;
+				min = Math.min(min, e);
+			}
+			EXCESS[b] = (byte)e;
+			FORWARD_MIN[b] = (byte)min;
+			e = min = 0;
+			for (int t = 7; t > 0; t--) {
+				e -= (b >>> t & 1) != 0 ? 1 : -1;
+				min = Math.min(min, e);
+			}
+			BACKWARD_MIN[b] = (byte)min;
+		}
+	}
+
+	/** The underlying bit vector. */
+	protected final BitVector bitVector;
+	/** The bits of {@link #bitVector}. */
+	protected transient long[] bits;
+	/** The length of {@link #bitVector}. */
+	protected final long length;
+	/**
+	 * The excess before each block, plus a final entry containing the overall excess (i.e., zero),
+	 * relative to the corresponding entry of {@link #excessSample}.
+	 */
+	protected final int[] blockExcess;
+	/** The excess before every 2<sup>{@value #LOG2_EXCESS_SAMPLE}</sup>-th block. */
+	protected final long[] excessSample;
+	/** The number of leaves of {@link #tree} (a power of two). */
+	protected final int leaves;
+	/**
+	 * A complete binary tree stored in heap order starting from index one; leaves represent the
+	 * minimum excess in the corresponding block, and internal nodes the minimum of their children.
+	 * Nodes of index smaller than {@code top.length} are stored in {@link #top}; all other nodes
+	 * contain their minimum minus the minimum of their parent ({@link #MISSING} for nodes with no
+	 * blocks).
+	 */
+	protected final int[] tree;
+	/**
+	 * The minimum excess of the nodes at the top of {@link #tree} ({@link Long#MAX_VALUE} for nodes
+	 * with no blocks); the entry of index zero is unused.
+	 */
+	protected final long[] top;
+
+	/**
+	 * Creates a new range min tree for the balanced parentheses specified by an array of longs and a
+	 * number of bits.
+	 *
+	 * @param bits an array of longs representing a bit array.
+	 * @param length the number of bits to use from <code>bits</code>.
+	 */
+	public RangeMinMaxBalancedParentheses(final long[] bits, final long length) {
+		this(LongArrayBitVector.wrap(bits, length));
+	}
+
+	/**
+	 * Creates a new range min tree for the balanced parentheses specified by a bit vector.
+	 *
+	 * @param bitVector a bit vector representing correctly nested parentheses.
+	 * @throws IllegalArgumentException if the parentheses are not balanced.
+	 */
+	public RangeMinMaxBalancedParentheses(final BitVector bitVector) {
+		this.bitVector = bitVector;
+		this.bits = bitVector.bits();
+		this.length = bitVector.length();
+
+		final long numBlocks = length + BLOCK_SIZE - 1 >>> LOG2_BLOCK_SIZE;
+		if (numBlocks > 1 << 29) throw new IllegalArgumentException("Bit vector too long: " + length);
+		leaves = Math.max(1, Integer.highestOneBit((int)numBlocks - 1) << 1);
+		blockExcess = new int[(int)numBlocks + 1];
+		excessSample = new long[((int)numBlocks >>> LOG2_EXCESS_SAMPLE) + 1];
+		// Absolute minima, compressed at the end
+		final long[] tree = new long[2 * leaves];
+		Arrays.fill(tree, Long.MAX_VALUE);
+
+		long e = 0;
+		for (int b = 0; b < numBlocks; b++) {
+			if ((b & (1 << LOG2_EXCESS_SAMPLE) - 1) == 0) excessSample[b >>> LOG2_EXCESS_SAMPLE] = e;
+			blockExcess[b] = (int)(e - excessSample[b >>> LOG2_EXCESS_SAMPLE]);
+			long min = Long.MAX_VALUE;
+			final long end = blockEnd(b);
+			for (long p = (long)b << LOG2_BLOCK_SIZE; p < end;) {
+				if (p + 8 <= end) {
+					final int x = (int)(bits[(int)(p >>> 6)] >>> p & 0xFF);
+					min = Math.min(min, e + FORWARD_MIN[x]);
+					e += EXCESS[x];
+					p += 8;
+				} else {
+					e += (bits[(int)(p >>> 6)] >>> p & 1) != 0 ? 1 : -1;
+					min = Math.min(min, e);
+					p++;
+				}
+			}
+			if (min < 0) throw new IllegalArgumentException("Unbalanced parentheses");
+			tree[leaves + b] = min;
+		}
+		if (e != 0) throw new IllegalArgumentException("Unbalanced parentheses");
+		if (((int)numBlocks & (1 << LOG2_EXCESS_SAMPLE) - 1) == 0) excessSample[(int)numBlocks >>> LOG2_EXCESS_SAMPLE] = e;
+		blockExcess[(int)numBlocks] = (int)(e - excessSample[(int)numBlocks >>> LOG2_EXCESS_SAMPLE]);
+
+		for (int i = leaves; i-- > 1;) tree[i] = Math.min(tree[2 * i], tree[2 * i + 1]);
+
+		this.top = Arrays.copyOf(tree, Math.max(2, leaves >>> LOG2_RELATIVE_SPAN - 1));
+		this.tree = new int[2 * leaves];
+		for (int i = top.length; i < 2 * leaves; i++) this.tree[i] = tree[i] == Long.MAX_VALUE ? MISSING : (int)(tree[i] - tree[i >>> 1]);
+	}
+
+	/** Returns the excess before a block (or the overall excess, if {@code block} is the number of blocks). */
+	private long blockExcess(final int block) {
+		return excessSample[block >>> LOG2_EXCESS_SAMPLE] + blockExcess[block];
+	}
+
+	/** Returns the minimum excess of a node of {@link #tree}. */
+	private long min(int node) {
+		long r = 0;
+		for (; node >= top.length; node >>>= 1) {
+			final int t = tree[node];
+			if (t == MISSING) return Long.MAX_VALUE;
+			r += t;
+		}
+		return top[node] + r;
+	}
+
+	/** Returns the minimum excess of a node of {@link #tree}, given the minimum excess of its parent. */
+	private long childMin(final int node, final long parentMin) {
+		if (node < top.length) return top[node];
+		final int t = tree[node];
+		return t == MISSING ? Long.MAX_VALUE : parentMin + t;
+	}
+
+	/** Returns the minimum excess of the parent of a node of {@link #tree} with some blocks, given the minimum excess of the node. */
+	private long parentMin(final int node, final long min) {
+		return node >>> 1 < top.length ? top[node >>> 1] : min - tree[node];
+	}
+
+	/** Returns the position after the last bit of a block. */
+	private long blockEnd(final int block) {
+		return Math.min(length, (long)(block + 1) << LOG2_BLOCK_SIZE);
+	}
+
+	private boolean get(final long pos) {
+		return (bits[(int)(pos >>> 6)] >>> pos & 1) != 0;
+	}
+
+	/**
+	 * Returns the excess at a given position.
+	 *
+	 * @param pos a position in the bit vector.
+	 * @return the number of open parentheses minus the number of closed parentheses in the positions
+	 *         from 0 to {@code pos} (included); for an open parenthesis, this is the depth of the
+	 *         corresponding node, plus one.
+	 */
+	public long excess(final long pos) {
+		if (pos < 0 || pos >= length) throw new IndexOutOfBoundsException(Long.toString(pos));
+		final long start = pos & -BLOCK_SIZE;
+		final int last = (int)(pos >>> 6);
+		long ones = 0;
+		for (int w = (int)(start >>> 6); w < last; w++) ones += Long.bitCount(bits[w]);
+		ones += Long.bitCount(bits[last] & -1L >>> 63 - (pos & 63));
+		return blockExcess((int)(pos >>> LOG2_BLOCK_SIZE)) + 2 * ones - (pos - start + 1);
+	}
+
+	/**
+	 * Scans forward a block segment.
+	 *
+	 * @param from the first position to scan.
+	 * @param to the position after the last position to scan.
+	 * @param e the excess at {@code from} &minus; 1.
+	 * @param target the target excess.
+	 * @return the first position in [{@code from}..{@code to}) whose excess is at most {@code target},
+	 *         or &minus;1.
+	 */
+	private long forwardScan(long from, final long to, long e, final long target) {
+		while (from < to) {
+			if ((from & 7) == 0 && from + 8 <= to) {
+				final int x = (int)(bits[(int)(from >>> 6)] >>> from & 0xFF);
+				if (e + FORWARD_MIN[x] > target) {
+					e += EXCESS[x];
+					from += 8;
+					continue;
+				}
+			}
+			e += get(from) ? 1 : -1;
+			if (e <= target) return from;
+			from++;
+		}
+		return -1;
+	}
+
+	/**
+	 * Scans backward a block segment.
+	 *
+	 * @param from the first position to scan.
+	 * @param to the last position to scan ({@code to} &le; {@code from}).
+	 * @param e the excess at {@code from}.
+	 * @param target the target excess.
+	 * @return the last position in [{@code to}..{@code from}] whose excess is at most {@code target},
+	 *         or &minus;1.
+	 */
+	private long backwardScan(long from, final long to, long e, final long target) {
+		while (from >= to) {
+			if ((from & 7) == 7 && from - 7 >= to) {
+				final int x = (int)(bits[(int)(from >>> 6)] >>> from - 7 & 0xFF);
+				if (e + BACKWARD_MIN[x] > target) {
+					e -= EXCESS[x];
+					from -= 8;
+					continue;
+				}
+			}
+			if (e <= target) return from;
+			e -= get(from) ? 1 : -1;
+			from--;
+		}
+		return -1;
+	}
+
+	/**
+	 * Scans a block segment for the leftmost minimum excess.
+	 *
+	 * @param from the first position to scan.
+	 * @param to the position after the last position to scan ({@code to} &gt; {@code from}).
+	 * @param e the excess at {@code from} &minus; 1.
+	 * @return the leftmost position in [{@code from}..{@code to}) of minimum excess.
+	 */
+	private long minScan(long from, final long to, long e) {
+		long best = -1, bestValue = Long.MAX_VALUE;
+		while (from < to) {
+			if ((from & 7) == 0 && from + 8 <= to) {
+				final int x = (int)(bits[(int)(from >>> 6)] >>> from & 0xFF);
+				if (e + FORWARD_MIN[x] >= bestValue) {
+					e += EXCESS[x];
+					from += 8;
+					continue;
+				}
+			}
+			e += get(from) ? 1 : -1;
+			if (e < bestValue) {
+				bestValue = e;
+				best = from;
+			}
+			from++;
+		}
+		return best;
+	}
+
+	/** Returns the first block after the given one whose minimum excess is at most the target, or &minus;1. */
+	private int nextBlock(final int block, final long target) {
+		int node = leaves + block;
+		long min = min(node);
+		for (;;) {
+			if (node == 1) return -1;
+			final long parentMin = parentMin(node, min);
+			if ((node & 1) == 0) {
+				final long siblingMin = childMin(node + 1, parentMin);
+				if (siblingMin <= target) {
+					node++;
+					min = siblingMin;
+					break;
+				}
+			}
+			node >>>= 1;
+			min = parentMin;
+		}
+		while (node < leaves) {
+			final long leftMin = childMin(2 * node, min);
+			if (leftMin <= target) {
+				node = 2 * node;
+				min = leftMin;
+			} else {
+				node = 2 * node + 1;
+				min = childMin(node, min);
+			}
+		}
+		return node - leaves;
+	}
+
+	/** Returns the last block before the given one whose minimum excess is at most the target, or &minus;1. */
+	private int previousBlock(final int block, final long target) {
+		int node = leaves + block;
+		long min = min(node);
+		for (;;) {
+			if (node == 1) return -1;
+			final long parentMin = parentMin(node, min);
+			if ((node & 1) != 0) {
+				final long siblingMin = childMin(node - 1, parentMin);
+				if (siblingMin <= target) {
+					node--;
+					min = siblingMin;
+					break;
+				}
+			}
+			node >>>= 1;
+			min = parentMin;
+		}
+		while (node < leaves) {
+			final long rightMin = childMin(2 * node + 1, min);
+			if (rightMin <= target) {
+				node = 2 * node + 1;
+				min = rightMin;
+			} else {
+				node = 2 * node;
+				min = childMin(node, min);
+			}
+		}
+		return node - leaves;
+	}
+
+	/**
+	 * Returns the first position after a given one whose excess is at most a target.
+	 *
+	 * @param pos a position.
+	 * @param e the excess at {@code pos}.
+	 * @param target the target excess.
+	 * @return the first position after {@code pos} whose excess is at most {@code target}, or
+	 *         &minus;1.
+	 */
+	private long forwardSearch(final long pos, final long e, final long target) {
+		final int block = (int)(pos >>> LOG2_BLOCK_SIZE);
+		final long result = forwardScan(pos + 1, blockEnd(block), e, target);
+		if (result != -1) return result;
+		final int b = nextBlock(block, target);
+		if (b == -1) return -1;
+		return forwardScan((long)b << LOG2_BLOCK_SIZE, blockEnd(b), blockExcess(b), target);
+	}
+
+	/**
+	 * Returns the last position before a given one whose excess is at most a target.
+	 *
+	 * @param pos a position.
+	 * @param e the excess at {@code pos}.
+	 * @param target the target excess.
+	 * @return the last position before {@code pos} whose excess is at most {@code target}; &minus;1
+	 *         if there is no such position, but {@code target} &ge; 0; {@link #NONE} otherwise.
+	 */
+	private long backwardSearch(final long pos, final long e, final long target) {
+		if (pos != 0) {
+			final int block = (int)(pos - 1 >>> LOG2_BLOCK_SIZE);
+			final long result = backwardScan(pos - 1, (long)block << LOG2_BLOCK_SIZE, e - (get(pos) ? 1 : -1), target);
+			if (result != -1) return result;
+			final int b = previousBlock(block, target);
+			if (b != -1) return backwardScan(blockEnd(b) - 1, (long)b << LOG2_BLOCK_SIZE, blockExcess(b + 1), target);
+		}
+		return target >= 0 ? -1 : NONE;
+	}
+
+	private void ensureOpen(final long pos) {
+		if (pos < 0 || pos >= length) throw new IndexOutOfBoundsException(Long.toString(pos));
+		if (!get(pos)) throw new IllegalArgumentException("Position " + pos + " does not contain an open parenthesis");
+	}
+
+	@Override
+	public long findClose(final long pos) {
+		ensureOpen(pos);
+		final long e = excess(pos);
+		return forwardSearch(pos, e, e - 1);
+	}
+
+	@Override
+	public long findOpen(final long pos) {
+		if (pos < 0 || pos >= length) throw new IndexOutOfBoundsException(Long.toString(pos));
+		if (get(pos)) throw new IllegalArgumentException("Position " + pos + " does not contain a closed parenthesis");
+		final long e = excess(pos);
+		return backwardSearch(pos, e, e) + 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>
+	 * In terms of trees, this method returns the parent of the node associated with the given
+	 * parenthesis (open or closed).
+	 *
+	 * @return the position of the open parenthesis of the pair that most tightly encloses the pair
+	 *         containing {@code pos}, or &minus;1 if there is no such pair.
+	 */
+	@Override
+	public long enclose(long pos) {
+		if (pos < 0 || pos >= length) throw new IndexOutOfBoundsException(Long.toString(pos));
+		if (!get(pos)) pos = findOpen(pos);
+		final long e = excess(pos);
+		final long result = backwardSearch(pos, e, e - 2);
+		return result == NONE ? -1 : result + 1;
+	}
+
+	/**
+	 * Returns the ancestor of a node at a given distance.
+	 *
+	 * @param pos the position of an open parenthesis.
+	 * @param d a nonnegative distance.
+	 * @return the position of the open parenthesis of the ancestor at distance {@code d} of the node
+	 *         represented by {@code pos} (i.e., {@code pos} itself if {@code d} is zero, its
+	 *         {@linkplain #enclose(long) parent} if {@code d} is one, and so on), or &minus;1 if
+	 *         there is no such ancestor.
+	 */
+	public long levelAncestor(final long pos, final long d) {
+		ensureOpen(pos);
+		if (d < 0) throw new IllegalArgumentException("Negative distance: " + d);
+		final long e = excess(pos);
+		final long result = backwardSearch(pos, e, e - d - 1);
+		return result == NONE ? -1 : result + 1;
+	}
+
+	/**
+	 * Searches forward for a smaller excess.
+	 *
+	 * @param pos a position in the bit vector.
+	 * @param d a negative excess difference.
+	 * @return the first position after {@code pos} whose excess is the excess at {@code pos} plus
+	 *         {@code d}, or &minus;1 if there is no such position.
+	 */
+	public long forwardSearch(final long pos, final long d) {
+		if (d >= 0) throw new IllegalArgumentException("Nonnegative excess difference: " + d);
+		final long e = excess(pos);
+		return forwardSearch(pos, e, e + d);
+	}
+
+	/**
+	 * Returns the size of the subtree of a node.
+	 *
+	 * @param pos the position of an open parenthesis.
+	 * @return the number of nodes in the subtree rooted at the node represented by {@code pos}
+	 *         (including the node itself).
+	 */
+	public long subtreeSize(final long pos) {
+		return findClose(pos) - pos + 1 >>> 1;
+	}
+
+	/**
+	 * Returns the position of minimum excess in a range.
+	 *
+	 * @param from the first position of the range.
+	 * @param to the last position of the range (included).
+	 * @return the leftmost position in [{@code from}..{@code to}] whose excess is minimum.
+	 */
+	public long rmq(final long from, final long to) {
+		if (from < 0 || to >= length || from > to) throw new IndexOutOfBoundsException("[" + from + ".." + to + "]");
+		final int fromBlock = (int)(from >>> LOG2_BLOCK_SIZE), toBlock = (int)(to >>> LOG2_BLOCK_SIZE);
+		long best = minScan(from, Math.min(to + 1, blockEnd(fromBlock)), from == 0 ? 0 : excess(from - 1));
+		if (fromBlock == toBlock) return best;
+		long bestValue = excess(best);
+
+		if (toBlock > fromBlock + 1) {
+			// Minimum over the blocks strictly between the first and the last one
+			long min = Long.MAX_VALUE;
+			for (int l = leaves + fromBlock + 1, r = leaves + toBlock; l < r; l >>>= 1, r >>>= 1) {
+				if ((l & 1) != 0) min = Math.min(min, min(l++));
+				if ((r & 1) != 0) min = Math.min(min, min(--r));
+			}
+			if (min < bestValue) {
+				final int b = nextBlock(fromBlock, min);
+				best = minScan((long)b << LOG2_BLOCK_SIZE, blockEnd(b), blockExcess(b));
+				bestValue = min;
+			}
+		}
+
+		final long last = minScan((long)toBlock << LOG2_BLOCK_SIZE, to + 1, blockExcess(toBlock));
+		return excess(last) < bestValue ? last : best;
+	}
+
+	@Override
+	public BitVector bitVector() {
+		return bitVector;
+	}
+
+	@Override
+	public long numBits() {
+		return (long)blockExcess.length * Integer.SIZE + (long)excessSample.length * Long.SIZE + (long)tree.length * Integer.SIZE + (long)top.length * Long.SIZE;
+	}
+
+	private void readObject(final ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		bits = bitVector.bits();
+	}
+}
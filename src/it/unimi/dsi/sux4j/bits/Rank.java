@@ -77,6 +77,29 @@ public interface Rank extends Serializable {
 	 */
 	public long rank(long from, long to);
 
+	/**
+	 * Performs a bulk rank of a given array of positions.
+	 *
+	 * <p>
+	 * This method is semantically equivalent to calling {@link #rank(long)} on each element of
+	 * {@code pos}, but implementations might be faster, for example because the memory accesses of
+	 * independent queries can be overlapped.
+	 *
+	 * <p>
+	 * This default implementation just calls {@link #rank(long)} for each position.
+	 *
+	 * @param pos an array of positions in the bit vector between 0 (inclusive) and the length of the
+	 *            bit vector (inclusive); if some position is out of bounds, behavior is undefined.
+	 * @param dest the destination array, of length at least {@code pos.length}; it will be filled
+	 *            with the number of ones preceding each position.
+	 * @return {@code dest}.
+	 */
+	public default long[] rank(final long[] pos, final long[] dest) {
+		assert dest.length >= pos.length;
+		for (int i = 0; i < pos.length; i++) dest[i] = rank(pos[i]);
+		return dest;
+	}
+
 	/**
 	 * Returns the number of zeroes preceding the specified position.
 	 *
@@ -100,6 +100,37 @@ public class Rank9 extends AbstractRank implements Rank {
 		return count[block] + (count[block + 1] >>> (offset + (offset >>> 32 - 4 & 0x8)) * 9 & 0x1FF) + Long.bitCount(bits[word] & ((1L << pos) - 1));
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>
+	 * This implementation issues the independent reads of all queries in a tight loop, so that cache
+	 * misses can be overlapped.
+	 */
+	@Override
+	public long[] rank(final long[] pos, final long[] dest) {
+		assert dest.length >= pos.length;
+		final long[] bits = this.bits;
+		final long[] count = this.count;
+		final long lastOne = this.lastOne, numOnes = this.numOnes;
+
+		for (int i = 0; i < pos.length; i++) {
+			final long p = pos[i];
+			assert p >= 0;
+			assert p <= bitVector.length();
+			if (p > lastOne) {
+				dest[i] = numOnes;
+				continue;
+			}
+			final int word = word(p);
+			final int block = (word >>> 2) & ~1;
+			final int offset = (word & 0x7) - 1;
+			dest[i] = count[block] + (count[block + 1] >>> (offset + (offset >>> 32 - 4 & 0x8)) * 9 & 0x1FF) + Long.bitCount(bits[word] & ((1L << p) - 1));
+		}
+
+		return dest;
+	}
+
 	/**
 	 * Returns the rank at the given position assuming that the argument is less than the length of the
 	 * bit vector.
@@ -70,6 +70,31 @@ public interface Select extends Serializable {
 	 */
 	public long select(long rank);
 
+	/**
+	 * Performs a bulk select of a given array of ranks.
+	 *
+	 * <p>
+	 * This method is semantically equivalent to calling {@link #select(long)} on each element of
+	 * {@code rank}, but implementations might be significantly faster when {@code rank} is sorted
+	 * in nondecreasing order (e.g., by reusing inventory lookups, and by scanning the bit array
+	 * from the position of the previous bit when the next one is close). Unsorted arrays of ranks
+	 * will still give correct results.
+	 *
+	 * <p>
+	 * This default implementation just calls {@link #select(long)} for each rank.
+	 *
+	 * @param rank an array of ranks, preferably sorted in nondecreasing order; if some rank is
+	 *            greater than or equal to the number of ones, behavior is undefined.
+	 * @param dest the destination array, of length at least {@code rank.length}; it will be filled
+	 *            with the positions of the bits of given ranks.
+	 * @return {@code dest}.
+	 */
+	public default long[] select(final long[] rank, final long[] dest) {
+		assert dest.length >= rank.length;
+		for (int i = 0; i < rank.length; i++) dest[i] = select(rank[i]);
+		return dest;
+	}
+
 	/** Returns the bit vector indexed by this structure.
 	 *
 	 * <p>Note that you are not supposed to modify the returned vector.
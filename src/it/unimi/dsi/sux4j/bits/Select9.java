@@ -49,6 +49,9 @@ public class Select9 implements Select {
 	private final static long ONES_STEP_9 = 1L << 0 | 1L << 9 | 1L << 18 | 1L << 27 | 1L << 36 | 1L << 45 | 1L << 54;
 	private final static long MSBS_STEP_9 = 0x100L * ONES_STEP_9;
 
+	/** Below this rank difference, {@link #select(long[], long[])} looks for a bit in the same word of the last one by clearing bits. */
+	private final static int SMALL_DELTA = 8;
+
 	private final static int LOG2_ONES_PER_INVENTORY = 9;
 	private final static int ONES_PER_INVENTORY = 1 << LOG2_ONES_PER_INVENTORY;
 	private final static int INVENTORY_MASK = ONES_PER_INVENTORY - 1;
@@ -264,6 +267,17 @@ public class Select9 implements Select {
 			return subinventory[subinventoryIndex + (int)(rank & ~-ONES_PER_INVENTORY)];
 		}
 
+		return selectInBlock(rankInBlock, countLeft, blockLeft);
+	}
+
+	/** Selects a bit inside a basic block of <code>rank9</code>.
+	 *
+	 * @param rankInBlock the rank of the bit with respect to the start of the block.
+	 * @param countLeft the index of the block in {@link #count}.
+	 * @param blockLeft the index of the first word of the block.
+	 * @return the position of the bit.
+	 */
+	private long selectInBlock(final int rankInBlock, final int countLeft, final int blockLeft) {
 		final long rankInBlockStep9 = rankInBlock * ONES_STEP_9;
 		final long subcounts = count[countLeft + 1];
 		final int offsetInBlock = (int)(((((((rankInBlockStep9 | MSBS_STEP_9) - (subcounts & ~MSBS_STEP_9)) | (subcounts ^ rankInBlockStep9)) ^ (subcounts & ~rankInBlockStep9)) & MSBS_STEP_9) >>> 8) * ONES_STEP_9 >>> 54 & 0x7);
@@ -279,6 +293,56 @@ public class Select9 implements Select {
 		return bits(word) + Fast.select(bits[word], rankInWord);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>
+	 * This implementation exploits sortedness: if a bit lies in the same basic block of
+	 * <code>rank9</code> as the bit of the previous rank, inventory and subinventory lookups are
+	 * skipped altogether, and the bit is located using just the counts of the block.
+	 */
+	@Override
+	public long[] select(final long[] rank, final long[] dest) {
+		assert dest != null;
+		assert dest.length >= rank.length;
+
+		final long[] bits = this.bits;
+		final long[] count = this.count;
+		long lastRank = Long.MAX_VALUE, lastPos = 0;
+
+		for (int i = 0; i < rank.length; i++) {
+			final long r = rank[i];
+			assert r >= 0;
+			assert r < numOnes;
+
+			final long delta = r - lastRank;
+
+			if (delta == 0) {
+				dest[i] = lastPos;
+				continue;
+			}
+
+			final int lastWord = word(lastPos);
+			long word;
+
+			if (delta > 0 && delta < SMALL_DELTA && delta <= Long.bitCount(word = bits[lastWord] & -2L << lastPos)) {
+				// The bit is close to the last one, in the same word: clearing the lowest bits is faster than selecting
+				for (long d = delta; --d != 0;) word &= word - 1;
+				lastPos = bits(lastWord) + Long.numberOfTrailingZeros(word);
+			} else {
+				final int countLeft = lastWord >>> 3 << 1;
+				// count[countLeft] <= lastRank, so delta > 0 implies that r is not before the block
+				if (delta > 0 && r < count[countLeft + 2]) lastPos = selectInBlock((int)(r - count[countLeft]), countLeft, lastWord & ~7);
+				else lastPos = select(r);
+			}
+
+			dest[i] = lastPos;
+			lastRank = r;
+		}
+
+		return dest;
+	}
+
 	@Override
 	public long numBits() {
 		return rank9.numBits() + bits(inventory.length) + bits(subinventory.length);
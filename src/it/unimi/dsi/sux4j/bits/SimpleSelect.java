@@ -51,6 +51,9 @@ public class SimpleSelect implements Select {
 	private static final int MAX_ONES_PER_INVENTORY = 8192;
 	private static final int MAX_LOG2_LONGWORDS_PER_SUBINVENTORY = 3;
 
+	/** Below this rank inside a word, {@link #select(long[], long[])} clears bits instead of using {@link Fast#select(long, int)}. */
+	private static final int SMALL_RESIDUAL = 8;
+
 	/** The maximum size of span to qualify for a subinventory made of 16-bit offsets. */
 	private static final int MAX_SPAN = (1 << 16);
 
@@ -235,6 +238,77 @@ public class SimpleSelect implements Select {
 
 	}
 
+	/**
+	 * Creates a new selection structure using the specified bit vector and prebuilt inventories.
+	 *
+	 * @param bitVector a bit vector.
+	 * @param builder a completed inventory builder for the ones of {@code bitVector}.
+	 */
+	private SimpleSelect(final BitVector bitVector, final SimpleSelectInventoryBuilder builder) {
+		this.bitVector = bitVector;
+		this.bits = bitVector.bits();
+		numWords = words(bitVector.length());
+		numOnes = builder.numOnes;
+		inventory = builder.inventory;
+		log2OnesPerInventory = builder.log2OnesPerInventory;
+		onesPerInventory = builder.onesPerInventory;
+		onesPerInventoryMask = builder.onesPerInventoryMask;
+		subinventory = builder.subinventory;
+		subinventory16 = onesPerInventory > 1 ? LongArrayBitVector.wrap(subinventory).asLongBigList(Short.SIZE) : null;
+		log2LongwordsPerSubinventory = builder.log2LongwordsPerSubinventory;
+		log2OnesPerSub64 = builder.log2OnesPerSub64;
+		onesPerSub64 = builder.onesPerSub64;
+		log2OnesPerSub16 = builder.log2OnesPerSub16;
+		onesPerSub16 = builder.onesPerSub16;
+		onesPerSub16Mask = builder.onesPerSub16Mask;
+		exactSpill = builder.exactSpill;
+	}
+
+	/**
+	 * A builder creating a {@link SimpleSelect} incrementally, given the positions of the ones in
+	 * increasing order.
+	 *
+	 * <p>
+	 * The length of the bit vector and its number of ones must be known in advance. In this way,
+	 * the bit vector can be filled while the positions are being added, and the inventories are
+	 * built in a single pass, without scanning the bit vector.
+	 */
+	public static final class Builder {
+		/** The underlying inventory builder. */
+		private final SimpleSelectInventoryBuilder builder;
+
+		/**
+		 * Creates a new builder.
+		 *
+		 * @param length the length of the bit vector.
+		 * @param numOnes the number of ones in the bit vector.
+		 */
+		public Builder(final long length, final long numOnes) {
+			builder = new SimpleSelectInventoryBuilder(length, numOnes);
+		}
+
+		/**
+		 * Adds the position of a one.
+		 *
+		 * @param position the position of a one, greater than the last position added.
+		 */
+		public void add(final long position) {
+			builder.add(position);
+		}
+
+		/**
+		 * Builds the selection structure; must be called after all positions have been added.
+		 *
+		 * @param bitVector the bit vector whose ones have been added.
+		 * @return a selection structure for {@code bitVector}.
+		 */
+		public SimpleSelect build(final BitVector bitVector) {
+			if (bitVector.length() != builder.length) throw new IllegalArgumentException("The length of the bit vector (" + bitVector.length() + ") differs from the declared length (" + builder.length + ")");
+			builder.finish();
+			return new SimpleSelect(bitVector, builder);
+		}
+	}
+
 	@Override
 	public long select(final long rank) {
 		assert rank >= 0;
@@ -339,6 +413,67 @@ public class SimpleSelect implements Select {
 		return select(rank, dest, 0, dest.length);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>
+	 * This implementation exploits sortedness: if the bit of the previous rank is closer than the
+	 * bit recorded in the subinventory, the bit array is scanned from the previous position, thus
+	 * skipping inventory lookups altogether. On a dense sorted batch, the bit array is
+	 * streamed through just once.
+	 */
+	@Override
+	public long[] select(final long[] rank, final long[] dest) {
+		assert dest != null;
+		assert dest.length >= rank.length;
+
+		final long[] bits = this.bits;
+		final long[] inventory = this.inventory;
+		final int onesPerSub16Mask = this.onesPerSub16Mask;
+		final int log2OnesPerInventory = this.log2OnesPerInventory;
+
+		long lastRank = -1, lastPos = -1;
+
+		for (int i = 0; i < rank.length; i++) {
+			final long r = rank[i];
+			assert r >= 0;
+			assert r < numOnes;
+
+			final long delta = r - lastRank;
+
+			if (delta == 0) {
+				dest[i] = lastPos;
+				continue;
+			}
+
+			/* If the last bit is in the same 16-bit subinventory block and comes after the bit recorded in the
+			 * block, we can start scanning from there (but we do not scan exact spills). */
+			if (delta > 0 && delta <= (r & onesPerSub16Mask) && inventory[(int)(r >>> log2OnesPerInventory)] >= 0) {
+				int residual = (int)delta - 1;
+				int wordIndex = word(lastPos);
+				long word = bits[wordIndex] & -2L << lastPos;
+
+				for (;;) {
+					final int bitCount = Long.bitCount(word);
+					if (residual < bitCount) break;
+					word = bits[++wordIndex];
+					residual -= bitCount;
+				}
+
+				// For small residuals, clearing the lowest bits is faster than broadword selection
+				if (residual < SMALL_RESIDUAL) {
+					while (residual-- != 0) word &= word - 1;
+					lastPos = bits(wordIndex) + Long.numberOfTrailingZeros(word);
+				} else lastPos = bits(wordIndex) + Fast.select(word, residual);
+			} else lastPos = select(r);
+
+			dest[i] = lastPos;
+			lastRank = r;
+		}
+
+		return dest;
+	}
+
 	private void readObject(final ObjectInputStream s) throws IOException, ClassNotFoundException {
 		s.defaultReadObject();
 		subinventory16 = LongArrayBitVector.wrap(subinventory).asLongBigList(Short.SIZE);
@@ -0,0 +1,171 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bits;
+
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongBigList;
+
+/**
+ * Builds incrementally the inventories of a {@link SimpleSelect} or {@link SimpleSelectZero}
+ * instance, given the length of the bit vector, the number of selectable bits and their positions
+ * in increasing order.
+ *
+ * <p>
+ * Since the parameters of the inventories depend only on the length and on the number of bits,
+ * the inventory and the subinventory can be allocated in advance; the positions of the current
+ * inventory block are buffered until the block is complete, as the representation of the block
+ * depends on its span. Exact spills are accumulated in an array that is trimmed at the end.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+final class SimpleSelectInventoryBuilder {
+	private static final int MAX_ONES_PER_INVENTORY = 8192;
+	private static final int MAX_LOG2_LONGWORDS_PER_SUBINVENTORY = 3;
+	/** The maximum size of span to qualify for a subinventory made of 16-bit offsets. */
+	private static final int MAX_SPAN = (1 << 16);
+
+	/** The length of the bit vector. */
+	final long length;
+	/** The number of selectable bits. */
+	final long numOnes;
+	final int log2OnesPerInventory;
+	final int onesPerInventory;
+	final int onesPerInventoryMask;
+	final int log2LongwordsPerSubinventory;
+	final int log2OnesPerSub64;
+	final int onesPerSub64;
+	final int log2OnesPerSub16;
+	final int onesPerSub16;
+	final int onesPerSub16Mask;
+	final long[] inventory;
+	final long[] subinventory;
+	/** The exact spills; trimmed by {@link #finish()}. */
+	long[] exactSpill;
+	/** Exposes {@link #subinventory} as a list of 16-bits positive integers. */
+	private final LongBigList subinventory16;
+	/** The number of exact spills. */
+	private int spilled;
+	/** The positions in the current inventory block. */
+	private final long[] block;
+	/** The number of positions in {@link #block}. */
+	private int blockSize;
+	/** The number of positions added so far. */
+	private long count;
+	/** The last position added, or -1. */
+	private long last = -1;
+
+	/**
+	 * Creates a new inventory builder.
+	 *
+	 * @param length the length of the bit vector.
+	 * @param numOnes the number of selectable bits.
+	 */
+	SimpleSelectInventoryBuilder(final long length, final long numOnes) {
+		if (numOnes < 0 || numOnes > length) throw new IllegalArgumentException("Illegal number of bits (" + numOnes + ") for length " + length);
+		this.length = length;
+		this.numOnes = numOnes;
+		onesPerInventory = 1 << (log2OnesPerInventory = Fast.mostSignificantBit(length == 0 ? 1 : (int)((numOnes * MAX_ONES_PER_INVENTORY + length - 1) / length)));
+		onesPerInventoryMask = onesPerInventory - 1;
+		final int inventorySize = (int)((numOnes + onesPerInventory - 1) / onesPerInventory);
+		inventory = new long[inventorySize + 1];
+		inventory[inventorySize] = length;
+
+		log2LongwordsPerSubinventory = Math.min(MAX_LOG2_LONGWORDS_PER_SUBINVENTORY, Math.max(0, log2OnesPerInventory - 2));
+		log2OnesPerSub64 = Math.max(0, log2OnesPerInventory - log2LongwordsPerSubinventory);
+		log2OnesPerSub16 = Math.max(0, log2OnesPerSub64 - 2);
+		onesPerSub64 = (1 << log2OnesPerSub64);
+		onesPerSub16 = (1 << log2OnesPerSub16);
+		onesPerSub16Mask = onesPerSub16 - 1;
+
+		if (onesPerInventory > 1) {
+			// We must always count (possibly unused) diff16's. And we cannot store less then 4 diff16.
+			final long fullBlocks = numOnes >>> log2OnesPerInventory;
+			final int residual = (int)(numOnes & onesPerInventoryMask);
+			long diff16 = fullBlocks * Math.max(4, onesPerInventory >>> log2OnesPerSub16);
+			if (residual != 0) diff16 += Math.max(4, (residual + onesPerSub16 - 1) >>> log2OnesPerSub16);
+			subinventory = new long[(int)((diff16 + 3) >> 2)];
+			exactSpill = new long[16];
+			subinventory16 = LongArrayBitVector.wrap(subinventory).asLongBigList(Short.SIZE);
+			block = new long[onesPerInventory];
+		} else {
+			subinventory = exactSpill = LongArrays.EMPTY_ARRAY;
+			subinventory16 = null;
+			block = null;
+		}
+	}
+
+	/**
+	 * Adds the position of a selectable bit.
+	 *
+	 * @param position the position of a selectable bit, greater than the last position added.
+	 */
+	void add(final long position) {
+		if (position <= last) throw new IllegalArgumentException("Positions are not increasing: " + position + " <= " + last);
+		if (position >= length) throw new IllegalArgumentException("Position " + position + " is not smaller than the length (" + length + ")");
+		if (count == numOnes) throw new IllegalArgumentException("More than " + numOnes + " positions have been added");
+
+		if ((count & onesPerInventoryMask) == 0) {
+			if (block != null && count != 0) flush(position);
+			inventory[(int)(count >>> log2OnesPerInventory)] = position;
+		}
+
+		if (block != null) block[blockSize++] = position;
+		count++;
+		last = position;
+	}
+
+	/**
+	 * Completes the current inventory block.
+	 *
+	 * @param end the position of the first bit of the next block, or the length of the bit vector.
+	 */
+	private void flush(final long end) {
+		final int inventoryIndex = (int)((count - 1) >>> log2OnesPerInventory);
+		final long start = block[0];
+		final long span = end - start;
+
+		if (span < MAX_SPAN) {
+			for (int k = 0; k < blockSize; k += onesPerSub16) subinventory16.set((inventoryIndex << log2LongwordsPerSubinventory + 2) + (k >>> log2OnesPerSub16), block[k] - start);
+		} else {
+			assert onesPerSub64 > 1;
+			inventory[inventoryIndex] |= 1L << 63;
+			subinventory[inventoryIndex << log2LongwordsPerSubinventory] = spilled;
+			exactSpill = LongArrays.grow(exactSpill, spilled + blockSize);
+			System.arraycopy(block, 0, exactSpill, spilled, blockSize);
+			spilled += blockSize;
+		}
+
+		blockSize = 0;
+	}
+
+	/** Completes the inventories; must be called after all positions have been added. */
+	void finish() {
+		if (count != numOnes) throw new IllegalStateException("Only " + count + " positions out of " + numOnes + " have been added");
+		if (block != null) {
+			if (count != 0) flush(length);
+			exactSpill = LongArrays.trim(exactSpill, spilled);
+		}
+	}
+}
@@ -235,6 +235,77 @@ public class SimpleSelectZero implements SelectZero {
 
 	}
 
+	/**
+	 * Creates a new selection structure using the specified bit vector and prebuilt inventories.
+	 *
+	 * @param bitVector a bit vector.
+	 * @param builder a completed inventory builder for the zeros of {@code bitVector}.
+	 */
+	private SimpleSelectZero(final BitVector bitVector, final SimpleSelectInventoryBuilder builder) {
+		this.bitVector = bitVector;
+		this.bits = bitVector.bits();
+		numWords = words(bitVector.length());
+		numOnes = builder.numOnes;
+		inventory = builder.inventory;
+		log2OnesPerInventory = builder.log2OnesPerInventory;
+		onesPerInventory = builder.onesPerInventory;
+		onesPerInventoryMask = builder.onesPerInventoryMask;
+		subinventory = builder.subinventory;
+		subinventory16 = onesPerInventory > 1 ? LongArrayBitVector.wrap(subinventory).asLongBigList(Short.SIZE) : null;
+		log2LongwordsPerSubinventory = builder.log2LongwordsPerSubinventory;
+		log2OnesPerSub64 = builder.log2OnesPerSub64;
+		onesPerSub64 = builder.onesPerSub64;
+		log2OnesPerSub16 = builder.log2OnesPerSub16;
+		onesPerSub16 = builder.onesPerSub16;
+		onesPerSub16Mask = builder.onesPerSub16Mask;
+		exactSpill = builder.exactSpill;
+	}
+
+	/**
+	 * A builder creating a {@link SimpleSelectZero} incrementally, given the positions of the zeros in
+	 * increasing order.
+	 *
+	 * <p>
+	 * The length of the bit vector and its number of zeros must be known in advance. In this way,
+	 * the bit vector can be filled while the positions are being added, and the inventories are
+	 * built in a single pass, without scanning the bit vector.
+	 */
+	public static final class Builder {
+		/** The underlying inventory builder. */
+		private final SimpleSelectInventoryBuilder builder;
+
+		/**
+		 * Creates a new builder.
+		 *
+		 * @param length the length of the bit vector.
+		 * @param numZeros the number of zeros in the bit vector.
+		 */
+		public Builder(final long length, final long numZeros) {
+			builder = new SimpleSelectInventoryBuilder(length, numZeros);
+		}
+
+		/**
+		 * Adds the position of a zero.
+		 *
+		 * @param position the position of a zero, greater than the last position added.
+		 */
+		public void add(final long position) {
+			builder.add(position);
+		}
+
+		/**
+		 * Builds the selection structure; must be called after all positions have been added.
+		 *
+		 * @param bitVector the bit vector whose zeros have been added.
+		 * @return a selection structure for {@code bitVector}.
+		 */
+		public SimpleSelectZero build(final BitVector bitVector) {
+			if (bitVector.length() != builder.length) throw new IllegalArgumentException("The length of the bit vector (" + bitVector.length() + ") differs from the declared length (" + builder.length + ")");
+			builder.finish();
+			return new SimpleSelectZero(bitVector, builder);
+		}
+	}
+
 	@Override
 	public long selectZero(final long rank) {
 		assert rank >= 0;
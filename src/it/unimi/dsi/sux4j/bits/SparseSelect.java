@@ -157,6 +157,36 @@ public class SparseSelect extends EliasFanoMonotoneLongBigList implements Select
 		return upperBits << l | (startBit + l <= Long.SIZE ? result : result | lowerBits[startWord + 1] << -startBit) & lowerBitsMask;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>
+	 * This implementation delegates the selection of the upper bits to
+	 * {@link SimpleSelect#select(long[], long[])}, and then merges in the lower bits.
+	 */
+	@Override
+	public long[] select(final long[] rank, final long[] dest) {
+		assert dest != null;
+		assert dest.length >= rank.length;
+
+		selectUpper.select(rank, dest);
+
+		final int l = this.l;
+		final long[] lowerBits = this.lowerBits;
+		final long lowerBitsMask = this.lowerBitsMask;
+
+		for (int i = 0; i < rank.length; i++) {
+			final long r = rank[i];
+			final long position = r * l;
+			final int startWord = word(position);
+			final int startBit = bit(position);
+			final long result = lowerBits[startWord] >>> startBit;
+			dest[i] = dest[i] - r << l | (startBit + l <= Long.SIZE ? result : result | lowerBits[startWord + 1] << -startBit) & lowerBitsMask;
+		}
+
+		return dest;
+	}
+
 	/** Returns the bit vector indexed; since the bits are not stored in this data structure,
 	 * a copy is built on purpose and returned.
 	 *
@@ -33,6 +33,13 @@ import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections4.Predicate;
 import org.apache.commons.math3.random.RandomGenerator;
@@ -54,6 +61,7 @@ import it.unimi.dsi.logging.ProgressLogger;
 import it.unimi.dsi.sux4j.mph.GOV3Function;
 import it.unimi.dsi.sux4j.mph.Hashes;
 import it.unimi.dsi.util.XoRoShiRo128PlusRandomGenerator;
+import it.unimi.dsi.util.concurrent.ReorderingBlockingQueue;
 
 /**
  * A temporary store of signatures virtually divided into buckets.
@@ -111,6 +119,22 @@ import it.unimi.dsi.util.XoRoShiRo128PlusRandomGenerator;
  * When you have finished using a bucketed hash store, you should {@link #close()} it. This class
  * implements {@link SafelyCloseable}, and thus provides a safety-net finalizer.
  *
+ * <h2>Multithreading</h2>
+ *
+ * <p>
+ * When adding elements {@linkplain #addAll(Iterator, LongIterator) in batches}, signatures are
+ * computed by parallel threads once more than {@link #BATCH_SIZE} elements have been added. By
+ * default, this class uses {@link Runtime#availableProcessors()} parallel threads, as the bucket
+ * solvers of the functions in {@link it.unimi.dsi.sux4j.mph}. If you wish to set a specific number
+ * of threads, you can do so through the system property {@value #NUMBER_OF_THREADS_PROPERTY}; a
+ * value of one disables multithreading.
+ *
+ * <p>
+ * Elements are turned into bit vectors by the calling thread, so the transformation strategy does
+ * not need to be thread safe, and elements returned by the iterator can be reused. Signatures are
+ * written to the disk segments in the same order in which elements are returned by the iterator,
+ * so the content of the store does not depend on the number of threads.
+ *
  * <h2>Filtering</h2>
  *
  * <p>
@@ -203,6 +227,10 @@ public class BucketedHashStore<T> implements Serializable, SafelyCloseable, Iter
 	public final static int DISK_SEGMENTS = 1 << LOG2_DISK_SEGMENTS;
 	/** The shift for disk segments. */
 	public final static int DISK_SEGMENTS_SHIFT = Long.SIZE - LOG2_DISK_SEGMENTS;
+	/** The system property used to set the number of parallel threads used by {@link #addAll(Iterator, LongIterator, boolean)}. */
+	public static final String NUMBER_OF_THREADS_PROPERTY = "it.unimi.dsi.sux4j.io.threads";
+	/** The number of elements hashed by a thread in a single batch; batch additions of fewer elements happen in the calling thread. */
+	public final static int BATCH_SIZE = 4096;
 	/** The expected bucket size. */
 	private int bucketSize;
 	/** The number of buckets: 1 + {@link #size()} / {@link #bucketSize()}. */
@@ -362,7 +390,7 @@ public class BucketedHashStore<T> implements Serializable, SafelyCloseable, Iter
 	 */
 	public void add(final T o, final long value) throws IOException {
 		final long[] signature = new long[2];
-		Hashes.spooky4(transform.toBitVector(o), seed, signature);
+		Hashes.spooky4(o, transform, seed, signature);
 		add(signature, value);
 	}
 
@@ -374,12 +402,16 @@ public class BucketedHashStore<T> implements Serializable, SafelyCloseable, Iter
 		add(o, filteredSize);
 	}
 
-	/** Adds a signature to this store.
+	/** Adds a signature to this store, associating it with a specified value.
+	 *
+	 * <p>This method is useful if the signature of an element has been already computed: it must
+	 * have been generated by {@link Hashes#spooky4(Object, TransformationStrategy, long, long[])} using the
+	 * {@linkplain #transform() transformation strategy} and the current seed of this store.
 	 *
 	 * @param signature the signature to be added.
 	 * @param value the associated value.
 	 */
-	private void add(final long[] signature, final long value) throws IOException {
+	public void add(final long[] signature, final long value) throws IOException {
 		final int segment = (int)(signature[0] >>> DISK_SEGMENTS_SHIFT);
 		count[segment]++;
 		checkedForDuplicates = false;
@@ -404,9 +436,14 @@ public class BucketedHashStore<T> implements Serializable, SafelyCloseable, Iter
 			pl.expectedUpdates = -1;
 			pl.start("Adding elements...");
 		}
+		final int numberOfThreads = Integer.parseInt(System.getProperty(NUMBER_OF_THREADS_PROPERTY, Integer.toString(Runtime.getRuntime().availableProcessors())));
 		final long[] signature = new long[2];
-		while(elements.hasNext()) {
-			Hashes.spooky4(transform.toBitVector(elements.next()), seed, signature);
+		for (int i = 0; elements.hasNext(); i++) {
+			if (i == BATCH_SIZE && numberOfThreads > 1) {
+				parallelAddAll(elements, values, numberOfThreads);
+				break;
+			}
+			Hashes.spooky4(elements.next(), transform, seed, signature);
 			add(signature, values != null ? values.nextLong() : filteredSize);
 			if (pl != null) pl.lightUpdate();
 		}
@@ -414,6 +451,118 @@ public class BucketedHashStore<T> implements Serializable, SafelyCloseable, Iter
 		if (pl != null) pl.done();
 	}
 
+	/** A batch of elements to be hashed by a thread, and then written to disk segments. */
+	private static final class Batch {
+		/** The index of this batch (the ordinal position in the batch enumeration). */
+		private long index;
+		/** The number of elements in this batch, or -1 for the end-of-batches marker. */
+		private int size;
+		/** Copies of the bit vectors representing the elements. */
+		private final LongArrayBitVector[] key;
+		/** The associated values, if values were specified. */
+		private final long[] value;
+		/** The signatures, two longs per element. */
+		private final long[] signature;
+
+		private Batch(final int capacity) {
+			key = new LongArrayBitVector[capacity];
+			for (int i = capacity; i-- != 0;) key[i] = LongArrayBitVector.getInstance();
+			value = new long[capacity];
+			signature = new long[2 * capacity];
+		}
+	}
+
+	/**
+	 * Adds the elements returned by an iterator using a pipeline of threads.
+	 *
+	 * <p>
+	 * The calling thread turns elements into bit vectors and copies them into batches, which are
+	 * hashed by {@code numberOfThreads} parallel threads. A further thread writes the signatures of
+	 * the batches into the disk segments in their original order, so the resulting store is identical
+	 * to the one obtained by adding elements sequentially.
+	 *
+	 * @param elements an iterator returning elements.
+	 * @param values an iterator on values parallel to {@code elements}, or {@code null}.
+	 * @param numberOfThreads the number of hashing threads.
+	 */
+	private void parallelAddAll(final Iterator<? extends T> elements, final LongIterator values, final int numberOfThreads) throws IOException {
+		final int numberOfBatches = 4 * numberOfThreads;
+		final ArrayBlockingQueue<Batch> freeBatches = new ArrayBlockingQueue<>(numberOfBatches);
+		for (int i = numberOfBatches; i-- != 0;) freeBatches.add(new Batch(BATCH_SIZE));
+		// Enough room for all batches and for the end-of-batches markers, so the calling thread never blocks
+		final ArrayBlockingQueue<Batch> hashQueue = new ArrayBlockingQueue<>(numberOfBatches + numberOfThreads);
+		final ReorderingBlockingQueue<Batch> writeQueue = new ReorderingBlockingQueue<>(numberOfBatches + 1);
+		final Batch endOfBatches = new Batch(0);
+		endOfBatches.size = -1;
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads + 1);
+		final ExecutorCompletionService<Void> executorCompletionService = new ExecutorCompletionService<>(executorService);
+
+		executorCompletionService.submit(() -> {
+			final long[] signature = new long[2];
+			for (;;) {
+				final Batch batch = writeQueue.take();
+				if (batch == endOfBatches) return null;
+				for (int i = 0; i < batch.size; i++) {
+					signature[0] = batch.signature[2 * i];
+					signature[1] = batch.signature[2 * i + 1];
+					add(signature, values != null ? batch.value[i] : filteredSize);
+					if (pl != null) pl.lightUpdate();
+				}
+				freeBatches.put(batch);
+			}
+		});
+
+		final long seed = this.seed;
+		for (int i = numberOfThreads; i-- != 0;) executorCompletionService.submit(() -> {
+			final long[] signature = new long[2];
+			for (;;) {
+				final Batch batch = hashQueue.take();
+				if (batch == endOfBatches) return null;
+				for (int j = 0; j < batch.size; j++) {
+					Hashes.spooky4(batch.key[j], seed, signature);
+					batch.signature[2 * j] = signature[0];
+					batch.signature[2 * j + 1] = signature[1];
+				}
+				writeQueue.put(batch, batch.index);
+			}
+		});
+
+		try {
+			long index = 0;
+			while (elements.hasNext()) {
+				Batch batch;
+				while ((batch = freeBatches.poll(1, TimeUnit.SECONDS)) == null) {
+					// A thread completing at this point has thrown an exception
+					final Future<Void> future = executorCompletionService.poll();
+					if (future != null) future.get();
+				}
+				int size = 0;
+				while (size < BATCH_SIZE && elements.hasNext()) {
+					batch.key[size].replace(transform.toBitVector(elements.next()));
+					if (values != null) batch.value[size] = values.nextLong();
+					size++;
+				}
+				batch.size = size;
+				batch.index = index++;
+				hashQueue.put(batch);
+			}
+
+			for (int i = numberOfThreads; i-- != 0;) hashQueue.put(endOfBatches);
+			writeQueue.put(endOfBatches, index);
+
+			for (int i = numberOfThreads + 1; i-- != 0;) executorCompletionService.take().get();
+		} catch (final InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) throw (IOException)cause;
+			throw new RuntimeException(cause);
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
 	/** Adds the elements returned by an iterator to this store, associating them with specified values.
 	 *
 	 * @param elements an iterator returning elements.
@@ -782,6 +931,51 @@ public class BucketedHashStore<T> implements Serializable, SafelyCloseable, Iter
 	 */
 	@Override
 	public Iterator<Bucket> iterator() {
+		if (closed) throw new IllegalStateException("This " + getClass().getSimpleName() + " has been closed ");
+		try {
+			return bucketIterator(size(), 0, -1);
+		} catch(final IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/** Returns an iterator over a range of buckets of a larger bucketed hash store.
+	 *
+	 * <p>This method makes sharded constructions possible: if this store contains exactly the
+	 * signatures of a larger store (with the same seed, transformation strategy and bucket size)
+	 * that fall into a range of buckets, the returned iterator will enumerate the buckets of
+	 * the larger store in the range, with their indices in the larger store, empty buckets included.
+	 * The bucket of a signature in the larger store can be computed using {@link #bucket(long[], long, int)}.
+	 *
+	 * @param size the number of keys of the larger store.
+	 * @param from the first bucket to be returned.
+	 * @param to the last bucket to be returned, exclusive.
+	 * @return an iterator over the buckets of the larger store from {@code from} (inclusive) to {@code to} (exclusive).
+	 * @see #iterator()
+	 */
+	public Iterator<Bucket> iterator(final long size, final long from, final long to) {
+		if (from < 0 || to < from || to > 1 + size / bucketSize) throw new IllegalArgumentException("Illegal bucket range [" + from + ".." + to + ") for " + (1 + size / bucketSize) + " buckets");
+		return bucketIterator(size, from, to);
+	}
+
+	/** Returns the index of the bucket of a signature.
+	 *
+	 * @param signature a signature.
+	 * @param size the number of keys of the store.
+	 * @param bucketSize the bucket size of the store.
+	 * @return the index of the bucket of {@code signature} in a store with given size and bucket size.
+	 */
+	public static long bucket(final long[] signature, final long size, final int bucketSize) {
+		return Math.multiplyHigh(signature[0] >>> 1, (1 + size / bucketSize) * 2);
+	}
+
+	/** Returns an iterator over the buckets of a store with given size.
+	 *
+	 * @param size the number of keys of the store.
+	 * @param from the first bucket to be returned.
+	 * @param to the last bucket to be returned, exclusive, or -1 to return buckets as long as there are signatures.
+	 */
+	private Iterator<Bucket> bucketIterator(final long size, final long from, final long to) {
 		if (closed) throw new IllegalStateException("This " + getClass().getSimpleName() + " has been closed ");
 		try {
 			flushAll();
@@ -795,15 +989,11 @@ public class BucketedHashStore<T> implements Serializable, SafelyCloseable, Iter
 
 		final int maxCount = m + 16 * bucketSize; // Some headroom for partial buckets
 
-		try {
-			numBuckets = 1 + size() / bucketSize;
-			multiplier = numBuckets * 2;
-		} catch(final IOException e) {
-			throw new RuntimeException(e);
-		}
+		numBuckets = 1 + size / bucketSize;
+		multiplier = numBuckets * 2;
 
 		return new ObjectIterator<Bucket>() {
-			private long bucket;
+			private long bucket = from;
 			private ReadableByteChannel channel;
 			private final ByteBuffer iteratorByteBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.nativeOrder());
 			private int last;
@@ -815,6 +1005,7 @@ public class BucketedHashStore<T> implements Serializable, SafelyCloseable, Iter
 
 			@Override
 			public boolean hasNext() {
+				if (to >= 0) return bucket < to;
 				return last < diskSegmentSize || nextDiskSegment != DISK_SEGMENTS;
 			}
 
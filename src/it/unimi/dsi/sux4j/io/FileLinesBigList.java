@@ -62,7 +62,8 @@ import it.unimi.dsi.sux4j.util.EliasFanoMonotoneLongBigList;
  *
  * <p><strong>Warning</strong>: this class is not synchronised. Separate iterators use separate input
  * streams, and can be accessed concurrently, but all calls to {@link #get(long)} refer to the
- * same input stream.
+ * same input stream. A {@link MappedFileLinesBigList} provides the same view with thread-safe
+ * access to lines.
  *
  * <h2>Implementation details</h2>
  *
@@ -76,25 +77,25 @@ import it.unimi.dsi.sux4j.util.EliasFanoMonotoneLongBigList;
 public class FileLinesBigList extends AbstractObjectBigList<MutableString> implements RandomAccess, Serializable {
 	private static final long serialVersionUID = 1L;
 	/** The filename upon which this file-lines collection is based. */
-	private final String filename;
+	protected final String filename;
 	/** The size of the list. */
 	private final long size;
 	/** The buffer size for all instances of {@link FastBufferedInputStream}. */
 	private final int bufferSize;
 	/** The terminators that must be used to separate the file lines. */
-	private final EnumSet<LineTerminator> terminators;
+	protected final EnumSet<LineTerminator> terminators;
 	/** A byte buffer for character decoding. It is enough large to hold any line in the file. */
 	private final ByteBuffer byteBuffer;
 	/** A character buffer for character decoding. It is enough large to hold any line in the file. */
 	private final CharBuffer charBuffer;
 	/** A sparse selection structure keeping track of the start of each line in the file. */
-	private final EliasFanoMonotoneLongBigList borders;
+	protected final EliasFanoMonotoneLongBigList borders;
 	/** The fast buffered input stream used by {@link #get(long)}. */
 	private final FastBufferedInputStream inputStream;
 	/** A decoder used by {@link #get(long)}. */
 	private final CharsetDecoder decoder;
 	/** The charset specified at construction time. */
-	private final Charset charset;
+	protected final Charset charset;
 
 	/** Creates a file-lines collection for the specified filename with the specified encoding, buffer size and terminator set.
 	 *
@@ -121,7 +122,8 @@ public class FileLinesBigList extends AbstractObjectBigList<MutableString> imple
 				array = ByteArrays.grow(array, array.length + 1);
 			}
 
-			if (len != -1) count++;
+			// If the last line is not terminated and fills exactly the array, the last call returns -1
+			if (len != -1 || start != 0) count++;
 			else break;
 		}
 
@@ -155,6 +157,38 @@ public class FileLinesBigList extends AbstractObjectBigList<MutableString> imple
 		});
 	}
 
+	/** Creates a file-lines collection for the specified filename with the specified encoding, buffer size and terminator set,
+	 * scanning the file with multiple threads.
+	 *
+	 * <p>The file is memory-mapped and divided into ranges of bytes, which are scanned concurrently
+	 * for line terminators (terminators straddling two ranges are handled correctly). The resulting
+	 * list is identical to the one built by the sequential constructors.
+	 *
+	 * @param filename a filename.
+	 * @param encoding an encoding.
+	 * @param bufferSize the buffer size for {@link FastBufferedInputStream}.
+	 * @param terminators a set of line terminators.
+	 * @param numberOfThreads the number of threads used to scan the file.
+	 */
+	public FileLinesBigList(final CharSequence filename, final String encoding, final int bufferSize, final EnumSet<FastBufferedInputStream.LineTerminator> terminators, final int numberOfThreads) throws IOException {
+		this(filename, encoding, bufferSize, terminators, LineBorders.scan(filename.toString(), terminators, numberOfThreads));
+	}
+
+	private FileLinesBigList(final CharSequence filename, final String encoding, final int bufferSize, final EnumSet<FastBufferedInputStream.LineTerminator> terminators, final LineBorders lineBorders) throws IOException {
+		this.bufferSize = bufferSize;
+		this.terminators = terminators;
+		this.filename = filename.toString();
+
+		inputStream = new FastBufferedInputStream(new FileInputStream(this.filename), bufferSize);
+		decoder = (charset = Charset.forName(encoding)).newDecoder();
+		size = lineBorders.count;
+		// The buffers must be strictly larger than any line (see the sequential constructor)
+		final int bufferLength = (int)Math.min(Integer.MAX_VALUE - 8, Math.max(16, lineBorders.maxGap + 1));
+		byteBuffer = ByteBuffer.wrap(new byte[bufferLength]);
+		charBuffer = CharBuffer.wrap(new char[bufferLength]);
+		borders = lineBorders.borders;
+	}
+
 	/** Creates a file-lines collection for the specified filename with the specified encoding, buffer size and with all terminators.
 	 *
 	 * @param filename a filename.
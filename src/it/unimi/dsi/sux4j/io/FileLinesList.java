@@ -120,7 +120,8 @@ public class FileLinesList extends AbstractObjectList<MutableString> implements
 				array = ByteArrays.grow(array, array.length + 1);
 			}
 
-			if (len != -1) count++;
+			// If the last line is not terminated and fills exactly the array, the last call returns -1
+			if (len != -1 || start != 0) count++;
 			else break;
 		}
 
@@ -154,6 +155,39 @@ public class FileLinesList extends AbstractObjectList<MutableString> implements
 		});
 	}
 
+	/** Creates a file-lines collection for the specified filename with the specified encoding, buffer size and terminator set,
+	 * scanning the file with multiple threads.
+	 *
+	 * <p>The file is memory-mapped and divided into ranges of bytes, which are scanned concurrently
+	 * for line terminators (terminators straddling two ranges are handled correctly). The resulting
+	 * list is identical to the one built by the sequential constructors.
+	 *
+	 * @param filename a filename.
+	 * @param encoding an encoding.
+	 * @param bufferSize the buffer size for {@link FastBufferedInputStream}.
+	 * @param terminators a set of line terminators.
+	 * @param numberOfThreads the number of threads used to scan the file.
+	 */
+	public FileLinesList(final CharSequence filename, final String encoding, final int bufferSize, final EnumSet<FastBufferedInputStream.LineTerminator> terminators, final int numberOfThreads) throws IOException {
+		this(filename, encoding, bufferSize, terminators, LineBorders.scan(filename.toString(), terminators, numberOfThreads));
+	}
+
+	private FileLinesList(final CharSequence filename, final String encoding, final int bufferSize, final EnumSet<FastBufferedInputStream.LineTerminator> terminators, final LineBorders lineBorders) throws IOException {
+		if (lineBorders.count > Integer.MAX_VALUE) throw new IllegalArgumentException("File " + filename + " has too many lines (" + lineBorders.count + ")");
+		this.bufferSize = bufferSize;
+		this.terminators = terminators;
+		this.filename = filename.toString();
+
+		inputStream = new FastBufferedInputStream(new FileInputStream(this.filename), bufferSize);
+		decoder = (charset = Charset.forName(encoding)).newDecoder();
+		size = (int)lineBorders.count;
+		// The buffers must be strictly larger than any line (see the sequential constructor)
+		final int bufferLength = (int)Math.min(Integer.MAX_VALUE - 8, Math.max(16, lineBorders.maxGap + 1));
+		byteBuffer = ByteBuffer.wrap(new byte[bufferLength]);
+		charBuffer = CharBuffer.wrap(new char[bufferLength]);
+		borders = lineBorders.borders;
+	}
+
 	/** Creates a file-lines collection for the specified filename with the specified encoding, buffer size and with all terminators.
 	 *
 	 * @param filename a filename.
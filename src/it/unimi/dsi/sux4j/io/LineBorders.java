@@ -0,0 +1,294 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongConsumer;
+
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream;
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream.LineTerminator;
+import it.unimi.dsi.sux4j.util.EliasFanoMonotoneLongBigList;
+
+/**
+ * Computes the starting position of each line of a memory-mapped file, possibly using multiple
+ * threads.
+ *
+ * <p>
+ * Whether a line starts at a given position depends only on the two preceding bytes and on the
+ * following one, so the file can be divided into ranges of bytes that are scanned independently,
+ * even if a terminator straddles two ranges. The semantics is the same of
+ * {@link FastBufferedInputStream#readLine(byte[], EnumSet)}: a {@link LineTerminator#CR_LF CR/LF}
+ * pair, if recognized, takes precedence over a single {@link LineTerminator#CR CR}, and a
+ * terminator at the end of the file does not start a new line.
+ *
+ * <p>
+ * The file is scanned twice: the first pass counts the lines in each range, and the second pass
+ * feeds the positions of the line starts to the parallel constructor of
+ * {@link EliasFanoMonotoneLongBigList}, without ever storing them explicitly.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+final class LineBorders {
+	/** The base-2 logarithm of {@link #CHUNK_SIZE}. */
+	static final int LOG2_CHUNK_SIZE = 30;
+	/** The size in bytes of a mapped chunk. */
+	static final long CHUNK_SIZE = 1L << LOG2_CHUNK_SIZE;
+	/** The mask used to compute the offset of a byte in its chunk. */
+	static final long CHUNK_MASK = CHUNK_SIZE - 1;
+	/** The minimum size in bytes of a range scanned by a thread. */
+	private static final long MIN_RANGE_SIZE = 1 << 20;
+	/** The number of ranges per thread, to compensate for uneven ranges. */
+	private static final int RANGES_PER_THREAD = 4;
+
+	/** The mapped chunks of the file. */
+	final ByteBuffer[] chunks;
+	/** The length of the file in bytes. */
+	final long length;
+	/** Whether the corresponding terminators must be recognized. */
+	private final boolean lf, cr, crlf;
+	/** The number of lines, set by {@link #scan(int, int)}. */
+	long count;
+	/** The maximum distance between the starts of two consecutive lines (or between the last start and the end of file), set by {@link #scan(int, int)}. */
+	long maxGap;
+	/** The starting position of each line, set by {@link #scan(int, int)}. */
+	EliasFanoMonotoneLongBigList borders;
+
+	/**
+	 * Maps a file.
+	 *
+	 * @param filename a filename.
+	 * @param terminators a set of line terminators.
+	 */
+	LineBorders(final String filename, final EnumSet<LineTerminator> terminators) throws IOException {
+		chunks = map(filename);
+		length = length(chunks);
+		lf = terminators.contains(LineTerminator.LF);
+		cr = terminators.contains(LineTerminator.CR);
+		crlf = terminators.contains(LineTerminator.CR_LF);
+	}
+
+	/**
+	 * Maps a file and computes the starting position of each line.
+	 *
+	 * @param filename a filename.
+	 * @param terminators a set of line terminators.
+	 * @param numberOfThreads the number of threads to use.
+	 * @return the line borders of the file.
+	 */
+	static LineBorders scan(final String filename, final EnumSet<LineTerminator> terminators, final int numberOfThreads) throws IOException {
+		if (numberOfThreads <= 0) throw new IllegalArgumentException("Nonpositive number of threads: " + numberOfThreads);
+		final LineBorders lineBorders = new LineBorders(filename, terminators);
+		final long numRanges = Math.min((long)numberOfThreads * RANGES_PER_THREAD, (lineBorders.length + MIN_RANGE_SIZE - 1) / MIN_RANGE_SIZE);
+		lineBorders.scan((int)Math.max(1, numRanges), numberOfThreads);
+		return lineBorders;
+	}
+
+	/** Maps a file into read-only chunks of {@link #CHUNK_SIZE} bytes. */
+	static ByteBuffer[] map(final String filename) throws IOException {
+		try (final FileChannel channel = FileChannel.open(Paths.get(filename))) {
+			final long length = channel.size();
+			final ByteBuffer[] chunks = new ByteBuffer[(int)((length + CHUNK_SIZE - 1) >>> LOG2_CHUNK_SIZE)];
+			for (int i = 0; i < chunks.length; i++) {
+				final long start = (long)i << LOG2_CHUNK_SIZE;
+				chunks[i] = channel.map(MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, length - start));
+			}
+			return chunks;
+		}
+	}
+
+	/** Returns the overall length of a sequence of chunks returned by {@link #map(String)}. */
+	static long length(final ByteBuffer[] chunks) {
+		return chunks.length == 0 ? 0 : ((long)(chunks.length - 1) << LOG2_CHUNK_SIZE) + chunks[chunks.length - 1].capacity();
+	}
+
+	/** Returns the byte at a given position of a sequence of chunks returned by {@link #map(String)}. */
+	static byte byteAt(final ByteBuffer[] chunks, final long pos) {
+		return chunks[(int)(pos >>> LOG2_CHUNK_SIZE)].get((int)(pos & CHUNK_MASK));
+	}
+
+	/** Returns whether the byte at a given position is the last byte of a line terminator. */
+	private boolean endsLine(final long pos) {
+		final byte b = byteAt(chunks, pos);
+		if (b == '\n') return lf || crlf && pos > 0 && byteAt(chunks, pos - 1) == '\r';
+		if (b == '\r') return cr && !(crlf && pos + 1 < length && byteAt(chunks, pos + 1) == '\n');
+		return false;
+	}
+
+	/**
+	 * Returns the first starting position of a line in a given range.
+	 *
+	 * @param from the start of the range (inclusive).
+	 * @param to the end of the range (exclusive); it must not be greater than {@link #length}.
+	 * @return the first starting position of a line in the range, or {@code to}.
+	 */
+	private long nextStart(final long from, final long to) {
+		if (from >= to) return to;
+		if (from == 0) return 0;
+		// A line starts at p > 0 if and only if the byte at p - 1 ends a terminator
+		long pos = from - 1;
+		while (pos < to - 1) {
+			final ByteBuffer chunk = chunks[(int)(pos >>> LOG2_CHUNK_SIZE)];
+			final int end = (int)Math.min(CHUNK_SIZE, to - 1 - (pos & ~CHUNK_MASK));
+			for (int i = (int)(pos & CHUNK_MASK); i < end; i++, pos++) {
+				final byte b = chunk.get(i);
+				if ((b == '\n' || b == '\r') && endsLine(pos)) return pos + 1;
+			}
+		}
+		return to;
+	}
+
+	/** A range of bytes of the file, with the statistics computed by the first pass. */
+	private static final class Range {
+		/** The first byte of the range (inclusive). */
+		private final long from;
+		/** The last byte of the range (exclusive). */
+		private final long to;
+		/** The number of lines starting in the range. */
+		private long count;
+		/** The first and last line start in the range, or -1. */
+		private long first = -1, last = -1;
+		/** The maximum distance between two consecutive line starts in the range. */
+		private long maxGap;
+
+		private Range(final long from, final long to) {
+			this.from = from;
+			this.to = to;
+		}
+	}
+
+	/**
+	 * Computes the line borders.
+	 *
+	 * @param numRanges the number of ranges into which the file will be divided.
+	 * @param numberOfThreads the number of threads to use.
+	 */
+	void scan(final int numRanges, final int numberOfThreads) {
+		final Range[] ranges = new Range[numRanges];
+		for (int i = 0; i < numRanges; i++) ranges[i] = new Range(length * i / numRanges, length * (i + 1) / numRanges);
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+		final ExecutorCompletionService<Void> executorCompletionService = new ExecutorCompletionService<>(executorService);
+		for (final Range range : ranges) {
+			executorCompletionService.submit(() -> {
+				for (long p = nextStart(range.from, range.to); p < range.to; p = nextStart(p + 1, range.to)) {
+					if (range.first == -1) range.first = p;
+					else range.maxGap = Math.max(range.maxGap, p - range.last);
+					range.last = p;
+					range.count++;
+				}
+				return null;
+			});
+		}
+
+		try {
+			for (int i = numRanges; i-- != 0;) executorCompletionService.take().get();
+		} catch (final InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executorService.shutdown();
+		}
+
+		long last = -1;
+		for (final Range range : ranges) {
+			if (range.count == 0) continue;
+			count += range.count;
+			maxGap = Math.max(maxGap, range.maxGap);
+			if (last != -1) maxGap = Math.max(maxGap, range.first - last);
+			last = range.last;
+		}
+		if (last != -1) maxGap = Math.max(maxGap, length - last);
+
+		borders = new EliasFanoMonotoneLongBigList(new Starts(ranges, 0, numRanges, count), Math.max(1, length), numberOfThreads);
+	}
+
+	/** An ordered, subsized spliterator returning the line starts in a sequence of ranges. */
+	private final class Starts implements Spliterator.OfLong {
+		private final Range[] ranges;
+		/** The current range. */
+		private int range;
+		/** The end of the ranges covered by this spliterator (exclusive). */
+		private final int to;
+		/** The number of remaining line starts. */
+		private long remaining;
+		/** The position from which we will look for the next line start. */
+		private long pos;
+
+		private Starts(final Range[] ranges, final int from, final int to, final long remaining) {
+			this.ranges = ranges;
+			this.range = from;
+			this.to = to;
+			this.remaining = remaining;
+			this.pos = from < to ? ranges[from].from : 0;
+		}
+
+		@Override
+		public boolean tryAdvance(final LongConsumer action) {
+			if (remaining == 0) return false;
+			for (;;) {
+				final long p = nextStart(pos, ranges[range].to);
+				if (p < ranges[range].to) {
+					pos = p + 1;
+					remaining--;
+					action.accept(p);
+					return true;
+				}
+				pos = ranges[++range].from;
+			}
+		}
+
+		@Override
+		public Spliterator.OfLong trySplit() {
+			// We split only at range boundaries, and only if we did not start the current range
+			if (to - range < 2 || pos != ranges[range].from) return null;
+			final int mid = range + to >>> 1;
+			long prefix = 0;
+			for (int i = range; i < mid; i++) prefix += ranges[i].count;
+			final Starts starts = new Starts(ranges, range, mid, prefix);
+			range = mid;
+			pos = ranges[mid].from;
+			remaining -= prefix;
+			return starts;
+		}
+
+		@Override
+		public long estimateSize() {
+			return remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+		}
+	}
+}
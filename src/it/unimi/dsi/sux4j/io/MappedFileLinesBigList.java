@@ -0,0 +1,265 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.io;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.EnumSet;
+import java.util.RandomAccess;
+
+import it.unimi.dsi.fastutil.BigList;
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream;
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream.LineTerminator;
+import it.unimi.dsi.fastutil.objects.AbstractObjectBigList;
+import it.unimi.dsi.lang.MutableString;
+import it.unimi.dsi.sux4j.util.EliasFanoMonotoneLongBigList;
+
+/**
+ * A thread-safe wrapper exhibiting the lines of a memory-mapped file as a {@linkplain BigList big
+ * list}.
+ *
+ * <p>
+ * This class provides the same view as a {@link FileLinesBigList}, but the file is mapped into
+ * memory using {@link FileChannel#map(MapMode, long, long)}, and lines are located using the
+ * Elias&ndash;Fano representation of the starting position of each line. Since no state is
+ * modified by {@link #get(long)}, {@link #getBytes(long, ByteBuffer)} and {@link #line(long)}, an
+ * instance of this class can be accessed concurrently by any number of threads; moreover, lines
+ * can be retrieved as bytes, without charset decoding, and in most cases without copying.
+ *
+ * <p>
+ * The file is mapped in chunks of {@value #CHUNK_SIZE} bytes; lines must be shorter than
+ * {@link Integer#MAX_VALUE} bytes. An instance can be built from an existing
+ * {@link FileLinesBigList}, sharing its line borders, or directly from a file, in which case the
+ * line borders are computed by scanning the mapped file, possibly using multiple threads. In both cases, the content of the file
+ * must not be modified during the lifetime of the instance.
+ *
+ * <p>
+ * Instances of this class are serializable: the file is mapped again upon deserialization.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+public class MappedFileLinesBigList extends AbstractObjectBigList<MutableString> implements RandomAccess, Serializable {
+	private static final long serialVersionUID = 0L;
+	/** The base-2 logarithm of {@link #CHUNK_SIZE}. */
+	private static final int LOG2_CHUNK_SIZE = LineBorders.LOG2_CHUNK_SIZE;
+	/** The size in bytes of a mapped chunk. */
+	public static final long CHUNK_SIZE = LineBorders.CHUNK_SIZE;
+	/** The mask used to compute the offset of a byte in its chunk. */
+	private static final long CHUNK_MASK = LineBorders.CHUNK_MASK;
+
+	/** The filename upon which this list is based. */
+	protected final String filename;
+	/** The name of the charset used to decode lines. */
+	protected final String encoding;
+	/** The terminators that must be used to separate the file lines. */
+	protected final EnumSet<LineTerminator> terminators;
+	/** The length of the file in bytes. */
+	protected final long length;
+	/** The size of the list. */
+	protected final long size;
+	/** The starting position of each line in the file. */
+	protected final EliasFanoMonotoneLongBigList borders;
+	/** The charset used to decode lines. */
+	protected transient Charset charset;
+	/** The mapped chunks of the file. */
+	protected transient ByteBuffer[] chunks;
+
+	/**
+	 * Creates a memory-mapped view of the lines of a file starting from a {@link FileLinesBigList}
+	 * for the same file, sharing its line borders.
+	 *
+	 * @param fileLinesBigList a big list of file lines.
+	 */
+	public MappedFileLinesBigList(final FileLinesBigList fileLinesBigList) throws IOException {
+		this.filename = fileLinesBigList.filename;
+		this.encoding = fileLinesBigList.charset.name();
+		this.terminators = fileLinesBigList.terminators;
+		this.borders = fileLinesBigList.borders;
+		this.size = fileLinesBigList.size64();
+		this.charset = fileLinesBigList.charset;
+		this.chunks = LineBorders.map(filename);
+		this.length = LineBorders.length(chunks);
+	}
+
+	/**
+	 * Creates a memory-mapped view of the lines of a file with the specified encoding and
+	 * terminator set, computing line borders with multiple threads.
+	 *
+	 * @param filename a filename.
+	 * @param encoding an encoding.
+	 * @param terminators a set of line terminators.
+	 * @param numberOfThreads the number of threads used to scan the file.
+	 */
+	public MappedFileLinesBigList(final CharSequence filename, final String encoding, final EnumSet<LineTerminator> terminators, final int numberOfThreads) throws IOException {
+		this.filename = filename.toString();
+		this.encoding = encoding;
+		this.terminators = terminators;
+		this.charset = Charset.forName(encoding);
+		final LineBorders lineBorders = LineBorders.scan(this.filename, terminators, numberOfThreads);
+		this.chunks = lineBorders.chunks;
+		this.length = lineBorders.length;
+		this.size = lineBorders.count;
+		this.borders = lineBorders.borders;
+	}
+
+	/**
+	 * Creates a memory-mapped view of the lines of a file with the specified encoding and
+	 * terminator set.
+	 *
+	 * @param filename a filename.
+	 * @param encoding an encoding.
+	 * @param terminators a set of line terminators.
+	 */
+	public MappedFileLinesBigList(final CharSequence filename, final String encoding, final EnumSet<LineTerminator> terminators) throws IOException {
+		this(filename, encoding, terminators, 1);
+	}
+
+	/**
+	 * Creates a memory-mapped view of the lines of a file with the specified encoding and all
+	 * terminators.
+	 *
+	 * @param filename a filename.
+	 * @param encoding an encoding.
+	 */
+	public MappedFileLinesBigList(final CharSequence filename, final String encoding) throws IOException {
+		this(filename, encoding, FastBufferedInputStream.ALL_TERMINATORS);
+	}
+
+	private static byte byteAt(final ByteBuffer[] chunks, final long pos) {
+		return LineBorders.byteAt(chunks, pos);
+	}
+
+	@Override
+	public long size64() {
+		return size;
+	}
+
+	@Override
+	@Deprecated
+	public int size() {
+		return (int)Math.min(size, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the position in the file following the last byte of a line, excluding its
+	 * terminator.
+	 *
+	 * @param index the index of a line.
+	 * @param start the starting position of the line.
+	 * @return the position following the last byte of the line.
+	 */
+	private long end(final long index, final long start) {
+		long end = index + 1 < size ? borders.getLong(index + 1) : length;
+		if (end == start) return end;
+		final byte last = byteAt(chunks, end - 1);
+		if (last == '\n') {
+			if (terminators.contains(LineTerminator.CR_LF) && end - 2 >= start && byteAt(chunks, end - 2) == '\r') end -= 2;
+			else if (terminators.contains(LineTerminator.LF)) end--;
+		} else if (last == '\r' && terminators.contains(LineTerminator.CR)) end--;
+		return end;
+	}
+
+	/**
+	 * Returns the bytes of a line, excluding its terminator, as a read-only byte buffer.
+	 *
+	 * <p>
+	 * The returned buffer is a view of the mapped file, unless the line straddles two chunks, in
+	 * which case its content is copied into a new buffer.
+	 *
+	 * @param index the index of a line.
+	 * @return a read-only byte buffer whose remaining bytes are the bytes of the line.
+	 */
+	public ByteBuffer line(final long index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		final long start = borders.getLong(index), end = end(index, start);
+		if (end - start > Integer.MAX_VALUE) throw new IllegalStateException("Line " + index + " is too long: " + (end - start) + " bytes");
+		final int chunk = (int)(start >>> LOG2_CHUNK_SIZE);
+		if (end == start || chunk == (int)(end - 1 >>> LOG2_CHUNK_SIZE)) {
+			// Casts to Buffer are necessary for compatibility with Java 8
+			final ByteBuffer line = chunks[chunk].duplicate();
+			((Buffer)line).position((int)(start & CHUNK_MASK)).limit((int)(end - (start & ~CHUNK_MASK)));
+			return line.slice().asReadOnlyBuffer();
+		}
+		final ByteBuffer line = ByteBuffer.allocate((int)(end - start));
+		copy(start, end, line);
+		((Buffer)line).flip();
+		return line.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Copies a range of bytes of the file into a byte buffer, using a bulk copy for each chunk.
+	 *
+	 * @param from the starting position in the file (inclusive).
+	 * @param to the ending position in the file (exclusive).
+	 * @param buffer a byte buffer, whose position will be advanced by {@code to - from}.
+	 */
+	private void copy(long from, final long to, final ByteBuffer buffer) {
+		while (from < to) {
+			final ByteBuffer chunk = chunks[(int)(from >>> LOG2_CHUNK_SIZE)].duplicate();
+			final int start = (int)(from & CHUNK_MASK);
+			final int end = (int)Math.min(CHUNK_SIZE, to - (from & ~CHUNK_MASK));
+			// Casts to Buffer are necessary for compatibility with Java 8
+			((Buffer)chunk).position(start).limit(end);
+			buffer.put(chunk);
+			from += end - start;
+		}
+	}
+
+	/**
+	 * Copies the bytes of a line, excluding its terminator, into a byte buffer, without any charset
+	 * decoding.
+	 *
+	 * @param index the index of a line.
+	 * @param buffer a byte buffer, whose position will be advanced by the number of bytes of the
+	 *            line.
+	 * @return the number of bytes of the line.
+	 * @throws BufferOverflowException if {@code buffer} has not enough remaining space.
+	 */
+	public int getBytes(final long index, final ByteBuffer buffer) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		final long start = borders.getLong(index), end = end(index, start);
+		if (end - start > buffer.remaining()) throw new BufferOverflowException();
+		copy(start, end, buffer);
+		return (int)(end - start);
+	}
+
+	@Override
+	public MutableString get(final long index) {
+		final CharBuffer charBuffer = charset.decode(line(index));
+		return new MutableString(charBuffer.array(), charBuffer.arrayOffset() + charBuffer.position(), charBuffer.remaining());
+	}
+
+	private void readObject(final ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		charset = Charset.forName(encoding);
+		chunks = LineBorders.map(filename);
+		if (LineBorders.length(chunks) != length) throw new IOException("The length of file " + filename + " is " + LineBorders.length(chunks) + ", but it should be " + length);
+	}
+}
@@ -275,6 +275,18 @@ public class CHDMinimalPerfectHashFunction<T> extends AbstractHashFunction<T> im
 	/** An array containing for each chunk three values: the chunk offset, the cumulative number of buckets, and the local chunk seed. */
 	private long[] offsetNumBucketsSeed;
 
+	/** For each chunk, a fixed-point reciprocal of the chunk size (see {@link #displace(long, long, long, long, long)}), or zero if the chunk is too large. */
+	private transient long[] reciprocal;
+
+	/** The number of longs of scratch space per key needed by {@link #getLongs(Object[], long[], long[])}. */
+	public static final int SCRATCH_PER_KEY = 4;
+
+	/** The largest chunk size for which a reciprocal is computed. */
+	private static final long MAX_RECIPROCAL_CHUNK_SIZE = 1 << 20;
+
+	/** A per-thread buffer for hashes, so that {@link #getLong(Object)} does not allocate. */
+	private static final ThreadLocal<long[]> TRIPLE = ThreadLocal.withInitial(() -> new long[3]);
+
 	private static long spread(final long hash, final long bound) {
 		final int shift = Long.numberOfLeadingZeros(bound);
 		final long value = ((hash & (1L << shift) - 1) * bound) >>> shift;
@@ -283,6 +295,59 @@ public class CHDMinimalPerfectHashFunction<T> extends AbstractHashFunction<T> im
 		return value;
 	}
 
+	/**
+	 * Computes the fixed-point reciprocals &lceil;2<sup>62</sup> / <var>p</var>&rceil; of the sizes of
+	 * the chunks described by the given array.
+	 *
+	 * @param offsetNumBucketsSeed an array as {@link #offsetNumBucketsSeed}.
+	 * @return an array containing, for each chunk, the reciprocal of its size, or zero if the size is
+	 *         larger than {@link #MAX_RECIPROCAL_CHUNK_SIZE}.
+	 */
+	private static long[] reciprocals(final long[] offsetNumBucketsSeed) {
+		final long[] reciprocal = new long[offsetNumBucketsSeed.length / 3 - 1];
+		for (int i = 0; i < reciprocal.length; i++) {
+			final long p = offsetNumBucketsSeed[i * 3 + 3] - offsetNumBucketsSeed[i * 3];
+			if (p != 0 && p <= MAX_RECIPROCAL_CHUNK_SIZE) reciprocal[i] = ((1L << 62) - 1) / p + 1;
+		}
+		return reciprocal;
+	}
+
+	/**
+	 * Returns &lfloor;<var>a</var> / <var>p</var>&rfloor; given the fixed-point reciprocal of
+	 * <var>p</var>.
+	 *
+	 * <p>
+	 * The result is exact provided that <var>a</var> &lt; 2<sup>62 &minus; &lceil;log
+	 * <var>p</var>&rceil;</sup> (Lemire, Kaser and Kurz, &ldquo;Faster remainder by direct
+	 * computation&rdquo;), which is always true for the values we use when <var>p</var> &le;
+	 * {@link #MAX_RECIPROCAL_CHUNK_SIZE}, as <var>a</var> &lt; <var>p</var><sup>2</sup> + 2<var>p</var>.
+	 *
+	 * @param a a nonnegative integer.
+	 * @param reciprocal &lceil;2<sup>62</sup> / <var>p</var>&rceil;.
+	 * @return &lfloor;<var>a</var> / <var>p</var>&rfloor;.
+	 */
+	private static long quotient(final long a, final long reciprocal) {
+		return Math.multiplyHigh(a, reciprocal) << 2 | (a * reciprocal) >>> 62;
+	}
+
+	/**
+	 * Computes the displaced position of a key inside its chunk, using the reciprocal of the chunk
+	 * size, if available, in place of divisions.
+	 *
+	 * @param h1 the first spread hash.
+	 * @param h2 the second spread hash.
+	 * @param c the displacement coefficient of the bucket of the key.
+	 * @param p the chunk size.
+	 * @param reciprocal the reciprocal of {@code p}, or zero.
+	 * @return the position of the key inside its chunk.
+	 */
+	private static long displace(final long h1, final long h2, final long c, final long p, final long reciprocal) {
+		if (reciprocal == 0) return (h1 + (c % p) * h2 + c / p) % p;
+		final long q = quotient(c, reciprocal);
+		final long x = h1 + (c - q * p) * h2 + q;
+		return x - quotient(x, reciprocal) * p;
+	}
+
 	private long offset(final int k) {
 		return offsetNumBucketsSeed[k * 3];
 	}
@@ -522,6 +587,7 @@ public class CHDMinimalPerfectHashFunction<T> extends AbstractHashFunction<T> im
 		}
 
 		rank = new SparseRank(offset(offsetNumBucketsSeed.length / 3 - 1), holes.size(), holes.iterator());
+		reciprocal = reciprocals(offsetNumBucketsSeed);
 
 		globalSeed = chunkedHashStore.seed();
 
@@ -582,32 +648,104 @@ public class CHDMinimalPerfectHashFunction<T> extends AbstractHashFunction<T> im
 	@SuppressWarnings("unchecked")
 	public long getLong(final Object key) {
 		if (n == 0) return defRetValue;
-		final long[] triple = new long[3];
-		Hashes.spooky4(transform.toBitVector((T)key), globalSeed, triple);
-		final int chunk = chunkShift == Long.SIZE ? 0 : (int)(triple[0] >>> chunkShift);
+		final long[] triple = TRIPLE.get();
+		Hashes.spooky4((T)key, transform, globalSeed, triple);
+		final long signature = triple[0];
+		final int chunk = chunkShift == Long.SIZE ? 0 : (int)(signature >>> chunkShift);
 		final int index = chunk * 3;
 		final long[] offsetNumBucketsSeed = this.offsetNumBucketsSeed;
 		final long chunkOffset = offsetNumBucketsSeed[index];
 		final int p = (int)(offsetNumBucketsSeed[index + 3] - chunkOffset);
 
-		final long[] h = new long[3];
-		Hashes.spooky4(triple, offsetNumBucketsSeed[index + 2], h);
-		h[1] = spread(h[1], p);
-		h[2] = spread(h[2], p - 1) + 1;
+		// The second-level hashes overwrite the triple
+		Hashes.spooky4(triple, offsetNumBucketsSeed[index + 2], triple);
 
 		final long numBuckets = offsetNumBucketsSeed[index + 1];
-		final long c = coefficients.getLong(numBuckets + spread(h[0], offsetNumBucketsSeed[index + 4] - numBuckets));
+		final long c = coefficients.getLong(numBuckets + spread(triple[0], offsetNumBucketsSeed[index + 4] - numBuckets));
 
-		long result = chunkOffset + (int)((h[1] + (c % p) * h[2] + c / p) % p);
+		long result = chunkOffset + displace(spread(triple[1], p), spread(triple[2], p - 1) + 1, c, p, reciprocal[chunk]);
 		result -= rank.rank(result);
 
-		if (signatureMask != 0) return result >= n || ((signatures.getLong(result) ^ triple[0]) & signatureMask) != 0 ? defRetValue : result;
+		if (signatureMask != 0) return result >= n || ((signatures.getLong(result) ^ signature) & signatureMask) != 0 ? defRetValue : result;
 		// Out-of-set strings can generate bizarre 3-hyperedges.
 		return result < n ? result : defRetValue;
 	}
 
-	/** A dirty function replicating the behaviour of {@link #getLongBySignature(long[])} but skipping the
-	 * signature test. Used in the constructor. <strong>Must</strong> be kept in sync with {@link #getLongBySignature(long[])}. */
+	/**
+	 * Computes the output of this function on a batch of keys.
+	 *
+	 * <p>
+	 * This method is equivalent to calling {@link #getLong(Object)} on each key, but it first hashes
+	 * all keys, and then performs in separate passes all accesses to the displacement coefficients,
+	 * to the ranking structure and to the signatures, so that cache misses for different keys can
+	 * overlap. No object is allocated besides a constant-size buffer.
+	 *
+	 * @param keys an array of keys.
+	 * @param result an array of length at least {@code keys.length} that will be filled with the
+	 *            outputs of this function on {@code keys}.
+	 * @param scratch an array of length at least {@link #SCRATCH_PER_KEY} {@code * keys.length} that
+	 *            will be used as temporary storage.
+	 */
+	public void getLongs(final T[] keys, final long[] result, final long[] scratch) {
+		final int length = keys.length;
+		if (n == 0) {
+			Arrays.fill(result, 0, length, defRetValue);
+			return;
+		}
+
+		final long[] offsetNumBucketsSeed = this.offsetNumBucketsSeed;
+		final long[] triple = new long[3];
+		// First pass: hashing; we store the signature, the two spread hashes and the coefficient index
+		for (int i = 0, j = 0; i < length; i++, j += SCRATCH_PER_KEY) {
+			Hashes.spooky4(keys[i], transform, globalSeed, triple);
+			final long signature = triple[0];
+			final int index = (chunkShift == Long.SIZE ? 0 : (int)(signature >>> chunkShift)) * 3;
+			final int p = (int)(offsetNumBucketsSeed[index + 3] - offsetNumBucketsSeed[index]);
+			Hashes.spooky4(triple, offsetNumBucketsSeed[index + 2], triple);
+			final long numBuckets = offsetNumBucketsSeed[index + 1];
+			scratch[j] = signature;
+			scratch[j + 1] = spread(triple[1], p);
+			scratch[j + 2] = spread(triple[2], p - 1) + 1;
+			scratch[j + 3] = numBuckets + spread(triple[0], offsetNumBucketsSeed[index + 4] - numBuckets);
+		}
+
+		// Second pass: coefficients
+		final EliasFanoLongBigList coefficients = this.coefficients;
+		for (int j = 3; j < length * SCRATCH_PER_KEY; j += SCRATCH_PER_KEY) scratch[j] = coefficients.getLong(scratch[j]);
+
+		// Third pass: positions and ranking
+		final long[] reciprocal = this.reciprocal;
+		for (int i = 0, j = 0; i < length; i++, j += SCRATCH_PER_KEY) {
+			final int chunk = chunkShift == Long.SIZE ? 0 : (int)(scratch[j] >>> chunkShift);
+			final long chunkOffset = offsetNumBucketsSeed[chunk * 3];
+			final long p = offsetNumBucketsSeed[chunk * 3 + 3] - chunkOffset;
+			result[i] = chunkOffset + displace(scratch[j + 1], scratch[j + 2], scratch[j + 3], p, reciprocal[chunk]);
+		}
+		for (int i = 0; i < length; i++) result[i] -= rank.rank(result[i]);
+
+		// Fourth pass: signatures
+		if (signatureMask != 0) {
+			for (int i = 0, j = 0; i < length; i++, j += SCRATCH_PER_KEY) {
+				final long r = result[i];
+				if (r >= n || ((signatures.getLong(r) ^ scratch[j]) & signatureMask) != 0) result[i] = defRetValue;
+			}
+		} else for (int i = 0; i < length; i++) if (result[i] >= n) result[i] = defRetValue;
+	}
+
+	/**
+	 * Computes the output of this function on a batch of keys, allocating a suitable scratch array.
+	 *
+	 * @param keys an array of keys.
+	 * @param result an array of length at least {@code keys.length} that will be filled with the
+	 *            outputs of this function on {@code keys}.
+	 * @see #getLongs(Object[], long[], long[])
+	 */
+	public void getLongs(final T[] keys, final long[] result) {
+		getLongs(keys, result, new long[SCRATCH_PER_KEY * keys.length]);
+	}
+
+	/** A dirty function replicating the behaviour of {@link #getLong(Object)} but skipping the
+	 * signature test. Used in the constructor. <strong>Must</strong> be kept in sync with {@link #getLong(Object)}. */
 	private long getLongByTripleNoCheck(final long[] triple) {
 		final int chunk = chunkShift == Long.SIZE ? 0 : (int)(triple[0] >>> chunkShift);
 		final int index = chunk * 3;
@@ -617,13 +755,11 @@ public class CHDMinimalPerfectHashFunction<T> extends AbstractHashFunction<T> im
 
 		final long[] h = new long[3];
 		Hashes.spooky4(triple, offsetNumBucketsSeed[index + 2], h);
-		h[1] = spread(h[1], p);
-		h[2] = spread(h[2], p - 1) + 1;
 
 		final long numBuckets = offsetNumBucketsSeed[index + 1];
 		final long c = coefficients.getLong(numBuckets + spread(h[0], offsetNumBucketsSeed[index + 4] - numBuckets));
 
-		final long result = chunkOffset + (int)((h[1] + (c % p) * h[2] + c / p) % p);
+		final long result = chunkOffset + displace(spread(h[1], p), spread(h[2], p - 1) + 1, c, p, reciprocal[chunk]);
 		return result - rank.rank(result);
 	}
 
@@ -634,6 +770,7 @@ public class CHDMinimalPerfectHashFunction<T> extends AbstractHashFunction<T> im
 
 	private void readObject(final ObjectInputStream s) throws IOException, ClassNotFoundException {
 		s.defaultReadObject();
+		reciprocal = reciprocals(offsetNumBucketsSeed);
 	}
 
 	public static void main(final String[] arg) throws NoSuchMethodException, IOException, JSAPException {
@@ -33,13 +33,6 @@ import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPInputStream;
 
@@ -82,11 +75,9 @@ import it.unimi.dsi.io.OfflineIterable.OfflineIterator;
 import it.unimi.dsi.lang.MutableString;
 import it.unimi.dsi.logging.ProgressLogger;
 import it.unimi.dsi.sux4j.io.BucketedHashStore;
-import it.unimi.dsi.sux4j.io.BucketedHashStore.Bucket;
 import it.unimi.dsi.sux4j.io.BucketedHashStore.DuplicateException;
 import it.unimi.dsi.sux4j.mph.solve.Linear4SystemSolver;
 import it.unimi.dsi.util.XoRoShiRo128PlusRandomGenerator;
-import it.unimi.dsi.util.concurrent.ReorderingBlockingQueue;
 
 /**
  * An immutable function stored quasi-succinctly using the {@linkplain Linear4SystemSolver
@@ -165,8 +156,10 @@ import it.unimi.dsi.util.concurrent.ReorderingBlockingQueue;
  * <p>
  * This implementation is multithreaded: each bucket returned by the {@link BucketedHashStore} is
  * processed independently. By default, this class uses {@link Runtime#availableProcessors()}
- * parallel threads, but by default no more than 4. If you wish to set a specific number of threads,
- * you can do so through the system property {@value #NUMBER_OF_THREADS_PROPERTY}.
+ * parallel threads. If you wish to set a specific number of threads, you can do so through the
+ * system property {@value #NUMBER_OF_THREADS_PROPERTY}. Buckets and solutions in flight use at most
+ * approximately a quarter of {@link Runtime#maxMemory()}; the budget (in bytes) can be set through the
+ * system property {@value #MEMORY_BUDGET_PROPERTY}.
  *
  * <h2>Implementation Details</h2>
  *
@@ -187,8 +180,6 @@ import it.unimi.dsi.util.concurrent.ReorderingBlockingQueue;
 
 public class GOV4Function<T> extends AbstractObject2LongFunction<T> implements Serializable, Size64 {
 	private static final long serialVersionUID = 6L;
-	private static final LongArrayBitVector END_OF_SOLUTION_QUEUE = LongArrayBitVector.getInstance();
-	private static final Bucket END_OF_BUCKET_QUEUE = new Bucket();
 	private static final Logger LOGGER = LoggerFactory.getLogger(GOV4Function.class);
 	private static final boolean DEBUG = false;
 
@@ -210,6 +201,10 @@ public class GOV4Function<T> extends AbstractObject2LongFunction<T> implements S
 
 	/** The system property used to set the number of parallel threads. */
 	public static final String NUMBER_OF_THREADS_PROPERTY = "it.unimi.dsi.sux4j.mph.threads";
+	/** The system property used to set the memory budget (in bytes) for buckets and solutions in flight. */
+	public static final String MEMORY_BUDGET_PROPERTY = "it.unimi.dsi.sux4j.mph.memory";
+	/** The number of longs of scratch space per key needed by {@link #getLongs(Object[], long[], long[])}. */
+	public static final int SCRATCH_PER_KEY = 6;
 
 	/** A builder class for {@link GOV4Function}. */
 	public static class Builder<T> {
@@ -508,95 +503,23 @@ public class GOV4Function<T> extends AbstractObject2LongFunction<T> implements S
 			final AtomicLong unsolvable = new AtomicLong();
 
 			try {
-				final int numberOfThreads = Integer.parseInt(System.getProperty(NUMBER_OF_THREADS_PROPERTY, Integer.toString(Math.min(4, Runtime.getRuntime().availableProcessors()))));
-				final ArrayBlockingQueue<Bucket> bucketQueue = new ArrayBlockingQueue<>(numberOfThreads * 8);
-				final ReorderingBlockingQueue<LongArrayBitVector> queue = new ReorderingBlockingQueue<>(numberOfThreads * 128);
-				final ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads + 2);
-				final ExecutorCompletionService<Void> executorCompletionService = new ExecutorCompletionService<>(executorService);
+				final ParallelBucketSolver bucketSolver = ParallelBucketSolver.fromProperties(NUMBER_OF_THREADS_PROPERTY, MEMORY_BUDGET_PROPERTY, OFFSET_MASK);
+				bucketSolver.solve(bucketedHashStore.iterator(), numBuckets, offsetAndSeed, bucket -> Math.max(C_TIMES_256 * bucket.size() >>> 8, bucket.size() + 1), (bucket, offset, numVariables, data) -> {
+					long seed = 0;
+					final Linear4SystemSolver solver = new Linear4SystemSolver(numVariables, bucket.size());
 
-				executorCompletionService.submit(() -> {
 					for (;;) {
-						final LongArrayBitVector data = queue.take();
-						if (data == END_OF_SOLUTION_QUEUE) return null;
-						offlineData.add(data);
+						final boolean solved = solver.generateAndSolve(bucket, seed, bucket.valueList(indirect ? values : null));
+						unsolvable.addAndGet(solver.unsolvable);
+						if (solved) break;
+						seed += SEED_STEP;
+						if (seed == 0) throw new AssertionError("Exhausted local seeds");
 					}
-				});
-
-				final BucketedHashStore<T> chs = bucketedHashStore;
-				executorCompletionService.submit(() -> {
-					try {
-						final Iterator<Bucket> iterator = chs.iterator();
-						for (int i1 = 0; iterator.hasNext(); i1++) {
-							final Bucket bucket = new Bucket(iterator.next());
-							assert i1 == bucket.index();
-							final long bucketDataSize = Math.max(C_TIMES_256 * bucket.size() >>> 8, bucket.size() + 1);
-							assert bucketDataSize <= Integer.MAX_VALUE;
-							synchronized (offsetAndSeed) {
-								offsetAndSeed[i1 + 1] = offsetAndSeed[i1] + bucketDataSize;
-								assert offsetAndSeed[i1 + 1] <= OFFSET_MASK + 1 : offsetAndSeed[i1 + 1] + " > " + (OFFSET_MASK + 1);
-							}
-							bucketQueue.put(bucket);
-						}
-					} finally {
-						for (int i2 = numberOfThreads; i2-- != 0;) bucketQueue.put(END_OF_BUCKET_QUEUE);
-					}
-					return null;
-				});
 
-				final AtomicInteger activeThreads = new AtomicInteger(numberOfThreads);
-				for (int i = numberOfThreads; i-- != 0;) executorCompletionService.submit(() -> {
-					Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
-					long bucketTime = 0, outputTime = 0;
-					for (;;) {
-						long start = System.nanoTime();
-						final Bucket bucket = bucketQueue.take();
-						bucketTime += System.nanoTime() - start;
-						if (bucket == END_OF_BUCKET_QUEUE) {
-							if (activeThreads.decrementAndGet() == 0) queue.put(END_OF_SOLUTION_QUEUE, numBuckets);
-							LOGGER.debug("Queue waiting time: " + Util.format(bucketTime / 1E9) + "s");
-							LOGGER.debug("Output waiting time: " + Util.format(outputTime / 1E9) + "s");
-							return null;
-						}
-						long seed = 0;
-						final Linear4SystemSolver solver = new Linear4SystemSolver((int)(offsetAndSeed[(int)(bucket.index() + 1)] - offsetAndSeed[(int)bucket.index()] & OFFSET_MASK), bucket.size());
-
-						for (;;) {
-							final boolean solved = solver.generateAndSolve(bucket, seed, bucket.valueList(indirect ? values : null));
-							unsolvable.addAndGet(solver.unsolvable);
-							if (solved) break;
-							seed += SEED_STEP;
-							if (seed == 0) throw new AssertionError("Exhausted local seeds");
-						}
-
-						synchronized (offsetAndSeed) {
-							offsetAndSeed[(int)bucket.index()] |= seed;
-						}
-
-						final LongArrayBitVector dataBitVector = LongArrayBitVector.getInstance();
-						final LongBigList data = dataBitVector.asLongBigList(width);
-						for (final long l : solver.solution) data.add(l);
-
-						start = System.nanoTime();
-						queue.put(dataBitVector, bucket.index());
-						outputTime += System.nanoTime() - start;
-						synchronized (pl) {
-							pl.update();
-						}
-					}
-				});
-
-				try {
-					for (int i = numberOfThreads + 2; i-- != 0;) executorCompletionService.take().get();
-				} catch (final InterruptedException e) {
-					throw new RuntimeException(e);
-				} catch (final ExecutionException e) {
-					final Throwable cause = e.getCause();
-					if (cause instanceof DuplicateException) throw (DuplicateException)cause;
-					if (cause instanceof IOException) throw (IOException)cause;
-					throw new RuntimeException(cause);
-				} finally {
-					executorService.shutdown();
-				}
+					final LongBigList list = data.asLongBigList(width);
+					for (final long l : solver.solution) list.add(l);
+					return seed;
+				}, offlineData::add, pl);
 				LOGGER.info("Unsolvable systems: " + unsolvable.get() + "/" + (unsolvable.get() + numBuckets) + " (" + Util.format(100.0 * unsolvable.get() / (unsolvable.get() + numBuckets)) + "%)");
 
 				pl.done();
@@ -656,7 +579,7 @@ public class GOV4Function<T> extends AbstractObject2LongFunction<T> implements S
 	@SuppressWarnings("unchecked")
 	public long getLong(final Object o) {
 		final long[] signature = new long[2];
-		Hashes.spooky4(transform.toBitVector((T)o), globalSeed, signature);
+		Hashes.spooky4((T)o, transform, globalSeed, signature);
 		return getLongBySignature(signature);
 	}
 
@@ -686,6 +609,106 @@ public class GOV4Function<T> extends AbstractObject2LongFunction<T> implements S
 		else return ((result ^ signature[0]) & signatureMask) != 0 ? defRetValue : 1;
 	}
 
+	/**
+	 * Computes the output of this function on a batch of keys.
+	 *
+	 * <p>
+	 * This method is equivalent to calling {@link #getLong(Object)} on each key, but it first computes
+	 * the positions of the four values associated with each key, and then performs all accesses to
+	 * {@link #data}, so that cache misses for different keys can overlap. No object is allocated:
+	 * signatures and positions are computed directly in {@code scratch}.
+	 *
+	 * @param keys an array of keys.
+	 * @param result an array of length at least {@code keys.length} that will be filled with the
+	 *            outputs of this function on {@code keys}.
+	 * @param scratch an array of length at least {@link #SCRATCH_PER_KEY} {@code * keys.length} that
+	 *            will be used as temporary storage.
+	 */
+	public void getLongs(final T[] keys, final long[] result, final long[] scratch) {
+		final int length = keys.length;
+		for (int i = 0; i < length; i++) Hashes.spooky4(keys[i], transform, globalSeed, scratch, 2 * i, 2);
+		getLongsBySignature(length, result, scratch);
+	}
+
+	/**
+	 * Computes the output of this function on a batch of keys, allocating a suitable scratch array.
+	 *
+	 * @param keys an array of keys.
+	 * @param result an array of length at least {@code keys.length} that will be filled with the
+	 *            outputs of this function on {@code keys}.
+	 * @see #getLongs(Object[], long[], long[])
+	 */
+	public void getLongs(final T[] keys, final long[] result) {
+		getLongs(keys, result, new long[SCRATCH_PER_KEY * keys.length]);
+	}
+
+	/**
+	 * Low-level access to the output of this function on a batch of signatures.
+	 *
+	 * <p>
+	 * This method is equivalent to calling {@link #getLongBySignature(long[])} on each signature,
+	 * but it accesses memory in the same order as {@link #getLongs(Object[], long[], long[])}.
+	 *
+	 * @param signatures an array of signatures generated as documented in {@link BucketedHashStore}.
+	 * @param result an array of length at least {@code signatures.length} that will be filled with
+	 *            the outputs of this function on {@code signatures}.
+	 * @param scratch an array of length at least {@link #SCRATCH_PER_KEY}
+	 *            {@code * signatures.length} that will be used as temporary storage.
+	 */
+	public void getLongsBySignature(final long[][] signatures, final long[] result, final long[] scratch) {
+		final int length = signatures.length;
+		for (int i = 0; i < length; i++) {
+			scratch[2 * i] = signatures[i][0];
+			scratch[2 * i + 1] = signatures[i][1];
+		}
+		getLongsBySignature(length, result, scratch);
+	}
+
+	/**
+	 * Low-level access to the output of this function on a batch of signatures, allocating a
+	 * suitable scratch array.
+	 *
+	 * @param signatures an array of signatures generated as documented in {@link BucketedHashStore}.
+	 * @param result an array of length at least {@code signatures.length} that will be filled with
+	 *            the outputs of this function on {@code signatures}.
+	 * @see #getLongsBySignature(long[][], long[], long[])
+	 */
+	public void getLongsBySignature(final long[][] signatures, final long[] result) {
+		getLongsBySignature(signatures, result, new long[SCRATCH_PER_KEY * signatures.length]);
+	}
+
+	/**
+	 * Computes the outputs of this function on signatures stored in pairs at the start of
+	 * {@code scratch}; the positions of the values associated with the signatures are stored in the
+	 * rest of {@code scratch}.
+	 */
+	private void getLongsBySignature(final int length, final long[] result, final long[] scratch) {
+		final long[] offsetAndSeed = this.offsetAndSeed;
+		final int p = 2 * length;
+		// First pass: we compute the positions of the values to be read
+		for (int i = 0; i < length; i++) {
+			final int bucket = (int)Math.multiplyHigh(scratch[2 * i] >>> 1, multiplier);
+			final long bucketOffset = offsetAndSeed[bucket] & OFFSET_MASK;
+			final int numVariables = (int)((offsetAndSeed[bucket + 1] & OFFSET_MASK) - bucketOffset);
+			final int q = p + 4 * i;
+			Hashes.spooky4(scratch[2 * i], scratch[2 * i + 1], offsetAndSeed[bucket] & ~OFFSET_MASK, scratch, q, 4);
+			final int shift = Long.numberOfLeadingZeros(numVariables);
+			final long mask = (1L << shift) - 1;
+			scratch[q] = (((scratch[q] & mask) * numVariables) >>> shift) + bucketOffset;
+			scratch[q + 1] = (((scratch[q + 1] & mask) * numVariables) >>> shift) + bucketOffset;
+			scratch[q + 2] = (((scratch[q + 2] & mask) * numVariables) >>> shift) + bucketOffset;
+			scratch[q + 3] = (((scratch[q + 3] & mask) * numVariables) >>> shift) + bucketOffset;
+		}
+
+		// Second pass: reads for different keys are independent, so the processor can overlap them
+		for (int i = 0; i < length; i++) {
+			final long value = data.getLong(scratch[p + 4 * i]) ^ data.getLong(scratch[p + 4 * i + 1]) ^ data.getLong(scratch[p + 4 * i + 2]) ^ data.getLong(scratch[p + 4 * i + 3]);
+			if (signatureMask == 0) result[i] = value;
+			else if (signatures != null) result[i] = value >= n || ((signatures.getLong(value) ^ scratch[2 * i]) & signatureMask) != 0 ? defRetValue : value;
+			else result[i] = ((value ^ scratch[2 * i]) & signatureMask) != 0 ? defRetValue : 1;
+		}
+	}
+
 	/**
 	 * Returns the number of keys in the function domain.
 	 *
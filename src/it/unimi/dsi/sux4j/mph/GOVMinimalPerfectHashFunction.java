@@ -33,12 +33,6 @@ import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPInputStream;
 
@@ -75,7 +69,6 @@ import it.unimi.dsi.sux4j.io.BucketedHashStore.DuplicateException;
 import it.unimi.dsi.sux4j.mph.solve.Linear3SystemSolver;
 import it.unimi.dsi.sux4j.mph.solve.Orient3Hypergraph;
 import it.unimi.dsi.util.XoRoShiRo128PlusRandomGenerator;
-import it.unimi.dsi.util.concurrent.ReorderingBlockingQueue;
 
 /**
  * A minimal perfect hash function stored using the {@linkplain Linear3SystemSolver
@@ -116,8 +109,10 @@ import it.unimi.dsi.util.concurrent.ReorderingBlockingQueue;
  * <p>
  * This implementation is multithreaded: each bucket returned by the {@link BucketedHashStore} is
  * processed independently. By default, this class uses {@link Runtime#availableProcessors()}
- * parallel threads, but by default no more than 4. If you wish to set a specific number of threads,
- * you can do so through the system property {@value #NUMBER_OF_THREADS_PROPERTY}.
+ * parallel threads. If you wish to set a specific number of threads, you can do so through the
+ * system property {@value #NUMBER_OF_THREADS_PROPERTY}. Buckets and solutions in flight use at most
+ * approximately a quarter of {@link Runtime#maxMemory()}; the budget (in bytes) can be set through the
+ * system property {@value #MEMORY_BUDGET_PROPERTY}.
  *
  * <h2>How it Works</h2>
  *
@@ -150,8 +145,6 @@ import it.unimi.dsi.util.concurrent.ReorderingBlockingQueue;
 public class GOVMinimalPerfectHashFunction<T> extends AbstractHashFunction<T> implements Serializable {
 	public static final long serialVersionUID = 6L;
 	private static final Logger LOGGER = LoggerFactory.getLogger(GOVMinimalPerfectHashFunction.class);
-	private static final LongArrayBitVector END_OF_SOLUTION_QUEUE = LongArrayBitVector.getInstance();
-	private static final Bucket END_OF_BUCKET_QUEUE = new Bucket();
 
 	/** The local seed is generated using this step, so to be easily embeddable in {@link #edgeOffsetAndSeed}. */
 	private static final long SEED_STEP = 1L << 56;
@@ -200,6 +193,8 @@ public class GOVMinimalPerfectHashFunction<T> extends AbstractHashFunction<T> im
 
 	/** The system property used to set the number of parallel threads. */
 	public static final String NUMBER_OF_THREADS_PROPERTY = "it.unimi.dsi.sux4j.mph.threads";
+	/** The system property used to set the memory budget (in bytes) for buckets and solutions in flight. */
+	public static final String MEMORY_BUDGET_PROPERTY = "it.unimi.dsi.sux4j.mph.memory";
 
 	/** A builder class for {@link GOVMinimalPerfectHashFunction}. */
 	public static class Builder<T> {
@@ -369,100 +364,27 @@ public class GOVMinimalPerfectHashFunction<T> extends AbstractHashFunction<T> im
 			final AtomicLong unsolvable = new AtomicLong(), unorientable = new AtomicLong();
 
 			try {
-				final int numberOfThreads = Integer.parseInt(System.getProperty(NUMBER_OF_THREADS_PROPERTY, Integer.toString(Math.min(4, Runtime.getRuntime().availableProcessors()))));
-				final ArrayBlockingQueue<Bucket> bucketQueue = new ArrayBlockingQueue<>(numberOfThreads * 8);
-				final ReorderingBlockingQueue<LongArrayBitVector> queue = new ReorderingBlockingQueue<>(numberOfThreads * 128);
-				final ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads + 2);
-				final ExecutorCompletionService<Void> executorCompletionService = new ExecutorCompletionService<>(executorService);
-
-				executorCompletionService.submit(() -> {
-					for(;;) {
-						final LongArrayBitVector data = queue.take();
-						if (data == END_OF_SOLUTION_QUEUE) return null;
-						bitVector.append(data);
+				final ParallelBucketSolver bucketSolver = ParallelBucketSolver.fromProperties(NUMBER_OF_THREADS_PROPERTY, MEMORY_BUDGET_PROPERTY, OFFSET_MASK);
+				bucketSolver.solve(bucketedHashStore.iterator(), numBuckets, edgeOffsetAndSeed, Bucket::size, (bucket, offset, numEdges, data) -> {
+					long seed = 0;
+					final long off = vertexOffset(offset);
+					final Linear3SystemSolver solver = new Linear3SystemSolver((int)(vertexOffset(offset + numEdges) - off), bucket.size());
+
+					for (;;) {
+						final boolean solved = solver.generateAndSolve(bucket, seed, null);
+						unorientable.addAndGet(solver.unorientable);
+						unsolvable.addAndGet(solver.unsolvable);
+						if (solved) break;
+						seed += SEED_STEP;
+						if (seed == 0) throw new AssertionError("Exhausted local seeds");
 					}
-				});
-
-				final BucketedHashStore<T> chs = bucketedHashStore;
-				executorCompletionService.submit(() -> {
-					try {
-						final Iterator<Bucket> iterator = chs.iterator();
-						for(int i1 = 0; iterator.hasNext(); i1++) {
-							final Bucket bucket = new Bucket(iterator.next());
-							assert i1 == bucket.index();
-							synchronized(edgeOffsetAndSeed) {
-								edgeOffsetAndSeed[i1 + 1] = edgeOffsetAndSeed[i1] + bucket.size();
-								assert edgeOffsetAndSeed[i1 + 1] <= OFFSET_MASK + 1;
-							}
-							bucketQueue.put(bucket);
-						}
-					}
-					finally {
-						for(int i2 = numberOfThreads; i2-- != 0;) bucketQueue.put(END_OF_BUCKET_QUEUE);
-					}
-					return null;
-				});
-
-				final AtomicInteger activeThreads = new AtomicInteger(numberOfThreads);
-				for(int i = numberOfThreads; i-- != 0;) executorCompletionService.submit(() -> {
-					Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
-					long bucketTime = 0;
-					final long outputTime = 0;
-					for(;;) {
-						final long start = System.nanoTime();
-						final Bucket bucket = bucketQueue.take();
-						bucketTime += System.nanoTime() - start;
-						if (bucket == END_OF_BUCKET_QUEUE) {
-							if (activeThreads.decrementAndGet() == 0) queue.put(END_OF_SOLUTION_QUEUE, numBuckets);
-							LOGGER.debug("Queue waiting time: " + Util.format(bucketTime / 1E9) + "s");
-							LOGGER.debug("Output waiting time: " + Util.format(outputTime / 1E9) + "s");
-							return null;
-						}
-						long seed = 0;
-
-						final long off = vertexOffset(edgeOffsetAndSeed[(int)bucket.index()]);
-						final Linear3SystemSolver solver =
-								new Linear3SystemSolver((int)(vertexOffset(edgeOffsetAndSeed[(int)(bucket.index() + 1)]) - off), bucket.size());
-
-						for(;;) {
-							final boolean solved = solver.generateAndSolve(bucket, seed, null);
-							unorientable.addAndGet(solver.unorientable);
-							unsolvable.addAndGet(solver.unsolvable);
-							if (solved) break;
-							seed += SEED_STEP;
-							if (seed == 0) throw new AssertionError("Exhausted local seeds");
-						}
-
-						synchronized (edgeOffsetAndSeed) {
-							edgeOffsetAndSeed[(int)bucket.index()] |= seed;
-						}
-
-						final long[] solution = solver.solution;
-						final LongArrayBitVector dataBitVector = LongArrayBitVector.ofLength(solution.length * 2);
-						final LongBigList dataList = dataBitVector.asLongBigList(2);
-						for(int j = 0; j < solution.length; j++) dataList.set(j, solution[j]);
-						queue.put(dataBitVector, bucket.index());
-
-						synchronized(pl) {
-							pl.update();
-						}
-					}
-				});
-
-				try {
-					for(int i = numberOfThreads + 2; i-- != 0;)
-						executorCompletionService.take().get();
-				} catch (final InterruptedException e) {
-					throw new RuntimeException(e);
-				} catch (final ExecutionException e) {
-					final Throwable cause = e.getCause();
-					if (cause instanceof DuplicateException) throw (DuplicateException)cause;
-					if (cause instanceof IOException) throw (IOException)cause;
-					throw new RuntimeException(cause);
-				}
-				finally {
-					executorService.shutdown();
-				}
+
+					final long[] solution = solver.solution;
+					data.length(solution.length * 2);
+					final LongBigList dataList = data.asLongBigList(2);
+					for (int j = 0; j < solution.length; j++) dataList.set(j, solution[j]);
+					return seed;
+				}, bitVector::append, pl);
 				final long orientable = unsolvable.get() + numBuckets;
 				LOGGER.info("Unsolvable systems: " + unsolvable.get() + "/" + orientable + " (" + Util.format(100.0 * unsolvable.get() / orientable) + "%)");
 				LOGGER.info("Unorientable systems: " + unorientable.get() + "/" + (orientable + unorientable.get()) + " (" + Util.format(100.0 * unorientable.get() / (orientable + unorientable.get())) + "%)");
@@ -529,7 +451,7 @@ public class GOVMinimalPerfectHashFunction<T> extends AbstractHashFunction<T> im
 	@SuppressWarnings("unchecked")
 	public long getLong(final Object key) {
 		final long[] signature = new long[2];
-		Hashes.spooky4(transform.toBitVector((T)key), globalSeed, signature);
+		Hashes.spooky4((T)key, transform, globalSeed, signature);
 		return getLongBySignature(signature);
 	}
 
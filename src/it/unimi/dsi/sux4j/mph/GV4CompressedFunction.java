@@ -34,18 +34,11 @@ import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.Objects;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
 import java.util.zip.GZIPInputStream;
 
-import org.apache.commons.math3.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,7 +84,6 @@ import it.unimi.dsi.sux4j.mph.codec.Codec.Huffman;
 import it.unimi.dsi.sux4j.mph.codec.Codec.ZeroCodec;
 import it.unimi.dsi.sux4j.mph.solve.Linear4SystemSolver;
 import it.unimi.dsi.util.XoRoShiRo128PlusRandomGenerator;
-import it.unimi.dsi.util.concurrent.ReorderingBlockingQueue;
 
 /**
  * An immutable function stored in a compressed form.
@@ -154,8 +146,10 @@ import it.unimi.dsi.util.concurrent.ReorderingBlockingQueue;
  * <p>
  * This implementation is multithreaded: each bucket returned by the {@link BucketedHashStore} is
  * processed independently. By default, this class uses {@link Runtime#availableProcessors()}
- * parallel threads, but by default no more than 4. If you wish to set a specific number of threads,
- * you can do so through the system property {@value #NUMBER_OF_THREADS_PROPERTY}.
+ * parallel threads. If you wish to set a specific number of threads, you can do so through the
+ * system property {@value #NUMBER_OF_THREADS_PROPERTY}. Buckets and solutions in flight use at most
+ * approximately a quarter of {@link Runtime#maxMemory()}; the budget (in bytes) can be set through the
+ * system property {@value #MEMORY_BUDGET_PROPERTY}.
  *
  * <h2>Implementation Details</h2>
  *
@@ -180,8 +174,6 @@ import it.unimi.dsi.util.concurrent.ReorderingBlockingQueue;
 
 public class GV4CompressedFunction<T> extends AbstractObject2LongFunction<T> implements Serializable, Size64 {
 	private static final long serialVersionUID = 1L;
-	private static final LongArrayBitVector END_OF_SOLUTION_QUEUE = LongArrayBitVector.getInstance();
-	private static final Pair<Bucket, Integer> END_OF_BUCKET_QUEUE = new Pair<>(new Bucket(), Integer.valueOf(0));
 	private static final Logger LOGGER = LoggerFactory.getLogger(GV4CompressedFunction.class);
 	private static final boolean DEBUG = false;
 	protected static final int SEED_BITS = 10;
@@ -200,6 +192,8 @@ public class GV4CompressedFunction<T> extends AbstractObject2LongFunction<T> imp
 
 	/** The system property used to set the number of parallel threads. */
 	public static final String NUMBER_OF_THREADS_PROPERTY = "it.unimi.dsi.sux4j.mph.threads";
+	/** The system property used to set the memory budget (in bytes) for buckets and solutions in flight. */
+	public static final String MEMORY_BUDGET_PROPERTY = "it.unimi.dsi.sux4j.mph.memory";
 
 	public static class Builder<T> {
 		protected Iterable<? extends T> keys;
@@ -410,6 +404,13 @@ public class GV4CompressedFunction<T> extends AbstractObject2LongFunction<T> imp
 		} else frequencies = bucketedHashStore.value2FrequencyMap();
 
 		final Codec.Coder coder = frequencies.isEmpty() ? ZeroCodec.getInstance().getCoder(frequencies) : codec.getCoder(frequencies);
+		// The number of equations of the system associated with a bucket
+		final ToLongFunction<Bucket> sumOfLengths = bucket -> {
+			final LongBigList valueList = bucket.valueList(indirect ? values : null);
+			long sum = 0;
+			for (int i = 0; i < bucket.size(); i++) sum += coder.codewordLength(valueList.getLong(i));
+			return sum;
+		};
 		globalMaxCodewordLength = coder.maxCodewordLength();
 		decoder = coder.getDecoder();
 		escapedSymbolLength = decoder.escapedSymbolLength();
@@ -434,105 +435,27 @@ public class GV4CompressedFunction<T> extends AbstractObject2LongFunction<T> imp
 			final AtomicLong unsolvable = new AtomicLong();
 
 			try {
-				final int numberOfThreads = Integer.parseInt(System.getProperty(NUMBER_OF_THREADS_PROPERTY, Integer.toString(Math.min(4, Runtime.getRuntime().availableProcessors()))));
-				final ArrayBlockingQueue<Pair<Bucket, Integer>> bucketQueue = new ArrayBlockingQueue<>(numberOfThreads);
-				final ReorderingBlockingQueue<LongArrayBitVector> queue = new ReorderingBlockingQueue<>(numberOfThreads * 128);
-				final ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads + 2);
-				final ExecutorCompletionService<Void> executorCompletionService = new ExecutorCompletionService<>(executorService);
+				final ParallelBucketSolver bucketSolver = ParallelBucketSolver.fromProperties(NUMBER_OF_THREADS_PROPERTY, MEMORY_BUDGET_PROPERTY, OFFSET_MASK);
+				bucketSolver.solve(bucketedHashStore.iterator(), numBuckets, offsetAndSeed, bucket -> {
+					// We add the length of the longest keyword to avoid wrapping up indices
+					return Math.max(3, (sumOfLengths.applyAsLong(bucket) * DELTA_TIMES_256 >>> 8) + globalMaxCodewordLength);
+				}, (bucket, offset, numVariables, data) -> {
+					long seed = 0;
+					final Linear4SystemSolver solver = new Linear4SystemSolver(numVariables, (int)sumOfLengths.applyAsLong(bucket));
 
-				executorCompletionService.submit(() -> {
 					for (;;) {
-						final LongArrayBitVector data = queue.take();
-						if (data == END_OF_SOLUTION_QUEUE) return null;
-						offlineData.add(data);
+						final boolean solved = solver.generateAndSolve(bucket, seed, bucket.valueList(indirect ? values : null), coder, numVariables - globalMaxCodewordLength, globalMaxCodewordLength);
+						unsolvable.addAndGet(solver.unsolvable);
+						if (solved) break;
+						seed += SEED_STEP;
+						if (seed == 0) throw new AssertionError("Exhausted local seeds");
 					}
-				});
-
-				final BucketedHashStore<T> chs = bucketedHashStore;
-				executorCompletionService.submit(() -> {
-					try {
-						final Iterator<Bucket> iterator = chs.iterator();
-						for (int i1 = 0; iterator.hasNext(); i1++) {
-							final Bucket bucket = new Bucket(iterator.next());
-							assert i1 == bucket.index();
-							final LongBigList valueList = bucket.valueList(indirect ? values : null);
-							long sumOfLengths = 0;
-							for (int i = 0; i < bucket.size(); i++) sumOfLengths += coder.codewordLength(valueList.getLong(i));
-							final long numVariables = Math.max(3, (sumOfLengths * DELTA_TIMES_256 >>> 8) + globalMaxCodewordLength);
-
-							// We add the length of the longest keyword to avoid wrapping up indices
-							assert numVariables <= Integer.MAX_VALUE;
-							synchronized (offsetAndSeed) {
-								offsetAndSeed[i1 + 1] = offsetAndSeed[i1] + numVariables;
-								assert offsetAndSeed[i1 + 1] <= OFFSET_MASK + 1;
-							}
-							bucketQueue.put(new Pair<>(bucket, Integer.valueOf((int)sumOfLengths)));
-						}
-					} finally {
-						for (int i2 = numberOfThreads; i2-- != 0;) bucketQueue.put(END_OF_BUCKET_QUEUE);
-					}
-					return null;
-				});
-
-				final AtomicInteger activeThreads = new AtomicInteger(numberOfThreads);
-				for (int i = numberOfThreads; i-- != 0;) executorCompletionService.submit(() -> {
-					Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
-					long bucketTime = 0;
-					long outputTime = 0;
-					for (;;) {
-						long start = System.nanoTime();
-						final Pair<Bucket, Integer> bucketLength = bucketQueue.take();
-						bucketTime += System.nanoTime() - start;
-						if (bucketLength == END_OF_BUCKET_QUEUE) {
-							if (activeThreads.decrementAndGet() == 0) queue.put(END_OF_SOLUTION_QUEUE, numBuckets);
-							LOGGER.debug("Queue waiting time: " + Util.format(bucketTime / 1E9) + "s");
-							LOGGER.debug("Output waiting time: " + Util.format(outputTime / 1E9) + "s");
-							return null;
-						}
-						final Bucket bucket = bucketLength.getFirst();
-						final int numEquations = bucketLength.getSecond().intValue();
-						final int numVariables = (int)(offsetAndSeed[(int)(bucket.index() + 1)] - offsetAndSeed[(int)bucket.index()] & OFFSET_MASK);
-						long seed = 0;
-						final Linear4SystemSolver solver = new Linear4SystemSolver(numVariables, numEquations);
-
-						for (;;) {
-							final boolean solved = solver.generateAndSolve(bucket, seed, bucket.valueList(indirect ? values : null), coder, numVariables - globalMaxCodewordLength, globalMaxCodewordLength);
-							unsolvable.addAndGet(solver.unsolvable);
-							if (solved) break;
-							seed += SEED_STEP;
-							if (seed == 0) throw new AssertionError("Exhausted local seeds");
-						}
-
-						synchronized (offsetAndSeed) {
-							offsetAndSeed[(int)bucket.index()] |= seed;
-						}
-
-						final LongArrayBitVector data = LongArrayBitVector.getInstance();
-						final long[] solution = solver.solution;
-						data.length(solution.length);
-						for (int j = 0; j < solution.length; j++) data.set(j, (int)solution[j]);
-
-						start = System.nanoTime();
-						queue.put(data, bucket.index());
-						outputTime += System.nanoTime() - start;
-						synchronized (pl) {
-							pl.update();
-						}
-					}
-				});
-
-				try {
-					for (int i = numberOfThreads + 2; i-- != 0;) executorCompletionService.take().get();
-				} catch (final InterruptedException e) {
-					throw new RuntimeException(e);
-				} catch (final ExecutionException e) {
-					final Throwable cause = e.getCause();
-					if (cause instanceof DuplicateException) throw (DuplicateException)cause;
-					if (cause instanceof IOException) throw (IOException)cause;
-					throw new RuntimeException(cause);
-				} finally {
-					executorService.shutdown();
-				}
+
+					final long[] solution = solver.solution;
+					data.length(solution.length);
+					for (int j = 0; j < solution.length; j++) data.set(j, (int)solution[j]);
+					return seed;
+				}, offlineData::add, pl);
 
 				LOGGER.info("Unsolvable systems: " + unsolvable.get() + "/" + (unsolvable.get() + numBuckets) + " (" + Util.format(100.0 * unsolvable.get() / (unsolvable.get() + numBuckets)) + "%)");
 				// LOGGER.info("Mean node peeled for solved systems: " + Util.format((double)
@@ -593,7 +516,7 @@ public class GV4CompressedFunction<T> extends AbstractObject2LongFunction<T> imp
 	public long getLong(final Object o) {
 		final int[] e = new int[4];
 		final long[] signature = new long[2];
-		Hashes.spooky4(transform.toBitVector((T)o), globalSeed, signature);
+		Hashes.spooky4((T)o, transform, globalSeed, signature);
 		final int bucket = (int)Math.multiplyHigh(signature[0] >>> 1, multiplier);
 		final long olc = offsetAndSeed[bucket];
 		final long bucketOffset = olc & OFFSET_MASK;
@@ -25,6 +25,8 @@ import static it.unimi.dsi.bits.LongArrayBitVector.word;
 
 import it.unimi.dsi.bits.BitVector;
 import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.bits.TransformationStrategy;
 import it.unimi.dsi.logging.ProgressLogger;
 
 /**
@@ -71,6 +73,15 @@ public class Hashes {
 	 */
 	private final static long ARBITRARY_BITS = 0x9e3779b97f4a7c13L;
 
+	/** The transformation strategies for which {@link #spooky4(Object, TransformationStrategy, long, long[])} avoids building a bit vector. */
+	private final static Object RAW_BYTE_ARRAY = TransformationStrategies.rawByteArray(), RAW_UTF16 = TransformationStrategies.rawUtf16(), RAW_FIXED_LONG = TransformationStrategies.rawFixedLong(), FIXED_LONG = TransformationStrategies.fixedLong(), UTF16 = TransformationStrategies.utf16(), PREFIX_FREE_UTF16 = TransformationStrategies.prefixFreeUtf16();
+	/**
+	 * The word {@link TransformationStrategies#fixedLong()} maps zero to: the strategy maps a long
+	 * {@code x} to {@link Long#reverse(long) Long.reverse(x)} xor this mask (recent versions flip the
+	 * sign bit, so that negative numbers precede positive numbers in lexicographical order).
+	 */
+	private final static long FIXED_LONG_MASK = TransformationStrategies.fixedLong().toBitVector(Long.valueOf(0)).getLong(0, Long.SIZE);
+
 	/**
 	 * Jenkins 64-bit hashing (all three values produced).
 	 *
@@ -1605,17 +1616,22 @@ public class Hashes {
 	 *            a tuple of longs in which up to four generated hashes will be
 	 *            saved.
 	 */
-	@SuppressWarnings({"fallthrough"})
 	public static void spooky4(final BitVector bv, final long seed, final long[] tuple) {
+		spooky4(bv, seed, tuple, 0, tuple.length);
+	}
+
+	/** Like {@link #spooky4(BitVector, long, long[])}, but stores {@code count} hashes in {@code tuple} starting from {@code offset}. */
+	@SuppressWarnings({"fallthrough"})
+	private static void spooky4(final BitVector bv, final long seed, final long[] tuple, final int offset, final int count) {
 		long h0, h1, h2, h3;
 		h0 = seed;
 		h1 = seed;
 		h2 = ARBITRARY_BITS;
 		h3 = ARBITRARY_BITS;
 
-		final int length = (int) bv.length();
-		int remaining = length;
-		int pos = 0;
+		final long length = bv.length();
+		long remaining = length;
+		long pos = 0;
 
 		while (remaining >= Long.SIZE * 4) {
 			h2 += bv.getLong(pos + 0 * Long.SIZE, pos + 1 * Long.SIZE);
@@ -1754,18 +1770,564 @@ public class Hashes {
 		h0 = Long.rotateLeft(h0, 63);
 		h1 += h0;
 
-		switch (tuple.length) {
+		switch (count) {
 		case 4:
-			tuple[3] = h3;
+			tuple[offset + 3] = h3;
 		case 3:
-			tuple[2] = h2;
+			tuple[offset + 2] = h2;
 		case 2:
-			tuple[1] = h1;
+			tuple[offset + 1] = h1;
 		case 1:
-			tuple[0] = h0;
+			tuple[offset] = h0;
+		}
+	}
+
+	/**
+	 * SpookyHash 4-word-state (up to four values produced) for a byte array.
+	 *
+	 * <p>
+	 * This method returns the same values as {@link #spooky4(BitVector, long, long[])} applied to
+	 * {@link TransformationStrategies#rawByteArray() TransformationStrategies.rawByteArray().toBitVector(a)},
+	 * but it does not need to build a bit vector.
+	 *
+	 * @param a
+	 *            a byte array.
+	 * @param seed
+	 *            a seed for the hash.
+	 * @param tuple
+	 *            a tuple of longs in which up to four generated hashes will be
+	 *            saved.
+	 */
+	public static void spooky4(final byte[] a, final long seed, final long[] tuple) {
+		spooky4(a, seed, tuple, 0, tuple.length);
+	}
+
+	/** Like {@link #spooky4(byte[], long, long[])}, but stores {@code count} hashes in {@code tuple} starting from {@code offset}. */
+	@SuppressWarnings({"fallthrough"})
+	private static void spooky4(final byte[] a, final long seed, final long[] tuple, final int offset, final int count) {
+		long h0, h1, h2, h3;
+		h0 = seed;
+		h1 = seed;
+		h2 = ARBITRARY_BITS;
+		h3 = ARBITRARY_BITS;
+
+		final long length = a.length * (long)Byte.SIZE;
+		long remaining = length;
+		long pos = 0;
+
+		while (remaining >= Long.SIZE * 4) {
+			h2 += getLong(a, pos + 0 * Long.SIZE, pos + 1 * Long.SIZE);
+			h3 += getLong(a, pos + 1 * Long.SIZE, pos + 2 * Long.SIZE);
+
+			h2 = Long.rotateLeft(h2, 50);
+			h2 += h3;
+			h0 ^= h2;
+			h3 = Long.rotateLeft(h3, 52);
+			h3 += h0;
+			h1 ^= h3;
+			h0 = Long.rotateLeft(h0, 30);
+			h0 += h1;
+			h2 ^= h0;
+			h1 = Long.rotateLeft(h1, 41);
+			h1 += h2;
+			h3 ^= h1;
+			h2 = Long.rotateLeft(h2, 54);
+			h2 += h3;
+			h0 ^= h2;
+			h3 = Long.rotateLeft(h3, 48);
+			h3 += h0;
+			h1 ^= h3;
+			h0 = Long.rotateLeft(h0, 38);
+			h0 += h1;
+			h2 ^= h0;
+			h1 = Long.rotateLeft(h1, 37);
+			h1 += h2;
+			h3 ^= h1;
+			h2 = Long.rotateLeft(h2, 62);
+			h2 += h3;
+			h0 ^= h2;
+			h3 = Long.rotateLeft(h3, 34);
+			h3 += h0;
+			h1 ^= h3;
+			h0 = Long.rotateLeft(h0, 5);
+			h0 += h1;
+			h2 ^= h0;
+			h1 = Long.rotateLeft(h1, 36);
+			h1 += h2;
+			h3 ^= h1;
+
+			h0 += getLong(a, pos + 2 * Long.SIZE, pos + 3 * Long.SIZE);
+			h1 += getLong(a, pos + 3 * Long.SIZE, pos + 4 * Long.SIZE);
+			remaining -= 4 * Long.SIZE;
+			pos += 4 * Long.SIZE;
+		}
+
+		if (remaining >= Long.SIZE * 2) {
+			h2 += getLong(a, pos + 0 * Long.SIZE, pos + 1 * Long.SIZE);
+			h3 += getLong(a, pos + 1 * Long.SIZE, pos + 2 * Long.SIZE);
+			remaining -= 2 * Long.SIZE;
+			pos += 2 * Long.SIZE;
+
+			h2 = Long.rotateLeft(h2, 50);
+			h2 += h3;
+			h0 ^= h2;
+			h3 = Long.rotateLeft(h3, 52);
+			h3 += h0;
+			h1 ^= h3;
+			h0 = Long.rotateLeft(h0, 30);
+			h0 += h1;
+			h2 ^= h0;
+			h1 = Long.rotateLeft(h1, 41);
+			h1 += h2;
+			h3 ^= h1;
+			h2 = Long.rotateLeft(h2, 54);
+			h2 += h3;
+			h0 ^= h2;
+			h3 = Long.rotateLeft(h3, 48);
+			h3 += h0;
+			h1 ^= h3;
+			h0 = Long.rotateLeft(h0, 38);
+			h0 += h1;
+			h2 ^= h0;
+			h1 = Long.rotateLeft(h1, 37);
+			h1 += h2;
+			h3 ^= h1;
+			h2 = Long.rotateLeft(h2, 62);
+			h2 += h3;
+			h0 ^= h2;
+			h3 = Long.rotateLeft(h3, 34);
+			h3 += h0;
+			h1 ^= h3;
+			h0 = Long.rotateLeft(h0, 5);
+			h0 += h1;
+			h2 ^= h0;
+			h1 = Long.rotateLeft(h1, 36);
+			h1 += h2;
+			h3 ^= h1;
+		}
+
+		if (remaining > Long.SIZE) {
+			h2 += getLong(a, pos + 0 * Long.SIZE, pos + 1 * Long.SIZE);
+			h3 += getLong(a, pos + 1 * Long.SIZE, length);
+		} else if (remaining > 0) {
+			h2 += getLong(a, pos, length);
+		} else {
+			h2 += ARBITRARY_BITS;
+			h3 += ARBITRARY_BITS;
+		}
+
+		h0 += length;
+
+		h3 ^= h2;
+		h2 = Long.rotateLeft(h2, 15);
+		h3 += h2;
+		h0 ^= h3;
+		h3 = Long.rotateLeft(h3, 52);
+		h0 += h3;
+		h1 ^= h0;
+		h0 = Long.rotateLeft(h0, 26);
+		h1 += h0;
+		h2 ^= h1;
+		h1 = Long.rotateLeft(h1, 51);
+		h2 += h1;
+		h3 ^= h2;
+		h2 = Long.rotateLeft(h2, 28);
+		h3 += h2;
+		h0 ^= h3;
+		h3 = Long.rotateLeft(h3, 9);
+		h0 += h3;
+		h1 ^= h0;
+		h0 = Long.rotateLeft(h0, 47);
+		h1 += h0;
+		h2 ^= h1;
+		h1 = Long.rotateLeft(h1, 54);
+		h2 += h1;
+		h3 ^= h2;
+		h2 = Long.rotateLeft(h2, 32);
+		h3 += h2;
+		h0 ^= h3;
+		h3 = Long.rotateLeft(h3, 25);
+		h0 += h3;
+		h1 ^= h0;
+		h0 = Long.rotateLeft(h0, 63);
+		h1 += h0;
+
+		switch (count) {
+		case 4:
+			tuple[offset + 3] = h3;
+		case 3:
+			tuple[offset + 2] = h2;
+		case 2:
+			tuple[offset + 1] = h1;
+		case 1:
+			tuple[offset] = h0;
 		}
 	}
 
+	/**
+	 * SpookyHash 4-word-state (up to four values produced) for a character sequence.
+	 *
+	 * <p>
+	 * This method returns the same values as {@link #spooky4(BitVector, long, long[])} applied to
+	 * {@link TransformationStrategies#rawUtf16() TransformationStrategies.rawUtf16().toBitVector(s)},
+	 * but it does not need to build a bit vector.
+	 *
+	 * @param s
+	 *            a character sequence.
+	 * @param seed
+	 *            a seed for the hash.
+	 * @param tuple
+	 *            a tuple of longs in which up to four generated hashes will be
+	 *            saved.
+	 */
+	public static void spooky4(final CharSequence s, final long seed, final long[] tuple) {
+		spooky4(s, s.length() * (long)Character.SIZE, false, seed, tuple, 0, tuple.length);
+	}
+
+	/**
+	 * SpookyHash 4-word-state (up to four values produced) for a character sequence viewed as by
+	 * {@link TransformationStrategies#rawUtf16()} or, if {@code lexicographic} is true, as by
+	 * {@link TransformationStrategies#utf16()} or {@link TransformationStrategies#prefixFreeUtf16()}.
+	 *
+	 * @param s a character sequence.
+	 * @param length the length in bits of the bit vector representing {@code s}, which is longer
+	 *            than {@code s.length() * Character.SIZE} if the representation is prefix free.
+	 * @param lexicographic whether the bits of each character are reversed.
+	 * @param seed a seed for the hash.
+	 * @param tuple a tuple of longs in which up to four generated hashes will be saved.
+	 * @param offset the first position of {@code tuple} to be filled.
+	 * @param count the number of hashes to be saved.
+	 */
+	@SuppressWarnings({"fallthrough"})
+	private static void spooky4(final CharSequence s, final long length, final boolean lexicographic, final long seed, final long[] tuple, final int offset, final int count) {
+		long h0, h1, h2, h3;
+		h0 = seed;
+		h1 = seed;
+		h2 = ARBITRARY_BITS;
+		h3 = ARBITRARY_BITS;
+
+		long remaining = length;
+		long pos = 0;
+
+		while (remaining >= Long.SIZE * 4) {
+			h2 += getLong(s, pos + 0 * Long.SIZE, pos + 1 * Long.SIZE, lexicographic);
+			h3 += getLong(s, pos + 1 * Long.SIZE, pos + 2 * Long.SIZE, lexicographic);
+
+			h2 = Long.rotateLeft(h2, 50);
+			h2 += h3;
+			h0 ^= h2;
+			h3 = Long.rotateLeft(h3, 52);
+			h3 += h0;
+			h1 ^= h3;
+			h0 = Long.rotateLeft(h0, 30);
+			h0 += h1;
+			h2 ^= h0;
+			h1 = Long.rotateLeft(h1, 41);
+			h1 += h2;
+			h3 ^= h1;
+			h2 = Long.rotateLeft(h2, 54);
+			h2 += h3;
+			h0 ^= h2;
+			h3 = Long.rotateLeft(h3, 48);
+			h3 += h0;
+			h1 ^= h3;
+			h0 = Long.rotateLeft(h0, 38);
+			h0 += h1;
+			h2 ^= h0;
+			h1 = Long.rotateLeft(h1, 37);
+			h1 += h2;
+			h3 ^= h1;
+			h2 = Long.rotateLeft(h2, 62);
+			h2 += h3;
+			h0 ^= h2;
+			h3 = Long.rotateLeft(h3, 34);
+			h3 += h0;
+			h1 ^= h3;
+			h0 = Long.rotateLeft(h0, 5);
+			h0 += h1;
+			h2 ^= h0;
+			h1 = Long.rotateLeft(h1, 36);
+			h1 += h2;
+			h3 ^= h1;
+
+			h0 += getLong(s, pos + 2 * Long.SIZE, pos + 3 * Long.SIZE, lexicographic);
+			h1 += getLong(s, pos + 3 * Long.SIZE, pos + 4 * Long.SIZE, lexicographic);
+			remaining -= 4 * Long.SIZE;
+			pos += 4 * Long.SIZE;
+		}
+
+		if (remaining >= Long.SIZE * 2) {
+			h2 += getLong(s, pos + 0 * Long.SIZE, pos + 1 * Long.SIZE, lexicographic);
+			h3 += getLong(s, pos + 1 * Long.SIZE, pos + 2 * Long.SIZE, lexicographic);
+			remaining -= 2 * Long.SIZE;
+			pos += 2 * Long.SIZE;
+
+			h2 = Long.rotateLeft(h2, 50);
+			h2 += h3;
+			h0 ^= h2;
+			h3 = Long.rotateLeft(h3, 52);
+			h3 += h0;
+			h1 ^= h3;
+			h0 = Long.rotateLeft(h0, 30);
+			h0 += h1;
+			h2 ^= h0;
+			h1 = Long.rotateLeft(h1, 41);
+			h1 += h2;
+			h3 ^= h1;
+			h2 = Long.rotateLeft(h2, 54);
+			h2 += h3;
+			h0 ^= h2;
+			h3 = Long.rotateLeft(h3, 48);
+			h3 += h0;
+			h1 ^= h3;
+			h0 = Long.rotateLeft(h0, 38);
+			h0 += h1;
+			h2 ^= h0;
+			h1 = Long.rotateLeft(h1, 37);
+			h1 += h2;
+			h3 ^= h1;
+			h2 = Long.rotateLeft(h2, 62);
+			h2 += h3;
+			h0 ^= h2;
+			h3 = Long.rotateLeft(h3, 34);
+			h3 += h0;
+			h1 ^= h3;
+			h0 = Long.rotateLeft(h0, 5);
+			h0 += h1;
+			h2 ^= h0;
+			h1 = Long.rotateLeft(h1, 36);
+			h1 += h2;
+			h3 ^= h1;
+		}
+
+		if (remaining > Long.SIZE) {
+			h2 += getLong(s, pos + 0 * Long.SIZE, pos + 1 * Long.SIZE, lexicographic);
+			h3 += getLong(s, pos + 1 * Long.SIZE, length, lexicographic);
+		} else if (remaining > 0) {
+			h2 += getLong(s, pos, length, lexicographic);
+		} else {
+			h2 += ARBITRARY_BITS;
+			h3 += ARBITRARY_BITS;
+		}
+
+		h0 += length;
+
+		h3 ^= h2;
+		h2 = Long.rotateLeft(h2, 15);
+		h3 += h2;
+		h0 ^= h3;
+		h3 = Long.rotateLeft(h3, 52);
+		h0 += h3;
+		h1 ^= h0;
+		h0 = Long.rotateLeft(h0, 26);
+		h1 += h0;
+		h2 ^= h1;
+		h1 = Long.rotateLeft(h1, 51);
+		h2 += h1;
+		h3 ^= h2;
+		h2 = Long.rotateLeft(h2, 28);
+		h3 += h2;
+		h0 ^= h3;
+		h3 = Long.rotateLeft(h3, 9);
+		h0 += h3;
+		h1 ^= h0;
+		h0 = Long.rotateLeft(h0, 47);
+		h1 += h0;
+		h2 ^= h1;
+		h1 = Long.rotateLeft(h1, 54);
+		h2 += h1;
+		h3 ^= h2;
+		h2 = Long.rotateLeft(h2, 32);
+		h3 += h2;
+		h0 ^= h3;
+		h3 = Long.rotateLeft(h3, 25);
+		h0 += h3;
+		h1 ^= h0;
+		h0 = Long.rotateLeft(h0, 63);
+		h1 += h0;
+
+		switch (count) {
+		case 4:
+			tuple[offset + 3] = h3;
+		case 3:
+			tuple[offset + 2] = h2;
+		case 2:
+			tuple[offset + 1] = h1;
+		case 1:
+			tuple[offset] = h0;
+		}
+	}
+
+	/**
+	 * SpookyHash 4-word-state (up to four values produced) for a long.
+	 *
+	 * <p>
+	 * This method returns the same values as {@link #spooky4(BitVector, long, long[])} applied to
+	 * {@link TransformationStrategies#rawFixedLong() TransformationStrategies.rawFixedLong().toBitVector(x)},
+	 * but it does not need to build a bit vector.
+	 *
+	 * @param x
+	 *            a long.
+	 * @param seed
+	 *            a seed for the hash.
+	 * @param tuple
+	 *            a tuple of longs in which up to four generated hashes will be
+	 *            saved.
+	 */
+	public static void spooky4(final long x, final long seed, final long[] tuple) {
+		spooky4(x, seed, tuple, 0, tuple.length);
+	}
+
+	/** Like {@link #spooky4(long, long, long[])}, but stores {@code count} hashes in {@code tuple} starting from {@code offset}. */
+	@SuppressWarnings({"fallthrough"})
+	private static void spooky4(final long x, final long seed, final long[] tuple, final int offset, final int count) {
+		long h0, h1, h2, h3;
+		h0 = seed + Long.SIZE;
+		h1 = seed;
+		h2 = ARBITRARY_BITS + x;
+		h3 = ARBITRARY_BITS;
+
+		h3 ^= h2;
+		h2 = Long.rotateLeft(h2, 15);
+		h3 += h2;
+		h0 ^= h3;
+		h3 = Long.rotateLeft(h3, 52);
+		h0 += h3;
+		h1 ^= h0;
+		h0 = Long.rotateLeft(h0, 26);
+		h1 += h0;
+		h2 ^= h1;
+		h1 = Long.rotateLeft(h1, 51);
+		h2 += h1;
+		h3 ^= h2;
+		h2 = Long.rotateLeft(h2, 28);
+		h3 += h2;
+		h0 ^= h3;
+		h3 = Long.rotateLeft(h3, 9);
+		h0 += h3;
+		h1 ^= h0;
+		h0 = Long.rotateLeft(h0, 47);
+		h1 += h0;
+		h2 ^= h1;
+		h1 = Long.rotateLeft(h1, 54);
+		h2 += h1;
+		h3 ^= h2;
+		h2 = Long.rotateLeft(h2, 32);
+		h3 += h2;
+		h0 ^= h3;
+		h3 = Long.rotateLeft(h3, 25);
+		h0 += h3;
+		h1 ^= h0;
+		h0 = Long.rotateLeft(h0, 63);
+		h1 += h0;
+
+		switch (count) {
+		case 4:
+			tuple[offset + 3] = h3;
+		case 3:
+			tuple[offset + 2] = h2;
+		case 2:
+			tuple[offset + 1] = h1;
+		case 1:
+			tuple[offset] = h0;
+		}
+	}
+
+	/**
+	 * SpookyHash 4-word-state (up to four values produced) for an object mapped to a bit vector by a
+	 * transformation strategy.
+	 *
+	 * <p>
+	 * This method returns the same values as {@link #spooky4(BitVector, long, long[])} applied to
+	 * {@code transform.toBitVector(key)}, but if {@code transform} is
+	 * {@link TransformationStrategies#rawByteArray()}, {@link TransformationStrategies#rawUtf16()},
+	 * {@link TransformationStrategies#utf16()}, {@link TransformationStrategies#prefixFreeUtf16()},
+	 * {@link TransformationStrategies#rawFixedLong()} or {@link TransformationStrategies#fixedLong()}
+	 * it hashes the key directly, without building a bit vector.
+	 *
+	 * @param key
+	 *            a key.
+	 * @param transform
+	 *            a transformation strategy for {@code key}.
+	 * @param seed
+	 *            a seed for the hash.
+	 * @param tuple
+	 *            a tuple of longs in which up to four generated hashes will be
+	 *            saved.
+	 */
+	public static <T> void spooky4(final T key, final TransformationStrategy<? super T> transform, final long seed, final long[] tuple) {
+		spooky4(key, transform, seed, tuple, 0, tuple.length);
+	}
+
+	/**
+	 * SpookyHash 4-word-state (up to four values produced) for an object mapped to a bit vector by a
+	 * transformation strategy, storing the hashes in a portion of an array.
+	 *
+	 * <p>
+	 * This method stores in {@code tuple} starting from {@code offset} the first {@code count} values
+	 * that {@link #spooky4(Object, TransformationStrategy, long, long[])} would store in a tuple of
+	 * length {@code count}. It makes it possible to hash several keys into a single array.
+	 *
+	 * @param key
+	 *            a key.
+	 * @param transform
+	 *            a transformation strategy for {@code key}.
+	 * @param seed
+	 *            a seed for the hash.
+	 * @param tuple
+	 *            an array of longs.
+	 * @param offset
+	 *            the first position of {@code tuple} to be filled.
+	 * @param count
+	 *            the number of hashes to be saved (at most four).
+	 */
+	public static <T> void spooky4(final T key, final TransformationStrategy<? super T> transform, final long seed, final long[] tuple, final int offset, final int count) {
+		final Object t = transform;
+		if (t == RAW_BYTE_ARRAY) spooky4((byte[])key, seed, tuple, offset, count);
+		else if (t == RAW_UTF16) spooky4((CharSequence)key, ((CharSequence)key).length() * (long)Character.SIZE, false, seed, tuple, offset, count);
+		else if (t == UTF16) spooky4((CharSequence)key, ((CharSequence)key).length() * (long)Character.SIZE, true, seed, tuple, offset, count);
+		else if (t == PREFIX_FREE_UTF16) spooky4((CharSequence)key, (((CharSequence)key).length() + 1L) * Character.SIZE, true, seed, tuple, offset, count);
+		else if (t == RAW_FIXED_LONG) spooky4(((Long)key).longValue(), seed, tuple, offset, count);
+		else if (t == FIXED_LONG) spooky4(Long.reverse(((Long)key).longValue()) ^ FIXED_LONG_MASK, seed, tuple, offset, count);
+		else spooky4(transform.toBitVector(key), seed, tuple, offset, count);
+	}
+
+	/**
+	 * Returns the bits from {@code from} (inclusive) to {@code to} (exclusive) of a byte array
+	 * viewed as by {@link TransformationStrategies#rawByteArray()}; {@code from} must be a multiple
+	 * of {@link Long#SIZE}, and {@code to - from} a multiple of {@link Byte#SIZE} not greater than
+	 * {@link Long#SIZE}.
+	 */
+	private static long getLong(final byte[] a, final long from, final long to) {
+		int i = (int)(from >>> 3);
+		final int end = (int)(to >>> 3);
+		long w = 0;
+		for (int shift = 0; i < end; i++, shift += Byte.SIZE) w |= (a[i] & 0xFFL) << shift;
+		return w;
+	}
+
+	/**
+	 * Returns the bits from {@code from} (inclusive) to {@code to} (exclusive) of a character sequence
+	 * viewed as by {@link TransformationStrategies#rawUtf16()} or, if {@code lexicographic} is true,
+	 * as by {@link TransformationStrategies#utf16()}; {@code from} must be a multiple of
+	 * {@link Long#SIZE}, and {@code to - from} a multiple of {@link Character#SIZE} not greater than
+	 * {@link Long#SIZE}. Characters past the end of the sequence are zero, as the terminator
+	 * appended by {@link TransformationStrategies#prefixFreeUtf16()}.
+	 */
+	private static long getLong(final CharSequence s, final long from, final long to, final boolean lexicographic) {
+		int i = (int)(from >>> 4);
+		final int end = (int)Math.min(to >>> 4, s.length());
+		long w = 0;
+		for (int shift = 0; i < end; i++, shift += Character.SIZE) w |= (long)s.charAt(i) << shift;
+		if (lexicographic) {
+			// Reverses the bits of each character
+			w = Long.reverse(w);
+			w = w >>> 32 | w << 32;
+			w = (w >>> 16) & 0x0000FFFF0000FFFFL | (w & 0x0000FFFF0000FFFFL) << 16;
+		}
+		return w;
+	}
+
 	/**
 	 * SpookyHash 4-word-state (up to four values produced).
 	 *
@@ -1783,9 +2345,9 @@ public class Hashes {
 		h2 = ARBITRARY_BITS;
 		h3 = ARBITRARY_BITS;
 
-		final int length = (int) bv.length();
-		int remaining = length;
-		int pos = 0;
+		final long length = bv.length();
+		long remaining = length;
+		long pos = 0;
 
 		while (remaining >= Long.SIZE * 4) {
 			h2 += bv.getLong(pos + 0 * Long.SIZE, pos + 1 * Long.SIZE);
@@ -2439,7 +3001,7 @@ public class Hashes {
 	 *            a seed for the hash.
 	 * @param tuple
 	 *            a tuple of longs in which up to four generated hashes will be
-	 *            saved.
+	 *            saved; it can be {@code triple} itself.
 	 */
 	@SuppressWarnings({"fallthrough"})
 	public static void spooky4(final long[] triple, final long seed, final long[] tuple) {
@@ -2511,8 +3073,33 @@ public class Hashes {
 	 *            a tuple of longs in which up to four generated hashes will be
 	 *            saved.
 	 */
-	@SuppressWarnings({"fallthrough"})
 	public static void spooky4(final long x, final long y, final long seed, final long[] tuple) {
+		spooky4(x, y, seed, tuple, 0, tuple.length);
+	}
+
+	/**
+	 * SpookyHash (up to four values produced) for a pair of longs, storing the hashes in a portion of
+	 * an array.
+	 *
+	 * <p>
+	 * This method stores in {@code tuple} starting from {@code offset} the first {@code count} values
+	 * that {@link #spooky4(long, long, long, long[])} would store in a tuple of length {@code count}.
+	 *
+	 * @param x
+	 *            the first long.
+	 * @param y
+	 *            the second long.
+	 * @param seed
+	 *            a seed for the hash.
+	 * @param tuple
+	 *            an array of longs.
+	 * @param offset
+	 *            the first position of {@code tuple} to be filled.
+	 * @param count
+	 *            the number of hashes to be saved (at most four).
+	 */
+	@SuppressWarnings({"fallthrough"})
+	public static void spooky4(final long x, final long y, final long seed, final long[] tuple, final int offset, final int count) {
 		long h0, h1, h2, h3;
 		h0 = seed;
 		h1 = ARBITRARY_BITS + x;
@@ -2556,15 +3143,15 @@ public class Hashes {
 		h1 += h2;
 		h3 ^= h1;
 
-		switch (tuple.length) {
+		switch (count) {
 		case 4:
-			tuple[3] = h3;
+			tuple[offset + 3] = h3;
 		case 3:
-			tuple[2] = h2;
+			tuple[offset + 2] = h2;
 		case 2:
-			tuple[1] = h1;
+			tuple[offset + 1] = h1;
 		case 1:
-			tuple[0] = h0;
+			tuple[offset] = h0;
 		}
 	}
 
@@ -81,9 +81,9 @@ public class HollowTrieMonotoneMinimalPerfectHashFunction<T> extends AbstractHas
 	/** A balanced parentheses structure over {@link #trie}. */
 	protected JacobsonBalancedParentheses balParen;
 	/** The transformation strategy. */
-	private final TransformationStrategy<? super T> transform;
+	protected final TransformationStrategy<? super T> transform;
 	/** The number of elements in this hollow trie. */
-	private long size;
+	protected long size;
 
 	private final static class Node {
 		Node right;
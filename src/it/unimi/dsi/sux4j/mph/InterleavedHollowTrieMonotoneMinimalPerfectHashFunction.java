@@ -0,0 +1,182 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.mph;
+
+import java.io.Serializable;
+import java.util.Iterator;
+
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.bits.TransformationStrategy;
+import it.unimi.dsi.fastutil.Size64;
+import it.unimi.dsi.fastutil.longs.LongBigList;
+import it.unimi.dsi.sux4j.bits.JacobsonBalancedParentheses;
+
+/**
+ * A hollow trie with an interleaved, pointer-based node layout.
+ *
+ * <p>
+ * A {@link HollowTrieMonotoneMinimalPerfectHashFunction} represents the shape of the trie using
+ * balanced parentheses, and the skips using an {@linkplain it.unimi.dsi.sux4j.util.EliasFanoLongBigList
+ * Elias&ndash;Fano list}: at each level of the traversal, a lookup accesses the skip list (which
+ * requires a selection, and thus several memory accesses) and, at each right turn, calls
+ * {@link JacobsonBalancedParentheses#findClose(long)}, which accesses several other structures. For
+ * deep tries (e.g., on URLs) this means dozens of cache misses per lookup.
+ *
+ * <p>
+ * This class stores instead, for each internal node in preorder, a fixed-width record containing
+ * the skip, a bit specifying whether the right child is internal, and the number of internal nodes
+ * in the left subtree plus one (which is at the same time the displacement in preorder of the right
+ * child and the increment of the index of the key when turning right). Left children are adjacent to
+ * their parent, and whether they are internal can be deduced from the displacement. Thus, each level
+ * of the traversal accesses a single record, and sequences of left turns access consecutive records,
+ * which usually share a cache line.
+ *
+ * <p>
+ * The price to pay is space: each node requires a number of bits logarithmic in the number of keys,
+ * whereas a {@link HollowTrieMonotoneMinimalPerfectHashFunction} needs about four bits per key plus
+ * the skips. An instance of this class can be built directly from a set of keys, or
+ * {@linkplain #InterleavedHollowTrieMonotoneMinimalPerfectHashFunction(HollowTrieMonotoneMinimalPerfectHashFunction)
+ * from an existing hollow trie}, which will compute the same function.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class InterleavedHollowTrieMonotoneMinimalPerfectHashFunction<T> extends AbstractHashFunction<T> implements Serializable, Size64 {
+	private static final long serialVersionUID = 0L;
+
+	/** The node records, in preorder. */
+	protected final LongArrayBitVector nodes;
+	/** The width of a skip. */
+	protected final int skipWidth;
+	/** The width of the displacement of the right child. */
+	protected final int displacementWidth;
+	/** The width of a record ({@link #skipWidth} + 1 + {@link #displacementWidth}). */
+	protected final int recordWidth;
+	/** The transformation strategy. */
+	protected final TransformationStrategy<? super T> transform;
+	/** The number of elements in this hollow trie. */
+	protected final long size;
+
+	/**
+	 * Creates a new interleaved hollow trie for the given elements.
+	 *
+	 * @param iterable the elements, which must be lexicographically sorted and prefix-free once
+	 *            transformed.
+	 * @param transform a transformation strategy for the elements.
+	 */
+	public InterleavedHollowTrieMonotoneMinimalPerfectHashFunction(final Iterable<? extends T> iterable, final TransformationStrategy<? super T> transform) {
+		this(iterable.iterator(), transform);
+	}
+
+	/**
+	 * Creates a new interleaved hollow trie for the given elements.
+	 *
+	 * @param iterator an iterator returning the elements, which must be lexicographically sorted and
+	 *            prefix-free once transformed.
+	 * @param transform a transformation strategy for the elements.
+	 */
+	public InterleavedHollowTrieMonotoneMinimalPerfectHashFunction(final Iterator<? extends T> iterator, final TransformationStrategy<? super T> transform) {
+		this(new HollowTrieMonotoneMinimalPerfectHashFunction<>(iterator, transform));
+	}
+
+	/**
+	 * Creates a new interleaved hollow trie computing the same function as a given hollow trie.
+	 *
+	 * @param hollowTrie a hollow trie.
+	 */
+	public InterleavedHollowTrieMonotoneMinimalPerfectHashFunction(final HollowTrieMonotoneMinimalPerfectHashFunction<T> hollowTrie) {
+		transform = hollowTrie.transform;
+		size = hollowTrie.size;
+		defRetValue = -1;
+
+		final LongArrayBitVector trie = hollowTrie.trie;
+		final JacobsonBalancedParentheses balParen = hollowTrie.balParen;
+		final LongBigList skips = hollowTrie.skips;
+
+		if (size <= 1) {
+			nodes = LongArrayBitVector.getInstance(0);
+			skipWidth = displacementWidth = recordWidth = 0;
+			return;
+		}
+
+		// The first bit of the trie is a fake open parenthesis; internal nodes are the other ones
+		final long numNodes = trie.length() / 2 - 1;
+		long maxSkip = 0;
+		for (long r = 0; r < numNodes; r++) maxSkip = Math.max(maxSkip, skips.getLong(r));
+		skipWidth = Fast.length(maxSkip);
+		displacementWidth = Fast.length(numNodes);
+		recordWidth = skipWidth + 1 + displacementWidth;
+
+		nodes = LongArrayBitVector.getInstance(numNodes * recordWidth);
+		long r = 0;
+		for (long p = trie.nextOne(1); p != -1 && r < numNodes; p = trie.nextOne(p + 1), r++) {
+			final long q = balParen.findClose(p) + 1;
+			nodes.append(skips.getLong(r), skipWidth);
+			nodes.add(trie.getBoolean(q));
+			nodes.append((q - p) >> 1, displacementWidth);
+		}
+
+		assert r == numNodes : r + " != " + numNodes;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public long getLong(final Object object) {
+		if (size <= 1) return size - 1;
+		final BitVector bitVector = transform.toBitVector((T)object).fast();
+		final LongArrayBitVector nodes = this.nodes;
+		final int skipWidth = this.skipWidth, recordWidth = this.recordWidth;
+		final long length = bitVector.length();
+		long index = 0;
+		long s = 0, r = 0;
+
+		for (;;) {
+			final long start = r * recordWidth;
+			if ((s += nodes.getLong(start, start + skipWidth)) >= length) return defRetValue;
+			final long displacement = nodes.getLong(start + skipWidth + 1, start + recordWidth);
+
+			if (bitVector.getBoolean(s)) {
+				r += displacement;
+				index += displacement;
+				if (!nodes.getBoolean(start + skipWidth)) return index;
+			}
+			else {
+				// The left child is a leaf iff the left subtree contains no internal node
+				if (displacement == 1) return index;
+				r++;
+			}
+
+			s++;
+		}
+	}
+
+	@Override
+	public long size64() {
+		return size;
+	}
+
+	public long numBits() {
+		return nodes.length() + transform.numBits();
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.mph;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.nio.channels.FileChannel;
+
+import it.unimi.dsi.bits.TransformationStrategy;
+import it.unimi.dsi.fastutil.Size64;
+import it.unimi.dsi.fastutil.objects.AbstractObject2LongFunction;
+import it.unimi.dsi.sux4j.io.BucketedHashStore;
+import it.unimi.dsi.sux4j.util.OffHeapLongArray;
+
+/**
+ * A {@link GOV3Function} memory-mapped from the file written by {@link GOV3Function#dump(String)}.
+ *
+ * <p>
+ * Loading a {@link GOV3Function} by deserialization requires reading the whole structure into the
+ * heap. An instance of this class, instead, {@linkplain FileChannel#map(FileChannel.MapMode, long, long)
+ * maps} the file in the native-order format used by the C code in the <code>c</code> directory,
+ * so opening a function takes constant time, data is loaded lazily by the operating system, and
+ * processes mapping the same file share the same pages through the page cache. An instance of
+ * this class is thread safe.
+ *
+ * <p>
+ * Since the dump format does not contain the transformation strategy, you must provide at
+ * {@linkplain #load(String, TransformationStrategy) load time} the same strategy used to build the
+ * function. The format contains neither signatures nor compaction data, so the function must
+ * have been built without {@linkplain GOV3Function.Builder#signed(int) signatures} and without
+ * {@linkplain GOV3Function.Builder#compacted() compaction}.
+ *
+ * <p>
+ * Instances of this class cannot be serialized.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class MappedGOV3Function<T> extends AbstractObject2LongFunction<T> implements Size64 {
+	private static final long serialVersionUID = 0L;
+	/** The number of longs in the header of the file (size, width, multiplier, global seed, and length of {@link #offsetAndSeed}). */
+	private static final int HEADER_SIZE = 5;
+	/**
+	 * The lowest 56 bits of each element of {@link #offsetAndSeed} contain the number of keys stored up
+	 * to the given bucket.
+	 */
+	private static final long OFFSET_MASK = -1L >>> 8;
+
+	/** The number of keys. */
+	protected final long n;
+	/** The data width. */
+	protected final int width;
+	/** The multiplier for buckets. */
+	private final long multiplier;
+	/** The seed used to generate the initial signature. */
+	protected final long globalSeed;
+	/** The mapped file. */
+	private final transient OffHeapLongArray array;
+	/** The position of the first element of the offset and seed array in {@link #array}. */
+	private final long offsetAndSeed;
+	/** The position of the first word of the data bit vector in {@link #array}. */
+	private final long data;
+	/** The transformation strategy to turn objects of type <code>T</code> into bit vectors. */
+	protected final TransformationStrategy<? super T> transform;
+
+	private MappedGOV3Function(final OffHeapLongArray array, final TransformationStrategy<? super T> transform) throws IOException {
+		this.array = array;
+		this.transform = transform;
+		defRetValue = -1;
+		if (array.length() < HEADER_SIZE) throw new IOException("File too short for a dumped function");
+		n = array.get(0);
+		width = (int)array.get(1);
+		multiplier = array.get(2);
+		globalSeed = array.get(3);
+		final long offsetAndSeedLength = array.get(4);
+		offsetAndSeed = HEADER_SIZE;
+		data = offsetAndSeed + offsetAndSeedLength + 1;
+		if (width < 0 || width > Long.SIZE || data > array.length() || data + array.get(data - 1) > array.length()) throw new IOException("Inconsistent dumped function");
+	}
+
+	/**
+	 * Maps a function dumped by {@link GOV3Function#dump(String)}.
+	 *
+	 * @param file the name of the file containing the dumped function.
+	 * @param transform the transformation strategy used to build the function.
+	 * @return the mapped function.
+	 */
+	public static <T> MappedGOV3Function<T> load(final String file, final TransformationStrategy<? super T> transform) throws IOException {
+		try (final FileInputStream fis = new FileInputStream(file); final FileChannel channel = fis.getChannel()) {
+			return new MappedGOV3Function<>(OffHeapLongArray.map(channel), transform);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public long getLong(final Object o) {
+		final long[] signature = new long[2];
+		Hashes.spooky4((T)o, transform, globalSeed, signature);
+		return getLongBySignature(signature);
+	}
+
+	/**
+	 * Low-level access to the output of this function.
+	 *
+	 * @param signature a signature generated as documented in {@link BucketedHashStore}.
+	 * @return the output of the function.
+	 * @see GOV3Function#getLongBySignature(long[])
+	 */
+	public long getLongBySignature(final long[] signature) {
+		final long[] hash = new long[3];
+		final int bucket = (int)Math.multiplyHigh(signature[0] >>> 1, multiplier);
+		final long offsetSeed = array.get(offsetAndSeed + bucket);
+		final long bucketOffset = offsetSeed & OFFSET_MASK;
+		final int numVariables = (int)((array.get(offsetAndSeed + bucket + 1) & OFFSET_MASK) - bucketOffset);
+		Hashes.spooky4(signature[0], signature[1], offsetSeed & ~OFFSET_MASK, hash);
+		final int shift = Long.numberOfLeadingZeros(numVariables);
+		final long mask = (1L << shift) - 1;
+		return getValue((((hash[0] & mask) * numVariables) >>> shift) + bucketOffset) ^ getValue((((hash[1] & mask) * numVariables) >>> shift) + bucketOffset) ^ getValue((((hash[2] & mask) * numVariables) >>> shift) + bucketOffset);
+	}
+
+	/**
+	 * Returns the {@link #width}-bit value at a given index of the data bit vector.
+	 *
+	 * @param index the index of a value.
+	 * @return the value at the given index.
+	 */
+	private long getValue(final long index) {
+		if (width == 0) return 0;
+		final long pos = index * width;
+		final int l = Long.SIZE - width;
+		final long word = data + (pos >>> 6);
+		final int startBit = (int)(pos & 63);
+		if (startBit <= l) return array.get(word) << l - startBit >>> l;
+		return array.get(word) >>> startBit | array.get(word + 1) << Long.SIZE + l - startBit >>> l;
+	}
+
+	/**
+	 * Returns the number of keys in the function domain.
+	 *
+	 * @return the number of the keys in the function domain.
+	 */
+	@Override
+	public long size64() {
+		return n;
+	}
+
+	@Override
+	@Deprecated
+	public int size() {
+		return n > Integer.MAX_VALUE ? -1 : (int)n;
+	}
+
+	@Override
+	public boolean containsKey(final Object o) {
+		return true;
+	}
+
+	private void writeObject(final ObjectOutputStream s) throws IOException {
+		throw new NotSerializableException(getClass().getName() + " is stored off heap: use load() instead");
+	}
+}
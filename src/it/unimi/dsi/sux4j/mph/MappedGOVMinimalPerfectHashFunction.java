@@ -0,0 +1,194 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.mph;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.nio.channels.FileChannel;
+
+import it.unimi.dsi.bits.TransformationStrategy;
+import it.unimi.dsi.sux4j.io.BucketedHashStore;
+import it.unimi.dsi.sux4j.util.OffHeapLongArray;
+
+/**
+ * A {@link GOVMinimalPerfectHashFunction} memory-mapped from the file written by
+ * {@link GOVMinimalPerfectHashFunction#dump(String)}.
+ *
+ * <p>
+ * This class is the analogous of {@link MappedGOV3Function} for minimal perfect hash functions:
+ * the file in the native-order format used by the C code in the <code>c</code> directory is
+ * {@linkplain FileChannel#map(FileChannel.MapMode, long, long) mapped} into memory, so opening a
+ * function takes constant time and the pages of the function are shared among processes. An
+ * instance of this class is thread safe.
+ *
+ * <p>
+ * You must provide at {@linkplain #load(String, TransformationStrategy) load time} the same
+ * transformation strategy used to build the function. Since the dump format does not contain
+ * signatures, keys not in the original set will be mapped to arbitrary values, even if the
+ * function was built with {@linkplain GOVMinimalPerfectHashFunction.Builder#signed(int)
+ * signatures}.
+ *
+ * <p>
+ * Instances of this class cannot be serialized.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class MappedGOVMinimalPerfectHashFunction<T> extends AbstractHashFunction<T> {
+	private static final long serialVersionUID = 0L;
+	/** The number of longs in the header of the file (size, multiplier, global seed, and length of {@link #edgeOffsetAndSeed}). */
+	private static final int HEADER_SIZE = 4;
+	/**
+	 * The lowest 56 bits of each element of {@link #edgeOffsetAndSeed} contain the number of keys
+	 * stored up to the given bucket.
+	 */
+	private static final long OFFSET_MASK = -1L >>> 8;
+
+	/** The number of keys. */
+	protected final long n;
+	/** The multiplier for buckets. */
+	private final long multiplier;
+	/** The seed used to generate the initial signature. */
+	protected final long globalSeed;
+	/** The mapped file. */
+	private final transient OffHeapLongArray array;
+	/** The position of the first element of the edge offset and seed array in {@link #array}. */
+	private final long edgeOffsetAndSeed;
+	/** The position of the first word of the array of 2-bit values in {@link #array}. */
+	private final long values;
+	/** The transformation strategy. */
+	protected final TransformationStrategy<? super T> transform;
+
+	private MappedGOVMinimalPerfectHashFunction(final OffHeapLongArray array, final TransformationStrategy<? super T> transform) throws IOException {
+		this.array = array;
+		this.transform = transform;
+		defRetValue = -1; // For the very few cases in which we can decide
+		if (array.length() < HEADER_SIZE) throw new IOException("File too short for a dumped function");
+		n = array.get(0);
+		multiplier = array.get(1);
+		globalSeed = array.get(2);
+		final long edgeOffsetAndSeedLength = array.get(3);
+		edgeOffsetAndSeed = HEADER_SIZE;
+		values = edgeOffsetAndSeed + edgeOffsetAndSeedLength + 1;
+		if (values > array.length() || values + array.get(values - 1) > array.length()) throw new IOException("Inconsistent dumped function");
+	}
+
+	/**
+	 * Maps a minimal perfect hash function dumped by {@link GOVMinimalPerfectHashFunction#dump(String)}.
+	 *
+	 * @param file the name of the file containing the dumped function.
+	 * @param transform the transformation strategy used to build the function.
+	 * @return the mapped function.
+	 */
+	public static <T> MappedGOVMinimalPerfectHashFunction<T> load(final String file, final TransformationStrategy<? super T> transform) throws IOException {
+		try (final FileInputStream fis = new FileInputStream(file); final FileChannel channel = fis.getChannel()) {
+			return new MappedGOVMinimalPerfectHashFunction<>(OffHeapLongArray.map(channel), transform);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public long getLong(final Object key) {
+		final long[] signature = new long[2];
+		Hashes.spooky4((T)key, transform, globalSeed, signature);
+		return getLongBySignature(signature);
+	}
+
+	/**
+	 * Low-level access to the output of this minimal perfect hash function.
+	 *
+	 * @param signature a signature generated as documented in {@link BucketedHashStore}.
+	 * @return the output of the function.
+	 * @see GOVMinimalPerfectHashFunction#getLongBySignature(long[])
+	 */
+	public long getLongBySignature(final long[] signature) {
+		final long[] hash = new long[3];
+		final int bucket = (int)Math.multiplyHigh(signature[0] >>> 1, multiplier);
+		final long edgeOffsetSeed = array.get(edgeOffsetAndSeed + bucket);
+		final long bucketOffset = GOVMinimalPerfectHashFunction.vertexOffset(edgeOffsetSeed);
+		final int numVariables = (int)(GOVMinimalPerfectHashFunction.vertexOffset(array.get(edgeOffsetAndSeed + bucket + 1)) - bucketOffset);
+		Hashes.spooky4(signature[0], signature[1], edgeOffsetSeed & ~OFFSET_MASK, hash);
+		final int shift = Long.numberOfLeadingZeros(numVariables);
+		final long mask = (1L << shift) - 1;
+		final long e0 = (((hash[0] & mask) * numVariables) >>> shift) + bucketOffset;
+		final long e1 = (((hash[1] & mask) * numVariables) >>> shift) + bucketOffset;
+		final long e2 = (((hash[2] & mask) * numVariables) >>> shift) + bucketOffset;
+		final long e;
+		switch ((int)((getValue(e0) + getValue(e1) + getValue(e2)) % 3)) {
+		case 0:
+			e = e0;
+			break;
+		case 1:
+			e = e1;
+			break;
+		default:
+			e = e2;
+		}
+		final long result = (edgeOffsetSeed & OFFSET_MASK) + countNonzeroPairs(bucketOffset, e);
+		return result < n ? result : defRetValue;
+	}
+
+	/**
+	 * Returns the 2-bit value at a given index.
+	 *
+	 * @param index the index of a value.
+	 * @return the value at the given index.
+	 */
+	private long getValue(final long index) {
+		return array.get(values + (index >>> 5)) >>> ((index & 31) << 1) & 3;
+	}
+
+	/**
+	 * Counts the number of nonzero 2-bit values between two positions.
+	 *
+	 * @param start start position (inclusive).
+	 * @param end end position (exclusive).
+	 * @return the number of nonzero 2-bit values between {@code start} and {@code end}.
+	 * @see GOVMinimalPerfectHashFunction#countNonzeroPairs(long)
+	 */
+	private long countNonzeroPairs(final long start, final long end) {
+		long block = start >>> 5;
+		final long endBlock = end >>> 5;
+		final int startOffset = (int)(start & 31);
+		final int endOffset = (int)(end & 31);
+
+		if (block == endBlock) return GOVMinimalPerfectHashFunction.countNonzeroPairs((array.get(values + block) & (1L << (endOffset << 1)) - 1) >>> (startOffset << 1));
+
+		long pairs = 0;
+		if (startOffset != 0) pairs += GOVMinimalPerfectHashFunction.countNonzeroPairs(array.get(values + block++) >>> (startOffset << 1));
+		while (block < endBlock) pairs += GOVMinimalPerfectHashFunction.countNonzeroPairs(array.get(values + block++));
+		if (endOffset != 0) pairs += GOVMinimalPerfectHashFunction.countNonzeroPairs(array.get(values + block) & (1L << (endOffset << 1)) - 1);
+
+		return pairs;
+	}
+
+	@Override
+	public long size64() {
+		return n;
+	}
+
+	private void writeObject(final ObjectOutputStream s) throws IOException {
+		throw new NotSerializableException(getClass().getName() + " is stored off heap: use load() instead");
+	}
+}
@@ -0,0 +1,307 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.mph;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import it.unimi.dsi.Util;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.logging.ProgressLogger;
+import it.unimi.dsi.sux4j.io.BucketedHashStore;
+import it.unimi.dsi.sux4j.io.BucketedHashStore.Bucket;
+import it.unimi.dsi.sux4j.io.BucketedHashStore.DuplicateException;
+import it.unimi.dsi.util.concurrent.ReorderingBlockingQueue;
+
+/**
+ * A parallel engine solving the buckets of a {@link BucketedHashStore}, shared by the builders of
+ * {@link GOV3Function}, {@link GOV4Function}, {@link GV3CompressedFunction},
+ * {@link GV4CompressedFunction} and {@link GOVMinimalPerfectHashFunction}.
+ *
+ * <p>
+ * A producer thread enumerates the buckets, computes their number of variables using a
+ * {@link Sizer} and writes the resulting offsets in the lower bits of an array of offsets and
+ * seeds. A pool of solver threads solves the system associated with each bucket using a
+ * {@link Solver}. Finally, a consumer thread receives solutions in bucket order, or's the seeds
+ * into the array of offsets and seeds, and passes the data to a {@link Sink}. No locks are
+ * necessary: the offset of a bucket is written by the producer before the bucket is enqueued, its
+ * seed is written by the consumer after the solution has been dequeued, and workers receive
+ * offsets together with buckets, so all accesses are ordered by the queues.
+ *
+ * <p>
+ * The amount of memory used by buckets and solutions in flight is bounded by a budget: the
+ * producer will not enqueue a new bucket until enough solutions have been consumed. At the end of
+ * a run, the throughput of each stage is logged.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+final class ParallelBucketSolver {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParallelBucketSolver.class);
+	/** The granularity of the memory budget, in bytes. */
+	private static final int LOG2_PERMIT_SIZE = 10;
+
+	/** Computes the number of variables of the system associated with a bucket. */
+	@FunctionalInterface
+	interface Sizer {
+		/**
+		 * Returns the number of variables of the system associated with a bucket.
+		 *
+		 * @param bucket a bucket.
+		 * @return the number of variables of the system associated with {@code bucket}.
+		 */
+		long numVariables(Bucket bucket);
+	}
+
+	/** Solves the system associated with a bucket. */
+	@FunctionalInterface
+	interface Solver {
+		/**
+		 * Solves the system associated with a bucket.
+		 *
+		 * @param bucket a bucket.
+		 * @param offset the sum of the number of variables of the preceding buckets.
+		 * @param numVariables the number of variables of {@code bucket}, as returned by the
+		 *            {@link Sizer}.
+		 * @param data an empty bit vector that must be filled with the data to be stored for
+		 *            {@code bucket}.
+		 * @return the local seed of {@code bucket}, which will be or'd into its offset.
+		 */
+		long solve(Bucket bucket, long offset, int numVariables, LongArrayBitVector data);
+	}
+
+	/** Receives the data of each bucket, in bucket order. */
+	@FunctionalInterface
+	interface Sink {
+		/**
+		 * Receives the data of the next bucket.
+		 *
+		 * @param data the data stored by the {@link Solver} for the next bucket.
+		 */
+		void accept(LongArrayBitVector data) throws IOException;
+	}
+
+	/** A bucket to be solved, with its offset and number of variables. */
+	private static final class Task {
+		private final Bucket bucket;
+		private final int index;
+		private final long offset;
+		private final int numVariables;
+		private final int permits;
+
+		private Task(final Bucket bucket, final int index, final long offset, final int numVariables, final int permits) {
+			this.bucket = bucket;
+			this.index = index;
+			this.offset = offset;
+			this.numVariables = numVariables;
+			this.permits = permits;
+		}
+	}
+
+	/** The solution of a bucket. */
+	private static final class Solution {
+		private final long seed;
+		private final LongArrayBitVector data;
+		private final int permits;
+
+		private Solution(final long seed, final LongArrayBitVector data, final int permits) {
+			this.seed = seed;
+			this.data = data;
+			this.permits = permits;
+		}
+	}
+
+	private static final Task END_OF_TASKS = new Task(null, 0, 0, 0, 0);
+	private static final Solution END_OF_SOLUTIONS = new Solution(0, null, 0);
+
+	/** The number of solver threads. */
+	private final int numberOfThreads;
+	/** The memory budget, in permits. */
+	private final int budget;
+	/** A mask extracting offsets from the array of offsets and seeds. */
+	private final long offsetMask;
+
+	/**
+	 * Creates a new parallel bucket solver.
+	 *
+	 * @param numberOfThreads the number of solver threads.
+	 * @param memoryBudget an approximate bound on the number of bytes used by buckets and solutions
+	 *            in flight.
+	 * @param offsetMask a mask extracting offsets from the array of offsets and seeds.
+	 */
+	public ParallelBucketSolver(final int numberOfThreads, final long memoryBudget, final long offsetMask) {
+		if (numberOfThreads <= 0) throw new IllegalArgumentException("The number of threads must be positive: " + numberOfThreads);
+		if (memoryBudget <= 0) throw new IllegalArgumentException("The memory budget must be positive: " + memoryBudget);
+		this.numberOfThreads = numberOfThreads;
+		this.budget = (int)Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget >>> LOG2_PERMIT_SIZE));
+		this.offsetMask = offsetMask;
+	}
+
+	/**
+	 * Creates a new parallel bucket solver using the number of threads and the memory budget
+	 * specified by the given system properties.
+	 *
+	 * <p>
+	 * By default, the number of threads is {@link Runtime#availableProcessors()}, and the memory
+	 * budget is a quarter of {@link Runtime#maxMemory()}.
+	 *
+	 * @param numberOfThreadsProperty the system property specifying the number of threads.
+	 * @param memoryBudgetProperty the system property specifying the memory budget in bytes.
+	 * @param offsetMask a mask extracting offsets from the array of offsets and seeds.
+	 */
+	public static ParallelBucketSolver fromProperties(final String numberOfThreadsProperty, final String memoryBudgetProperty, final long offsetMask) {
+		final String numberOfThreads = System.getProperty(numberOfThreadsProperty);
+		final String memoryBudget = System.getProperty(memoryBudgetProperty);
+		return new ParallelBucketSolver(numberOfThreads == null ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(numberOfThreads), memoryBudget == null ? Runtime.getRuntime().maxMemory() / 4 : Long.parseLong(memoryBudget), offsetMask);
+	}
+
+	/** Returns the number of permits accounting for a bucket and its solution. */
+	private int permits(final Bucket bucket, final long numVariables) {
+		// Signatures and data of the bucket, plus the solution of the solver and its copy.
+		final long bytes = bucket.size() * 3L * Long.BYTES + numVariables * 2 * Long.BYTES;
+		return (int)Math.max(1, Math.min(budget, bytes >>> LOG2_PERMIT_SIZE));
+	}
+
+	/**
+	 * Solves the buckets returned by an iterator.
+	 *
+	 * @param buckets an iterator over consecutive buckets of a {@link BucketedHashStore}; the
+	 *            buckets will be copied, so the iterator may reuse them.
+	 * @param numBuckets the number of buckets returned by {@code buckets}.
+	 * @param offsetAndSeed an array of {@code numBuckets + 1} zeroes that will be filled with the
+	 *            offset of each bucket (relative to the first one) or'd with its seed; the last
+	 *            element will contain the overall number of variables.
+	 * @param sizer the strategy computing the number of variables of each bucket.
+	 * @param solver the strategy solving each bucket; it will be called concurrently.
+	 * @param sink the strategy receiving the data of each bucket, in bucket order.
+	 * @param pl a progress logger that will be updated once per bucket, or {@code null}.
+	 * @throws DuplicateException if a bucket contains duplicate signatures.
+	 */
+	public void solve(final Iterator<Bucket> buckets, final int numBuckets, final long[] offsetAndSeed, final Sizer sizer, final Solver solver, final Sink sink, final ProgressLogger pl) throws IOException {
+		final ArrayBlockingQueue<Task> taskQueue = new ArrayBlockingQueue<>(numberOfThreads * 8);
+		final ReorderingBlockingQueue<Solution> solutionQueue = new ReorderingBlockingQueue<>(numberOfThreads * 128);
+		final Semaphore memory = new Semaphore(budget);
+		final ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads + 2);
+		final ExecutorCompletionService<Void> executorCompletionService = new ExecutorCompletionService<>(executorService);
+		final AtomicLong solvingTime = new AtomicLong(), producerTime = new AtomicLong(), consumerTime = new AtomicLong();
+		final long start = System.nanoTime();
+
+		executorCompletionService.submit(() -> {
+			long time = 0;
+			for (int i = 0;; i++) {
+				final Solution solution = solutionQueue.take();
+				if (solution == END_OF_SOLUTIONS) break;
+				final long t = System.nanoTime();
+				offsetAndSeed[i] |= solution.seed;
+				sink.accept(solution.data);
+				time += System.nanoTime() - t;
+				memory.release(solution.permits);
+				if (pl != null) pl.update();
+			}
+			consumerTime.set(time);
+			return null;
+		});
+
+		executorCompletionService.submit(() -> {
+			long time = 0, t = System.nanoTime(), first = 0;
+			try {
+				for (int i = 0; buckets.hasNext(); i++) {
+					final Bucket bucket = new Bucket(buckets.next());
+					if (i == 0) first = bucket.index();
+					assert bucket.index() == first + i;
+					final long numVariables = sizer.numVariables(bucket);
+					assert numVariables <= Integer.MAX_VALUE;
+					offsetAndSeed[i + 1] = offsetAndSeed[i] + numVariables;
+					assert offsetAndSeed[i + 1] <= offsetMask + 1;
+					final int permits = permits(bucket, numVariables);
+					time += System.nanoTime() - t;
+					memory.acquire(permits);
+					taskQueue.put(new Task(bucket, i, offsetAndSeed[i], (int)numVariables, permits));
+					t = System.nanoTime();
+				}
+			} finally {
+				for (int i = numberOfThreads; i-- != 0;) taskQueue.put(END_OF_TASKS);
+			}
+			producerTime.set(time);
+			return null;
+		});
+
+		final AtomicInteger activeThreads = new AtomicInteger(numberOfThreads);
+		for (int i = numberOfThreads; i-- != 0;) executorCompletionService.submit(() -> {
+			Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+			long taskTime = 0, solutionTime = 0, outputTime = 0;
+			for (;;) {
+				long t = System.nanoTime();
+				final Task task = taskQueue.take();
+				taskTime += System.nanoTime() - t;
+				if (task == END_OF_TASKS) {
+					if (activeThreads.decrementAndGet() == 0) solutionQueue.put(END_OF_SOLUTIONS, numBuckets);
+					solvingTime.addAndGet(solutionTime);
+					LOGGER.debug("Queue waiting time: " + Util.format(taskTime / 1E9) + "s");
+					LOGGER.debug("Output waiting time: " + Util.format(outputTime / 1E9) + "s");
+					return null;
+				}
+				t = System.nanoTime();
+				final LongArrayBitVector data = LongArrayBitVector.getInstance();
+				final long seed = solver.solve(task.bucket, task.offset, task.numVariables, data);
+				assert (seed & offsetMask) == 0;
+				solutionTime += System.nanoTime() - t;
+
+				t = System.nanoTime();
+				solutionQueue.put(new Solution(seed, data, task.permits), task.index);
+				outputTime += System.nanoTime() - t;
+			}
+		});
+
+		boolean completed = false;
+		try {
+			for (int i = numberOfThreads + 2; i-- != 0;) executorCompletionService.take().get();
+			completed = true;
+		} catch (final InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof DuplicateException) throw (DuplicateException)cause;
+			if (cause instanceof IOException) throw (IOException)cause;
+			throw new RuntimeException(cause);
+		} finally {
+			// On failure, some threads might be waiting on a queue forever
+			if (completed) executorService.shutdown();
+			else executorService.shutdownNow();
+		}
+
+		final double elapsed = (System.nanoTime() - start) / 1E9;
+		LOGGER.info("Solved " + numBuckets + " buckets with " + numberOfThreads + " threads in " + Util.format(elapsed) + "s (" + Util.format(numBuckets / elapsed) + " buckets/s)");
+		LOGGER.info("Bucket enumeration: " + Util.format(numBuckets / (producerTime.get() / 1E9)) + " buckets/s; solving: " + Util.format(numBuckets / (solvingTime.get() / 1E9)) + " buckets/s per thread; output: " + Util.format(numBuckets / (consumerTime.get() / 1E9)) + " buckets/s");
+	}
+}
@@ -0,0 +1,410 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.mph;
+
+import static it.unimi.dsi.bits.LongArrayBitVector.bits;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.Switch;
+import com.martiansoftware.jsap.UnflaggedOption;
+import com.martiansoftware.jsap.stringparsers.FileStringParser;
+import com.martiansoftware.jsap.stringparsers.ForNameStringParser;
+
+import it.unimi.dsi.Util;
+import it.unimi.dsi.big.io.FileLinesByteArrayCollection;
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.bits.LongBigArrayBitVector;
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.bits.TransformationStrategy;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream;
+import it.unimi.dsi.fastutil.io.FastBufferedOutputStream;
+import it.unimi.dsi.fastutil.longs.LongBigList;
+import it.unimi.dsi.fastutil.longs.LongIterable;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.io.FileLinesCollection;
+import it.unimi.dsi.logging.ProgressLogger;
+import it.unimi.dsi.sux4j.io.BucketedHashStore;
+import it.unimi.dsi.sux4j.io.BucketedHashStore.DuplicateException;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
+
+/**
+ * Sharded construction of a {@link GOV3Function} by several processes.
+ *
+ * <p>
+ * The buckets of a {@link GOV3Function} with <var>n</var> keys depend only on <var>n</var> and
+ * on the seed used to generate signatures, and the system associated with each bucket can be
+ * solved independently. Thus, it is possible to partition the buckets into <var>k</var>
+ * contiguous ranges, or <em>shards</em>, and have <var>k</var> processes {@linkplain #buildShard
+ * build} each a shard: every process scans all keys, but keeps in its {@link BucketedHashStore}
+ * (and thus on disk) only the signatures falling into its shard, and writes its offsets, seeds and
+ * solutions to a shard file. Finally, the shard files are {@linkplain #merge merged} into a
+ * standard {@link GOV3Function}, identical to the one that would be built by a single process with
+ * the same seed.
+ *
+ * <p>
+ * The {@linkplain #main(String[]) command-line interface} runs, by default, all shards in parallel
+ * as separate JVMs on the local machine, communicating through files. Using the option
+ * {@code --shard} a single shard will be built, so shards can also be built by processes started
+ * independently (e.g., on different machines sharing a filesystem) and then merged with the
+ * option {@code --merge}.
+ *
+ * <p>
+ * Sharded functions map keys to their ordinal position or to given values; they cannot be
+ * signed or compacted.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class ShardedGOV3Function {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ShardedGOV3Function.class);
+	/** The magic number at the start of a shard file. */
+	private static final long MAGIC = 0x53474F5633534844L;
+	/** The exit status of a worker process that found a duplicate signature. */
+	public static final int DUPLICATE_EXIT_STATUS = 2;
+
+	private ShardedGOV3Function() {}
+
+	/**
+	 * Returns the number of buckets of a {@link GOV3Function} with a given number of keys.
+	 *
+	 * @param n a number of keys.
+	 * @return the number of buckets of a {@link GOV3Function} with {@code n} keys.
+	 */
+	private static long numBuckets(final long n) {
+		return n / GOV3Function.BUCKET_SIZE + 1;
+	}
+
+	/**
+	 * Returns the first bucket of a shard.
+	 *
+	 * @param n the number of keys.
+	 * @param shard a shard.
+	 * @param numShards the number of shards.
+	 * @return the first bucket of {@code shard}.
+	 */
+	private static long firstBucket(final long n, final int shard, final int numShards) {
+		return numBuckets(n) * shard / numShards;
+	}
+
+	/**
+	 * Builds a shard of a {@link GOV3Function}.
+	 *
+	 * @param keys the keys in the domain of the function.
+	 * @param transform a transformation strategy for the keys.
+	 * @param values values to be assigned to each element, in the same order of the iterator returned
+	 *            by {@code keys}; if {@code null}, the assigned value will the ordinal number of each
+	 *            element.
+	 * @param dataWidth the bit width of the {@code values}, or -1 if {@code values} is {@code null}.
+	 * @param n the number of keys.
+	 * @param seed the seed used to generate signatures; all shards must use the same seed.
+	 * @param shard the shard to be built.
+	 * @param numShards the number of shards.
+	 * @param shardFile the file where the shard will be written.
+	 * @param tempDir a temporary directory for the store files, or {@code null} for the standard
+	 *            temporary directory.
+	 * @throws DuplicateException if there are duplicate signatures in the shard; the shards must be
+	 *             rebuilt using a different seed.
+	 */
+	public static <T> void buildShard(final Iterable<? extends T> keys, final TransformationStrategy<? super T> transform, final LongIterable values, final int dataWidth, final long n, final long seed, final int shard, final int numShards, final File shardFile, final File tempDir) throws IOException {
+		if (numShards <= 0 || shard < 0 || shard >= numShards) throw new IllegalArgumentException("Illegal shard " + shard + " of " + numShards);
+		if (values == null && dataWidth != -1) throw new IllegalArgumentException("You cannot specify a data width but no values");
+		if (values != null && dataWidth == -1) throw new IllegalArgumentException("You cannot specify values but no data width");
+		final int width = dataWidth == -1 ? Math.max(0, Fast.ceilLog2(n)) : dataWidth;
+		final long from = firstBucket(n, shard, numShards), to = firstBucket(n, shard + 1, numShards);
+
+		final ProgressLogger pl = new ProgressLogger(LOGGER);
+		pl.displayLocalSpeed = true;
+		pl.displayFreeMemory = true;
+		pl.itemsName = "keys";
+		pl.expectedUpdates = n;
+
+		final BucketedHashStore<T> bucketedHashStore = new BucketedHashStore<>(transform, tempDir, null);
+		try {
+			bucketedHashStore.reset(seed);
+			bucketedHashStore.bucketSize(GOV3Function.BUCKET_SIZE);
+			pl.start("Scanning keys for buckets [" + from + ".." + to + ")...");
+			final long[] signature = new long[2];
+			final LongIterator valueIterator = values == null ? null : values.iterator();
+			long c = 0;
+			for (final T key : keys) {
+				final long value = valueIterator == null ? c : valueIterator.nextLong();
+				c++;
+				Hashes.spooky4(key, transform, seed, signature);
+				final long bucket = BucketedHashStore.bucket(signature, n, GOV3Function.BUCKET_SIZE);
+				if (bucket >= from && bucket < to) bucketedHashStore.add(signature, value);
+				pl.lightUpdate();
+			}
+			pl.done();
+			if (c != n) throw new IllegalArgumentException("The number of keys (" + c + ") is different from the specified number of keys (" + n + ")");
+
+			final int numBuckets = (int)(to - from);
+			final long[] offsetAndSeed = new long[numBuckets + 1];
+			final LongBigArrayBitVector data = LongBigArrayBitVector.getInstance();
+			final AtomicLong unsolvable = new AtomicLong();
+			pl.itemsName = "buckets";
+			pl.expectedUpdates = numBuckets;
+			pl.start("Analysing buckets... ");
+			final ParallelBucketSolver bucketSolver = ParallelBucketSolver.fromProperties(GOV3Function.NUMBER_OF_THREADS_PROPERTY, GOV3Function.MEMORY_BUDGET_PROPERTY, GOV3Function.OFFSET_MASK);
+			bucketSolver.solve(bucketedHashStore.iterator(n, from, to), numBuckets, offsetAndSeed, GOV3Function::numVariables, (bucket, offset, numVariables, d) -> GOV3Function.solve(bucket, numVariables, bucket.valueList(null), width, d, unsolvable), data::append, pl);
+			pl.done();
+			LOGGER.info("Unsolvable systems: " + unsolvable.get() + "/" + (unsolvable.get() + numBuckets) + " (" + Util.format(100.0 * unsolvable.get() / (unsolvable.get() + numBuckets)) + "%)");
+
+			final DataOutputStream dos = new DataOutputStream(new FastBufferedOutputStream(new FileOutputStream(shardFile)));
+			dos.writeLong(MAGIC);
+			dos.writeLong(n);
+			dos.writeLong(seed);
+			dos.writeInt(width);
+			dos.writeInt(shard);
+			dos.writeInt(numShards);
+			for (final long l : offsetAndSeed) dos.writeLong(l);
+			final long length = data.length();
+			dos.writeLong(length);
+			for (long i = 0; i < length; i += Long.SIZE) dos.writeLong(data.getLong(i, Math.min(length, i + Long.SIZE)));
+			dos.close();
+		} finally {
+			bucketedHashStore.close();
+		}
+	}
+
+	/** The header and the offsets of a shard file. */
+	private static final class ShardHeader {
+		private final long n;
+		private final long seed;
+		private final int width;
+		private final int shard;
+		private final int numShards;
+		private final long[] offsetAndSeed;
+		private final long length;
+
+		/** Reads the header and the offsets of a shard file, leaving the stream at the start of the data. */
+		private ShardHeader(final DataInputStream dis, final File file) throws IOException {
+			if (dis.readLong() != MAGIC) throw new IOException("File " + file + " is not a shard file");
+			n = dis.readLong();
+			seed = dis.readLong();
+			width = dis.readInt();
+			shard = dis.readInt();
+			numShards = dis.readInt();
+			offsetAndSeed = new long[(int)(firstBucket(n, shard + 1, numShards) - firstBucket(n, shard, numShards) + 1)];
+			for (int i = 0; i < offsetAndSeed.length; i++) offsetAndSeed[i] = dis.readLong();
+			length = dis.readLong();
+		}
+	}
+
+	/**
+	 * Merges shard files into a {@link GOV3Function}.
+	 *
+	 * @param transform a transformation strategy for the keys, the same used to build the shards.
+	 * @param shardFile the shard files, in shard order.
+	 * @return a {@link GOV3Function} combining the given shards.
+	 */
+	public static <T> GOV3Function<T> merge(final TransformationStrategy<? super T> transform, final File... shardFile) throws IOException {
+		if (shardFile.length == 0) throw new IllegalArgumentException("No shard files");
+		final ShardHeader[] header = new ShardHeader[shardFile.length];
+		for (int i = 0; i < shardFile.length; i++) {
+			final DataInputStream dis = new DataInputStream(new FastBufferedInputStream(new FileInputStream(shardFile[i])));
+			header[i] = new ShardHeader(dis, shardFile[i]);
+			dis.close();
+			if (header[i].shard != i || header[i].numShards != shardFile.length) throw new IllegalArgumentException("File " + shardFile[i] + " contains shard " + header[i].shard + " of " + header[i].numShards + ", but it was provided as shard " + i + " of " + shardFile.length);
+			if (header[i].n != header[0].n || header[i].seed != header[0].seed || header[i].width != header[0].width) throw new IllegalArgumentException("File " + shardFile[i] + " is not compatible with file " + shardFile[0]);
+		}
+
+		final long n = header[0].n;
+		final int width = header[0].width;
+		final long[] offsetAndSeed = new long[(int)numBuckets(n) + 1];
+		long m = 0;
+		for (final ShardHeader h : header) {
+			final int from = (int)firstBucket(n, h.shard, h.numShards);
+			final int numBuckets = h.offsetAndSeed.length - 1;
+			for (int i = 0; i < numBuckets; i++) offsetAndSeed[from + i] = h.offsetAndSeed[i] + m;
+			final long shardVariables = h.offsetAndSeed[numBuckets];
+			if (h.length != shardVariables * width) throw new IOException("Shard " + h.shard + " contains " + h.length + " bits of data, but " + shardVariables * width + " were expected");
+			m += shardVariables;
+		}
+		offsetAndSeed[offsetAndSeed.length - 1] = m;
+		if (m > GOV3Function.OFFSET_MASK + 1) throw new IllegalArgumentException("Too many variables: " + m);
+
+		final BitVector dataBitVector = (m + 1) * width < bits(it.unimi.dsi.fastutil.Arrays.MAX_ARRAY_SIZE) ? LongArrayBitVector.getInstance((m + 1) * width) : LongBigArrayBitVector.getInstance((m + 1) * width);
+		for (int i = 0; i < shardFile.length; i++) {
+			final DataInputStream dis = new DataInputStream(new FastBufferedInputStream(new FileInputStream(shardFile[i])));
+			final long length = new ShardHeader(dis, shardFile[i]).length;
+			for (long j = 0; j < length; j += Long.SIZE) dataBitVector.append(dis.readLong(), (int)Math.min(Long.SIZE, length - j));
+			dis.close();
+		}
+
+		final LongBigList data = dataBitVector.asLongBigList(width);
+		data.add(0);
+		return new GOV3Function<>(transform, n, width, header[0].seed, offsetAndSeed, data);
+	}
+
+	/**
+	 * Returns the name of a shard file.
+	 *
+	 * @param basename the basename of the shard files.
+	 * @param shard a shard.
+	 * @return the name of the file containing {@code shard}.
+	 */
+	public static File shardFile(final String basename, final int shard) {
+		return new File(basename + "." + shard + ".shard");
+	}
+
+	public static void main(final String[] arg) throws NoSuchMethodException, IOException, JSAPException, InterruptedException {
+
+		final SimpleJSAP jsap = new SimpleJSAP(ShardedGOV3Function.class.getName(), "Builds a GOV function mapping a newline-separated list of strings to their ordinal position, or to specific values, using several processes, each building a shard of the function. By default, all shards are built in parallel on the local machine by separate JVMs and then merged; shards can also be built and merged separately.", new Parameter[] {
+				new FlaggedOption("encoding", ForNameStringParser.getParser(Charset.class), "UTF-8", JSAP.NOT_REQUIRED, 'e', "encoding", "The string file encoding."),
+				new FlaggedOption("tempDir", FileStringParser.getParser(), JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, 'T', "temp-dir", "A directory for temporary files."),
+				new Switch("byteArray", 'b', "byte-array", "Create a function on byte arrays (no character encoding)."),
+				new Switch("zipped", 'z', "zipped", "The string list is compressed in gzip format."),
+				new FlaggedOption("values", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, 'v', "values", "A binary file in DataInput format containing a long for each string (otherwise, the values will be the ordinal positions of the strings)."),
+				new FlaggedOption("shards", JSAP.INTEGER_PARSER, Integer.toString(Runtime.getRuntime().availableProcessors()), JSAP.NOT_REQUIRED, 'k', "shards", "The number of shards."),
+				new FlaggedOption("shard", JSAP.INTEGER_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, JSAP.NO_SHORTFLAG, "shard", "Build just the specified shard (requires --seed and --size)."),
+				new FlaggedOption("seed", JSAP.LONG_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, JSAP.NO_SHORTFLAG, "seed", "The seed used to generate signatures."),
+				new FlaggedOption("size", JSAP.LONG_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, JSAP.NO_SHORTFLAG, "size", "The number of strings."),
+				new Switch("merge", JSAP.NO_SHORTFLAG, "merge", "Just merge existing shard files."),
+				new UnflaggedOption("function", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The filename for the serialised GOV function; shard files will be named by appending to this filename a dot, the shard number and the extension .shard."),
+				new UnflaggedOption("stringFile", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, JSAP.NOT_GREEDY, "The name of a file containing a newline-separated list of strings."), });
+
+		final JSAPResult jsapResult = jsap.parse(arg);
+		if (jsap.messagePrinted()) return;
+
+		final String functionName = jsapResult.getString("function");
+		final String stringFile = jsapResult.getString("stringFile");
+		final Charset encoding = (Charset)jsapResult.getObject("encoding");
+		final File tempDir = jsapResult.getFile("tempDir");
+		final boolean byteArray = jsapResult.getBoolean("byteArray");
+		final boolean zipped = jsapResult.getBoolean("zipped");
+		final int numShards = jsapResult.getInt("shards");
+
+		@SuppressWarnings("unchecked")
+		final TransformationStrategy<Object> transform = (TransformationStrategy<Object>)(byteArray ? TransformationStrategies.rawByteArray() : TransformationStrategies.rawUtf16());
+
+		final File[] shardFile = new File[numShards];
+		for (int i = 0; i < numShards; i++) shardFile[i] = shardFile(functionName, i);
+
+		if (jsapResult.getBoolean("merge")) {
+			BinIO.storeObject(merge(transform, shardFile), functionName);
+			LOGGER.info("Completed.");
+			return;
+		}
+
+		if (stringFile == null) throw new IllegalArgumentException("You must specify a string file");
+		if (byteArray && jsapResult.userSpecified("encoding")) throw new IllegalArgumentException("Encoding options are not available when building byte-array functions");
+		final Iterable<?> keys = byteArray ? new FileLinesByteArrayCollection(stringFile, zipped) : new FileLinesCollection(stringFile, encoding.toString(), zipped);
+		final LongIterable values = jsapResult.userSpecified("values") ? BinIO.asLongIterable(jsapResult.getString("values")) : null;
+		int dataWidth = -1;
+		if (values != null) for (final LongIterator iterator = values.iterator(); iterator.hasNext();) dataWidth = Math.max(dataWidth, Fast.length(iterator.nextLong()));
+
+		if (jsapResult.userSpecified("shard")) {
+			if (!jsapResult.userSpecified("seed") || !jsapResult.userSpecified("size")) throw new IllegalArgumentException("You must specify the seed and the number of strings when building a single shard");
+			final int shard = jsapResult.getInt("shard");
+			try {
+				buildShard(keys, transform, values, dataWidth, jsapResult.getLong("size"), jsapResult.getLong("seed"), shard, numShards, shardFile[shard], tempDir);
+			} catch (final DuplicateException e) {
+				LOGGER.error("Duplicate signatures found in shard " + shard);
+				System.exit(DUPLICATE_EXIT_STATUS);
+			}
+			return;
+		}
+
+		long n = 0;
+		for (final Iterator<?> iterator = keys.iterator(); iterator.hasNext(); iterator.next()) n++;
+		LOGGER.info("Building " + numShards + " shards for " + n + " keys...");
+
+		// Each worker gets the options of this JVM, and a fair share of the available processors
+		final List<String> command = new ArrayList<>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").toString());
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		if (System.getProperty(GOV3Function.NUMBER_OF_THREADS_PROPERTY) == null) command.add("-D" + GOV3Function.NUMBER_OF_THREADS_PROPERTY + "=" + Math.max(1, Runtime.getRuntime().availableProcessors() / numShards));
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ShardedGOV3Function.class.getName());
+		command.addAll(Arrays.asList(arg));
+		command.add("--size");
+		command.add(Long.toString(n));
+
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom();
+		for (int duplicates = 0;;) {
+			final long seed = r.nextLong();
+			final Process[] process = new Process[numShards];
+			boolean duplicate = false, completed = false;
+			try {
+				for (int i = 0; i < numShards; i++) {
+					final List<String> shardCommand = new ArrayList<>(command);
+					shardCommand.addAll(Arrays.asList("--seed", Long.toString(seed), "--shard", Integer.toString(i)));
+					process[i] = new ProcessBuilder(shardCommand).inheritIO().start();
+				}
+
+				for (int i = 0; i < numShards; i++) {
+					final int status = process[i].waitFor();
+					if (status == DUPLICATE_EXIT_STATUS) duplicate = true;
+					else if (status != 0) throw new IllegalStateException("The process building shard " + i + " exited with status " + status);
+				}
+				completed = true;
+			} finally {
+				// Do not leave orphan workers or partial shards behind
+				if (!completed) {
+					for (final Process p : process) if (p != null) p.destroyForcibly();
+					// Workers must be dead before we delete their shards
+					for (final Process p : process) if (p != null) p.waitFor();
+					for (final File f : shardFile) f.delete();
+				}
+			}
+			if (!duplicate) break;
+			if (duplicates++ > 3) {
+				for (final File f : shardFile) f.delete();
+				throw new IllegalArgumentException("The input list contains duplicates");
+			}
+			LOGGER.warn("Found duplicate. Recomputing signatures...");
+		}
+
+		try {
+			BinIO.storeObject(merge(transform, shardFile), functionName);
+		} finally {
+			for (final File f : shardFile) f.delete();
+		}
+		LOGGER.info("Completed.");
+	}
+}
@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.zip.GZIPInputStream;
@@ -407,6 +408,55 @@ public class TwoStepsLcpMonotoneMinimalPerfectHashFunction<T> extends AbstractHa
 		return result < 0 || result >= n ? defRetValue : result;
 	}
 
+	/**
+	 * Computes the output of this function on a batch of keys.
+	 *
+	 * <p>
+	 * This method is equivalent to calling {@link #getLong(Object)} on each key, but the lookups
+	 * in the functions mapping keys to offsets and longest common prefixes to buckets are
+	 * performed in batch by {@link GOV3Function#getLongsBySignature(long[][], long[])} and
+	 * {@link GOV3Function#getLongs(Object[], long[])}, so that cache misses for different keys
+	 * can overlap.
+	 *
+	 * @param keys an array of keys.
+	 * @param result an array of length at least {@code keys.length} that will be filled with the
+	 *            outputs of this function on {@code keys}.
+	 */
+	public void getLongs(final T[] keys, final long[] result) {
+		final int length = keys.length;
+		if (n == 0) {
+			Arrays.fill(result, 0, length, defRetValue);
+			return;
+		}
+		final long[][] signature = new long[length][2];
+		final BitVector[] prefix = new BitVector[length];
+		final boolean[] valid = new boolean[length];
+		for (int i = 0; i < length; i++) {
+			final BitVector bitVector = transform.toBitVector(keys[i]).fast();
+			Hashes.spooky4(bitVector, seed, signature[i]);
+			final long lcpLength = lcpLengths.getLongBySignature(signature[i]);
+			valid[i] = lcpLength != -1 && lcpLength <= bitVector.length();
+			// Keys without a valid prefix are looked up with an empty prefix and discarded later
+			prefix[i] = valid[i] ? bitVector.subVector(0, lcpLength) : BitVectors.EMPTY_VECTOR;
+		}
+
+		final long[] offset = new long[length];
+		offsets.getLongsBySignature(signature, offset);
+		final long[] bucket = new long[length];
+		lcp2Bucket.getLongs(prefix, bucket);
+
+		for (int i = 0; i < length; i++) {
+			if (!valid[i]) {
+				result[i] = defRetValue;
+				continue;
+			}
+			final long r = (bucket[i] << log2BucketSize) + offset[i];
+			if (signatureMask != 0) result[i] = r < 0 || r >= n || signatures.getLong(r) != (signature[i][0] & signatureMask) ? defRetValue : r;
+			// Out-of-set strings can generate bizarre 3-hyperedges.
+			else result[i] = r < 0 || r >= n ? defRetValue : r;
+		}
+	}
+
 	public long getLongByBitVectorAndSignature(final BitVector bitVector, final long[] signature) {
 		if (n == 0) return defRetValue;
 		final long prefix = lcpLengths.getLongBySignature(signature);
@@ -0,0 +1,367 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.util;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+
+import it.unimi.dsi.bits.TransformationStrategy;
+import it.unimi.dsi.fastutil.objects.AbstractObjectSortedSet;
+import it.unimi.dsi.fastutil.objects.ObjectBidirectionalIterator;
+import it.unimi.dsi.fastutil.objects.ObjectSortedSet;
+
+/**
+ * A thread-safe, read-mostly {@linkplain ZFastTrie z-fast trie}.
+ *
+ * <p>
+ * Instances of this class wrap a {@link ZFastTrie} and make it possible to access it
+ * concurrently. Modifications ({@link #add(Object)}, {@link #remove(Object)} and {@link #clear()})
+ * are serialized by a {@link StampedLock}, so that new nodes are safely published when the write
+ * lock is released. Queries ({@link #contains(Object)}, {@link #pred(Object)},
+ * {@link #succ(Object)}, {@link #first()}, {@link #last()}) and iteration acquire the (shared)
+ * read lock, so read throughput scales with the number of cores as long as modifications are
+ * relatively infrequent.
+ *
+ * <p>
+ * Queries cannot be performed optimistically, that is, without locking and validating the result
+ * afterwards: while a modification is in progress (e.g., during a rehash of the handle-to-node
+ * map) the underlying trie is not consistent, and a traversal might not terminate. The only
+ * exception is {@link #size()}, which reads a single field.
+ *
+ * <p>
+ * Iterators are <em>weakly consistent</em>: they never throw
+ * {@link java.util.ConcurrentModificationException}, they return elements in increasing order,
+ * and they reflect the state of the trie at some point at or since the last call to one of their
+ * methods. As long as the trie is not modified, iterators simply follow the list of leaves of the
+ * underlying trie; after a modification, they reposition themselves by searching for the last
+ * returned element.
+ *
+ * <p>
+ * The transformation strategy must be usable concurrently by multiple threads (e.g., it must be
+ * stateless, as the strategies returned by
+ * {@link it.unimi.dsi.bits.TransformationStrategies}); if you have a stateful strategy, pass a
+ * {@linkplain TransformationStrategy#copy() copy}. Iterators cannot be shared among threads.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class ConcurrentZFastTrie<T> extends AbstractObjectSortedSet<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/** The underlying trie. */
+	private final ZFastTrie<T> trie;
+	/** The transformation strategy. */
+	private final TransformationStrategy<? super T> transform;
+	/** The lock serializing modifications and validating optimistic reads. */
+	private final StampedLock lock;
+
+	/**
+	 * Creates a new concurrent z-fast trie using the given transformation strategy.
+	 *
+	 * @param transform a transformation strategy that must turn distinct elements into distinct,
+	 *            prefix-free bit vectors, and that must be usable concurrently by multiple threads.
+	 */
+	public ConcurrentZFastTrie(final TransformationStrategy<? super T> transform) {
+		this.transform = transform;
+		this.trie = new ZFastTrie<>(transform);
+		this.lock = new StampedLock();
+	}
+
+	/**
+	 * Creates a new concurrent z-fast trie using the given elements and transformation strategy.
+	 *
+	 * @param elements an iterator returning the elements to be inserted in the trie.
+	 * @param transform a transformation strategy that must turn distinct elements into distinct,
+	 *            prefix-free bit vectors, and that must be usable concurrently by multiple threads.
+	 */
+	public ConcurrentZFastTrie(final Iterator<? extends T> elements, final TransformationStrategy<? super T> transform) {
+		this.transform = transform;
+		this.trie = new ZFastTrie<>(elements, transform);
+		this.lock = new StampedLock();
+	}
+
+	/**
+	 * Creates a new concurrent z-fast trie using the given elements and transformation strategy.
+	 *
+	 * @param elements an iterable returning the elements to be inserted in the trie.
+	 * @param transform a transformation strategy that must turn distinct elements into distinct,
+	 *            prefix-free bit vectors, and that must be usable concurrently by multiple threads.
+	 */
+	public ConcurrentZFastTrie(final Iterable<? extends T> elements, final TransformationStrategy<? super T> transform) {
+		this(elements.iterator(), transform);
+	}
+
+	@Override
+	public boolean add(final T k) {
+		final long stamp = lock.writeLock();
+		try {
+			return trie.add(k);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public boolean remove(final Object k) {
+		final long stamp = lock.writeLock();
+		try {
+			return trie.remove(k);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public void clear() {
+		final long stamp = lock.writeLock();
+		try {
+			// ZFastTrie inherits a clear() based on iterator removal, which it does not support
+			for (T k; (k = trie.first()) != null;) trie.remove(k);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public int size() {
+		// A single field read is always consistent
+		final long stamp = lock.tryOptimisticRead();
+		final int size = trie.size();
+		if (lock.validate(stamp)) return size;
+		final long readStamp = lock.readLock();
+		try {
+			return trie.size();
+		} finally {
+			lock.unlockRead(readStamp);
+		}
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		final long stamp = lock.readLock();
+		try {
+			return trie.contains(o);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns the largest element of this trie smaller than or equal to a given element.
+	 *
+	 * @param o an element.
+	 * @return the largest element of this trie smaller than or equal to {@code o}, or {@code null}
+	 *         if there is no such element.
+	 * @see ZFastTrie#pred(Object)
+	 */
+	public T pred(final Object o) {
+		final long stamp = lock.readLock();
+		try {
+			return trie.pred(o);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns the smallest element of this trie larger than or equal to a given element.
+	 *
+	 * @param o an element.
+	 * @return the smallest element of this trie larger than or equal to {@code o}, or {@code null}
+	 *         if there is no such element.
+	 * @see ZFastTrie#succ(Object)
+	 */
+	public T succ(final Object o) {
+		final long stamp = lock.readLock();
+		try {
+			return trie.succ(o);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public T first() {
+		final long stamp = lock.readLock();
+		try {
+			return trie.first();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public T last() {
+		final long stamp = lock.readLock();
+		try {
+			return trie.last();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/** A weakly consistent iterator.
+	 *
+	 * <p>The position of the iterator is described by an element and a boolean specifying
+	 * whether the iterator is positioned before or after the element. An iterator
+	 * on the underlying trie, together with the stamp of the read lock under which it was positioned,
+	 * is used as long as the trie is not modified.
+	 */
+	private final class WeaklyConsistentIterator implements ObjectBidirectionalIterator<T> {
+		/** The element at which the iterator is positioned, or {@code null} if the iterator is positioned before the first element. */
+		private T key;
+		/** Whether the iterator is positioned after {@link #key}. */
+		private boolean after;
+		/** An iterator on the underlying trie positioned as this iterator, or {@code null}. */
+		private ObjectBidirectionalIterator<T> i;
+		/** The stamp under which {@link #i} was positioned. */
+		private long stamp;
+
+		private WeaklyConsistentIterator(final T from) {
+			key = from;
+		}
+
+		/** Returns an iterator on the underlying trie positioned as this iterator.
+		 *
+		 * <p>This method must be called while holding the read lock.
+		 *
+		 * @return {@link #i}, if the trie has not been modified since it was positioned,
+		 * or a newly positioned iterator.
+		 */
+		private ObjectBidirectionalIterator<T> cursor() {
+			if (i != null && lock.validate(stamp)) return i;
+			final ObjectBidirectionalIterator<T> i = key == null ? trie.iterator() : trie.iterator(key);
+			// Skip key, if it is still in the trie
+			if (after && i.hasNext() && ! transform.toBitVector(i.next()).equals(transform.toBitVector(key))) i.previous();
+			return i;
+		}
+
+		@Override
+		public boolean hasNext() {
+			final long readStamp = lock.readLock();
+			try {
+				this.i = cursor();
+				this.stamp = readStamp;
+				return this.i.hasNext();
+			} finally {
+				lock.unlockRead(readStamp);
+			}
+		}
+
+		@Override
+		public boolean hasPrevious() {
+			final long readStamp = lock.readLock();
+			try {
+				this.i = cursor();
+				this.stamp = readStamp;
+				return this.i.hasPrevious();
+			} finally {
+				lock.unlockRead(readStamp);
+			}
+		}
+
+		/** Records a move of the underlying iterator.
+		 *
+		 * @param i the underlying iterator after the move.
+		 * @param stamp the stamp under which the move happened.
+		 * @param result the element returned by the move, or {@code null} if there was no such element.
+		 * @param after whether the move was forward.
+		 * @return {@code result}.
+		 */
+		private T moved(final ObjectBidirectionalIterator<T> i, final long stamp, final T result, final boolean after) {
+			if (result == null) throw new NoSuchElementException();
+			this.i = i;
+			this.stamp = stamp;
+			this.key = result;
+			this.after = after;
+			return result;
+		}
+
+		@Override
+		public T next() {
+			final long readStamp = lock.readLock();
+			try {
+				final ObjectBidirectionalIterator<T> i = cursor();
+				return moved(i, readStamp, i.hasNext() ? i.next() : null, true);
+			} finally {
+				lock.unlockRead(readStamp);
+			}
+		}
+
+		@Override
+		public T previous() {
+			final long readStamp = lock.readLock();
+			try {
+				final ObjectBidirectionalIterator<T> i = cursor();
+				return moved(i, readStamp, i.hasPrevious() ? i.previous() : null, false);
+			} finally {
+				lock.unlockRead(readStamp);
+			}
+		}
+	}
+
+	/**
+	 * Returns a weakly consistent iterator over the elements of this trie.
+	 *
+	 * @return a weakly consistent iterator over the elements of this trie.
+	 */
+	@Override
+	public ObjectBidirectionalIterator<T> iterator() {
+		return new WeaklyConsistentIterator(null);
+	}
+
+	/**
+	 * Returns a weakly consistent iterator over the elements of this trie positioned before the
+	 * smallest element larger than or equal to a given element.
+	 *
+	 * @param from an element.
+	 * @return a weakly consistent iterator over the elements of this trie positioned before the
+	 *         smallest element larger than or equal to {@code from}.
+	 */
+	@Override
+	public ObjectBidirectionalIterator<T> iterator(final T from) {
+		return new WeaklyConsistentIterator(from);
+	}
+
+	@Override
+	public Comparator<? super T> comparator() {
+		return null;
+	}
+
+	@Override
+	public ObjectSortedSet<T> headSet(final T arg0) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public ObjectSortedSet<T> subSet(final T arg0, final T arg1) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public ObjectSortedSet<T> tailSet(final T arg0) {
+		throw new UnsupportedOperationException();
+	}
+}
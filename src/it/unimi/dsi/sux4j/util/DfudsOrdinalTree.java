@@ -0,0 +1,208 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.util;
+
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.sux4j.bits.RangeMinMaxBalancedParentheses;
+import it.unimi.dsi.sux4j.bits.Rank9;
+import it.unimi.dsi.sux4j.bits.SimpleSelectZero;
+
+/**
+ * An ordinal tree represented by its depth-first unary degree sequence (DFUDS).
+ *
+ * <p>
+ * The tree is represented by the bit string 1 followed by the degrees of the nodes, in unary
+ * (<var>d</var> ones followed by a zero), in depth-first preorder. The result is a string of
+ * balanced parentheses, in which the <var>i</var>-th child of a node is associated with the open
+ * parenthesis matched by the closed parenthesis preceding the description of the child. Nodes are
+ * numbered in preorder: the description of node <var>k</var> follows the <var>k</var>-th zero.
+ *
+ * <p>
+ * Navigation uses a {@link RangeMinMaxBalancedParentheses}, a {@link Rank9} and a
+ * {@link SimpleSelectZero} over the representation, for a total of about 3.2 bits per node. All
+ * operations but {@link #depth(long)}, which requires a number of operations proportional to the
+ * depth of the node, require a constant number of selections and rankings and at most one search in
+ * the range min tree; in particular, {@link #subtreeSize(long)} is fast, and since nodes are
+ * numbered in preorder the subtree of node <var>k</var> is the interval of nodes starting at
+ * <var>k</var> of length {@link #subtreeSize(long) subtreeSize(k)}.
+ *
+ * <p>
+ * Instances of this class are built by a {@link Builder}, which accepts the degrees of the nodes in
+ * preorder.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class DfudsOrdinalTree implements OrdinalTree {
+	private static final long serialVersionUID = 0L;
+
+	/** The representation of the tree. */
+	protected final LongArrayBitVector bits;
+	/** The number of nodes. */
+	protected final long numNodes;
+	/** A balanced parentheses structure over {@link #bits}. */
+	protected final RangeMinMaxBalancedParentheses balParen;
+	/** A ranking structure over {@link #bits}. */
+	protected final Rank9 rank;
+	/** A zero-selection structure over {@link #bits}. */
+	protected final SimpleSelectZero selectZero;
+
+	/**
+	 * A streaming builder for {@linkplain DfudsOrdinalTree DFUDS trees}.
+	 *
+	 * <p>
+	 * The degrees of the nodes must be {@linkplain #add(long) added} in preorder; the builder uses
+	 * just the space of the final representation.
+	 */
+	public static class Builder {
+		/** The representation built so far. */
+		private final LongArrayBitVector bits = LongArrayBitVector.getInstance();
+		/** The number of nodes added so far. */
+		private long numNodes;
+		/** The sum of the degrees of the nodes added so far. */
+		private long sumOfDegrees;
+		/** Whether {@link #build()} has already been called. */
+		private boolean built;
+
+		public Builder() {
+			bits.add(true);
+		}
+
+		/**
+		 * Adds the next node.
+		 *
+		 * @param degree the number of children of the node.
+		 * @return this builder.
+		 * @throws IllegalArgumentException if the node has no parent.
+		 */
+		public Builder add(final long degree) {
+			if (built) throw new IllegalStateException("This builder has been already used");
+			if (degree < 0) throw new IllegalArgumentException("Negative degree: " + degree);
+			if (numNodes != 0 && sumOfDegrees < numNodes) throw new IllegalArgumentException("Node " + numNodes + " has no parent");
+			final long length = bits.length();
+			bits.length(length + degree + 1);
+			bits.fill(length, length + degree, true);
+			sumOfDegrees += degree;
+			numNodes++;
+			return this;
+		}
+
+		/**
+		 * Builds the tree.
+		 *
+		 * @return a DFUDS tree with the nodes added so far.
+		 * @throws IllegalStateException if the tree is empty, or some children are missing.
+		 */
+		public DfudsOrdinalTree build() {
+			if (built) throw new IllegalStateException("This builder has been already used");
+			if (numNodes == 0) throw new IllegalStateException("The tree has no nodes");
+			if (sumOfDegrees != numNodes - 1) throw new IllegalStateException("The degrees add up to " + sumOfDegrees + ", but there are " + numNodes + " nodes");
+			built = true;
+			bits.trim();
+			return new DfudsOrdinalTree(bits, numNodes);
+		}
+	}
+
+	/**
+	 * Creates a new DFUDS tree.
+	 *
+	 * @param bits the DFUDS representation of a tree.
+	 * @param numNodes the number of nodes.
+	 */
+	protected DfudsOrdinalTree(final LongArrayBitVector bits, final long numNodes) {
+		this.bits = bits;
+		this.numNodes = numNodes;
+		balParen = new RangeMinMaxBalancedParentheses(bits);
+		rank = new Rank9(bits);
+		selectZero = new SimpleSelectZero(bits);
+	}
+
+	/** Returns the position of the description of a node. */
+	private long start(final long node) {
+		return node == 0 ? 1 : selectZero.selectZero(node - 1) + 1;
+	}
+
+	/** Returns the node whose description contains a given position. */
+	private long node(final long pos) {
+		return pos - rank.rank(pos);
+	}
+
+	@Override
+	public long parent(final long node) {
+		if (node == 0) return -1;
+		return node(balParen.findOpen(start(node) - 1));
+	}
+
+	@Override
+	public long firstChild(final long node) {
+		return bits.getBoolean(start(node)) ? node + 1 : -1;
+	}
+
+	@Override
+	public long nextSibling(final long node) {
+		if (node == 0) return -1;
+		// The open parenthesis associated with the next sibling precedes that associated with node
+		final long p = balParen.findOpen(start(node) - 1) - 1;
+		return p != 0 && bits.getBoolean(p) ? node(balParen.findClose(p) + 1) : -1;
+	}
+
+	@Override
+	public long child(final long node, final long i) {
+		if (i < 0) throw new IllegalArgumentException("Negative child index: " + i);
+		final long start = start(node);
+		final long end = selectZero.selectZero(node);
+		if (i >= end - start) return -1;
+		return node(balParen.findClose(end - 1 - i) + 1);
+	}
+
+	@Override
+	public long degree(final long node) {
+		return selectZero.selectZero(node) - start(node);
+	}
+
+	@Override
+	public long depth(long node) {
+		long depth = 0;
+		while (node != 0) {
+			node = parent(node);
+			depth++;
+		}
+		return depth;
+	}
+
+	@Override
+	public long subtreeSize(final long node) {
+		final long start = start(node);
+		// The subtree ends where the excess falls below the excess before the description
+		return balParen.forwardSearch(start - 1, -1) - start + 2 >>> 1;
+	}
+
+	@Override
+	public long size64() {
+		return numNodes;
+	}
+
+	@Override
+	public long numBits() {
+		return bits.length() + balParen.numBits() + rank.numBits() + selectZero.numBits();
+	}
+}
@@ -23,9 +23,12 @@ package it.unimi.dsi.sux4j.util;
 import static it.unimi.dsi.bits.LongArrayBitVector.bit;
 import static it.unimi.dsi.bits.LongArrayBitVector.bits;
 import static it.unimi.dsi.bits.LongArrayBitVector.word;
+import static it.unimi.dsi.bits.LongArrayBitVector.words;
 
 import java.io.Serializable;
 
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.bits.LongArrayBitVector;
 import it.unimi.dsi.fastutil.bytes.ByteIterable;
 import it.unimi.dsi.fastutil.bytes.ByteIterator;
 import it.unimi.dsi.fastutil.ints.IntIterable;
@@ -34,6 +37,7 @@ import it.unimi.dsi.fastutil.longs.LongIterable;
 import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.shorts.ShortIterable;
 import it.unimi.dsi.fastutil.shorts.ShortIterator;
+import it.unimi.dsi.sux4j.bits.SimpleSelect;
 import it.unimi.dsi.sux4j.bits.SimpleSelectZero;
 
 /**
@@ -70,14 +74,14 @@ public class EliasFanoIndexedMonotoneLongBigList extends EliasFanoMonotoneLongBi
 	private static final long serialVersionUID = 2L;
 
 	/** The select structure used to extract the upper bits. */
-	protected final SimpleSelectZero selectUpperZero = new SimpleSelectZero(selectUpper.bitVector());
+	protected final SimpleSelectZero selectUpperZero;
 	/**
 	 * The index of the value returned by {@link #predecessor(long)}, {@link #weakPredecessor(long)},
 	 * {@link #successor(long)}, and {@link #strictSuccessor(long)}.
 	 */
 	private long currentIndex = -1;
 	/** The last element of the sequence, or -1 if the sequence is empty. */
-	private final long lastElement = isEmpty() ? -1 : getLong(size64() - 1);
+	protected final long lastElement = isEmpty() ? -1 : getLong(size64() - 1);
 	/** The first element of the sequence, or {@link Long#MAX_VALUE} if the sequence is empty. */
 	private final long firstElement = isEmpty() ? Long.MAX_VALUE : getLong(0);
 	/**
@@ -105,8 +109,7 @@ public class EliasFanoIndexedMonotoneLongBigList extends EliasFanoMonotoneLongBi
 	 * @param list an iterable object returning nondecreasing natural numbers.
 	 */
 	public EliasFanoIndexedMonotoneLongBigList(final IntIterable list) {
-		super(list);
-		upperBound = getUpperBound();
+		this(new EliasFanoMonotoneLongBigList(list), null);
 	}
 
 	/**
@@ -116,8 +119,7 @@ public class EliasFanoIndexedMonotoneLongBigList extends EliasFanoMonotoneLongBi
 	 * @param list an iterable object returning nondecreasing natural numbers.
 	 */
 	public EliasFanoIndexedMonotoneLongBigList(final ShortIterable list) {
-		super(list);
-		upperBound = getUpperBound();
+		this(new EliasFanoMonotoneLongBigList(list), null);
 	}
 
 	/**
@@ -127,8 +129,7 @@ public class EliasFanoIndexedMonotoneLongBigList extends EliasFanoMonotoneLongBi
 	 * @param list an iterable object returning nondecreasing natural numbers.
 	 */
 	public EliasFanoIndexedMonotoneLongBigList(final ByteIterable list) {
-		super(list);
-		upperBound = getUpperBound();
+		this(new EliasFanoMonotoneLongBigList(list), null);
 	}
 
 	/**
@@ -138,8 +139,7 @@ public class EliasFanoIndexedMonotoneLongBigList extends EliasFanoMonotoneLongBi
 	 * @param list an iterable object returning nondecreasing natural numbers.
 	 */
 	public EliasFanoIndexedMonotoneLongBigList(final LongIterable list) {
-		super(list);
-		upperBound = getUpperBound();
+		this(new EliasFanoMonotoneLongBigList(list), null);
 	}
 
 	/**
@@ -155,8 +155,7 @@ public class EliasFanoIndexedMonotoneLongBigList extends EliasFanoMonotoneLongBi
 	 * @param iterator an iterator returning nondecreasing natural numbers.
 	 */
 	public EliasFanoIndexedMonotoneLongBigList(final long n, final long upperBound, final ByteIterator iterator) {
-		super(n, upperBound, iterator);
-		this.upperBound = getUpperBound();
+		this(new EliasFanoMonotoneLongBigList(n, upperBound, iterator), null);
 	}
 
 	/**
@@ -172,8 +171,7 @@ public class EliasFanoIndexedMonotoneLongBigList extends EliasFanoMonotoneLongBi
 	 * @param iterator an iterator returning nondecreasing natural numbers.
 	 */
 	public EliasFanoIndexedMonotoneLongBigList(final long n, final long upperBound, final IntIterator iterator) {
-		super(n, upperBound, iterator);
-		this.upperBound = getUpperBound();
+		this(new EliasFanoMonotoneLongBigList(n, upperBound, iterator), null);
 	}
 
 	/**
@@ -189,8 +187,7 @@ public class EliasFanoIndexedMonotoneLongBigList extends EliasFanoMonotoneLongBi
 	 * @param iterator an iterator returning nondecreasing natural numbers.
 	 */
 	public EliasFanoIndexedMonotoneLongBigList(final long n, final long upperBound, final LongIterator iterator) {
-		super(n, upperBound, iterator);
-		this.upperBound = getUpperBound();
+		this(new EliasFanoMonotoneLongBigList(n, upperBound, iterator), null);
 	}
 
 	/**
@@ -206,8 +203,152 @@ public class EliasFanoIndexedMonotoneLongBigList extends EliasFanoMonotoneLongBi
 	 * @param iterator an iterator returning nondecreasing natural numbers.
 	 */
 	public EliasFanoIndexedMonotoneLongBigList(final long n, final long upperBound, final ShortIterator iterator) {
-		super(n, upperBound, iterator);
-		this.upperBound = getUpperBound();
+		this(new EliasFanoMonotoneLongBigList(n, upperBound, iterator), null);
+	}
+
+	/**
+	 * Creates an indexed Elias&ndash;Fano representation sharing the data of an Elias&ndash;Fano
+	 * representation.
+	 *
+	 * @param list an Elias&ndash;Fano representation.
+	 * @param selectUpperZero a zero-select structure on the upper bits of {@code list}, or
+	 *            {@code null} to build one.
+	 */
+	private EliasFanoIndexedMonotoneLongBigList(final EliasFanoMonotoneLongBigList list, final SimpleSelectZero selectUpperZero) {
+		super(list.length, list.l, list.upperBits, list.lowerBits, list.selectUpper);
+		this.selectUpperZero = selectUpperZero != null ? selectUpperZero : new SimpleSelectZero(selectUpper.bitVector());
+		upperBound = getUpperBound();
+	}
+
+	/**
+	 * A builder creating an {@link EliasFanoIndexedMonotoneLongBigList} in a single pass, as values
+	 * are {@linkplain #add(long) added}.
+	 *
+	 * <p>
+	 * Since the number of elements and a strict upper bound are known in advance, the lower bits, the
+	 * upper bits and the inventories of the {@link SimpleSelect} and {@link SimpleSelectZero}
+	 * structures over the upper bits are allocated with their final size and filled incrementally.
+	 * Thus, peak memory usage during construction is essentially the size of the final structure,
+	 * and the upper bits are never scanned again after being written.
+	 *
+	 * <p>
+	 * Typical usage:
+	 *
+	 * <pre>
+	 * final EliasFanoIndexedMonotoneLongBigList.Builder builder = new EliasFanoIndexedMonotoneLongBigList.Builder(n, upperBound);
+	 * for (long i = 0; i &lt; n; i++) builder.add(next());
+	 * final EliasFanoIndexedMonotoneLongBigList list = builder.build();
+	 * </pre>
+	 */
+	public static final class Builder {
+		/** The number of elements. */
+		private final long n;
+		/** The strict upper bound. */
+		private final long upperBound;
+		/** The number of lower bits. */
+		private final int l;
+		/** The mask for the lower bits. */
+		private final long lowerBitsMask;
+		/** The lower bits. */
+		private final long[] lowerBits;
+		/** The upper bits. */
+		private final LongArrayBitVector upperBits;
+		/** A builder for the selection structure over the ones of {@link #upperBits}. */
+		private final SimpleSelect.Builder selectBuilder;
+		/** A builder for the selection structure over the zeros of {@link #upperBits}. */
+		private final SimpleSelectZero.Builder selectZeroBuilder;
+		/** The number of elements added so far. */
+		private long index;
+		/** The last element added, or -1. */
+		private long last = -1;
+		/** The position of the last one in {@link #upperBits}, or -1. */
+		private long lastOne = -1;
+		/** Whether {@link #build()} has been called. */
+		private boolean built;
+
+		/**
+		 * Creates a new builder.
+		 *
+		 * @param n the number of elements that will be added.
+		 * @param upperBound a strict upper bound to the elements that will be added.
+		 */
+		public Builder(final long n, final long upperBound) {
+			if (n < 0) throw new IllegalArgumentException("Negative number of elements: " + n);
+			if (upperBound < 0) throw new IllegalArgumentException("Negative upper bound: " + upperBound);
+			this.n = n;
+			this.upperBound = upperBound;
+			l = n == 0 ? 0 : Math.max(0, Fast.mostSignificantBit(upperBound / n));
+			if (!fits(n, upperBound)) throw new IllegalArgumentException("Too many lower bits for a list of " + n + " elements with upper bound " + upperBound);
+			lowerBitsMask = (1L << l) - 1;
+			// The initialization for l == 0 avoids tests for l == 0 throughout the code.
+			lowerBits = new long[Math.max(1, words((n + 1) * l))];
+			final long length = n + (upperBound >>> l) + 2;
+			upperBits = LongArrayBitVector.getInstance().length(length);
+			selectBuilder = new SimpleSelect.Builder(length, n + 1);
+			selectZeroBuilder = new SimpleSelectZero.Builder(length, length - n - 1);
+		}
+
+		/**
+		 * Sets a one in the upper bits, adding to the selection structures its position and the
+		 * positions of the zeros preceding it.
+		 *
+		 * @param position the position of the one.
+		 */
+		private void setOne(final long position) {
+			upperBits.set(position);
+			selectBuilder.add(position);
+			for (long p = lastOne + 1; p < position; p++) selectZeroBuilder.add(p);
+			lastOne = position;
+		}
+
+		/**
+		 * Sets lower bits.
+		 *
+		 * @param i the index of an element.
+		 * @param v the element.
+		 */
+		private void setLowerBits(final long i, final long v) {
+			if (l == 0) return;
+			final long position = i * l;
+			final int startWord = word(position);
+			final int startBit = bit(position);
+			final long lower = v & lowerBitsMask;
+			lowerBits[startWord] |= lower << startBit;
+			if (startBit + l > Long.SIZE) lowerBits[startWord + 1] |= lower >>> -startBit;
+		}
+
+		/**
+		 * Adds an element.
+		 *
+		 * @param v the next element, which must not be smaller than the previous one.
+		 */
+		public void add(final long v) {
+			if (built) throw new IllegalStateException("The list has already been built");
+			if (index == n) throw new IllegalArgumentException("There are more than " + n + " values");
+			if (v < 0) throw new IllegalArgumentException("Negative value: " + v);
+			if (v >= upperBound) throw new IllegalArgumentException("Too large value: " + v + " >= " + upperBound);
+			if (v < last) throw new IllegalArgumentException("Values are not nondecreasing: " + v + " < " + last);
+			setLowerBits(index, v);
+			setOne((v >>> l) + index);
+			last = v;
+			index++;
+		}
+
+		/**
+		 * Builds the list; must be called after all elements have been added.
+		 *
+		 * @return an indexed Elias&ndash;Fano representation of the elements added.
+		 */
+		public EliasFanoIndexedMonotoneLongBigList build() {
+			if (built) throw new IllegalStateException("The list has already been built");
+			if (index != n) throw new IllegalStateException("Only " + index + " values out of " + n + " have been added");
+			built = true;
+			// Sentinel value
+			setLowerBits(n, upperBound);
+			setOne((upperBound >>> l) + n);
+			for (long p = lastOne + 1; p < upperBits.length(); p++) selectZeroBuilder.add(p);
+			return new EliasFanoIndexedMonotoneLongBigList(new EliasFanoMonotoneLongBigList(n, l, upperBits.bits(), lowerBits, selectBuilder.build(upperBits)), selectZeroBuilder.build(upperBits));
+		}
 	}
 
 
@@ -0,0 +1,307 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.util;
+
+import static it.unimi.dsi.bits.LongArrayBitVector.bit;
+import static it.unimi.dsi.bits.LongArrayBitVector.bits;
+import static it.unimi.dsi.bits.LongArrayBitVector.word;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import it.unimi.dsi.sux4j.bits.SimpleSelectZero;
+
+/**
+ * Set operations on {@linkplain EliasFanoIndexedMonotoneLongBigList indexed Elias&ndash;Fano
+ * lists}.
+ *
+ * <p>
+ * Instances of {@link Intersection} and {@link Union} compute the intersection or the union of a
+ * number of {@linkplain EliasFanoIndexedMonotoneLongBigList indexed Elias&ndash;Fano lists} and
+ * write the result, in increasing order, into a caller-supplied buffer, in batches: each call to
+ * {@link SetOperation#next(long[], int, int) next()} resumes the computation where the previous one
+ * stopped. The lists are seen as sets: each value is returned once, even if it is repeated in the
+ * lists.
+ *
+ * <p>
+ * The computation is carried out directly on the upper and lower bits of the lists: long jumps use
+ * the {@link SimpleSelectZero} structure of each list, as in
+ * {@link EliasFanoIndexedMonotoneLongBigList#successorUnsafe(long)}, whereas short jumps are
+ * performed by a sequential scan of the upper bits, as in
+ * {@link EliasFanoIndexedMonotoneLongBigList.EliasFanoIndexedMonotoneLongBigListIterator#skipTo(long)
+ * skipTo()}. In this way, we avoid the overhead of an iterator per list and of the checks on
+ * each step, which are useless in this context.
+ *
+ * <p>
+ * Instances of this class are not thread safe.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public final class EliasFanoIndexedMonotoneLongBigLists {
+
+	private EliasFanoIndexedMonotoneLongBigLists() {}
+
+	/**
+	 * Skipping more than this number of zeroes will unleash a full selection instead of a sequential
+	 * scan.
+	 */
+	private static final int SKIPPING_THRESHOLD = 8;
+
+	/**
+	 * A cursor on an indexed Elias&ndash;Fano list.
+	 *
+	 * <p>
+	 * The current element of a cursor is the first element that has not been yet discarded, or
+	 * {@link Long#MAX_VALUE} if the list has been exhausted.
+	 */
+	private static final class Cursor {
+		/** The upper bits of the list. */
+		private final long[] upperBits;
+		/** The lower bits of the list. */
+		private final long[] lowerBits;
+		/** The number of lower bits of the list. */
+		private final int l;
+		/** The mask for lower bits of the list. */
+		private final long lowerBitsMask;
+		/** The last element of the list. */
+		private final long lastElement;
+		/** The select structure of the upper bits of the list. */
+		private final SimpleSelectZero selectUpperZero;
+		/** The word of the upper bits containing the one bit of the current element. */
+		private int word;
+		/** The current window on the upper bits; its lowest bit represents the current element. */
+		private long window;
+		/** The index of the current element. */
+		private long index;
+		/** The position of the lower bits of the current element. */
+		private long lowerBitsPosition;
+		/** The current element, or {@link Long#MAX_VALUE} if the list has been exhausted. */
+		private long current;
+
+		private Cursor(final EliasFanoIndexedMonotoneLongBigList list) {
+			upperBits = list.upperBits;
+			lowerBits = list.lowerBits;
+			l = list.l;
+			lowerBitsMask = list.lowerBitsMask;
+			lastElement = list.lastElement;
+			selectUpperZero = list.selectUpperZero;
+			if (list.length == 0) current = Long.MAX_VALUE;
+			else {
+				final long position = list.selectUpper.select(0);
+				window = upperBits[word = word(position)] & -1L << position;
+				current = list.getLong(0);
+			}
+		}
+
+		/**
+		 * Returns the element represented by the lowest bit of the current window.
+		 *
+		 * @return the element represented by the lowest bit of the current window.
+		 */
+		private long decode() {
+			while (window == 0) window = upperBits[++word];
+			final int startWord = word(lowerBitsPosition);
+			final int startBit = bit(lowerBitsPosition);
+			final long lower = lowerBits[startWord] >>> startBit;
+			return (bits(word) + Long.numberOfTrailingZeros(window) - index) << l | (startBit <= Long.SIZE - l ? lower : lower | lowerBits[startWord + 1] << -startBit) & lowerBitsMask;
+		}
+
+		/**
+		 * Discards the current element and all following elements equal to it.
+		 *
+		 * @return the new current element, or {@link Long#MAX_VALUE} if the list has been exhausted.
+		 */
+		private long next() {
+			final long current = this.current;
+			if (current == lastElement) return this.current = Long.MAX_VALUE;
+			long v;
+			do {
+				window &= window - 1;
+				index++;
+				lowerBitsPosition += l;
+			} while ((v = decode()) == current);
+			return this.current = v;
+		}
+
+		/**
+		 * Moves this cursor to the first element greater than or equal to a given bound.
+		 *
+		 * @param lowerBound a lower bound greater than the current element.
+		 * @return the new current element, or {@link Long#MAX_VALUE} if the list has been exhausted.
+		 */
+		private long advance(final long lowerBound) {
+			assert lowerBound > current;
+			if (lowerBound > lastElement) return current = Long.MAX_VALUE;
+
+			final long zerosToSkip = lowerBound >>> l;
+			if (zerosToSkip - (current >>> l) >= SKIPPING_THRESHOLD) {
+				final long position = selectUpperZero.selectZero(zerosToSkip - 1);
+				window = upperBits[word = word(position)] & -1L << position;
+				index = position - zerosToSkip + 1;
+				lowerBitsPosition = index * l;
+			}
+
+			for (;;) {
+				final long v = decode();
+				if (v >= lowerBound) return current = v;
+				window &= window - 1;
+				index++;
+				lowerBitsPosition += l;
+			}
+		}
+	}
+
+	/** An abstract set operation on indexed Elias&ndash;Fano lists. */
+	public abstract static class SetOperation {
+		/** A cursor for each list. */
+		private final Cursor[] cursor;
+
+		/**
+		 * Creates a new set operation.
+		 *
+		 * @param list the lists on which the operation will be performed.
+		 */
+		private SetOperation(final EliasFanoIndexedMonotoneLongBigList[] list) {
+			if (list.length == 0) throw new IllegalArgumentException("You must provide at least one list");
+			cursor = new Cursor[list.length];
+			for (int i = 0; i < list.length; i++) cursor[i] = new Cursor(list[i]);
+		}
+
+		/**
+		 * Writes the next values of the result of this operation into a buffer.
+		 *
+		 * @param buffer a buffer.
+		 * @param offset the first position written in {@code buffer}.
+		 * @param length the maximum number of values to write.
+		 * @return the number of values written; if it is smaller than {@code length}, the result has
+		 *         been exhausted.
+		 */
+		public abstract int next(final long[] buffer, final int offset, final int length);
+
+		/**
+		 * Writes the next values of the result of this operation into a buffer.
+		 *
+		 * @param buffer a buffer.
+		 * @return the number of values written; if it is smaller than the length of {@code buffer},
+		 *         the result has been exhausted.
+		 * @see #next(long[], int, int)
+		 */
+		public int next(final long[] buffer) {
+			return next(buffer, 0, buffer.length);
+		}
+	}
+
+	/**
+	 * The intersection of a number of indexed Elias&ndash;Fano lists.
+	 *
+	 * <p>
+	 * The lists are sorted by increasing length, and the shortest list drives a leapfrog search: its
+	 * current element is the candidate, and each other list is moved to the candidate in turn; if a
+	 * list moves beyond the candidate, its current element becomes the new candidate, and the search
+	 * restarts from the shortest list.
+	 */
+	public static final class Intersection extends SetOperation {
+
+		/**
+		 * Creates a new intersection.
+		 *
+		 * @param list the lists to intersect.
+		 */
+		public Intersection(final EliasFanoIndexedMonotoneLongBigList... list) {
+			super(sort(list));
+		}
+
+		private static EliasFanoIndexedMonotoneLongBigList[] sort(final EliasFanoIndexedMonotoneLongBigList[] list) {
+			final EliasFanoIndexedMonotoneLongBigList[] sorted = list.clone();
+			Arrays.sort(sorted, Comparator.comparingLong(EliasFanoIndexedMonotoneLongBigList::size64));
+			return sorted;
+		}
+
+		@Override
+		public int next(final long[] buffer, final int offset, final int length) {
+			final Cursor[] cursor = super.cursor;
+			final Cursor first = cursor[0];
+			long x = first.current;
+			int n = 0;
+
+			while (n < length && x != Long.MAX_VALUE) {
+				int i;
+				for (i = 1; i < cursor.length; i++) {
+					final Cursor c = cursor[i];
+					final long y = c.current < x ? c.advance(x) : c.current;
+					if (y != x) {
+						x = y;
+						break;
+					}
+				}
+
+				if (i == cursor.length) {
+					buffer[offset + n++] = x;
+					x = first.next();
+				} else if (x != Long.MAX_VALUE) x = first.advance(x);
+			}
+
+			return n;
+		}
+	}
+
+	/**
+	 * The union of a number of indexed Elias&ndash;Fano lists.
+	 *
+	 * <p>
+	 * The union is computed by a linear scan of the current elements of the lists, which is faster
+	 * than a heap for the small number of lists typically involved in a query.
+	 */
+	public static final class Union extends SetOperation {
+
+		/**
+		 * Creates a new union.
+		 *
+		 * @param list the lists to merge.
+		 */
+		public Union(final EliasFanoIndexedMonotoneLongBigList... list) {
+			super(list);
+		}
+
+		@Override
+		public int next(final long[] buffer, final int offset, final int length) {
+			final Cursor[] cursor = super.cursor;
+			long min = Long.MAX_VALUE;
+			for (final Cursor c : cursor) if (c.current < min) min = c.current;
+			int n = 0;
+
+			while (n < length && min != Long.MAX_VALUE) {
+				buffer[offset + n++] = min;
+				// Discard the minimum and compute the next one in a single pass
+				long next = Long.MAX_VALUE;
+				for (final Cursor c : cursor) {
+					final long v = c.current == min ? c.next() : c.current;
+					if (v < next) next = v;
+				}
+				min = next;
+			}
+
+			return n;
+		}
+	}
+}
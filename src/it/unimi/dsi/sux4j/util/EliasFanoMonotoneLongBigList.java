@@ -27,7 +27,15 @@ import static it.unimi.dsi.bits.LongArrayBitVector.word;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import it.unimi.dsi.bits.BitVector;
 import it.unimi.dsi.bits.Fast;
@@ -38,6 +46,7 @@ import it.unimi.dsi.fastutil.bytes.ByteIterator;
 import it.unimi.dsi.fastutil.ints.IntIterable;
 import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.longs.AbstractLongBigList;
+import it.unimi.dsi.fastutil.longs.LongBigArrayBigList;
 import it.unimi.dsi.fastutil.longs.LongBigList;
 import it.unimi.dsi.fastutil.longs.LongBigListIterator;
 import it.unimi.dsi.fastutil.longs.LongIterable;
@@ -107,6 +116,14 @@ import it.unimi.dsi.sux4j.bits.SimpleSelect;
  * and exploits {@link SimpleSelect#select(long, long[], int, int)} to implement
  * {@link #get(long, long[], int, int)}.
  *
+ * <p>
+ * Large lists can be built in parallel from a {@linkplain #EliasFanoMonotoneLongBigList(LongBigList, long, int)
+ * big list}, a {@linkplain #EliasFanoMonotoneLongBigList(long[][], long, int) big array} or a
+ * {@linkplain #EliasFanoMonotoneLongBigList(Spliterator.OfLong, long, int) sized spliterator}: since
+ * the position of an element in both the lower-bits and the upper-bits array depends only on its
+ * index and on its value, disjoint ranges of the sequence are encoded concurrently, and the words
+ * shared by adjacent ranges are merged at the end.
+ *
  * @see EliasFanoIndexedMonotoneLongBigList
  */
 
@@ -326,6 +343,282 @@ public class EliasFanoMonotoneLongBigList extends AbstractLongBigList implements
 	}
 
 
+	/**
+	 * Creates an Elias&ndash;Fano representation of the values of a big list using multiple threads.
+	 *
+	 * @param list a big list of nondecreasing natural numbers.
+	 * @param upperBound a strict upper bound to the values of <code>list</code>.
+	 * @param numberOfThreads the number of threads to use.
+	 * @see #EliasFanoMonotoneLongBigList(Spliterator.OfLong, long, int)
+	 */
+	public EliasFanoMonotoneLongBigList(final LongBigList list, final long upperBound, final int numberOfThreads) {
+		this(new ParallelBuilder(ParallelBuilder.split(list, numberOfThreads), upperBound, numberOfThreads));
+	}
+
+	/**
+	 * Creates an Elias&ndash;Fano representation of the values of a big array using multiple threads.
+	 *
+	 * @param array a big array of nondecreasing natural numbers.
+	 * @param upperBound a strict upper bound to the values of <code>array</code>.
+	 * @param numberOfThreads the number of threads to use.
+	 * @see #EliasFanoMonotoneLongBigList(Spliterator.OfLong, long, int)
+	 */
+	public EliasFanoMonotoneLongBigList(final long[][] array, final long upperBound, final int numberOfThreads) {
+		this(LongBigArrayBigList.wrap(array), upperBound, numberOfThreads);
+	}
+
+	/**
+	 * Creates an Elias&ndash;Fano representation of the values returned by a spliterator using
+	 * multiple threads.
+	 *
+	 * <p>
+	 * The spliterator is split into a number of ranges proportional to {@code numberOfThreads}, which
+	 * are then encoded concurrently. For this to be possible, the spliterator must be
+	 * {@linkplain Spliterator#ORDERED ordered} and {@linkplain Spliterator#SUBSIZED subsized}, so that
+	 * the index of the first element of each range is known in advance. Note that, contrarily to the
+	 * sequential constructors, the upper bound must be strict.
+	 *
+	 * @param spliterator an ordered, subsized spliterator returning nondecreasing natural numbers.
+	 * @param upperBound a strict upper bound to the values returned by <code>spliterator</code>.
+	 * @param numberOfThreads the number of threads to use.
+	 */
+	public EliasFanoMonotoneLongBigList(final Spliterator.OfLong spliterator, final long upperBound, final int numberOfThreads) {
+		this(new ParallelBuilder(ParallelBuilder.split(spliterator, numberOfThreads), upperBound, numberOfThreads));
+	}
+
+	private EliasFanoMonotoneLongBigList(final ParallelBuilder builder) {
+		this(builder.length, builder.l, builder.upperBits.bits(), builder.lowerBits, new SimpleSelect(builder.upperBits));
+	}
+
+	/** Encodes disjoint ranges of a monotone sequence concurrently. */
+	private static final class ParallelBuilder {
+		/** The number of ranges per thread, to compensate for uneven ranges. */
+		private static final int RANGES_PER_THREAD = 4;
+
+		/** A range of the sequence, starting at a given index. */
+		private static final class Range {
+			/** The index of the first element of the range. */
+			private final long start;
+			/** The number of elements in the range. */
+			private final long size;
+			/** An iterator returning the elements of the range (and possibly more). */
+			private final PrimitiveIterator.OfLong iterator;
+			/** The first and the last value of the range, set by {@link ParallelBuilder#encode(Range)}. */
+			private long first, last;
+
+			private Range(final long start, final long size, final PrimitiveIterator.OfLong iterator) {
+				this.start = start;
+				this.size = size;
+				this.iterator = iterator;
+			}
+		}
+
+		/**
+		 * Writes words of an array in increasing order, setting aside the first and the last word.
+		 *
+		 * <p>
+		 * Since ranges of the sequence are mapped to disjoint intervals of bits, all words written by a
+		 * range but the first and the last one belong exclusively to the range, and can be stored
+		 * directly; the first and the last word might be shared with adjacent ranges, and are merged
+		 * at the end by {@link #merge()}.
+		 */
+		private static final class WordWriter {
+			private final long[] array;
+			/** The index of the word being assembled, or -1. */
+			private int word = -1;
+			/** The word being assembled. */
+			private long value;
+			/** The index of the first word, or -1. */
+			private int headWord = -1;
+			/** The index of the last word, or -1. */
+			private int tailWord = -1;
+			/** The first and the last word. */
+			private long head, tail;
+
+			private WordWriter(final long[] array) {
+				this.array = array;
+			}
+
+			/** Ors the given bits to a word, which must not precede the last word written.
+			 *
+			 * @param w the index of a word.
+			 * @param bits the bits to or.
+			 */
+			private void or(final int w, final long bits) {
+				if (w != word) {
+					assert w > word;
+					if (word != -1) {
+						if (headWord == -1) {
+							headWord = word;
+							head = value;
+						} else array[word] = value;
+					}
+					word = w;
+					value = 0;
+				}
+				value |= bits;
+			}
+
+			/** Completes the writes of this writer. */
+			private void finish() {
+				if (word == -1) return;
+				if (headWord == -1) {
+					headWord = word;
+					head = value;
+				} else {
+					tailWord = word;
+					tail = value;
+				}
+			}
+
+			/** Merges the first and the last word into the array; must be called after {@link #finish()}. */
+			private void merge() {
+				if (headWord != -1) array[headWord] |= head;
+				if (tailWord != -1) array[tailWord] |= tail;
+			}
+		}
+
+		private final long length;
+		private final int l;
+		private final long upperBound;
+		private final long[] lowerBits;
+		private final LongArrayBitVector upperBits;
+
+		/**
+		 * Splits a big list into ranges.
+		 *
+		 * @param list a big list.
+		 * @param numberOfThreads the number of threads that will encode the ranges.
+		 * @return a list of consecutive ranges covering {@code list}.
+		 */
+		private static ArrayList<Range> split(final LongBigList list, final int numberOfThreads) {
+			final long n = list.size64();
+			final int numRanges = (int)Math.max(1, Math.min(n, (long)numberOfThreads * RANGES_PER_THREAD));
+			final ArrayList<Range> ranges = new ArrayList<>();
+			for (int i = 0; i < numRanges; i++) {
+				final long from = n * i / numRanges, to = n * (i + 1) / numRanges;
+				ranges.add(new Range(from, to - from, list.listIterator(from)));
+			}
+			return ranges;
+		}
+
+		/**
+		 * Splits a spliterator into ranges.
+		 *
+		 * @param spliterator an ordered, subsized spliterator.
+		 * @param numberOfThreads the number of threads that will encode the ranges.
+		 * @return a list of consecutive ranges covering the elements returned by {@code spliterator}.
+		 */
+		private static ArrayList<Range> split(final Spliterator.OfLong spliterator, final int numberOfThreads) {
+			if (!spliterator.hasCharacteristics(Spliterator.ORDERED | Spliterator.SUBSIZED)) throw new IllegalArgumentException("The spliterator must be ordered and subsized");
+			final ArrayList<Spliterator.OfLong> pieces = new ArrayList<>();
+			pieces.add(spliterator);
+			// We split the largest piece until we have enough pieces or no piece can be split
+			while (pieces.size() < numberOfThreads * RANGES_PER_THREAD) {
+				int largest = -1;
+				for (int i = 0; i < pieces.size(); i++) if (largest == -1 || pieces.get(i).estimateSize() > pieces.get(largest).estimateSize()) largest = i;
+				if (pieces.get(largest).estimateSize() < 2) break;
+				final Spliterator.OfLong prefix = pieces.get(largest).trySplit();
+				if (prefix == null) break;
+				pieces.add(largest, prefix);
+			}
+
+			final ArrayList<Range> ranges = new ArrayList<>();
+			long start = 0;
+			for (final Spliterator.OfLong piece : pieces) {
+				final long size = piece.getExactSizeIfKnown();
+				if (size == -1) throw new IllegalArgumentException("The spliterator must be ordered and subsized");
+				ranges.add(new Range(start, size, Spliterators.iterator(piece)));
+				start += size;
+			}
+			return ranges;
+		}
+
+		private ParallelBuilder(final ArrayList<Range> ranges, final long upperBound, final int numberOfThreads) {
+			long n = 0;
+			for (final Range range : ranges) n += range.size;
+			length = n;
+			this.upperBound = upperBound;
+			l = length == 0 ? 0 : Math.max(0, Fast.mostSignificantBit(upperBound / length));
+			if (!fits(length, upperBound)) throw new IllegalArgumentException("Too many lower bits for a list of " + length + " elements with upper bound " + upperBound);
+			lowerBits = new long[Math.max(1, LongArrayBitVector.words((length + 1) * l))];
+			upperBits = LongArrayBitVector.getInstance().length(length + (upperBound >>> l) + 2);
+
+			final ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+			final ExecutorCompletionService<WordWriter[]> executorCompletionService = new ExecutorCompletionService<>(executorService);
+			for (final Range range : ranges) executorCompletionService.submit(() -> encode(range));
+
+			final ArrayList<WordWriter[]> writers = new ArrayList<>();
+			try {
+				for (int i = ranges.size(); i-- != 0;) writers.add(executorCompletionService.take().get());
+			} catch (final InterruptedException e) {
+				throw new RuntimeException(e);
+			} catch (final ExecutionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof IllegalArgumentException) throw (IllegalArgumentException)cause;
+				throw new RuntimeException(cause);
+			} finally {
+				executorService.shutdown();
+			}
+
+			long last = -1;
+			for (final Range range : ranges) {
+				if (range.size == 0) continue;
+				if (range.first < last) throw new IllegalArgumentException("Values are not nondecreasing: " + range.first + " < " + last);
+				last = range.last;
+			}
+
+			for (final WordWriter[] writer : writers) {
+				writer[0].merge();
+				writer[1].merge();
+			}
+
+			// Sentinel value
+			if (l != 0) LongArrayBitVector.wrap(lowerBits).asLongBigList(l).set(length, upperBound & (1L << l) - 1);
+			upperBits.set((upperBound >>> l) + length);
+		}
+
+		/**
+		 * Encodes a range.
+		 *
+		 * @param range a range.
+		 * @return the writers used for the lower and upper bits, respectively.
+		 */
+		private WordWriter[] encode(final Range range) {
+			final int l = this.l;
+			final long lowerBitsMask = (1L << l) - 1;
+			final PrimitiveIterator.OfLong iterator = range.iterator;
+			final WordWriter lower = new WordWriter(lowerBits), upper = new WordWriter(upperBits.bits());
+			long last = -1;
+
+			for (long i = range.start, end = range.start + range.size; i < end; i++) {
+				if (!iterator.hasNext()) throw new IllegalArgumentException("The source returned fewer elements than expected");
+				final long v = iterator.nextLong();
+				if (v < last) throw new IllegalArgumentException("Values are not nondecreasing: " + v + " < " + last);
+				if (v < 0) throw new IllegalArgumentException("Negative value: " + v);
+				if (v >= upperBound) throw new IllegalArgumentException("Too large value: " + v + " >= " + upperBound);
+				if (last == -1) range.first = v;
+				last = v;
+
+				if (l != 0) {
+					final long lowerBitsPosition = i * l;
+					final int startBit = bit(lowerBitsPosition);
+					final long lowerBits = v & lowerBitsMask;
+					lower.or(word(lowerBitsPosition), lowerBits << startBit);
+					if (startBit + l > Long.SIZE) lower.or(word(lowerBitsPosition) + 1, lowerBits >>> Long.SIZE - startBit);
+				}
+
+				final long upperBitsPosition = (v >>> l) + i;
+				upper.or(word(upperBitsPosition), 1L << upperBitsPosition);
+			}
+
+			range.last = last;
+			lower.finish();
+			upper.finish();
+			return new WordWriter[] { lower, upper };
+		}
+	}
+
 	public long numBits() {
 		return selectUpper.numBits() + selectUpper.bitVector().length() + bits(lowerBits.length);
 	}
@@ -48,7 +48,10 @@ import it.unimi.dsi.fastutil.shorts.ShortIterable;
  * <p>
  * Instances of this class are essentially a view over an instance of
  * {@link EliasFanoMonotoneLongBigList} storing the prefix sums. The {@link #getLong(long)} method
- * delegates to {@link #getDelta(long)}. The iterator has the same properties of the iterator
+ * delegates to {@link #getDelta(long)}. The bulk methods {@link #get(long, long[], int, int)} and
+ * {@link #prefixSums(long, long[], int, int)} perform a single selection and then decode consecutive
+ * upper and lower bits sequentially, so scanning a range of <var>k</var> values requires
+ * <var>k</var>&nbsp;+&nbsp;1 decodes instead of 2<var>k</var>. The iterator has the same properties of the iterator
  * returned by {@link EliasFanoMonotoneLongBigList#listIterator(long) EliasFanoMonotoneLongBiglist}.
  *
  * @see EliasFanoMonotoneLongBigList
@@ -133,6 +136,88 @@ public class EliasFanoPrefixSumLongBigList extends EliasFanoMonotoneLongBigList
 		return getDelta(index);
 	}
 
+	/**
+	 * Decodes consecutive prefix sums, or their differences, with a single selection.
+	 *
+	 * @param index the index of the first prefix sum decoded.
+	 * @param dest the destination array.
+	 * @param offset the first position written in {@code dest}.
+	 * @param length the number of elements written in {@code dest}.
+	 * @param values if true, we write the {@code length} values starting at {@code index}, which
+	 *            requires decoding {@code length + 1} prefix sums; otherwise, we write the
+	 *            {@code length} prefix sums starting at {@code index}.
+	 * @return {@code dest}.
+	 */
+	private long[] decode(long index, final long[] dest, final int offset, final int length, final boolean values) {
+		final long[] upperBits = this.upperBits.bits();
+		final long[] lowerBits = this.lowerBits;
+		final int l = this.l;
+		final long lowerBitsMask = this.lowerBitsMask;
+
+		final long position = selectUpper.select(index);
+		int word = word(position);
+		long window = upperBits[word] & -1L << position;
+		long lowerBitsPosition = index * l;
+		long prev = 0;
+
+		for (int i = values ? -1 : 0; i < length; i++) {
+			while (window == 0) window = upperBits[++word];
+			final long upper = bits(word) + Long.numberOfTrailingZeros(window) - index++;
+			window &= window - 1;
+			final int startWord = word(lowerBitsPosition);
+			final int startBit = bit(lowerBitsPosition);
+			long lower = lowerBits[startWord] >>> startBit;
+			if (startBit + l > Long.SIZE) lower |= lowerBits[startWord + 1] << -startBit;
+			lowerBitsPosition += l;
+			final long curr = upper << l | lower & lowerBitsMask;
+			if (i >= 0) dest[offset + i] = values ? curr - prev : curr;
+			prev = curr;
+		}
+
+		return dest;
+	}
+
+	/**
+	 * Extracts a number of consecutive values into a given array fragment.
+	 *
+	 * <p>
+	 * Note that, contrarily to {@link EliasFanoMonotoneLongBigList#get(long, long[], int, int)},
+	 * this method returns values, not prefix sums, consistently with {@link #getLong(long)}. Use
+	 * {@link #prefixSums(long, long[], int, int)} to extract prefix sums.
+	 *
+	 * @param index the index of the first value returned.
+	 * @param dest the destination array; it will be filled with {@code length} consecutive values
+	 *            starting at position {@code offset}; must be of length greater than {@code offset}.
+	 * @param offset the first position written in {@code dest}.
+	 * @param length the number of elements written in {@code dest} starting at {@code offset}.
+	 * @return {@code dest}; if the arguments are out of bounds, behavior is undefined.
+	 * @see #get(long, long[])
+	 */
+	@Override
+	public long[] get(final long index, final long[] dest, final int offset, final int length) {
+		assert index >= 0;
+		assert index + length <= size64();
+		assert offset >= 0;
+		assert offset < dest.length;
+		assert length >= 0;
+		assert offset + length <= dest.length;
+		return decode(index, dest, offset, length, true);
+	}
+
+	/**
+	 * Extracts a number of consecutive values into a given array.
+	 *
+	 * @param index the index of the first value returned.
+	 * @param dest the destination array, of nonzero length; it will be filled with consecutive values.
+	 * @return {@code dest}; if {@code index} is out of bounds or {@code dest} has length zero, behavior
+	 *         is undefined.
+	 * @see #get(long, long[], int, int)
+	 */
+	@Override
+	public long[] get(final long index, final long[] dest) {
+		return get(index, dest, 0, dest.length);
+	}
+
 	/** Returns the prefix sum of this list up to the given index.
 	 *
 	 * @param index an index from 0 to the length of this list.
@@ -142,6 +227,55 @@ public class EliasFanoPrefixSumLongBigList extends EliasFanoMonotoneLongBigList
 		return super.getLong(index);
 	}
 
+	/**
+	 * Extracts a number of consecutive prefix sums into a given array fragment.
+	 *
+	 * @param index the index of the first prefix sum returned, from 0 to the length of this list.
+	 * @param dest the destination array; it will be filled with {@code length} consecutive prefix
+	 *            sums starting at position {@code offset}; must be of length greater than
+	 *            {@code offset}.
+	 * @param offset the first position written in {@code dest}.
+	 * @param length the number of elements written in {@code dest} starting at {@code offset}.
+	 * @return {@code dest}; if the arguments are out of bounds, behavior is undefined.
+	 * @see #prefixSum(long)
+	 */
+	public long[] prefixSums(final long index, final long[] dest, final int offset, final int length) {
+		assert index >= 0;
+		assert index + length <= this.length;
+		assert offset >= 0;
+		assert offset < dest.length;
+		assert length >= 0;
+		assert offset + length <= dest.length;
+		return decode(index, dest, offset, length, false);
+	}
+
+	/**
+	 * Extracts a number of consecutive prefix sums into a given array.
+	 *
+	 * @param index the index of the first prefix sum returned, from 0 to the length of this list.
+	 * @param dest the destination array, of nonzero length; it will be filled with consecutive prefix
+	 *            sums.
+	 * @return {@code dest}; if {@code index} is out of bounds or {@code dest} has length zero, behavior
+	 *         is undefined.
+	 * @see #prefixSums(long, long[], int, int)
+	 */
+	public long[] prefixSums(final long index, final long[] dest) {
+		return prefixSums(index, dest, 0, dest.length);
+	}
+
+	/**
+	 * Returns the sum of the values in a given range.
+	 *
+	 * @param from the index of the first value in the range (inclusive).
+	 * @param to the index of the last value in the range (exclusive).
+	 * @return the sum of the values with index between {@code from} (inclusive) and {@code to}
+	 *         (exclusive).
+	 */
+	public long sum(final long from, final long to) {
+		if (from < 0 || from > to || to > size64()) throw new IndexOutOfBoundsException("Invalid range [" + from + ".." + to + ") for a list of size " + size64());
+		return super.getLong(to) - super.getLong(from);
+	}
+
 	@Override
 	public long size64() {
 		return length - 1;
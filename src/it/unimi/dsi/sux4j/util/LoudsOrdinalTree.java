@@ -0,0 +1,198 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.util;
+
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.sux4j.bits.SimpleSelect;
+import it.unimi.dsi.sux4j.bits.SimpleSelectZero;
+
+/**
+ * An ordinal tree represented by its level-order unary degree sequence (LOUDS).
+ *
+ * <p>
+ * The tree is represented by the bit string 10 followed by the degrees of the nodes, in unary
+ * (<var>d</var> ones followed by a zero), in breadth-first order. Nodes are numbered in
+ * breadth-first order: the <var>k</var>-th one represents node <var>k</var>, and the description
+ * of node <var>k</var> follows the <var>k</var>-th zero. All navigation operations can thus be
+ * implemented using a {@link SimpleSelect} and a {@link SimpleSelectZero} over the representation,
+ * for a total of about 2.3 bits per node.
+ *
+ * <p>
+ * {@link #parent(long)}, {@link #firstChild(long)}, {@link #nextSibling(long)},
+ * {@link #child(long, long)} and {@link #degree(long)} require at most two selections;
+ * {@link #depth(long)} and {@link #subtreeSize(long)} require a number of selections proportional to
+ * the height of the tree. If you need fast subtree sizes, use a {@link DfudsOrdinalTree}.
+ *
+ * <p>
+ * Instances of this class are built by a {@link Builder}, which accepts the degrees of the nodes in
+ * breadth-first order.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class LoudsOrdinalTree implements OrdinalTree {
+	private static final long serialVersionUID = 0L;
+
+	/** The representation of the tree. */
+	protected final LongArrayBitVector bits;
+	/** The number of nodes. */
+	protected final long numNodes;
+	/** A selection structure over {@link #bits}. */
+	protected final SimpleSelect select;
+	/** A zero-selection structure over {@link #bits}. */
+	protected final SimpleSelectZero selectZero;
+
+	/**
+	 * A streaming builder for {@linkplain LoudsOrdinalTree LOUDS trees}.
+	 *
+	 * <p>
+	 * The degrees of the nodes must be {@linkplain #add(long) added} in breadth-first order; the
+	 * builder uses just the space of the final representation.
+	 */
+	public static class Builder {
+		/** The representation built so far. */
+		private final LongArrayBitVector bits = LongArrayBitVector.getInstance();
+		/** The number of nodes added so far. */
+		private long numNodes;
+		/** The sum of the degrees of the nodes added so far. */
+		private long sumOfDegrees;
+		/** Whether {@link #build()} has already been called. */
+		private boolean built;
+
+		public Builder() {
+			bits.add(true);
+			bits.add(false);
+		}
+
+		/**
+		 * Adds the next node.
+		 *
+		 * @param degree the number of children of the node.
+		 * @return this builder.
+		 * @throws IllegalArgumentException if the node has no parent.
+		 */
+		public Builder add(final long degree) {
+			if (built) throw new IllegalStateException("This builder has been already used");
+			if (degree < 0) throw new IllegalArgumentException("Negative degree: " + degree);
+			if (numNodes != 0 && sumOfDegrees < numNodes) throw new IllegalArgumentException("Node " + numNodes + " has no parent");
+			final long length = bits.length();
+			bits.length(length + degree + 1);
+			bits.fill(length, length + degree, true);
+			sumOfDegrees += degree;
+			numNodes++;
+			return this;
+		}
+
+		/**
+		 * Builds the tree.
+		 *
+		 * @return a LOUDS tree with the nodes added so far.
+		 * @throws IllegalStateException if the tree is empty, or some children are missing.
+		 */
+		public LoudsOrdinalTree build() {
+			if (built) throw new IllegalStateException("This builder has been already used");
+			if (numNodes == 0) throw new IllegalStateException("The tree has no nodes");
+			if (sumOfDegrees != numNodes - 1) throw new IllegalStateException("The degrees add up to " + sumOfDegrees + ", but there are " + numNodes + " nodes");
+			built = true;
+			bits.trim();
+			return new LoudsOrdinalTree(bits, numNodes);
+		}
+	}
+
+	/**
+	 * Creates a new LOUDS tree.
+	 *
+	 * @param bits the LOUDS representation of a tree.
+	 * @param numNodes the number of nodes.
+	 */
+	protected LoudsOrdinalTree(final LongArrayBitVector bits, final long numNodes) {
+		this.bits = bits;
+		this.numNodes = numNodes;
+		select = new SimpleSelect(bits);
+		selectZero = new SimpleSelectZero(bits);
+	}
+
+	@Override
+	public long parent(final long node) {
+		if (node == 0) return -1;
+		// The number of zeroes before the one representing the node
+		return select.select(node) - node - 1;
+	}
+
+	@Override
+	public long firstChild(final long node) {
+		final long start = selectZero.selectZero(node) + 1;
+		return bits.getBoolean(start) ? start - node - 1 : -1;
+	}
+
+	@Override
+	public long nextSibling(final long node) {
+		if (node == 0) return -1;
+		return bits.getBoolean(select.select(node) + 1) ? node + 1 : -1;
+	}
+
+	@Override
+	public long child(final long node, final long i) {
+		if (i < 0) throw new IllegalArgumentException("Negative child index: " + i);
+		final long start = selectZero.selectZero(node) + 1;
+		if (i >= selectZero.selectZero(node + 1) - start) return -1;
+		return start + i - node - 1;
+	}
+
+	@Override
+	public long degree(final long node) {
+		return selectZero.selectZero(node + 1) - selectZero.selectZero(node) - 1;
+	}
+
+	@Override
+	public long depth(long node) {
+		long depth = 0;
+		while (node != 0) {
+			node = parent(node);
+			depth++;
+		}
+		return depth;
+	}
+
+	@Override
+	public long subtreeSize(final long node) {
+		// Descendants at each level form an interval [l..r]
+		long size = 0;
+		for (long l = node, r = node; l <= r;) {
+			size += r - l + 1;
+			final long nextL = selectZero.selectZero(l) - l;
+			r = selectZero.selectZero(r + 1) - r - 2;
+			l = nextL;
+		}
+		return size;
+	}
+
+	@Override
+	public long size64() {
+		return numNodes;
+	}
+
+	@Override
+	public long numBits() {
+		return bits.length() + select.numBits() + selectZero.numBits();
+	}
+}
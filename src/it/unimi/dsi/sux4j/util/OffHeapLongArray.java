@@ -0,0 +1,176 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An array of longs stored outside of the Java heap, either in direct memory or in a memory-mapped
+ * file.
+ *
+ * <p>
+ * Data is stored in native byte order in segments of {@link #SEGMENT_SIZE} longs, so arrays with
+ * more than 2<sup>31</sup> elements and files larger than 2<sup>31</sup> bytes can be handled.
+ * Read-only mappings share pages through the page cache with other processes mapping the same
+ * file, and are not scanned by the garbage collector. Accesses are absolute, so instances of this
+ * class can be read concurrently by multiple threads.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public final class OffHeapLongArray {
+	/** The base-2 logarithm of the number of longs in a segment. */
+	private static final int LOG2_SEGMENT_SIZE = 27;
+	/** The number of longs in a segment. */
+	public static final long SEGMENT_SIZE = 1L << LOG2_SEGMENT_SIZE;
+	/** The mask used to compute the position of a long inside a segment. */
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+	/** The segments. */
+	private final LongBuffer[] segment;
+	/** The number of longs in the array. */
+	private final long length;
+
+	private OffHeapLongArray(final LongBuffer[] segment, final long length) {
+		this.segment = segment;
+		this.length = length;
+	}
+
+	private static LongBuffer[] segments(final long length) {
+		return new LongBuffer[(int)((length + SEGMENT_SIZE - 1) >>> LOG2_SEGMENT_SIZE)];
+	}
+
+	/**
+	 * Allocates a new array of zeroes in direct memory.
+	 *
+	 * @param length the number of longs in the array.
+	 * @return a new array of {@code length} zeroes stored in direct memory.
+	 */
+	public static OffHeapLongArray allocate(final long length) {
+		final LongBuffer[] segment = segments(length);
+		for (int i = 0; i < segment.length; i++) {
+			final long size = Math.min(SEGMENT_SIZE, length - i * SEGMENT_SIZE);
+			segment[i] = ByteBuffer.allocateDirect((int)(size * Long.BYTES)).order(ByteOrder.nativeOrder()).asLongBuffer();
+		}
+		return new OffHeapLongArray(segment, length);
+	}
+
+	/**
+	 * Maps a file into memory in read-only mode. The file channel can be closed after this call.
+	 *
+	 * @param channel a file channel.
+	 * @return a long array backed by the mapped file; if the file length is not a multiple of eight,
+	 *         the final bytes are ignored.
+	 */
+	public static OffHeapLongArray map(final FileChannel channel) throws IOException {
+		return map(channel, MapMode.READ_ONLY, 0, channel.size() / Long.BYTES);
+	}
+
+	/**
+	 * Maps a region of a file into memory. The file channel can be closed after this call.
+	 *
+	 * <p>
+	 * If {@code mode} is {@link MapMode#READ_WRITE} and the region is not contained in the file,
+	 * the file is extended.
+	 *
+	 * @param channel a file channel.
+	 * @param mode the mapping mode.
+	 * @param offset the starting position of the region, in longs.
+	 * @param length the length of the region, in longs.
+	 * @return a long array backed by the mapped region.
+	 */
+	public static OffHeapLongArray map(final FileChannel channel, final MapMode mode, final long offset, final long length) throws IOException {
+		final LongBuffer[] segment = segments(length);
+		for (int i = 0; i < segment.length; i++) {
+			final long start = i * SEGMENT_SIZE;
+			final long size = Math.min(SEGMENT_SIZE, length - start);
+			segment[i] = channel.map(mode, (offset + start) * Long.BYTES, size * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+		}
+		return new OffHeapLongArray(segment, length);
+	}
+
+	/**
+	 * Creates a new file of given length and maps it into memory in read-write mode.
+	 *
+	 * <p>
+	 * If the file exists, it is truncated. Modifications to the returned array will be written to the
+	 * file.
+	 *
+	 * @param filename the name of the file to create.
+	 * @param length the length of the file, in longs.
+	 * @return a long array of {@code length} zeroes backed by the mapped file.
+	 */
+	public static OffHeapLongArray create(final String filename, final long length) throws IOException {
+		try (final FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return map(channel, MapMode.READ_WRITE, 0, length);
+		}
+	}
+
+	/**
+	 * Maps a file into memory in read-only mode.
+	 *
+	 * @param filename the name of the file to map.
+	 * @return a long array backed by the mapped file; if the file length is not a multiple of eight,
+	 *         the final bytes are ignored.
+	 */
+	public static OffHeapLongArray map(final String filename) throws IOException {
+		try (final FileChannel channel = FileChannel.open(Paths.get(filename))) {
+			return map(channel);
+		}
+	}
+
+	/**
+	 * Returns the long at the given index.
+	 *
+	 * @param index an index.
+	 * @return the long at position {@code index}.
+	 */
+	public long get(final long index) {
+		return segment[(int)(index >>> LOG2_SEGMENT_SIZE)].get((int)(index & SEGMENT_MASK));
+	}
+
+	/**
+	 * Sets the long at the given index.
+	 *
+	 * @param index an index.
+	 * @param value the new value for the long at position {@code index}.
+	 * @throws java.nio.ReadOnlyBufferException if this array is a read-only mapping.
+	 */
+	public void set(final long index, final long value) {
+		segment[(int)(index >>> LOG2_SEGMENT_SIZE)].put((int)(index & SEGMENT_MASK), value);
+	}
+
+	/**
+	 * Returns the number of longs in this array.
+	 *
+	 * @return the number of longs in this array.
+	 */
+	public long length() {
+		return length;
+	}
+}
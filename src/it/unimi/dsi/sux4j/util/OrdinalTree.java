@@ -0,0 +1,129 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.util;
+
+import java.io.Serializable;
+
+import it.unimi.dsi.fastutil.Size64;
+
+/**
+ * A static ordinal tree, that is, a rooted tree in which the children of each node are ordered.
+ *
+ * <p>
+ * Nodes are identified by integers between 0 (the root) and {@link #size64()} (excluded); the
+ * numbering depends on the implementation (e.g., breadth-first or depth-first order). All methods
+ * returning a node return &minus;1 if the node does not exist.
+ *
+ * <p>
+ * Implementations of this interface are usually succinct, that is, they represent a tree with
+ * <var>n</var> nodes using 2<var>n</var> + <i>o</i>(<var>n</var>) bits.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public interface OrdinalTree extends Serializable, Size64 {
+
+	/**
+	 * Returns the root of this tree.
+	 *
+	 * @return the root of this tree (always zero).
+	 */
+	public default long root() {
+		return 0;
+	}
+
+	/**
+	 * Returns the parent of a node.
+	 *
+	 * @param node a node.
+	 * @return the parent of {@code node}, or &minus;1 if {@code node} is the root.
+	 */
+	public long parent(long node);
+
+	/**
+	 * Returns the first child of a node.
+	 *
+	 * @param node a node.
+	 * @return the first child of {@code node}, or &minus;1 if {@code node} is a leaf.
+	 */
+	public long firstChild(long node);
+
+	/**
+	 * Returns the next sibling of a node.
+	 *
+	 * @param node a node.
+	 * @return the next sibling of {@code node}, or &minus;1 if {@code node} is the last child of its
+	 *         parent (or the root).
+	 */
+	public long nextSibling(long node);
+
+	/**
+	 * Returns a child of a node.
+	 *
+	 * @param node a node.
+	 * @param i the index of a child (starting from zero).
+	 * @return the {@code i}-th child of {@code node}, or &minus;1 if {@code node} has {@code i} or
+	 *         less children.
+	 */
+	public long child(long node, long i);
+
+	/**
+	 * Returns the number of children of a node.
+	 *
+	 * @param node a node.
+	 * @return the number of children of {@code node}.
+	 */
+	public long degree(long node);
+
+	/**
+	 * Returns whether a node is a leaf.
+	 *
+	 * @param node a node.
+	 * @return true if {@code node} has no children.
+	 */
+	public default boolean isLeaf(final long node) {
+		return firstChild(node) == -1;
+	}
+
+	/**
+	 * Returns the depth of a node.
+	 *
+	 * @param node a node.
+	 * @return the depth of {@code node} (the root has depth zero).
+	 */
+	public long depth(long node);
+
+	/**
+	 * Returns the size of the subtree of a node.
+	 *
+	 * @param node a node.
+	 * @return the number of nodes in the subtree rooted at {@code node}, {@code node} included.
+	 */
+	public long subtreeSize(long node);
+
+	/**
+	 * Returns the overall number of bits allocated by this structure.
+	 *
+	 * @return the overall number of bits allocated by this structure.
+	 */
+	public long numBits();
+}
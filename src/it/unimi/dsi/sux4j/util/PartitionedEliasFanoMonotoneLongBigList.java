@@ -0,0 +1,873 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.util;
+
+import static it.unimi.dsi.bits.LongArrayBitVector.bit;
+import static it.unimi.dsi.bits.LongArrayBitVector.bits;
+import static it.unimi.dsi.bits.LongArrayBitVector.word;
+
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.fastutil.BigArrays;
+import it.unimi.dsi.fastutil.ints.IntIterable;
+import it.unimi.dsi.fastutil.longs.AbstractLongBigList;
+import it.unimi.dsi.fastutil.longs.LongBigArrayBigList;
+import it.unimi.dsi.fastutil.longs.LongBigArrays;
+import it.unimi.dsi.fastutil.longs.LongBigListIterator;
+import it.unimi.dsi.fastutil.longs.LongIterable;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongIterators;
+
+/**
+ * A partitioned Elias&ndash;Fano representation of a nondecreasing sequence of natural numbers.
+ *
+ * <p>
+ * An {@link EliasFanoMonotoneLongBigList} uses the same number of lower bits for the whole
+ * sequence, which wastes space on clustered sequences, such as posting lists. Instances of this
+ * class, instead, divide the sequence into partitions, and represent each partition relatively to
+ * the last element of the previous partition using the cheapest among three encodings:
+ *
+ * <ul>
+ * <li>if the partition is made of consecutive integers, no data is necessary;
+ * <li>if the partition contains distinct elements, it can be represented by a bitmap;
+ * <li>otherwise, the partition is represented by an Elias&ndash;Fano representation whose number
+ * of lower bits depends only on the partition.
+ * </ul>
+ *
+ * <p>
+ * Partition boundaries are chosen by the &epsilon;-optimal partitioning algorithm described by
+ * Giuseppe Ottaviano and Rossano Venturini in &ldquo;Partitioned Elias&ndash;Fano indexes&rdquo;,
+ * <i>Proc. SIGIR 2014</i>, which computes in linear time a partition whose cost is within a small
+ * factor from the optimal one by finding a shortest path in a pruned graph whose nodes are the
+ * positions in the sequence. Each partition is charged {@link #FIXED_COST} bits for its directory
+ * entries, and contains at most {@link #MAX_PARTITION_SIZE} elements. Bitmap and Elias&ndash;Fano
+ * partitions are followed by the position of every {@value #SELECT_SAMPLE}-th one, so that
+ * in-partition selection scans a small number of words.
+ *
+ * <p>
+ * The starting index and the last element of each partition are stored in an
+ * {@link EliasFanoIndexedMonotoneLongBigList}, and the position of each partition in the bit
+ * vector of encoded partitions is stored in an {@link EliasFanoMonotoneLongBigList}. The interface
+ * mimics that of {@link EliasFanoIndexedMonotoneLongBigList}: beside {@link #getLong(long)}, we
+ * provide {@link #successor(long)}, {@link #predecessor(long)} and similar methods, and the
+ * {@linkplain #listIterator(long) iterator} provides a
+ * {@link PartitionedEliasFanoMonotoneLongBigListIterator#skipTo(long) skipTo()} method. Random
+ * accesses are slower than in an {@link EliasFanoMonotoneLongBigList}, as they require accessing
+ * the directory, but sequential iteration and skipping are fast.
+ *
+ * <p>
+ * Instances of this class are thread safe, unless you use {@link #index()}; iterators are not.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class PartitionedEliasFanoMonotoneLongBigList extends AbstractLongBigList implements Serializable {
+	private static final long serialVersionUID = 0L;
+
+	/** The estimated cost in bits of the directory entries of a partition. */
+	public static final int FIXED_COST = 64;
+	/** The maximum number of elements in a partition. */
+	public static final int MAX_PARTITION_SIZE = 1 << 12;
+	/** The base-two logarithm of {@link #SELECT_SAMPLE}. */
+	private static final int LOG2_SELECT_SAMPLE = 8;
+	/** The number of ones between two consecutive select samples of a partition. */
+	public static final int SELECT_SAMPLE = 1 << LOG2_SELECT_SAMPLE;
+	/**
+	 * The width of a select sample. Since partitions contain at most {@link #MAX_PARTITION_SIZE}
+	 * elements, bitmaps and upper bits span at most 8 {@link #MAX_PARTITION_SIZE} + 1 bits.
+	 */
+	private static final int SAMPLE_WIDTH = 16;
+	/** The approximation parameter bounding the cost of the longest edges considered. */
+	private static final double EPS1 = 0.03;
+	/** The approximation parameter defining the geometric progression of edge costs. */
+	private static final double EPS2 = 0.3;
+
+	/** A partition of consecutive integers. */
+	private static final int ALL_ONES = 0;
+	/** A partition represented by a bitmap. */
+	private static final int BITMAP = 1;
+	/** A partition represented by an Elias&ndash;Fano representation. */
+	private static final int ELIAS_FANO = 2;
+
+	/** The length of the sequence. */
+	protected final long length;
+	/** The number of partitions. */
+	protected final long numPartitions;
+	/** The first element of the sequence, or {@link Long#MAX_VALUE} if the sequence is empty. */
+	protected final long firstElement;
+	/** The last element of the sequence, or &minus;1 if the sequence is empty. */
+	protected final long lastElement;
+	/** The starting index of each partition, followed by {@link #length}. */
+	protected final EliasFanoIndexedMonotoneLongBigList starts;
+	/** The last element of each partition (a single zero if the sequence is empty). */
+	protected final EliasFanoIndexedMonotoneLongBigList lasts;
+	/** The position in {@link #data} of each partition, followed by the length of {@link #data}. */
+	protected final EliasFanoMonotoneLongBigList offsets;
+	/** The type of each partition, two bits per partition. */
+	protected final LongArrayBitVector types;
+	/** The encoded partitions. */
+	protected final LongArrayBitVector data;
+	/**
+	 * The index of the value returned by {@link #predecessor(long)}, {@link #weakPredecessor(long)},
+	 * {@link #successor(long)}, and {@link #strictSuccessor(long)}.
+	 */
+	private long currentIndex = -1;
+
+	/**
+	 * Creates a partitioned Elias&ndash;Fano representation of the values returned by the given
+	 * {@linkplain Iterable iterable object}.
+	 *
+	 * @param list an iterable object returning nondecreasing natural numbers.
+	 */
+	public PartitionedEliasFanoMonotoneLongBigList(final IntIterable list) {
+		this((LongIterable)() -> LongIterators.wrap(list.iterator()));
+	}
+
+	/**
+	 * Creates a partitioned Elias&ndash;Fano representation of the values returned by the given
+	 * {@linkplain Iterable iterable object}.
+	 *
+	 * @param list an iterable object returning nondecreasing natural numbers.
+	 */
+	public PartitionedEliasFanoMonotoneLongBigList(final LongIterable list) {
+		final LongBigArrayBigList values = new LongBigArrayBigList();
+		long prev = 0;
+		for (final LongIterator iterator = list.iterator(); iterator.hasNext();) {
+			final long v = iterator.nextLong();
+			if (v < 0) throw new IllegalArgumentException("Negative value: " + v);
+			if (v < prev) throw new IllegalArgumentException("The list is not monotone: " + prev + ", " + v);
+			values.add(prev = v);
+		}
+		values.trim();
+		final long[][] a = values.elements();
+		final long n = length = values.size64();
+		firstElement = n == 0 ? Long.MAX_VALUE : BigArrays.get(a, 0);
+		lastElement = n == 0 ? -1 : BigArrays.get(a, n - 1);
+
+		final long[][] ends = partition(a, n);
+		numPartitions = BigArrays.length(ends);
+
+		final LongBigArrayBigList startList = new LongBigArrayBigList(numPartitions + 1);
+		final LongBigArrayBigList lastList = new LongBigArrayBigList(numPartitions);
+		final LongBigArrayBigList offsetList = new LongBigArrayBigList(numPartitions + 1);
+		types = LongArrayBitVector.getInstance(2 * numPartitions);
+		data = LongArrayBitVector.getInstance();
+
+		long start = 0;
+		for (long p = 0; p < numPartitions; p++) {
+			final long end = BigArrays.get(ends, p);
+			final long base = p == 0 ? firstElement : BigArrays.get(a, start - 1);
+			final long last = BigArrays.get(a, end - 1);
+			final long m = end - start, u = last - base;
+			startList.add(start);
+			lastList.add(last);
+			offsetList.add(data.length());
+
+			boolean distinct = true;
+			for (long i = start + 1; i < end; i++) if (BigArrays.get(a, i) == BigArrays.get(a, i - 1)) {
+				distinct = false;
+				break;
+			}
+
+			final int type = type(m, u, distinct, last - BigArrays.get(a, start));
+			types.append(type, 2);
+			final long from = data.length();
+			if (type == BITMAP) {
+				data.length(from + u + 1);
+				for (long i = start; i < end; i++) data.set(BigArrays.get(a, i) - base + from);
+			} else if (type == ELIAS_FANO) {
+				final int l = lowerBits(m, u);
+				data.length(from + m + (u >>> l) + 1);
+				for (long i = start; i < end; i++) data.set((BigArrays.get(a, i) - base >>> l) + i - start + from);
+				if (l != 0) for (long i = start; i < end; i++) data.append(BigArrays.get(a, i) - base & (1L << l) - 1, l);
+			}
+			if (type != ALL_ONES) {
+				// Select samples are stored backwards, so that they can be located from the end of the partition
+				final int l = type == BITMAP ? 0 : lowerBits(m, u);
+				for (long j = m - 1 >>> LOG2_SELECT_SAMPLE; j != 0; j--) {
+					final long i = start + (j << LOG2_SELECT_SAMPLE);
+					final long position = (BigArrays.get(a, i) - base >>> l) + (type == BITMAP ? 0 : i - start);
+					assert position < 1 << SAMPLE_WIDTH;
+					data.append(position, SAMPLE_WIDTH);
+				}
+			}
+			start = end;
+		}
+
+		startList.add(n);
+		offsetList.add(data.length());
+		// Elias–Fano lists cannot be empty
+		if (n == 0) lastList.add(0);
+		types.trim();
+		data.trim();
+
+		starts = new EliasFanoIndexedMonotoneLongBigList(startList);
+		lasts = new EliasFanoIndexedMonotoneLongBigList(lastList);
+		offsets = new EliasFanoMonotoneLongBigList(offsetList);
+	}
+
+	/**
+	 * Computes an &epsilon;-optimal partition of a nondecreasing sequence.
+	 *
+	 * <p>
+	 * For each position {@code i}, the edges of the pruned graph leaving {@code i} are the edge to
+	 * {@code i + 1} and, for each cost class in a geometric progression, the longest edge whose cost
+	 * does not exceed the class bound. The ends of such edges are nondecreasing in {@code i}, so they
+	 * can be computed by moving a window per class, and since edges go forward the graph is processed
+	 * in topological order.
+	 *
+	 * @param a a big array containing a nondecreasing sequence.
+	 * @param n the length of the sequence.
+	 * @return a big array containing the (exclusive) ends of the partitions.
+	 */
+	private static long[][] partition(final long[][] a, final long n) {
+		if (n == 0) return LongBigArrays.EMPTY_BIG_ARRAY;
+
+		final LongBigArrayBigList boundList = new LongBigArrayBigList();
+		for (double c = FIXED_COST; c <= FIXED_COST / EPS1; c *= 1 + EPS2) boundList.add((long)c);
+		final long[] bound = boundList.toLongArray();
+		final long[] windowEnd = new long[bound.length];
+
+		final long[][] dist = LongBigArrays.newBigArray(n + 1);
+		final long[][] pred = LongBigArrays.newBigArray(n + 1);
+		BigArrays.fill(dist, Long.MAX_VALUE);
+		BigArrays.set(dist, 0, 0);
+
+		// The smallest position k > i such that a[k] == a[k - 1], or n
+		long nextDup = 1;
+
+		for (long i = 0; i < n; i++) {
+			final long d = BigArrays.get(dist, i);
+			final long base = i == 0 ? BigArrays.get(a, 0) : BigArrays.get(a, i - 1);
+			final long first = BigArrays.get(a, i);
+			while (nextDup < n && (nextDup <= i || BigArrays.get(a, nextDup) != BigArrays.get(a, nextDup - 1))) nextDup++;
+
+			long c = d + cost(1, first - base, true, 0);
+			if (c < BigArrays.get(dist, i + 1)) {
+				BigArrays.set(dist, i + 1, c);
+				BigArrays.set(pred, i + 1, i);
+			}
+
+			for (int h = 0; h < bound.length; h++) {
+				long j = Math.max(windowEnd[h], i + 1);
+				while (j < n && j + 1 - i <= MAX_PARTITION_SIZE) {
+					final long last = BigArrays.get(a, j);
+					if (cost(j + 1 - i, last - base, nextDup > j, last - first) > bound[h]) break;
+					j++;
+				}
+				windowEnd[h] = j;
+				if (j == i + 1) continue;
+				final long last = BigArrays.get(a, j - 1);
+				c = d + cost(j - i, last - base, nextDup >= j, last - first);
+				if (c < BigArrays.get(dist, j)) {
+					BigArrays.set(dist, j, c);
+					BigArrays.set(pred, j, i);
+				}
+			}
+		}
+
+		long count = 0;
+		for (long j = n; j != 0; j = BigArrays.get(pred, j)) count++;
+		final long[][] ends = LongBigArrays.newBigArray(count);
+		for (long j = n; j != 0; j = BigArrays.get(pred, j)) BigArrays.set(ends, --count, j);
+		return ends;
+	}
+
+	/** Returns the number of lower bits of the Elias&ndash;Fano representation of a partition. */
+	private static int lowerBits(final long m, final long u) {
+		return u + 1 > m ? Fast.mostSignificantBit((u + 1) / m) : 0;
+	}
+
+	/**
+	 * Returns the cheapest representation of a partition.
+	 *
+	 * @param m the number of elements in the partition.
+	 * @param u the difference between the last element of the partition and its base.
+	 * @param distinct whether the elements of the partition are distinct.
+	 * @param span the difference between the last and the first element of the partition.
+	 * @return the cheapest representation (in case of ties, the fastest).
+	 */
+	private static int type(final long m, final long u, final boolean distinct, final long span) {
+		if (distinct && span == m - 1) return ALL_ONES;
+		return distinct && payloadBits(BITMAP, m, u) <= payloadBits(ELIAS_FANO, m, u) ? BITMAP : ELIAS_FANO;
+	}
+
+	/** Returns the number of bits used in {@link #data} by a partition of given type. */
+	private static long payloadBits(final int type, final long m, final long u) {
+		switch (type) {
+		case ALL_ONES:
+			return 0;
+		case BITMAP:
+			return u + 1 + (m - 1 >>> LOG2_SELECT_SAMPLE) * SAMPLE_WIDTH;
+		default:
+			final int l = lowerBits(m, u);
+			return m * (l + 1) + (u >>> l) + 1 + (m - 1 >>> LOG2_SELECT_SAMPLE) * SAMPLE_WIDTH;
+		}
+	}
+
+	/** Returns the cost in bits of a partition, including {@link #FIXED_COST}. */
+	private static long cost(final long m, final long u, final boolean distinct, final long span) {
+		return FIXED_COST + payloadBits(type(m, u, distinct, span), m, u);
+	}
+
+	/** Returns the position of the {@code k}-th one (zero-based) at or after a given position. */
+	private long selectOne(final long from, long k) {
+		final long[] t = data.bits();
+		int w = word(from);
+		long x = t[w] & -1L << from;
+		for (;;) {
+			final int c = Long.bitCount(x);
+			if (k < c) return bits(w) + Fast.select(x, (int)k);
+			k -= c;
+			x = t[++w];
+		}
+	}
+
+	/**
+	 * Returns the position of the {@code k}-th one (zero-based) of a bitmap or Elias&ndash;Fano
+	 * partition, starting the scan from the nearest select sample.
+	 *
+	 * @param p a partition.
+	 * @param offset the position in {@link #data} of partition {@code p}.
+	 * @param k the rank of a one in partition {@code p}.
+	 * @return the position of the {@code k}-th one of partition {@code p}.
+	 */
+	private long selectOne(final long p, final long offset, final long k) {
+		if (k < SELECT_SAMPLE) return selectOne(offset, k);
+		final long sample = offsets.getLong(p + 1) - (k >>> LOG2_SELECT_SAMPLE) * SAMPLE_WIDTH;
+		return selectOne(offset + data.getLong(sample, sample + SAMPLE_WIDTH), k & SELECT_SAMPLE - 1);
+	}
+
+	/** Returns the position of the first one at or after a given position. */
+	private long nextOne(final long from) {
+		final long[] t = data.bits();
+		int w = word(from);
+		long x = t[w] & -1L << from;
+		while (x == 0) x = t[++w];
+		return bits(w) + Long.numberOfTrailingZeros(x);
+	}
+
+	/** Returns the position of the {@code k}-th zero (zero-based) at or after a given position. */
+	private long selectZero(final long from, long k) {
+		final long[] t = data.bits();
+		int w = word(from);
+		long x = ~t[w] & -1L << from;
+		for (;;) {
+			final int c = Long.bitCount(x);
+			if (k < c) return bits(w) + Fast.select(x, (int)k);
+			k -= c;
+			x = ~t[++w];
+		}
+	}
+
+	/** Returns the number of ones in the given range of positions. */
+	private long count(final long from, final long to) {
+		if (from >= to) return 0;
+		final long[] t = data.bits();
+		final int lastWord = word(to - 1);
+		int w = word(from);
+		if (w == lastWord) return Long.bitCount(t[w] & -1L << from & -1L >>> -to);
+		long c = Long.bitCount(t[w] & -1L << from);
+		while (++w < lastWord) c += Long.bitCount(t[w]);
+		return c + Long.bitCount(t[lastWord] & -1L >>> -to);
+	}
+
+	/** Returns the {@code k}-th lower bits of an Elias&ndash;Fano partition. */
+	private long lower(final long lowerOffset, final int l, final long k) {
+		if (l == 0) return 0;
+		final long[] t = data.bits();
+		final long position = lowerOffset + k * l;
+		final int startWord = word(position);
+		final int startBit = bit(position);
+		final long result = t[startWord] >>> startBit;
+		return (startBit + l <= Long.SIZE ? result : result | t[startWord + 1] << -startBit) & -1L >>> -l;
+	}
+
+	/**
+	 * Returns the element of given rank in a partition.
+	 *
+	 * <p>
+	 * Only the directory entries needed by the type of the partition are read.
+	 *
+	 * @param p a partition.
+	 * @param start the starting index of partition {@code p}.
+	 * @param k the rank of the element in the partition.
+	 * @return the element of rank {@code k} in partition {@code p}.
+	 */
+	private long get(final long p, final long start, final long k) {
+		final int type = (int)types.getLong(2 * p, 2 * p + 2);
+		if (type == ALL_ONES) return lasts.getLong(p) - (starts.getLong(p + 1) - 1 - start - k);
+		final long base = p == 0 ? firstElement : lasts.getLong(p - 1);
+		final long offset = offsets.getLong(p);
+		if (type == BITMAP) return base + selectOne(p, offset, k) - offset;
+		final long m = starts.getLong(p + 1) - start;
+		final long u = lasts.getLong(p) - base;
+		final int l = lowerBits(m, u);
+		return base + ((selectOne(p, offset, k) - offset - k) << l | lower(offset + m + (u >>> l) + 1, l, k));
+	}
+
+	/**
+	 * Returns the element at the specified position.
+	 *
+	 * @param index a position in the list.
+	 * @return the element at the specified position; if {@code index} is out of bounds, behavior is
+	 *         undefined.
+	 */
+	@Override
+	public long getLong(final long index) {
+		assert index >= 0;
+		assert index < length;
+		final long p = starts.weakPredecessorIndex(index);
+		final long start = starts.getLong(p);
+		return get(p, start, index - start);
+	}
+
+	@Override
+	public long size64() {
+		return length;
+	}
+
+	/**
+	 * Returns the number of bits used by this structure.
+	 *
+	 * @return the number of bits used by this structure.
+	 */
+	public long numBits() {
+		return data.length() + types.length() + starts.numBits() + lasts.numBits() + offsets.numBits();
+	}
+
+	/**
+	 * Returns the index of the first element of the sequence that is greater than or equal to the
+	 * provided bound.
+	 *
+	 * <p>
+	 * This method is faster than {@link #successor(long)}, as it does not have to compute the actual
+	 * successor; moreover, it does not change the return value of {@link #index()}.
+	 *
+	 * @param lowerBound a lower bound on the returned value.
+	 * @return the index of the first element of the sequence that is greater than or equal to
+	 *         {@code lowerBound}, or the list length if no such element exists.
+	 * @see #successor(long)
+	 */
+	public long successorIndex(final long lowerBound) {
+		if (lowerBound <= firstElement) return 0;
+		if (lowerBound > lastElement) return length;
+
+		final long p = lasts.successorIndex(lowerBound);
+		final long start = starts.getLong(p);
+		final int type = (int)types.getLong(2 * p, 2 * p + 2);
+		final long last = lasts.getLong(p);
+		final long m = starts.getLong(p + 1) - start;
+		if (type == ALL_ONES) return start + Math.max(0, lowerBound - (last - (m - 1)));
+
+		final long base = p == 0 ? firstElement : lasts.getLong(p - 1);
+		final long offset = offsets.getLong(p);
+		final long r = lowerBound - base;
+		if (type == BITMAP) return start + count(offset, offset + r);
+
+		final long u = last - base;
+		final int l = lowerBits(m, u);
+		final long lowerOffset = offset + m + (u >>> l) + 1;
+		final long zerosToSkip = r >>> l;
+		long position = zerosToSkip == 0 ? offset : selectZero(offset, zerosToSkip - 1) + 1;
+		long k = position - offset - zerosToSkip;
+		for (;;) {
+			position = nextOne(position);
+			if (((position - offset - k) << l | lower(lowerOffset, l, k)) >= r) return start + k;
+			position++;
+			k++;
+		}
+	}
+
+	/**
+	 * Returns the first element of the sequence that is greater than or equal to the provided bound. If
+	 * such an element exists, its position in the sequence can be retrieved using {@link #index()}.
+	 *
+	 * @param lowerBound a lower bound on the returned value.
+	 * @return the first element of the sequence that is greater than or equal to {@code lowerBound}, or
+	 *         {@link Long#MAX_VALUE} if no such element exists, in which case {@link #index()} will
+	 *         return the list length.
+	 * @see #strictSuccessor(long)
+	 */
+	public long successor(final long lowerBound) {
+		final long index = currentIndex = successorIndex(lowerBound);
+		return index == length ? Long.MAX_VALUE : getLong(index);
+	}
+
+	/**
+	 * Returns the index of the first element of the sequence that is greater than the provided bound.
+	 *
+	 * <p>
+	 * This method is faster than {@link #strictSuccessor(long)}, as it does not have to compute the
+	 * actual strict successor; moreover, it does not change the return value of {@link #index()}.
+	 *
+	 * @param lowerBound a lower bound on the returned value.
+	 * @return the index of the first element of the sequence that is greater than {@code lowerBound},
+	 *         or the list length if no such element exists.
+	 * @see #strictSuccessor(long)
+	 */
+	public long strictSuccessorIndex(final long lowerBound) {
+		if (lowerBound < firstElement) return 0;
+		if (lowerBound >= lastElement) return length;
+		return successorIndex(lowerBound + 1);
+	}
+
+	/**
+	 * Returns the first element of the sequence that is greater than the provided bound. If such an
+	 * element exists, its position in the sequence can be retrieved using {@link #index()}.
+	 *
+	 * @param lowerBound a lower bound on the returned value.
+	 * @return the first element of the sequence that is greater than {@code lowerBound}, or
+	 *         {@link Long#MAX_VALUE} if no such element exists, in which case {@link #index()} will
+	 *         return the list length.
+	 * @see #successor(long)
+	 */
+	public long strictSuccessor(final long lowerBound) {
+		final long index = currentIndex = strictSuccessorIndex(lowerBound);
+		return index == length ? Long.MAX_VALUE : getLong(index);
+	}
+
+	/**
+	 * Returns the index of the last element of the sequence that is less than the provided bound.
+	 *
+	 * <p>
+	 * This method is faster than {@link #predecessor(long)}, as it does not have to compute the actual
+	 * predecessor; moreover, it does not change the return value of {@link #index()}.
+	 *
+	 * @param upperBound an upper bound on the returned value.
+	 * @return the index of the last element of the sequence that is less than {@code upperBound}, or
+	 *         &minus;1 if no such element exists.
+	 * @see #predecessor(long)
+	 */
+	public long predecessorIndex(final long upperBound) {
+		return successorIndex(upperBound) - 1;
+	}
+
+	/**
+	 * Returns the last element of the sequence that is less than the provided bound. If such an
+	 * element exists, its position in the sequence can be retrieved using {@link #index()}.
+	 *
+	 * @param upperBound a strict upper bound on the returned value.
+	 * @return the last element of the sequence that is less than {@code upperBound}, or &minus;1 if no
+	 *         such element exists, in which case {@link #index()} will return &minus;1.
+	 * @see #weakPredecessor(long)
+	 */
+	public long predecessor(final long upperBound) {
+		final long index = currentIndex = predecessorIndex(upperBound);
+		return index == -1 ? -1 : getLong(index);
+	}
+
+	/**
+	 * Returns the index of the last element of the sequence that is less than or equal to the provided
+	 * bound.
+	 *
+	 * <p>
+	 * This method is faster than {@link #weakPredecessor(long)}, as it does not have to compute the
+	 * actual weak predecessor; moreover, it does not change the return value of {@link #index()}.
+	 *
+	 * @param upperBound an upper bound on the returned value.
+	 * @return the index of the last element of the sequence that is less than or equal to
+	 *         {@code upperBound}, or &minus;1 if no such element exists.
+	 * @see #weakPredecessor(long)
+	 */
+	public long weakPredecessorIndex(final long upperBound) {
+		return strictSuccessorIndex(upperBound) - 1;
+	}
+
+	/**
+	 * Returns the last element of the sequence that is less than or equal to the provided bound. If
+	 * such an element exists, its position in the sequence can be retrieved using {@link #index()}.
+	 *
+	 * @param upperBound an upper bound on the returned value.
+	 * @return the last element of the sequence that is less than or equal to {@code upperBound}, or
+	 *         &minus;1 if no such element exists, in which case {@link #index()} will return &minus;1.
+	 * @see #predecessor(long)
+	 */
+	public long weakPredecessor(final long upperBound) {
+		final long index = currentIndex = weakPredecessorIndex(upperBound);
+		return index == -1 ? -1 : getLong(index);
+	}
+
+	/**
+	 * Returns the index of the first occurrence of the specified element in the sequence, or &minus;1
+	 * if the element does not belong to the sequence.
+	 *
+	 * <p>
+	 * This method does not change the value returned by {@link #index()}.
+	 *
+	 * @param x a long.
+	 * @return the position of {@code x} in the sequence, or &minus;1 if {@code x} does not belong to
+	 *         the sequence.
+	 */
+	@Override
+	public long indexOf(final long x) {
+		if (x < firstElement || x > lastElement) return -1;
+		final long index = successorIndex(x);
+		return getLong(index) == x ? index : -1;
+	}
+
+	/**
+	 * Returns true if the sequence contains the specified element.
+	 *
+	 * <p>
+	 * This method does not change the value returned by {@link #index()}. Use {@link #indexOf(long)} if
+	 * you need to retrieve the position of an element.
+	 *
+	 * @param x a long.
+	 * @return true if the sequence contains {@code x}.
+	 */
+	@Override
+	public boolean contains(final long x) {
+		return indexOf(x) != -1;
+	}
+
+	/**
+	 * Returns the index realizing the last value returned by {@link #successor(long)},
+	 * {@link #strictSuccessor(long)}, {@link #predecessor(long)}, and {@link #weakPredecessor(long)}.
+	 *
+	 * <p>
+	 * Usage of this method makes instances of this class not thread safe, as the return value is cached
+	 * internally.
+	 *
+	 * @return the index of the element realizing the last value returned by {@link #successor(long)},
+	 *         {@link #strictSuccessor(long)}, {@link #predecessor(long)}, and
+	 *         {@link #weakPredecessor(long)}, or &minus;1 if no such method has ever been called.
+	 */
+	public long index() {
+		return currentIndex;
+	}
+
+	/**
+	 * A list iterator over the values of a {@link PartitionedEliasFanoMonotoneLongBigList}.
+	 *
+	 * <p>
+	 * Sequential iteration decodes the current partition incrementally, and {@link #skipTo(long)}
+	 * uses the directory of last elements to jump directly to the right partition, and then searches
+	 * from the current position or from the start of the partition.
+	 */
+	public final class PartitionedEliasFanoMonotoneLongBigListIterator implements LongBigListIterator {
+		/** The index of the next element to return. */
+		private long index;
+		/** The last returned value. */
+		private long last = -1;
+		/** Whether the partition state is consistent with {@link #index}. */
+		private boolean synced;
+		/** The current partition. */
+		private long p;
+		/** The starting index of the current partition. */
+		private long start;
+		/** The (exclusive) ending index of the current partition. */
+		private long end;
+		/** The type of the current partition. */
+		private int type;
+		/** The base of the current partition. */
+		private long base;
+		/** The last element of the current partition. */
+		private long partitionLast;
+		/** The position in {@link PartitionedEliasFanoMonotoneLongBigList#data data} of the current partition. */
+		private long offset;
+		/** The number of lower bits of the current partition, if it is an Elias&ndash;Fano partition. */
+		private int l;
+		/** The position of the lower bits of the current partition, if it is an Elias&ndash;Fano partition. */
+		private long lowerOffset;
+		/** The position of the bit preceding the one representing the element of index {@link #index}. */
+		private long position;
+
+		private PartitionedEliasFanoMonotoneLongBigListIterator(final long from) {
+			index = from;
+		}
+
+		/** Loads the state of a partition and positions this iterator on its first element. */
+		private void load(final long p) {
+			this.p = p;
+			index = start = starts.getLong(p);
+			base = p == 0 ? firstElement : lasts.getLong(p - 1);
+			offset = offsets.getLong(p);
+			setup();
+		}
+
+		/**
+		 * Loads the state of the partition following the current one and positions this iterator on its
+		 * first element. The base, the starting index and the position of the next partition are
+		 * computed from the state of the current one, saving three accesses to the directory.
+		 */
+		private void loadNext() {
+			offset += payloadBits(type, end - start, partitionLast - base);
+			p++;
+			index = start = end;
+			base = partitionLast;
+			setup();
+		}
+
+		/** Completes the loading of the state of partition {@link #p}. */
+		private void setup() {
+			end = starts.getLong(p + 1);
+			type = (int)types.getLong(2 * p, 2 * p + 2);
+			partitionLast = lasts.getLong(p);
+			position = offset - 1;
+			if (type == ELIAS_FANO) {
+				final long m = end - start, u = partitionLast - base;
+				l = lowerBits(m, u);
+				lowerOffset = offset + m + (u >>> l) + 1;
+			}
+			synced = true;
+		}
+
+		/** Makes the partition state consistent with {@link #index}, which must be smaller than the list length. */
+		private void sync() {
+			final long index = this.index;
+			load(starts.weakPredecessorIndex(index));
+			this.index = index;
+			if (index != start && type != ALL_ONES) position = selectOne(p, offset, index - start - 1);
+		}
+
+		@Override
+		public long previousIndex() {
+			return index - 1;
+		}
+
+		@Override
+		public long nextIndex() {
+			return index;
+		}
+
+		@Override
+		public boolean hasPrevious() {
+			return index > 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < length;
+		}
+
+		@Override
+		public long nextLong() {
+			if (!hasNext()) throw new NoSuchElementException();
+			if (!synced) sync();
+			else if (index == end) loadNext();
+
+			switch (type) {
+			case ALL_ONES:
+				last = partitionLast - (end - 1 - index);
+				break;
+			case BITMAP:
+				position = nextOne(position + 1);
+				last = base + position - offset;
+				break;
+			default:
+				position = nextOne(position + 1);
+				final long k = index - start;
+				last = base + ((position - offset - k) << l | lower(lowerOffset, l, k));
+			}
+
+			index++;
+			return last;
+		}
+
+		@Override
+		public long previousLong() {
+			if (!hasPrevious()) throw new NoSuchElementException();
+			synced = false;
+			return last = getLong(--index);
+		}
+
+		/**
+		 * Moves this iterator to the first element greater than or equal to the provided bound.
+		 *
+		 * @param lowerBound a nonnegative lower bound.
+		 * @return the last element returned by {@link #nextLong()} or {@link #previousLong()} if it is
+		 *         smaller than or equal to {@code lowerBound}, in which case this method is a no-op.
+		 *         Otherwise, the first element among the ones that will be returned by {@link #nextLong()}
+		 *         that is greater than or equal to {@code lowerBound}. The iterator will be positioned on
+		 *         the element (i.e., the next call to {@link #nextLong()} will return the element). In
+		 *         particular, {@link #nextIndex()} returns the index of the returned element in the list.
+		 *         If no such element exists, this methods returns {@link Long#MAX_VALUE} and sets the
+		 *         current index to the list length.
+		 */
+		public long skipTo(final long lowerBound) {
+			if (lowerBound < 0) throw new IllegalArgumentException();
+			if (lowerBound <= last) return last;
+			if (lowerBound > lastElement || index == length) {
+				index = length;
+				synced = false;
+				return Long.MAX_VALUE;
+			}
+
+			if (!synced) sync();
+			if (lowerBound > partitionLast) load(lasts.successorIndex(lowerBound));
+			else if (index == end) loadNext();
+
+			switch (type) {
+			case ALL_ONES:
+				index = Math.max(index, start + Math.max(0, lowerBound - (partitionLast - (end - 1 - start))));
+				return partitionLast - (end - 1 - index);
+			case BITMAP: {
+				final long next = nextOne(Math.max(position + 1, offset + lowerBound - base));
+				index += count(position + 1, next);
+				position = next - 1;
+				return base + next - offset;
+			}
+			default:
+				final long r = Math.max(0, lowerBound - base);
+				final long zerosToSkip = r >>> l;
+				long k = index - start;
+				long next = position + 1;
+				final long zeros = next - offset - k;
+				if (zerosToSkip > zeros) {
+					next = selectZero(next, zerosToSkip - zeros - 1) + 1;
+					k = next - offset - zerosToSkip;
+				}
+				for (;;) {
+					next = nextOne(next);
+					final long v = (next - offset - k) << l | lower(lowerOffset, l, k);
+					if (v >= r) {
+						index = start + k;
+						position = next - 1;
+						return base + v;
+					}
+					next++;
+					k++;
+				}
+			}
+		}
+	}
+
+	@Override
+	public PartitionedEliasFanoMonotoneLongBigListIterator listIterator(final long from) {
+		ensureIndex(from);
+		return new PartitionedEliasFanoMonotoneLongBigListIterator(from);
+	}
+
+	@Override
+	public PartitionedEliasFanoMonotoneLongBigListIterator listIterator() {
+		return new PartitionedEliasFanoMonotoneLongBigListIterator(0);
+	}
+
+	@Override
+	public PartitionedEliasFanoMonotoneLongBigListIterator iterator() {
+		return listIterator();
+	}
+}
@@ -21,7 +21,9 @@
 package it.unimi.dsi.sux4j.util;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Arrays;
 
 import com.martiansoftware.jsap.JSAP;
 import com.martiansoftware.jsap.JSAPException;
@@ -32,11 +34,16 @@ import com.martiansoftware.jsap.UnflaggedOption;
 
 import it.unimi.dsi.big.util.StringMap;
 import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.Size64;
 import it.unimi.dsi.fastutil.io.BinIO;
 import it.unimi.dsi.fastutil.objects.AbstractObject2LongFunction;
 import it.unimi.dsi.fastutil.objects.Object2LongFunction;
+import it.unimi.dsi.fastutil.objects.Object2LongLinkedOpenCustomHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectBigList;
+import it.unimi.dsi.sux4j.mph.CHDMinimalPerfectHashFunction;
+import it.unimi.dsi.sux4j.mph.GOV4Function;
 import it.unimi.dsi.sux4j.mph.TwoStepsLcpMonotoneMinimalPerfectHashFunction;
 import it.unimi.dsi.sux4j.mph.ZFastTrieDistributorMonotoneMinimalPerfectHashFunction;
 
@@ -51,6 +58,17 @@ import it.unimi.dsi.sux4j.mph.ZFastTrieDistributorMonotoneMinimalPerfectHashFunc
  *
  * <p>This adapter does not (of course) implement {@link #list()}.
  *
+ * <p>Optionally, the results of recent lookups can be kept in a bounded cache, which is
+ * useful when a small set of hot strings accounts for most lookups, as hits avoid
+ * the transformation and the hashing of the string. The cache is divided into
+ * independently locked stripes, so that concurrent lookups rarely contend, and evicts entries
+ * following an {@linkplain Eviction eviction policy}. The cache is not serialized: a
+ * deserialized map starts with an empty cache with the same configuration.
+ *
+ * <p>{@link #getLongs(CharSequence[], long[])} performs lookups in batch, delegating cache
+ * misses to the batch methods of the underlying function, if available (presently, for
+ * {@link GOV4Function}, {@link CHDMinimalPerfectHashFunction} and {@link TwoStepsLcpMonotoneMinimalPerfectHashFunction}).
+ *
  * @author Sebastiano Vigna
  * @since 3.1.1
  */
@@ -58,15 +76,89 @@ import it.unimi.dsi.sux4j.mph.ZFastTrieDistributorMonotoneMinimalPerfectHashFunc
 public class SignedFunctionStringMap extends AbstractObject2LongFunction<CharSequence> implements StringMap<CharSequence>, Serializable {
 	private static final long serialVersionUID = 0L;
 
+	/** Eviction policies for the cache of a {@link SignedFunctionStringMap}. */
+	public static enum Eviction {
+		/** Evicts the least recently used entry. */
+		LRU,
+		/** Evicts the least recently inserted entry; hits do not modify the cache, which makes them cheaper. */
+		FIFO
+	}
+
+	/** A hash strategy for character sequences based on their content, compatible with {@link String#hashCode()}. */
+	private static final class CharSequenceStrategy implements Hash.Strategy<CharSequence>, Serializable {
+		private static final long serialVersionUID = 0L;
+		private static final CharSequenceStrategy INSTANCE = new CharSequenceStrategy();
+
+		@Override
+		public int hashCode(final CharSequence s) {
+			if (s == null) return 0;
+			if (s instanceof String) return s.hashCode();
+			int h = 0;
+			for (int i = 0, length = s.length(); i < length; i++) h = 31 * h + s.charAt(i);
+			return h;
+		}
+
+		@Override
+		public boolean equals(final CharSequence a, final CharSequence b) {
+			if (a == b) return true;
+			if (a == null || b == null) return false;
+			final int length = a.length();
+			if (length != b.length()) return false;
+			for (int i = 0; i < length; i++) if (a.charAt(i) != b.charAt(i)) return false;
+			return true;
+		}
+	}
+
+	/** The default return value of the stripes of the cache; values equal to this one are simply recomputed. */
+	private static final long MISSING = Long.MIN_VALUE;
+
 	/** The underlying function. */
 	protected final Object2LongFunction<? extends CharSequence> function;
+	/** The maximum number of entries in the cache, or zero for no cache. */
+	protected final int cacheSize;
+	/** The eviction policy of the cache. */
+	protected final Eviction eviction;
+	/** The number of stripes of the cache (a power of two). */
+	protected final int stripes;
+	/** The stripes of the cache, or {@code null} if there is no cache. */
+	protected transient Object2LongLinkedOpenCustomHashMap<CharSequence>[] cache;
 
 	/** Creates a new string map by wrapping a specified signed function.
 	 *
 	 * @param function a signed function.
 	 */
 	public SignedFunctionStringMap(final Object2LongFunction<? extends CharSequence> function) {
+		this(function, 0, Eviction.LRU);
+	}
+
+	/** Creates a new string map by wrapping a specified signed function, caching the results of recent lookups
+	 * in a cache with a number of stripes depending on the number of available processors.
+	 *
+	 * @param function a signed function.
+	 * @param cacheSize the maximum number of entries in the cache, or zero for no cache.
+	 * @param eviction the eviction policy of the cache.
+	 */
+	public SignedFunctionStringMap(final Object2LongFunction<? extends CharSequence> function, final int cacheSize, final Eviction eviction) {
+		this(function, cacheSize, 4 * Runtime.getRuntime().availableProcessors(), eviction);
+	}
+
+	/** Creates a new string map by wrapping a specified signed function, caching the results of recent lookups.
+	 *
+	 * @param function a signed function.
+	 * @param cacheSize the maximum number of entries in the cache, or zero for no cache.
+	 * @param concurrencyLevel the expected number of threads accessing concurrently the cache; it will be
+	 * used to size the number of stripes.
+	 * @param eviction the eviction policy of the cache.
+	 */
+	public SignedFunctionStringMap(final Object2LongFunction<? extends CharSequence> function, final int cacheSize, final int concurrencyLevel, final Eviction eviction) {
+		if (cacheSize < 0) throw new IllegalArgumentException("Negative cache size: " + cacheSize);
+		if (concurrencyLevel <= 0) throw new IllegalArgumentException("Nonpositive concurrency level: " + concurrencyLevel);
 		this.function = function;
+		this.cacheSize = cacheSize;
+		this.eviction = eviction;
+		// Stripes must be a power of two, and must contain at least one entry
+		this.stripes = cacheSize == 0 ? 0 : Math.min(HashCommon.nextPowerOfTwo(concurrencyLevel), Integer.highestOneBit(cacheSize));
+		initCache();
 	}
 
 	/** Creates a new string map by creating and wrapping a {@link ZFastTrieDistributorMonotoneMinimalPerfectHashFunction}.
@@ -74,25 +166,118 @@ public class SignedFunctionStringMap extends AbstractObject2LongFunction<CharSeq
 	 * @param keys the keys used to populate the string map.
 	 */
 	public SignedFunctionStringMap(final Iterable<? extends CharSequence> keys) throws IOException {
-		this.function = new TwoStepsLcpMonotoneMinimalPerfectHashFunction.Builder<CharSequence>().keys(keys).transform(TransformationStrategies.prefixFreeUtf16()).build();
+		this(new TwoStepsLcpMonotoneMinimalPerfectHashFunction.Builder<CharSequence>().keys(keys).transform(TransformationStrategies.prefixFreeUtf16()).build());
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private void initCache() {
+		if (cacheSize == 0) return;
+		cache = new Object2LongLinkedOpenCustomHashMap[stripes];
+		for (int i = 0; i < stripes; i++) {
+			cache[i] = new Object2LongLinkedOpenCustomHashMap<>(cacheSize / stripes, CharSequenceStrategy.INSTANCE);
+			cache[i].defaultReturnValue(MISSING);
+		}
+	}
+
+	/** Returns the stripe of the cache responsible for a given key. */
+	private Object2LongLinkedOpenCustomHashMap<CharSequence> stripe(final CharSequence s) {
+		return cache[HashCommon.mix(CharSequenceStrategy.INSTANCE.hashCode(s)) & stripes - 1];
+	}
+
+	/** Looks up a key in the cache.
+	 *
+	 * @param stripe the stripe of the cache responsible for {@code s}.
+	 * @param s a key.
+	 * @return the cached value for {@code s}, or {@link #MISSING} (in which case {@code s} might still be cached with that value).
+	 */
+	private long cached(final Object2LongLinkedOpenCustomHashMap<CharSequence> stripe, final CharSequence s) {
+		synchronized (stripe) {
+			return eviction == Eviction.LRU ? stripe.getAndMoveToLast(s) : stripe.getLong(s);
+		}
+	}
+
+	/** Stores a value in the cache, evicting an entry if necessary. */
+	private void cache(final Object2LongLinkedOpenCustomHashMap<CharSequence> stripe, final CharSequence s, final long value) {
+		synchronized (stripe) {
+			if (stripe.containsKey(s)) return;
+			if (stripe.size() >= cacheSize / stripes) stripe.removeFirstLong();
+			stripe.put(s.toString(), value);
+		}
 	}
 
 	@Override
 	public long getLong(final Object o) {
-		return function.getLong(o);
+		if (cache == null || o == null) return function.getLong(o);
+		final CharSequence s = (CharSequence)o;
+		final Object2LongLinkedOpenCustomHashMap<CharSequence> stripe = stripe(s);
+		final long value = cached(stripe, s);
+		if (value != MISSING) return value;
+		final long result = function.getLong(s);
+		cache(stripe, s, result);
+		return result;
+	}
+
+	/**
+	 * Computes the values associated with a batch of keys.
+	 *
+	 * <p>
+	 * This method is equivalent to calling {@link #getLong(Object)} on each key, but keys that
+	 * are not in the cache are passed in a single batch to the underlying function, if it is a
+	 * {@link GOV4Function}, a {@link CHDMinimalPerfectHashFunction} or a
+	 * {@link TwoStepsLcpMonotoneMinimalPerfectHashFunction} (the function built by
+	 * {@link #SignedFunctionStringMap(Iterable)}); other functions are queried one key at a time.
+	 *
+	 * @param keys an array of keys.
+	 * @param result an array of length at least {@code keys.length} that will be filled with the
+	 *            values associated with {@code keys}.
+	 */
+	@SuppressWarnings("unchecked")
+	public void getLongs(final CharSequence[] keys, final long[] result) {
+		final int length = keys.length;
+		CharSequence[] missed = keys;
+		int[] position = null;
+		int numMissed = length;
+
+		if (cache != null) {
+			missed = new CharSequence[length];
+			position = new int[length];
+			numMissed = 0;
+			for (int i = 0; i < length; i++) {
+				final long value = keys[i] == null ? MISSING : cached(stripe(keys[i]), keys[i]);
+				if (value != MISSING) result[i] = value;
+				else {
+					missed[numMissed] = keys[i];
+					position[numMissed++] = i;
+				}
+			}
+			if (numMissed == 0) return;
+			if (numMissed < length) missed = Arrays.copyOf(missed, numMissed);
+		}
+
+		final long[] values = position == null ? result : new long[numMissed];
+		if (function instanceof GOV4Function) ((GOV4Function<CharSequence>)function).getLongs(missed, values);
+		else if (function instanceof CHDMinimalPerfectHashFunction) ((CHDMinimalPerfectHashFunction<CharSequence>)function).getLongs(missed, values);
+		else if (function instanceof TwoStepsLcpMonotoneMinimalPerfectHashFunction) ((TwoStepsLcpMonotoneMinimalPerfectHashFunction<CharSequence>)function).getLongs(missed, values);
+		else for (int i = 0; i < numMissed; i++) values[i] = function.getLong(missed[i]);
+
+		if (position != null) {
+			for (int i = 0; i < numMissed; i++) {
+				result[position[i]] = values[i];
+				if (missed[i] != null) cache(stripe(missed[i]), missed[i], values[i]);
+			}
+		}
 	}
 
 	@Deprecated
 	@Override
 	public Long get(final Object o) {
-		final CharSequence s = (CharSequence)o;
-		final long index = function.getLong(s);
+		final long index = getLong(o);
 		return index == -1 ? null : Long.valueOf(index);
 	}
 
 	@Override
 	public boolean containsKey(final Object o) {
-		return function.getLong(o) != -1;
+		return getLong(o) != -1;
 	}
 
 	@Deprecated
@@ -117,6 +302,11 @@ public class SignedFunctionStringMap extends AbstractObject2LongFunction<CharSeq
 		return function.toString();
 	}
 
+	private void readObject(final ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		initCache();
+	}
+
 	@SuppressWarnings("unchecked")
 	public static void main(final String[] arg) throws IOException, JSAPException, ClassNotFoundException {
 		final SimpleJSAP jsap = new SimpleJSAP(SignedFunctionStringMap.class.getName(), "Saves a string map wrapping a signed function on character sequences.",
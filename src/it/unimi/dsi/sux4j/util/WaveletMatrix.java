@@ -0,0 +1,370 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.util;
+
+import static it.unimi.dsi.bits.LongArrayBitVector.words;
+
+import java.io.Serializable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import it.unimi.dsi.bits.Fast;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.fastutil.BigArrays;
+import it.unimi.dsi.fastutil.longs.AbstractLongBigList;
+import it.unimi.dsi.fastutil.longs.LongBigArrayBigList;
+import it.unimi.dsi.fastutil.longs.LongBigArrays;
+import it.unimi.dsi.fastutil.longs.LongBigList;
+import it.unimi.dsi.sux4j.bits.Rank9;
+import it.unimi.dsi.sux4j.bits.SimpleSelect;
+import it.unimi.dsi.sux4j.bits.SimpleSelectZero;
+
+/**
+ * A wavelet matrix, that is, a representation of a sequence of nonnegative longs supporting
+ * access, rank, select and range queries.
+ *
+ * <p>
+ * A wavelet matrix (Claude, Navarro and Ord&oacute;&ntilde;ez, &ldquo;The wavelet matrix: An
+ * efficient wavelet tree for large alphabets&rdquo;) over a sequence of <var>n</var> values of
+ * <var>w</var> bits is made of <var>w</var> bit vectors of length <var>n</var>: the bit vector of
+ * level &#x2113; contains the &#x2113;-th most significant bit of each value, after the values
+ * have been stably partitioned by their &#x2113; most significant bits reversed. Each operation
+ * requires a constant number of ranking or selection operations per level, independently of the
+ * size of the alphabet, so values can be arbitrary (e.g., the symbols of a large alphabet, or
+ * 64-bit values).
+ *
+ * <p>
+ * Besides {@linkplain #getLong(long) access}, this class provides {@linkplain #rank(long, long)
+ * ranking} and {@linkplain #select(long, long) selection} of values, {@linkplain #quantile(long,
+ * long, long) range quantiles} and {@linkplain #count(long, long, long, long) range counting}.
+ *
+ * <p>
+ * All levels are stored in a single bit vector, each level starting at a word boundary, which is
+ * indexed by a single {@link Rank9}, a single {@link SimpleSelect} and a single
+ * {@link SimpleSelectZero}: as a result, the structure is made of a small number of large arrays
+ * of longs, which makes it easy to store it off-heap. Levels are built in parallel, partitioning
+ * each level among the available threads.
+ *
+ * @author Sebastiano Vigna
+ * @since 5.2.2
+ */
+
+public class WaveletMatrix extends AbstractLongBigList implements Serializable {
+	private static final long serialVersionUID = 0L;
+	/** The minimum number of elements assigned to a thread during the construction. */
+	private static final long MIN_CHUNK_SIZE = 1 << 16;
+
+	/** The number of values. */
+	protected final long n;
+	/** The number of levels (i.e., the number of bits of the largest value). */
+	protected final int width;
+	/** The length of a level in bits, that is, {@link #n} rounded up to a multiple of {@link Long#SIZE}. */
+	protected final long levelLength;
+	/** The concatenation of the levels. */
+	protected final LongArrayBitVector bits;
+	/** A ranking structure over {@link #bits}. */
+	protected final Rank9 rank;
+	/** A selection structure over {@link #bits}. */
+	protected final SimpleSelect select;
+	/** A zero-selection structure over {@link #bits}. */
+	protected final SimpleSelectZero selectZero;
+	/** For each level, the number of zeroes in the level. */
+	protected final long[] zeroes;
+	/** For each level, the number of ones in the previous levels. */
+	protected final long[] onesBefore;
+
+	/**
+	 * Creates a new wavelet matrix using as many threads as available processors.
+	 *
+	 * @param values an array of nonnegative longs.
+	 */
+	public WaveletMatrix(final long[] values) {
+		this(LongBigArrayBigList.wrap(BigArrays.wrap(values)));
+	}
+
+	/**
+	 * Creates a new wavelet matrix using as many threads as available processors.
+	 *
+	 * @param values a list of nonnegative longs.
+	 */
+	public WaveletMatrix(final LongBigList values) {
+		this(values, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new wavelet matrix.
+	 *
+	 * @param values a list of nonnegative longs.
+	 * @param numberOfThreads the number of threads to use during the construction.
+	 */
+	public WaveletMatrix(final LongBigList values, final int numberOfThreads) {
+		if (numberOfThreads <= 0) throw new IllegalArgumentException("The number of threads must be positive: " + numberOfThreads);
+		n = values.size64();
+		long[][] curr = LongBigArrays.newBigArray(n);
+		long max = 0;
+		for (long i = 0; i < n; i++) {
+			final long v = values.getLong(i);
+			if (v < 0) throw new IllegalArgumentException("Negative value: " + v + " at position " + i);
+			BigArrays.set(curr, i, v);
+			max |= v;
+		}
+
+		width = Fast.length(max);
+		levelLength = words(n) * (long)Long.SIZE;
+		bits = LongArrayBitVector.getInstance().length(levelLength * width);
+		zeroes = new long[width];
+
+		// Chunks are multiples of Long.SIZE, so threads write to different words
+		final long chunkSize = Math.max(MIN_CHUNK_SIZE, (n + numberOfThreads - 1) / numberOfThreads + Long.SIZE - 1 & -Long.SIZE);
+		final int numChunks = (int)Math.max(1, (n + chunkSize - 1) / chunkSize);
+		final long[] chunkZeroes = new long[numChunks];
+		long[][] next = LongBigArrays.newBigArray(n);
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(Math.min(numberOfThreads, numChunks));
+		final ExecutorCompletionService<Void> executorCompletionService = new ExecutorCompletionService<>(executorService);
+
+		try {
+			for (int level = 0; level < width; level++) {
+				final int shift = width - 1 - level;
+				final long base = level * levelLength;
+				final long[][] source = curr, target = next;
+
+				// First phase: each thread sets the bits of its chunk and counts the zeroes
+				for (int c = 0; c < numChunks; c++) {
+					final int chunk = c;
+					executorCompletionService.submit(() -> {
+						final long from = chunk * chunkSize, to = Math.min(n, from + chunkSize);
+						long z = 0;
+						for (long i = from; i < to; i++) {
+							if ((BigArrays.get(source, i) >>> shift & 1) != 0) bits.set(base + i);
+							else z++;
+						}
+						chunkZeroes[chunk] = z;
+						return null;
+					});
+				}
+				for (int c = numChunks; c-- != 0;) executorCompletionService.take().get();
+
+				long z = 0;
+				for (final long c : chunkZeroes) z += c;
+				final long totalZeroes = zeroes[level] = z;
+
+				// Second phase: each thread partitions stably its chunk
+				long zeroesBefore = 0;
+				for (int c = 0; c < numChunks; c++) {
+					final int chunk = c;
+					final long firstZero = zeroesBefore;
+					executorCompletionService.submit(() -> {
+						final long from = chunk * chunkSize, to = Math.min(n, from + chunkSize);
+						long zeroPos = firstZero, onePos = totalZeroes + from - firstZero;
+						for (long i = from; i < to; i++) {
+							final long v = BigArrays.get(source, i);
+							if ((v >>> shift & 1) != 0) BigArrays.set(target, onePos++, v);
+							else BigArrays.set(target, zeroPos++, v);
+						}
+						return null;
+					});
+					zeroesBefore += chunkZeroes[chunk];
+				}
+				for (int c = numChunks; c-- != 0;) executorCompletionService.take().get();
+
+				curr = target;
+				next = source;
+			}
+		} catch (final InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executorService.shutdown();
+		}
+
+		rank = new Rank9(bits);
+		select = new SimpleSelect(bits);
+		selectZero = new SimpleSelectZero(bits);
+		onesBefore = new long[width];
+		for (int level = 0; level < width; level++) onesBefore[level] = rank.rank(level * levelLength);
+	}
+
+	/** Returns the number of ones in a level before a given position. */
+	private long rank1(final int level, final long pos) {
+		return rank.rank(level * levelLength + pos) - onesBefore[level];
+	}
+
+	/** Maps a position to the next level, following the given bit. */
+	private long next(final int level, final long pos, final boolean bit) {
+		final long ones = rank1(level, pos);
+		return bit ? zeroes[level] + ones : pos - ones;
+	}
+
+	@Override
+	public long size64() {
+		return n;
+	}
+
+	/**
+	 * Returns the width of this wavelet matrix.
+	 *
+	 * @return the number of bits of the largest value (the number of levels).
+	 */
+	public int width() {
+		return width;
+	}
+
+	@Override
+	public long getLong(long index) {
+		ensureRestrictedIndex(index);
+		long value = 0;
+		for (int level = 0; level < width; level++) {
+			final boolean bit = bits.getBoolean(level * levelLength + index);
+			value = value << 1 | (bit ? 1 : 0);
+			index = next(level, index, bit);
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the number of occurrences of a value before a given position.
+	 *
+	 * @param value a value.
+	 * @param pos a position between 0 and {@link #size64()} (included).
+	 * @return the number of occurrences of {@code value} in the positions from 0 (included) to
+	 *         {@code pos} (excluded).
+	 */
+	public long rank(final long value, long pos) {
+		ensureIndex(pos);
+		if (value < 0 || Fast.length(value) > width) return 0;
+		long start = 0;
+		for (int level = 0; level < width; level++) {
+			final boolean bit = (value >>> width - 1 - level & 1) != 0;
+			start = next(level, start, bit);
+			pos = next(level, pos, bit);
+		}
+		return pos - start;
+	}
+
+	/**
+	 * Returns the position of a given occurrence of a value.
+	 *
+	 * @param value a value.
+	 * @param rank the rank of an occurrence of {@code value} (starting from zero).
+	 * @return the position of the occurrence of {@code value} of rank {@code rank}, or &minus;1 if
+	 *         {@code value} occurs {@code rank} times or less.
+	 */
+	public long select(final long value, final long rank) {
+		if (rank < 0 || value < 0 || Fast.length(value) > width) return -1;
+		long start = 0, end = n;
+		for (int level = 0; level < width; level++) {
+			final boolean bit = (value >>> width - 1 - level & 1) != 0;
+			start = next(level, start, bit);
+			end = next(level, end, bit);
+		}
+		if (rank >= end - start) return -1;
+
+		long pos = start + rank;
+		for (int level = width; level-- != 0;) {
+			final long base = level * levelLength;
+			if ((value >>> width - 1 - level & 1) != 0) pos = select.select(onesBefore[level] + pos - zeroes[level]) - base;
+			else pos = selectZero.selectZero(base - onesBefore[level] + pos) - base;
+		}
+		return pos;
+	}
+
+	/**
+	 * Returns a range quantile.
+	 *
+	 * @param from the first position of the range.
+	 * @param to the position after the last position of the range.
+	 * @param k a rank between 0 (included) and {@code to} &minus; {@code from} (excluded).
+	 * @return the value of rank {@code k} among the values in the positions from {@code from}
+	 *         (included) to {@code to} (excluded); in particular, for {@code k} equal to zero the
+	 *         minimum, and for {@code k} equal to {@code to} &minus; {@code from} &minus; 1 the
+	 *         maximum.
+	 */
+	public long quantile(long from, long to, long k) {
+		ensureIndex(from);
+		ensureIndex(to);
+		if (k < 0 || k >= to - from) throw new IllegalArgumentException("Rank " + k + " out of range [0.." + (to - from) + ")");
+		long value = 0;
+		for (int level = 0; level < width; level++) {
+			final long fromOnes = rank1(level, from), toOnes = rank1(level, to);
+			final long z = to - toOnes - (from - fromOnes);
+			if (k < z) {
+				from -= fromOnes;
+				to -= toOnes;
+				value <<= 1;
+			} else {
+				k -= z;
+				from = zeroes[level] + fromOnes;
+				to = zeroes[level] + toOnes;
+				value = value << 1 | 1;
+			}
+		}
+		return value;
+	}
+
+	/** Returns the number of values smaller than a bound in a range. */
+	private long countSmaller(long from, long to, final long bound) {
+		if (bound <= 0) return 0;
+		if (Fast.length(bound) > width) return to - from;
+		long count = 0;
+		for (int level = 0; level < width && from < to; level++) {
+			final long fromOnes = rank1(level, from), toOnes = rank1(level, to);
+			if ((bound >>> width - 1 - level & 1) != 0) {
+				count += to - toOnes - (from - fromOnes);
+				from = zeroes[level] + fromOnes;
+				to = zeroes[level] + toOnes;
+			} else {
+				from -= fromOnes;
+				to -= toOnes;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the values in a range of positions that lie in a given interval.
+	 *
+	 * @param from the first position of the range.
+	 * @param to the position after the last position of the range.
+	 * @param min the minimum value (included).
+	 * @param max the maximum value (excluded).
+	 * @return the number of values in the positions from {@code from} (included) to {@code to}
+	 *         (excluded) that are greater than or equal to {@code min} and smaller than {@code max}.
+	 */
+	public long count(final long from, final long to, final long min, final long max) {
+		ensureIndex(from);
+		ensureIndex(to);
+		if (from >= to || min >= max) return 0;
+		return countSmaller(from, to, max) - countSmaller(from, to, min);
+	}
+
+	/**
+	 * Returns the number of bits used by this structure.
+	 *
+	 * @return the number of bits used by this structure.
+	 */
+	public long numBits() {
+		return bits.length() + rank.numBits() + select.numBits() + selectZero.numBits() + (zeroes.length + onesBefore.length) * (long)Long.SIZE;
+	}
+}
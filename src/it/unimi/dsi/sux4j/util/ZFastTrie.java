@@ -83,6 +83,7 @@ import it.unimi.dsi.sux4j.mph.Hashes;
  * <p>The linear overhead of a z-fast trie is very low. For <var>n</var> keys we allocate 2<var>n</var> &minus; 1 nodes containing six references and
  * two longs, plus a dictionary containing <var>n</var> &minus; 1 nodes (thus using around 2<var>n</var> references and 2<var>n</var> longs).
  *
+ * <p>Instances of this class are not thread safe. If you need concurrent access, please use a {@link ConcurrentZFastTrie}.
  */
 
 @SuppressWarnings({"rawtypes"})
@@ -1499,9 +1500,8 @@ public class ZFastTrie<T> extends AbstractObjectSortedSet<T> implements Serializ
 		final LongArrayBitVector v = LongArrayBitVector.copy(transform.toBitVector(k));
 		final long[] state = Hashes.preprocessMurmur(v, 42);
 		final Node<T> exitNode = getExitNode(v, state).exitNode;
-		if (v.compareTo(exitNode.extent(transform)) <= 0) return exitNode.rightLeaf();
-		else return exitNode.leftLeaf().prev;
-
+		if (v.compareTo(exitNode.extent(transform)) < 0) return exitNode.leftLeaf().prev;
+		else return exitNode.rightLeaf();
 	}
 
 	@SuppressWarnings({ "unchecked", "null" })
@@ -0,0 +1,120 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bits;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
+
+public class HybridRankSelectTest extends RankSelectTestCase {
+
+	private void assertHybrid(final LongArrayBitVector bitVector) {
+		final HybridRankSelect hybrid = new HybridRankSelect(bitVector);
+		assertEquals(bitVector, hybrid.bitVector());
+		assertEquals(bitVector.count(), hybrid.count());
+		assertRankAndSelect(hybrid, hybrid);
+		assertEquals(bitVector.count(), hybrid.rank(bitVector.length()));
+		assertEquals(-1, hybrid.select(bitVector.count()));
+
+		final LongArrayList ones = new LongArrayList();
+		for (long p = bitVector.nextOne(0); p != -1; p = bitVector.nextOne(p + 1)) ones.add(p);
+		final HybridRankSelect fromPositions = new HybridRankSelect(bitVector.length(), ones.iterator());
+		assertEquals(bitVector, fromPositions.bitVector());
+		assertEquals(hybrid.numBits(), fromPositions.numBits());
+	}
+
+	@Test
+	public void testEmpty() {
+		assertHybrid(LongArrayBitVector.getInstance());
+		assertHybrid(LongArrayBitVector.getInstance().length(10000));
+		final LongArrayBitVector ones = LongArrayBitVector.getInstance().length(10000);
+		ones.fill(true);
+		assertHybrid(ones);
+	}
+
+	@Test
+	public void testSmall() {
+		for (int length = 1; length < 200; length++) {
+			final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length(length);
+			bitVector.set(0);
+			bitVector.set(length - 1);
+			bitVector.set(length / 2);
+			assertHybrid(bitVector);
+		}
+	}
+
+	@Test
+	public void testRandom() {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		for (final double density : new double[] { 0.0001, 0.001, 0.01, 0.1, 0.5, 0.9, 0.999 }) {
+			for (final int length : new int[] { 4095, 4096, 4097, 100000 }) {
+				final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length(length);
+				for (int i = 0; i < length; i++) if (r.nextDouble() < density) bitVector.set(i);
+				assertHybrid(bitVector);
+			}
+		}
+	}
+
+	@Test
+	public void testRuns() {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		for (final int meanRun : new int[] { 2, 30, 500, 10000 }) {
+			final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length(200000);
+			for (long p = r.nextInt(meanRun); p < bitVector.length();) {
+				final long end = Math.min(bitVector.length(), p + 1 + r.nextInt(2 * meanRun));
+				bitVector.fill(p, end, true);
+				p = end + 1 + r.nextInt(2 * meanRun);
+			}
+			assertHybrid(bitVector);
+		}
+	}
+
+	@Test
+	public void testCompression() {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		final LongArrayBitVector sparse = LongArrayBitVector.getInstance().length(1 << 20);
+		for (int i = 0; i < sparse.length(); i++) if (r.nextDouble() < 0.01) sparse.set(i);
+		assertTrue(new HybridRankSelect(sparse).numBits() < sparse.length() / 4);
+
+		final LongArrayBitVector runs = LongArrayBitVector.getInstance().length(1 << 20);
+		for (long p = 0; p < runs.length(); p += 2000) runs.fill(p, Math.min(runs.length(), p + 1000), true);
+		assertTrue(new HybridRankSelect(runs).numBits() < runs.length() / 10);
+	}
+
+	@Test
+	public void testSerialization() throws Exception {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		final LongArrayBitVector bitVector = LongArrayBitVector.getInstance().length(50000);
+		for (int i = 0; i < bitVector.length(); i++) if (r.nextDouble() < 0.05) bitVector.set(i);
+		final File temp = File.createTempFile(getClass().getSimpleName(), "ser");
+		temp.deleteOnExit();
+		BinIO.storeObject(new HybridRankSelect(bitVector), temp);
+		assertRankAndSelect((HybridRankSelect)BinIO.loadObject(temp), (HybridRankSelect)BinIO.loadObject(temp));
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bits;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
+
+public class InterleavedRankTest extends RankSelectTestCase {
+
+	private void assertSameAsRank9(final LongArrayBitVector v) {
+		final InterleavedRank rank = new InterleavedRank(v);
+		final Rank9 rank9 = new Rank9(v);
+		assertEquals(v, rank.bitVector());
+		assertEquals(rank9.count(), rank.count());
+		for (long i = 0; i <= v.length(); i++) assertEquals(rank9.rank(i), rank.rank(i));
+		for (long i = 0; i + 100 <= v.length(); i += 37) assertEquals(v.getLong(i, i + 37), rank.bitVector().getLong(i, i + 37));
+		assertRank(rank);
+	}
+
+	@Test
+	public void testEmpty() {
+		for (int size = 0; size <= 1024; size++) assertSameAsRank9(LongArrayBitVector.getInstance().length(size));
+	}
+
+	@Test
+	public void testFull() {
+		for (int size = 0; size <= 1024; size++) {
+			final LongArrayBitVector v = LongArrayBitVector.getInstance().length(size);
+			v.fill(true);
+			assertSameAsRank9(v);
+		}
+	}
+
+	@Test
+	public void testRandom() {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		for (final double density : new double[] { 0.001, 0.1, 0.5, 0.9 }) {
+			for (final int size : new int[] { 383, 384, 385, 1000, 10000, 100000 }) {
+				final LongArrayBitVector v = LongArrayBitVector.getInstance().length(size);
+				for (int i = 0; i < size; i++) if (r.nextDouble() < density) v.set(i);
+				assertSameAsRank9(v);
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bits;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
+
+public class OffHeapRankSelectTest extends RankSelectTestCase {
+
+	private void assertSameAsOnHeap(final LongArrayBitVector v) throws IOException {
+		final Rank9 rank9 = new Rank9(v);
+		final Select9 select9 = new Select9(rank9);
+		final SimpleSelect simpleSelect = new SimpleSelect(v);
+
+		final OffHeapBitVector offHeap = OffHeapBitVector.copy(v);
+		assertEquals(v, offHeap);
+		assertEquals(v.count(), offHeap.count());
+
+		final OffHeapRank9 offHeapRank9 = new OffHeapRank9(offHeap);
+		final OffHeapSelect9 offHeapSelect9 = new OffHeapSelect9(offHeapRank9);
+		final OffHeapSimpleSelect offHeapSimpleSelect = new OffHeapSimpleSelect(offHeap);
+		assertRankAndSelect(offHeapRank9, offHeapSelect9);
+		assertSelect(offHeapSimpleSelect);
+		assertEquals(rank9.numBits(), offHeapRank9.numBits() - 64);
+
+		for (long i = 0; i <= v.length(); i++) assertEquals(rank9.rank(i), offHeapRank9.rank(i));
+		for (long i = 0; i < rank9.count(); i++) {
+			assertEquals(select9.select(i), offHeapSelect9.select(i));
+			assertEquals(simpleSelect.select(i), offHeapSimpleSelect.select(i));
+		}
+
+		final File bits = File.createTempFile(getClass().getSimpleName(), "bits");
+		final File counts = File.createTempFile(getClass().getSimpleName(), "counts");
+		final File inventory9 = File.createTempFile(getClass().getSimpleName(), "inventory9");
+		final File inventory = File.createTempFile(getClass().getSimpleName(), "inventory");
+		bits.deleteOnExit();
+		counts.deleteOnExit();
+		inventory9.deleteOnExit();
+		inventory.deleteOnExit();
+
+		OffHeapBitVector.store(v, bits.toString());
+		final OffHeapBitVector mapped = OffHeapBitVector.map(bits.toString(), v.length());
+		assertEquals(v, mapped);
+		OffHeapSelect9 mappedSelect9 = new OffHeapSelect9(new OffHeapRank9(mapped, counts.toString()), inventory9.toString());
+		new OffHeapSimpleSelect(mapped, inventory.toString());
+
+		final OffHeapRank9 mappedRank9 = OffHeapRank9.map(mapped, counts.toString());
+		mappedSelect9 = OffHeapSelect9.map(mappedRank9, inventory9.toString());
+		final OffHeapSimpleSelect mappedSimpleSelect = OffHeapSimpleSelect.map(mapped, inventory.toString());
+		assertRankAndSelect(mappedRank9, mappedSelect9);
+		assertSelect(mappedSimpleSelect);
+		for (long i = 0; i < rank9.count(); i++) {
+			assertEquals(select9.select(i), mappedSelect9.select(i));
+			assertEquals(simpleSelect.select(i), mappedSimpleSelect.select(i));
+		}
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		for (int size = 0; size <= 1024; size += 64) assertSameAsOnHeap(LongArrayBitVector.getInstance().length(size));
+	}
+
+	@Test
+	public void testFull() throws IOException {
+		for (int size = 1; size <= 2048; size = size * 2 + 1) {
+			final LongArrayBitVector v = LongArrayBitVector.getInstance().length(size);
+			v.fill(true);
+			assertSameAsOnHeap(v);
+		}
+	}
+
+	@Test
+	public void testRandom() throws IOException {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		for (final double density : new double[] { 0.001, 0.01, 0.1, 0.5, 0.9 }) {
+			for (final int size : new int[] { 1000, 10000, 100000 }) {
+				final LongArrayBitVector v = LongArrayBitVector.getInstance().length(size);
+				for (int i = 0; i < size; i++) if (r.nextDouble() < density) v.set(i);
+				assertSameAsOnHeap(v);
+			}
+		}
+	}
+
+	@Test
+	public void testSparse() throws IOException {
+		// Long gaps force spills in SimpleSelect and large spans in Select9
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		final LongArrayBitVector v = LongArrayBitVector.getInstance().length(10000000);
+		for (int i = 0; i < 1000; i++) v.set(r.nextInt(10000));
+		for (int i = 0; i < 200; i++) v.set(r.nextInt(10000000));
+		assertSameAsOnHeap(v);
+	}
+}
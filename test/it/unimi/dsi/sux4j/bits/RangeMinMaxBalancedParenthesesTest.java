@@ -0,0 +1,156 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.bits;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
+
+public class RangeMinMaxBalancedParenthesesTest extends BalancedParenthesesTestCase {
+
+	/** Checks all operations against a naive implementation. */
+	private static void check(final LongArrayBitVector bv, final RangeMinMaxBalancedParentheses bp, final XoRoShiRo128PlusRandom r) {
+		final int n = (int)bv.length();
+		final long[] excess = new long[n];
+		final long[] match = new long[n];
+		final long[] parent = new long[n];
+		final LongArrayList stack = new LongArrayList();
+		long e = 0;
+		for (int i = 0; i < n; i++) {
+			if (bv.getBoolean(i)) {
+				parent[i] = stack.isEmpty() ? -1 : stack.topLong();
+				stack.push(i);
+				e++;
+			}
+			else {
+				final long open = stack.popLong();
+				match[i] = open;
+				match[(int)open] = i;
+				parent[i] = parent[(int)open];
+				e--;
+			}
+			excess[i] = e;
+		}
+
+		for (int i = 0; i < n; i++) {
+			assertEquals(excess[i], bp.excess(i));
+			assertEquals(parent[i], bp.enclose(i));
+			if (bv.getBoolean(i)) {
+				assertEquals(match[i], bp.findClose(i));
+				assertEquals((match[i] - i + 1) / 2, bp.subtreeSize(i));
+				long a = i;
+				for (int d = 0; d < 4; d++) {
+					assertEquals(a, bp.levelAncestor(i, d));
+					if (a != -1) a = parent[(int)a];
+				}
+			}
+			else assertEquals(match[i], bp.findOpen(i));
+		}
+
+		for (int k = 0; k < 1000 && n > 0; k++) {
+			final int from = r.nextInt(n), to = from + r.nextInt(Math.min(n - from, k % 2 == 0 ? 64 : n));
+			int min = from;
+			for (int i = from; i <= to; i++) if (excess[i] < excess[min]) min = i;
+			assertEquals("[" + from + ".." + to + "]", min, bp.rmq(from, to));
+		}
+	}
+
+	private static LongArrayBitVector random(final int pairs, final XoRoShiRo128PlusRandom r, final double p) {
+		final LongArrayBitVector bv = LongArrayBitVector.getInstance();
+		int open = 0, closed = 0;
+		while (closed < pairs) {
+			if (open < pairs && (open == closed || r.nextDouble() < p)) {
+				bv.add(true);
+				open++;
+			}
+			else {
+				bv.add(false);
+				closed++;
+			}
+		}
+		return bv;
+	}
+
+	@Test
+	public void testSimple() {
+		final RangeMinMaxBalancedParentheses bp = new RangeMinMaxBalancedParentheses(parse("(()(()))", true));
+		assertEquals(7, bp.findClose(0));
+		assertEquals(2, bp.findClose(1));
+		assertEquals(0, bp.findOpen(7));
+		assertEquals(-1, bp.enclose(0));
+		assertEquals(0, bp.enclose(1));
+		assertEquals(3, bp.enclose(4));
+		assertEquals(3, bp.enclose(5));
+		assertEquals(0, bp.levelAncestor(4, 2));
+		assertEquals(-1, bp.levelAncestor(4, 3));
+		assertEquals(4, bp.subtreeSize(0));
+		assertEquals(7, bp.rmq(0, 7));
+		assertEquals(2, bp.rmq(1, 6));
+	}
+
+	@Test
+	public void testEmpty() {
+		final RangeMinMaxBalancedParentheses bp = new RangeMinMaxBalancedParentheses(LongArrayBitVector.getInstance());
+		assertEquals(0, bp.bitVector().length());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnbalanced() {
+		new RangeMinMaxBalancedParentheses(parse("())(", false));
+	}
+
+	@Test
+	public void testRandom() {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		for (final int pairs : new int[] { 1, 2, 10, 100, 1000, 10000, 100000 }) {
+			for (final double p : new double[] { 0.1, 0.5, 0.9 }) {
+				final LongArrayBitVector bv = random(pairs, r, p);
+				final RangeMinMaxBalancedParentheses bp = new RangeMinMaxBalancedParentheses(bv);
+				assertBalancedParentheses(bp);
+				check(bv, bp, r);
+			}
+		}
+	}
+
+	@Test
+	public void testDeep() throws IOException, ClassNotFoundException {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		final LongArrayBitVector bv = LongArrayBitVector.getInstance();
+		for (int i = 0; i < 5000; i++) bv.add(true);
+		for (int i = 0; i < 5000; i++) bv.add(false);
+		RangeMinMaxBalancedParentheses bp = new RangeMinMaxBalancedParentheses(bv);
+		check(bv, bp, r);
+
+		final File temp = File.createTempFile(getClass().getSimpleName(), "test");
+		temp.deleteOnExit();
+		BinIO.storeObject(bp, temp);
+		bp = (RangeMinMaxBalancedParentheses)BinIO.loadObject(temp);
+		check(bv, bp, r);
+	}
+}
@@ -22,7 +22,12 @@ package it.unimi.dsi.sux4j.bits;
 
 import static org.junit.Assert.assertEquals;
 
+import static org.junit.Assert.assertArrayEquals;
+
 import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
 
 public abstract class RankSelectTestCase {
 	public void assertRankAndSelect(final Rank rank, final Select select) {
@@ -37,6 +42,9 @@ public abstract class RankSelectTestCase {
 			}
 
 		}
+
+		assertBulkRank(rank);
+		assertBulkSelect(select);
 	}
 
 	public void assertSelect(final Select s) {
@@ -50,6 +58,39 @@ public abstract class RankSelectTestCase {
 			}
 
 		}
+
+		assertBulkSelect(s);
+	}
+
+	public void assertBulkSelect(final Select s) {
+		final BitVector bits = s.bitVector();
+		final long length = bits.length();
+		final LongArrayList positions = new LongArrayList();
+		for (long i = 0; i < length; i++) if (bits.getBoolean(i)) positions.add(i);
+		final int numOnes = positions.size();
+
+		// All ranks
+		final long[] rank = new long[numOnes];
+		for (int i = 0; i < numOnes; i++) rank[i] = i;
+		assertArrayEquals(positions.toLongArray(), s.select(rank, new long[numOnes]));
+		if (numOnes == 0) return;
+
+		// Sorted random ranks with duplicates and gaps of different sizes
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		final long[] sorted = new long[Math.min(numOnes, 10000)];
+		for (int i = 0; i < sorted.length; i++) {
+			final int gap = r.nextInt(4) == 0 ? 0 : 1 << r.nextInt(12);
+			sorted[i] = i == 0 ? r.nextInt(Math.min(numOnes, 100)) : Math.min(numOnes - 1, sorted[i - 1] + r.nextInt(gap + 1));
+		}
+
+		final long[] expected = new long[sorted.length];
+		for (int i = 0; i < sorted.length; i++) expected[i] = positions.getLong((int)sorted[i]);
+		assertArrayEquals(expected, s.select(sorted, new long[sorted.length]));
+
+		// Unsorted ranks
+		LongArrays.shuffle(sorted, r);
+		for (int i = 0; i < sorted.length; i++) expected[i] = positions.getLong((int)sorted[i]);
+		assertArrayEquals(expected, s.select(sorted, new long[sorted.length]));
 	}
 
 	public void assertSelectZero(final SelectZero s) {
@@ -73,6 +114,18 @@ public abstract class RankSelectTestCase {
 			assertEquals("Ranking " + i, j, rank.rank(i));
 			if (bits.getBoolean(i)) j++;
 		}
+
+		assertBulkRank(rank);
+	}
+
+	public void assertBulkRank(final Rank rank) {
+		final long length = rank.bitVector().length();
+		final XoRoShiRo128PlusRandom random = new XoRoShiRo128PlusRandom(0);
+		final long[] pos = new long[(int)Math.min(length + 1, 10000)];
+		for (int i = 0; i < pos.length; i++) pos[i] = i == 0 ? length : random.nextLong(length + 1);
+		final long[] expected = new long[pos.length];
+		for (int i = 0; i < pos.length; i++) expected[i] = rank.rank(pos[i]);
+		assertArrayEquals(expected, rank.rank(pos, new long[pos.length]));
 	}
 
 }
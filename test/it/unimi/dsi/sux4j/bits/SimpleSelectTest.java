@@ -249,4 +249,21 @@ public class SimpleSelectTest extends RankSelectTestCase {
 			for(int j = from; j < to; j++) assertEquals("From: " + from + " to: " + to + " j: " + j, ef.select(j), dest[offset + j - from]);
 		}
 	}
+
+	@Test
+	public void testBuilder() {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		for (final double density : new double[] { 0, 0.0001, 0.001, 0.01, 0.1, 0.5, 0.9, 0.999, 1 }) {
+			for (final int size : new int[] { 0, 1, 63, 64, 65, 1000, 100000, 1000000 }) {
+				final LongArrayBitVector v = LongArrayBitVector.getInstance().length(size);
+				for (int i = 0; i < size; i++) if (r.nextDouble() < density) v.set(i);
+				final SimpleSelect.Builder builder = new SimpleSelect.Builder(v.length(), v.count());
+				for (int i = 0; i < size; i++) if (v.getBoolean(i)) builder.add(i);
+				final SimpleSelect built = builder.build(v);
+				final SimpleSelect s = new SimpleSelect(v);
+				assertSelect(built);
+				for (long i = 0; i < v.count(); i++) assertEquals(s.select(i), built.select(i));
+			}
+		}
+	}
 }
@@ -213,4 +213,21 @@ public class SimpleSelectZeroTest extends RankSelectTestCase {
 				assertEquals(i, r.selectZero(i));
 		}
 	}
+
+	@Test
+	public void testBuilder() {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		for (final double density : new double[] { 0, 0.0001, 0.001, 0.01, 0.1, 0.5, 0.9, 0.999, 1 }) {
+			for (final int size : new int[] { 0, 1, 63, 64, 65, 1000, 100000, 1000000 }) {
+				final LongArrayBitVector v = LongArrayBitVector.getInstance().length(size);
+				for (int i = 0; i < size; i++) if (r.nextDouble() < density) v.set(i);
+				final SimpleSelectZero.Builder builder = new SimpleSelectZero.Builder(v.length(), v.length() - v.count());
+				for (int i = 0; i < size; i++) if (!v.getBoolean(i)) builder.add(i);
+				final SimpleSelectZero built = builder.build(v);
+				final SimpleSelectZero s = new SimpleSelectZero(v);
+				assertSelectZero(built);
+				for (long i = 0; i < v.length() - v.count(); i++) assertEquals(s.selectZero(i), built.selectZero(i));
+			}
+		}
+	}
 }
@@ -20,13 +20,18 @@
 
 package it.unimi.dsi.sux4j.io;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
+import java.util.Iterator;
 
 import org.junit.Test;
 
 import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterators;
+import it.unimi.dsi.lang.MutableString;
 
 public class BucketedHashStoreTest {
 
@@ -43,4 +48,56 @@ public class BucketedHashStoreTest {
 		}
 	}
 
+	private static LongArrayList contents(final BucketedHashStore<?> b) {
+		final LongArrayList contents = new LongArrayList();
+		for (final BucketedHashStore.Bucket bucket : b) {
+			contents.add(bucket.index());
+			for (final long[] triple : bucket) contents.addElements(contents.size(), triple);
+		}
+		return contents;
+	}
+
+	@Test
+	public void testParallel() throws IOException {
+		final String threads = System.getProperty(BucketedHashStore.NUMBER_OF_THREADS_PROPERTY);
+		try {
+			for (final int s : new int[] { 0, 1000, BucketedHashStore.BATCH_SIZE, 100000 }) {
+				for (final boolean withValues : new boolean[] { false, true }) {
+					final long[] values = new long[s];
+					for (int i = 0; i < s; i++) values[i] = i * 31L % 17;
+					final LongArrayList[] contents = new LongArrayList[2];
+					for (final int t : new int[] { 1, 3 }) {
+						System.setProperty(BucketedHashStore.NUMBER_OF_THREADS_PROPERTY, Integer.toString(t));
+						final BucketedHashStore<MutableString> b = new BucketedHashStore<>(TransformationStrategies.utf16());
+						// A single mutable string is reused, as in line iterators
+						final MutableString string = new MutableString();
+						final Iterator<MutableString> iterator = new Iterator<MutableString>() {
+							private int i = 0;
+
+							@Override
+							public boolean hasNext() {
+								return i < s;
+							}
+
+							@Override
+							public MutableString next() {
+								return string.length(0).append(i++);
+							}
+						};
+						b.reset(42);
+						if (withValues) b.addAll(iterator, LongIterators.wrap(values));
+						else b.addAll(iterator);
+						assertEquals(s, b.size());
+						b.bucketSize(35);
+						contents[t == 1 ? 0 : 1] = contents(b);
+						b.close();
+					}
+					assertArrayEquals(contents[0].toLongArray(), contents[1].toLongArray());
+				}
+			}
+		} finally {
+			if (threads == null) System.clearProperty(BucketedHashStore.NUMBER_OF_THREADS_PROPERTY);
+			else System.setProperty(BucketedHashStore.NUMBER_OF_THREADS_PROPERTY, threads);
+		}
+	}
 }
@@ -0,0 +1,102 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream;
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream.LineTerminator;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
+
+public class LineBordersTest {
+
+	private static File write(final byte[] content) throws IOException {
+		final File t = File.createTempFile(LineBordersTest.class.getName(), "tmp");
+		t.deleteOnExit();
+		try (final FileOutputStream fos = new FileOutputStream(t)) {
+			fos.write(content);
+		}
+		return t;
+	}
+
+	private static final List<EnumSet<LineTerminator>> TERMINATORS = Arrays.asList(FastBufferedInputStream.ALL_TERMINATORS, EnumSet.of(LineTerminator.LF), EnumSet.of(LineTerminator.CR), EnumSet.of(LineTerminator.CR_LF), EnumSet.of(LineTerminator.CR, LineTerminator.LF), EnumSet.of(LineTerminator.CR_LF, LineTerminator.LF));
+
+	private static void assertSameBorders(final byte[] content) throws IOException {
+		final File t = write(content);
+		for (final EnumSet<LineTerminator> terminators : TERMINATORS) {
+			final FileLinesBigList expected = new FileLinesBigList(t.toString(), "ASCII", FastBufferedInputStream.DEFAULT_BUFFER_SIZE, terminators);
+			for (final int numRanges : new int[] { 1, 2, 7, 100, Math.max(1, content.length) }) {
+				final LineBorders lineBorders = new LineBorders(t.toString(), terminators);
+				lineBorders.scan(numRanges, 4);
+				assertEquals(expected.size64(), lineBorders.count);
+				assertEquals(expected.borders, lineBorders.borders);
+				long maxGap = 0;
+				for (long i = 0; i < lineBorders.count; i++) maxGap = Math.max(maxGap, (i + 1 < lineBorders.count ? expected.borders.getLong(i + 1) : content.length) - expected.borders.getLong(i));
+				assertEquals(maxGap, lineBorders.maxGap);
+			}
+		}
+	}
+
+	@Test
+	public void testSmall() throws IOException {
+		for (final String s : new String[] { "", "\n", "\r", "\r\n", "a", "\naa\naaaa\n\naa\n", "\n\n\n", "\n\na", "a\r\nb\rc\n\r\n\r", "\r\r\n\n\r" }) assertSameBorders(s.getBytes());
+	}
+
+	@Test
+	public void testRandom() throws IOException {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		final byte[] alphabet = { 'a', 'b', '\r', '\n' };
+		for (final int length : new int[] { 10, 100, 10000 }) {
+			final byte[] content = new byte[length];
+			for (int i = 0; i < content.length; i++) content[i] = alphabet[r.nextInt(r.nextInt(4) == 0 ? 4 : 2)];
+			assertSameBorders(content);
+		}
+	}
+
+	@Test
+	public void testLists() throws IOException {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		final StringBuilder s = new StringBuilder();
+		for (int i = 0; i < 100000; i++) s.append(Long.toString(r.nextLong(), 36)).append(r.nextBoolean() ? "\r\n" : "\n");
+		final File t = write(s.toString().getBytes());
+		final FileLinesBigList bigList = new FileLinesBigList(t.toString(), "ASCII");
+		final FileLinesBigList parallelBigList = new FileLinesBigList(t.toString(), "ASCII", FastBufferedInputStream.DEFAULT_BUFFER_SIZE, FastBufferedInputStream.ALL_TERMINATORS, 4);
+		final FileLinesList parallelList = new FileLinesList(t.toString(), "ASCII", FastBufferedInputStream.DEFAULT_BUFFER_SIZE, FastBufferedInputStream.ALL_TERMINATORS, 4);
+		final MappedFileLinesBigList mappedList = new MappedFileLinesBigList(t.toString(), "ASCII", FastBufferedInputStream.ALL_TERMINATORS, 4);
+		assertEquals(bigList.size64(), parallelBigList.size64());
+		assertEquals(bigList.size64(), parallelList.size());
+		assertEquals(bigList.size64(), mappedList.size64());
+		for (int i = 0; i < bigList.size64(); i++) {
+			assertEquals(bigList.get(i), parallelBigList.get(i));
+			assertEquals(bigList.get(i), parallelList.get(i));
+			assertEquals(bigList.get(i), mappedList.get(i));
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream;
+import it.unimi.dsi.fastutil.io.FastBufferedInputStream.LineTerminator;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
+
+public class MappedFileLinesBigListTest {
+
+	private static File write(final byte[] content) throws IOException {
+		final File t = File.createTempFile(MappedFileLinesBigListTest.class.getName(), "tmp");
+		t.deleteOnExit();
+		try (final FileOutputStream fos = new FileOutputStream(t)) {
+			fos.write(content);
+		}
+		return t;
+	}
+
+	private static void assertSameLines(final File t, final EnumSet<LineTerminator> terminators) throws IOException {
+		final FileLinesBigList expected = new FileLinesBigList(t.toString(), "UTF-8", FastBufferedInputStream.DEFAULT_BUFFER_SIZE, terminators);
+		final MappedFileLinesBigList fromFile = new MappedFileLinesBigList(t.toString(), "UTF-8", terminators);
+		final MappedFileLinesBigList fromList = new MappedFileLinesBigList(expected);
+		assertEquals(expected.size64(), fromFile.size64());
+		assertEquals(expected.size64(), fromList.size64());
+		final ByteBuffer buffer = ByteBuffer.allocate((int)t.length());
+		for (long i = 0; i < expected.size64(); i++) {
+			final String line = expected.get(i).toString();
+			assertEquals(line, fromFile.get(i).toString());
+			assertEquals(line, fromList.get(i).toString());
+			final byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+			buffer.clear();
+			assertEquals(bytes.length, fromFile.getBytes(i, buffer));
+			((Buffer)buffer).flip();
+			assertEquals(ByteBuffer.wrap(bytes), buffer);
+			assertEquals(ByteBuffer.wrap(bytes), fromFile.line(i));
+		}
+	}
+
+	@Test
+	public void testSmall() throws IOException {
+		for (final String s : new String[] { "", "\n", "a", "\naa\naaaa\n\naa\n", "\n\n\n", "\n\na", "a\r\nb\rc\n\r\n\r", "\r\r\n\n\r", "èé\n€" }) {
+			final File t = write(s.getBytes(StandardCharsets.UTF_8));
+			for (final EnumSet<LineTerminator> terminators : Arrays.asList(FastBufferedInputStream.ALL_TERMINATORS, EnumSet.of(LineTerminator.LF), EnumSet.of(LineTerminator.CR), EnumSet.of(LineTerminator.CR_LF), EnumSet.of(LineTerminator.CR, LineTerminator.LF))) {
+				assertSameLines(t, terminators);
+			}
+		}
+	}
+
+	@Test
+	public void testRandom() throws IOException {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		final byte[] content = new byte[100000];
+		final byte[] alphabet = { 'a', 'b', '\r', '\n' };
+		for (int i = 0; i < content.length; i++) content[i] = alphabet[r.nextInt(r.nextInt(8) == 0 ? 4 : 2)];
+		final File t = write(content);
+		assertSameLines(t, FastBufferedInputStream.ALL_TERMINATORS);
+		assertSameLines(t, EnumSet.of(LineTerminator.LF));
+		assertSameLines(t, EnumSet.of(LineTerminator.CR_LF));
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+		final StringBuilder s = new StringBuilder();
+		for (int i = 0; i < 10000; i++) s.append(i).append('\n');
+		final File t = write(s.toString().getBytes(StandardCharsets.US_ASCII));
+		final MappedFileLinesBigList list = new MappedFileLinesBigList(t.toString(), "ASCII");
+		final int numThreads = 8;
+		final ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+		final ExecutorCompletionService<Void> executorCompletionService = new ExecutorCompletionService<>(executorService);
+		for (int i = 0; i < numThreads; i++) {
+			final int seed = i;
+			executorCompletionService.submit(() -> {
+				final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(seed);
+				for (int j = 0; j < 100000; j++) {
+					final int index = r.nextInt(10000);
+					assertEquals(Integer.toString(index), list.get(index).toString());
+				}
+				return null;
+			});
+		}
+		try {
+			for (int i = 0; i < numThreads; i++) executorCompletionService.take().get();
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		final File t = write("a\nbb\nccc".getBytes(StandardCharsets.US_ASCII));
+		final File s = File.createTempFile(MappedFileLinesBigListTest.class.getName(), "ser");
+		s.deleteOnExit();
+		BinIO.storeObject(new MappedFileLinesBigList(t.toString(), "ASCII"), s);
+		final MappedFileLinesBigList list = (MappedFileLinesBigList)BinIO.loadObject(s);
+		assertEquals(3, list.size64());
+		assertEquals("bb", list.get(1).toString());
+		assertEquals("ccc", list.get(2).toString());
+	}
+}
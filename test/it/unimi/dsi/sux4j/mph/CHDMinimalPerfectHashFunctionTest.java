@@ -49,6 +49,13 @@ public class CHDMinimalPerfectHashFunctionTest {
 		for (int i = 1000; i-- != 0;)
 			if (w != 0) assertEquals(-1, mph.getLong(Integer.toString(i + size)));
 			else mph.getLong(Integer.toString(i + size));
+
+		// Batch lookups must agree with single lookups, on both positive and negative keys
+		final String[] t = new String[2 * size + 1];
+		for (int i = t.length; i-- != 0;) t[i] = Integer.toString(i);
+		final long[] result = new long[t.length];
+		mph.getLongs(t, result);
+		for (int i = t.length; i-- != 0;) assertEquals(mph.getLong(t[i]), result[i]);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -90,5 +97,8 @@ public class CHDMinimalPerfectHashFunctionTest {
 		final List<String> emptyList = Collections.emptyList();
 		final CHDMinimalPerfectHashFunction<String> mph = new CHDMinimalPerfectHashFunction.Builder<String>().keys(emptyList).transform(TransformationStrategies.utf16()).build();
 		assertEquals(-1, mph.getLong("a"));
+		final long[] result = new long[1];
+		mph.getLongs(new String[] { "a" }, result);
+		assertEquals(-1, result[0]);
 	}
 }
@@ -47,6 +47,23 @@ public class GOV4FunctionTest {
 		if (signatureWidth == 0) for (int i = size; i-- != 0;) function.getLong(Integer.toString(i + size));
 		else if (signatureWidth < 0) for (int i = size; i-- != 0;) assertEquals(0, function.getLong(Integer.toString(i + size)));
 		else for (int i = size; i-- != 0;) assertEquals(-1, function.getLong(Integer.toString(i + size)));
+
+		// Batch lookups must agree with single lookups, on both positive and negative keys
+		final String[] t = new String[2 * size];
+		for (int i = t.length; i-- != 0;) t[i] = Integer.toString(i);
+		final long[] result = new long[t.length];
+		function.getLongs(t, result);
+		for (int i = t.length; i-- != 0;) assertEquals(function.getLong(t[i]), result[i]);
+
+		// Batch lookups by signature must agree with single lookups by signature, whatever the content of the scratch array
+		final long[][] signature = new long[t.length][2];
+		for (int i = t.length; i-- != 0;) Hashes.spooky4(t[i], TransformationStrategies.utf16(), function.globalSeed, signature[i]);
+		final long[] scratch = new long[GOV4Function.SCRATCH_PER_KEY * t.length];
+		Arrays.fill(scratch, -1);
+		function.getLongsBySignature(signature, result, scratch);
+		for (int i = t.length; i-- != 0;) assertEquals(function.getLongBySignature(signature[i]), result[i]);
+		function.getLongsBySignature(signature, result);
+		for (int i = t.length; i-- != 0;) assertEquals(function.getLongBySignature(signature[i]), result[i]);
 	}
 
 	@SuppressWarnings("unchecked")
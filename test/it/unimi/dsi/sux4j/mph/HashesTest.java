@@ -22,13 +22,20 @@ package it.unimi.dsi.sux4j.mph;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
 
 import org.junit.Test;
 
 import it.unimi.dsi.bits.BitVectors;
 import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.bits.TransformationStrategy;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.lang.MutableString;
 import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
 
 public class HashesTest {
@@ -125,4 +132,118 @@ public class HashesTest {
 			}
 		}
 	}
+
+	@Test
+	public void testSpooky4Direct() {
+		final Random r = new XoRoShiRo128PlusRandom(1);
+		final long[] h = new long[4], k = new long[4];
+		for (int l = 0; l < 100; l++) {
+			final byte[] a = new byte[l];
+			r.nextBytes(a);
+			for (final long seed : new long[] { 0, 42 }) {
+				Hashes.spooky4(TransformationStrategies.rawByteArray().toBitVector(a), seed, k);
+				Hashes.spooky4(a, seed, h);
+				assertArrayEquals("Length " + l, k, h);
+				Hashes.spooky4(a, TransformationStrategies.rawByteArray(), seed, h);
+				assertArrayEquals("Length " + l, k, h);
+				Hashes.spooky4(TransformationStrategies.byteArray().toBitVector(a), seed, k);
+				Hashes.spooky4(a, TransformationStrategies.byteArray(), seed, h);
+				assertArrayEquals("Length " + l, k, h);
+			}
+
+			final char[] c = new char[l];
+			for (int i = 0; i < l; i++) c[i] = (char)r.nextInt();
+			final String s = new String(c);
+			for (final long seed : new long[] { 0, 42 }) {
+				Hashes.spooky4(TransformationStrategies.rawUtf16().toBitVector(s), seed, k);
+				Hashes.spooky4(s, seed, h);
+				assertArrayEquals("Length " + l, k, h);
+				Hashes.spooky4(s, TransformationStrategies.rawUtf16(), seed, h);
+				assertArrayEquals("Length " + l, k, h);
+				Hashes.spooky4(new MutableString(s), TransformationStrategies.rawUtf16(), seed, h);
+				assertArrayEquals("Length " + l, k, h);
+				Hashes.spooky4(TransformationStrategies.rawUtf16().toBitVector(new MutableString(s)), seed, h);
+				assertArrayEquals("Length " + l, k, h);
+				Hashes.spooky4(TransformationStrategies.utf16().toBitVector(s), seed, k);
+				Hashes.spooky4(s, TransformationStrategies.utf16(), seed, h);
+				assertArrayEquals("Length " + l, k, h);
+				Hashes.spooky4(new MutableString(s), TransformationStrategies.utf16(), seed, h);
+				assertArrayEquals("Length " + l, k, h);
+				Hashes.spooky4(TransformationStrategies.prefixFreeUtf16().toBitVector(s), seed, k);
+				Hashes.spooky4(s, TransformationStrategies.prefixFreeUtf16(), seed, h);
+				assertArrayEquals("Length " + l, k, h);
+			}
+
+			final long x = r.nextLong();
+			for (final long seed : new long[] { 0, 42 }) {
+				Hashes.spooky4(TransformationStrategies.rawFixedLong().toBitVector(Long.valueOf(x)), seed, k);
+				Hashes.spooky4(x, seed, h);
+				assertArrayEquals(k, h);
+				Hashes.spooky4(Long.valueOf(x), TransformationStrategies.rawFixedLong(), seed, h);
+				assertArrayEquals(k, h);
+				Hashes.spooky4(TransformationStrategies.fixedLong().toBitVector(Long.valueOf(x)), seed, k);
+				Hashes.spooky4(Long.valueOf(x), TransformationStrategies.fixedLong(), seed, h);
+				assertArrayEquals(k, h);
+			}
+		}
+	}
+
+	private static <T> void checkSpooky4Offset(final T key, final TransformationStrategy<? super T> transform, final long seed) {
+		for (int count = 1; count <= 4; count++) {
+			final long[] k = new long[count], h = new long[count + 3];
+			Hashes.spooky4(key, transform, seed, k);
+			Hashes.spooky4(key, transform, seed, h, 2, count);
+			assertEquals(0, h[0]);
+			assertEquals(0, h[1]);
+			assertArrayEquals(k, Arrays.copyOfRange(h, 2, 2 + count));
+			assertEquals(0, h[2 + count]);
+		}
+	}
+
+	@Test
+	public void testSpooky4Offset() {
+		final Random r = new XoRoShiRo128PlusRandom(1);
+		for (int l = 0; l < 100; l++) {
+			final byte[] a = new byte[l];
+			r.nextBytes(a);
+			final char[] c = new char[l];
+			for (int i = 0; i < l; i++) c[i] = (char)r.nextInt();
+			final String s = new String(c);
+			final Long x = Long.valueOf(r.nextLong());
+			for (final long seed : new long[] { 0, 42 }) {
+				checkSpooky4Offset(a, TransformationStrategies.rawByteArray(), seed);
+				checkSpooky4Offset(a, TransformationStrategies.byteArray(), seed);
+				checkSpooky4Offset(s, TransformationStrategies.rawUtf16(), seed);
+				checkSpooky4Offset(s, TransformationStrategies.utf16(), seed);
+				checkSpooky4Offset(s, TransformationStrategies.prefixFreeUtf16(), seed);
+				checkSpooky4Offset(x, TransformationStrategies.rawFixedLong(), seed);
+				checkSpooky4Offset(x, TransformationStrategies.fixedLong(), seed);
+
+				for (int count = 1; count <= 4; count++) {
+					final long[] k = new long[count], h = new long[count + 1];
+					Hashes.spooky4(x.longValue(), l, seed, k);
+					Hashes.spooky4(x.longValue(), l, seed, h, 1, count);
+					assertArrayEquals(k, Arrays.copyOfRange(h, 1, 1 + count));
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSerializedFixedLong() throws IOException, ClassNotFoundException {
+		// Built by Sux4J 5.2.1, which hashed fixedLong() keys through bit vectors, with DSI utilities 2.7
+		assumeTrue(TransformationStrategies.fixedLong().toBitVector(Long.valueOf(0)).getLong(0, Long.SIZE) == 1);
+		final Object[] a = (Object[])BinIO.loadObject(HashesTest.class.getResourceAsStream("fixedLong-5.2.1.ser"));
+		final GOV3Function<Long> gov3 = (GOV3Function<Long>)a[0];
+		final GOV4Function<Long> gov4 = (GOV4Function<Long>)a[1];
+		final GOVMinimalPerfectHashFunction<Long> mph = (GOVMinimalPerfectHashFunction<Long>)a[2];
+		final long[] mphValues = (long[])a[3];
+		for (int i = 0; i < mphValues.length; i++) {
+			final Long key = Long.valueOf(i * 0x9E3779B97F4A7C15L);
+			assertEquals(i, gov3.getLong(key));
+			assertEquals(i, gov4.getLong(key));
+			assertEquals(mphValues[i], mph.getLong(key));
+		}
+	}
 }
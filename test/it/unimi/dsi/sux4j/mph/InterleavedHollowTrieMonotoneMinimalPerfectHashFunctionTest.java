@@ -0,0 +1,97 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.mph;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import it.unimi.dsi.bits.BitVector;
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
+
+public class InterleavedHollowTrieMonotoneMinimalPerfectHashFunctionTest {
+
+	@Test
+	public void testEmpty() {
+		final InterleavedHollowTrieMonotoneMinimalPerfectHashFunction<BitVector> hollowTrie = new InterleavedHollowTrieMonotoneMinimalPerfectHashFunction<>(HollowTrieMonotoneMinimalPerfectHashFunctionTest.listOf(new int[][] {}), TransformationStrategies.identity());
+		assertEquals(-1, hollowTrie.getLong(LongArrayBitVector.of(0)));
+		assertEquals(0, hollowTrie.size64());
+	}
+
+	@Test
+	public void testSingleton() {
+		final InterleavedHollowTrieMonotoneMinimalPerfectHashFunction<BitVector> hollowTrie = new InterleavedHollowTrieMonotoneMinimalPerfectHashFunction<>(HollowTrieMonotoneMinimalPerfectHashFunctionTest.listOf(new int[][] { { 0 } }), TransformationStrategies.identity());
+		assertEquals(0, hollowTrie.getLong(LongArrayBitVector.of(0)));
+		assertEquals(1, hollowTrie.size64());
+	}
+
+	@Test
+	public void testSimple() {
+		final InterleavedHollowTrieMonotoneMinimalPerfectHashFunction<BitVector> hollowTrie = new InterleavedHollowTrieMonotoneMinimalPerfectHashFunction<>(
+				HollowTrieMonotoneMinimalPerfectHashFunctionTest.listOf(new int[][] { { 0, 0, 0, 0, 0 }, { 0, 1, 0, 0, 0 }, { 0, 1, 0, 1, 0, 0 }, { 0, 1, 0, 1, 0, 1 }, { 0, 1, 1, 1, 0 } }), TransformationStrategies.identity());
+
+		assertEquals(0, hollowTrie.getLong(LongArrayBitVector.of(0, 0, 0, 0, 0)));
+		assertEquals(1, hollowTrie.getLong(LongArrayBitVector.of(0, 1, 0, 0, 0)));
+		assertEquals(2, hollowTrie.getLong(LongArrayBitVector.of(0, 1, 0, 1, 0, 0)));
+		assertEquals(3, hollowTrie.getLong(LongArrayBitVector.of(0, 1, 0, 1, 0, 1)));
+		assertEquals(4, hollowTrie.getLong(LongArrayBitVector.of(0, 1, 1, 1, 0)));
+		assertEquals(5, hollowTrie.size64());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testStrings() throws IOException, ClassNotFoundException {
+		final Random r = new XoRoShiRo128PlusRandom(0);
+		for (final int n : new int[] { 2, 3, 10, 100, 1000, 100000 }) {
+			// URL-like strings with long common prefixes, to obtain deep tries
+			final TreeSet<String> strings = new TreeSet<>();
+			for (int i = 0; i < n; i++) strings.add("http://www.example" + r.nextInt(10) + ".com/" + r.nextInt(100) + "/" + Long.toString(r.nextLong() & Long.MAX_VALUE, 3 + i % 30));
+			final String[] s = strings.toArray(new String[0]);
+
+			final HollowTrieMonotoneMinimalPerfectHashFunction<CharSequence> hollowTrie = new HollowTrieMonotoneMinimalPerfectHashFunction<>(Arrays.asList(s), TransformationStrategies.prefixFreeUtf16());
+			InterleavedHollowTrieMonotoneMinimalPerfectHashFunction<CharSequence> interleaved = new InterleavedHollowTrieMonotoneMinimalPerfectHashFunction<>(hollowTrie);
+
+			for (int i = 0; i < s.length; i++) assertEquals(i, interleaved.getLong(s[i]));
+			assertEquals(s.length, interleaved.size64());
+
+			// Negative results must be the same as those of the original trie
+			for (int i = 1000; i-- != 0;) {
+				final String t = "http://www.example" + r.nextInt(10) + ".com/" + Long.toString(r.nextLong() & Long.MAX_VALUE, 36);
+				assertEquals(t, hollowTrie.getLong(t), interleaved.getLong(t));
+			}
+
+			final File temp = File.createTempFile(getClass().getSimpleName(), "test");
+			temp.deleteOnExit();
+			BinIO.storeObject(interleaved, temp);
+			interleaved = (InterleavedHollowTrieMonotoneMinimalPerfectHashFunction<CharSequence>)BinIO.loadObject(temp);
+			for (int i = 0; i < s.length; i++) assertEquals(i, interleaved.getLong(s[i]));
+		}
+	}
+}
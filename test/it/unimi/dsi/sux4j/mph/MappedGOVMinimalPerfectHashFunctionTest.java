@@ -0,0 +1,59 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.mph;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import it.unimi.dsi.bits.TransformationStrategies;
+
+public class MappedGOVMinimalPerfectHashFunctionTest {
+
+	@Test
+	public void testNumbers() throws IOException {
+		for (final int size : new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 20, 64, 100, 1000, 10000, 100000 }) {
+			final String[] s = new String[size];
+			for (int i = s.length; i-- != 0;) s[i] = Integer.toString(i);
+
+			final GOVMinimalPerfectHashFunction<CharSequence> mph = new GOVMinimalPerfectHashFunction.Builder<CharSequence>().keys(Arrays.asList(s)).transform(TransformationStrategies.utf16()).build();
+			final File temp = File.createTempFile(getClass().getSimpleName(), "test");
+			temp.deleteOnExit();
+			mph.dump(temp.toString());
+
+			final MappedGOVMinimalPerfectHashFunction<CharSequence> mapped = MappedGOVMinimalPerfectHashFunction.load(temp.toString(), TransformationStrategies.utf16());
+			assertEquals(size, mapped.size64());
+			final int[] check = new int[s.length];
+			Arrays.fill(check, -1);
+			for (int i = s.length; i-- != 0;) {
+				assertEquals(mph.getLong(s[i]), mapped.getLong(s[i]));
+				assertEquals(Integer.toString(i), -1, check[(int)mapped.getLong(s[i])]);
+				check[(int)mapped.getLong(s[i])] = i;
+			}
+			for (int i = 1000; i-- != 0;) assertEquals(mph.getLong(Integer.toString(i + size)), mapped.getLong(Integer.toString(i + size)));
+			temp.delete();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.mph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import it.unimi.dsi.bits.LongArrayBitVector;
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.sux4j.io.BucketedHashStore;
+
+public class ParallelBucketSolverTest {
+
+	private static final long OFFSET_MASK = -1L >>> 8;
+
+	private static LongArrayList solve(final BucketedHashStore<Long> store, final int numBuckets, final long[] offsetAndSeed, final int numberOfThreads, final long memoryBudget) throws IOException {
+		final LongArrayList output = new LongArrayList();
+		new ParallelBucketSolver(numberOfThreads, memoryBudget, OFFSET_MASK).solve(store.iterator(), numBuckets, offsetAndSeed, bucket -> 2 * bucket.size() + 1, (bucket, offset, numVariables, data) -> {
+			assertEquals(2 * bucket.size() + 1, numVariables);
+			data.append(bucket.index(), Long.SIZE);
+			data.append(offset, Long.SIZE);
+			for (final long[] signature : bucket) data.append(signature[0], Long.SIZE);
+			return (bucket.index() % 256) << 56;
+		}, data -> {
+			for (int i = 0; i < data.length(); i += Long.SIZE) output.add(data.getLong(i, i + Long.SIZE));
+		}, null);
+		return output;
+	}
+
+	@Test
+	public void testSolve() throws IOException {
+		for (final int size : new int[] { 0, 1, 100, 100000 }) {
+			final BucketedHashStore<Long> store = new BucketedHashStore<>(TransformationStrategies.fixedLong());
+			for (long i = 0; i < size; i++) store.add(Long.valueOf(i));
+			store.bucketSize(100);
+			int numBuckets = 0;
+			for (@SuppressWarnings("unused") final BucketedHashStore.Bucket bucket : store) numBuckets++;
+
+			long[] expected = null;
+			LongArrayList expectedOutput = null;
+			for (final int numberOfThreads : new int[] { 1, 2, 8 }) {
+				for (final long memoryBudget : new long[] { 1, 1 << 20, Long.MAX_VALUE }) {
+					final long[] offsetAndSeed = new long[numBuckets + 1];
+					final LongArrayList output = solve(store, numBuckets, offsetAndSeed, numberOfThreads, memoryBudget);
+					if (expected == null) {
+						expected = offsetAndSeed;
+						expectedOutput = output;
+						long offset = 0, index = 0;
+						for (int i = 0; i < output.size(); index++) {
+							assertEquals(index, output.getLong(i++));
+							assertEquals(offset, output.getLong(i++));
+							assertEquals(offset | (index % 256) << 56, offsetAndSeed[(int)index]);
+							final long bucketSize = (offsetAndSeed[(int)index + 1] & OFFSET_MASK) - offset - 1 >>> 1;
+							i += bucketSize;
+							offset += 2 * bucketSize + 1;
+						}
+						assertEquals(numBuckets, index);
+						assertEquals(2 * size + numBuckets, offsetAndSeed[numBuckets] & OFFSET_MASK);
+					}
+					else {
+						assertArrayEquals(expected, offsetAndSeed);
+						assertEquals(expectedOutput, output);
+					}
+				}
+			}
+			store.close();
+		}
+	}
+
+	@Test
+	public void testFailure() throws IOException {
+		final BucketedHashStore<Long> store = new BucketedHashStore<>(TransformationStrategies.fixedLong());
+		for (long i = 0; i < 10000; i++) store.add(Long.valueOf(i));
+		store.bucketSize(10);
+		try {
+			new ParallelBucketSolver(4, 1 << 20, OFFSET_MASK).solve(store.iterator(), 1001, new long[1002], bucket -> bucket.size(), (bucket, offset, numVariables, data) -> {
+				if (bucket.index() == 500) throw new IllegalStateException();
+				return 0;
+			}, data -> {}, null);
+			fail();
+		} catch (final RuntimeException e) {
+			assertEquals(IllegalStateException.class, e.getCause().getClass());
+		}
+		store.close();
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.mph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.sux4j.io.BucketedHashStore;
+
+public class ShardedGOV3FunctionTest {
+
+	private static GOV3Function<CharSequence> build(final String[] s, final LongArrayList values, final int dataWidth, final int numShards, final File dir) throws IOException {
+		final File[] shardFile = new File[numShards];
+		for (int shard = 0; shard < numShards; shard++) {
+			shardFile[shard] = ShardedGOV3Function.shardFile(new File(dir, "function").toString(), shard);
+			ShardedGOV3Function.buildShard(Arrays.asList(s), TransformationStrategies.rawUtf16(), values, dataWidth, s.length, 42, shard, numShards, shardFile[shard], dir);
+		}
+		final GOV3Function<CharSequence> function = ShardedGOV3Function.merge(TransformationStrategies.rawUtf16(), shardFile);
+		for (final File f : shardFile) f.delete();
+		return function;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testNumbers() throws IOException, ClassNotFoundException {
+		final File dir = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+		for (final int size : new int[] { 0, 1, 10, 1000, 100000 }) {
+			final String[] s = new String[size];
+			for (int i = s.length; i-- != 0;) s[i] = Integer.toString(i);
+
+			for (final int numShards : new int[] { 1, 2, 7 }) {
+				GOV3Function<CharSequence> function = build(s, null, -1, numShards, dir);
+				assertEquals(size, function.size64());
+				for (int i = s.length; i-- != 0;) assertEquals(i, function.getLong(s[i]));
+
+				final File temp = new File(dir, "function");
+				BinIO.storeObject(function, temp);
+				function = (GOV3Function<CharSequence>)BinIO.loadObject(temp);
+				for (int i = s.length; i-- != 0;) assertEquals(i, function.getLong(s[i]));
+				temp.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void testValues() throws IOException {
+		final File dir = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+		final String[] s = new String[10000];
+		final LongArrayList values = new LongArrayList();
+		for (int i = s.length; i-- != 0;) s[i] = Integer.toString(i);
+		for (int i = 0; i < s.length; i++) values.add(i * 0x9E3779B97F4A7C13L >>> 44);
+		final GOV3Function<CharSequence> function = build(s, values, 20, 3, dir);
+		for (int i = s.length; i-- != 0;) assertEquals(values.getLong(i), function.getLong(s[i]));
+		dir.delete();
+	}
+
+	@Test
+	public void testSameAsSingleProcess() throws IOException {
+		final File dir = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+		final String[] s = new String[10000];
+		final LongArrayList values = new LongArrayList();
+		for (int i = s.length; i-- != 0;) s[i] = Integer.toString(i);
+		for (int i = 0; i < s.length; i++) values.add(i * 0x9E3779B97F4A7C13L >>> 44);
+
+		for (final boolean withValues : new boolean[] { false, true }) {
+			final BucketedHashStore<CharSequence> bucketedHashStore = new BucketedHashStore<>(TransformationStrategies.rawUtf16(), dir, null);
+			bucketedHashStore.reset(42);
+			if (withValues) bucketedHashStore.addAll(Arrays.asList(s).iterator(), values.iterator());
+			else bucketedHashStore.addAll(Arrays.asList(s).iterator());
+			final GOV3Function<CharSequence> single = withValues ? new GOV3Function.Builder<CharSequence>().store(bucketedHashStore, 20).build() : new GOV3Function.Builder<CharSequence>().store(bucketedHashStore).build();
+			bucketedHashStore.close();
+			assertEquals(42, single.globalSeed);
+
+			for (final int numShards : new int[] { 1, 2, 7 }) {
+				final GOV3Function<CharSequence> sharded = withValues ? build(s, values, 20, numShards, dir) : build(s, null, -1, numShards, dir);
+				assertEquals(single.globalSeed, sharded.globalSeed);
+				assertEquals(single.width, sharded.width);
+				assertArrayEquals(single.offsetAndSeed, sharded.offsetAndSeed);
+				assertEquals(single.data, sharded.data);
+				for (int i = s.length; i-- != 0;) assertEquals(s[i], single.getLong(s[i]), sharded.getLong(s[i]));
+				for (int i = s.length; i-- != 0;) assertEquals(single.getLong("-" + i), sharded.getLong("-" + i));
+			}
+		}
+		dir.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongShards() throws IOException {
+		final File dir = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+		final String[] s = new String[1000];
+		for (int i = s.length; i-- != 0;) s[i] = Integer.toString(i);
+		final File shardFile = ShardedGOV3Function.shardFile(new File(dir, "function").toString(), 1);
+		ShardedGOV3Function.buildShard(Arrays.asList(s), TransformationStrategies.rawUtf16(), null, -1, s.length, 42, 1, 2, shardFile, dir);
+		try {
+			ShardedGOV3Function.merge(TransformationStrategies.rawUtf16(), shardFile);
+		} finally {
+			shardFile.delete();
+			dir.delete();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testProcesses() throws Exception {
+		final File dir = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+		final File stringFile = new File(dir, "strings");
+		final PrintWriter pw = new PrintWriter(stringFile, "UTF-8");
+		for (int i = 0; i < 20000; i++) pw.println(i);
+		pw.close();
+		final File functionFile = new File(dir, "function");
+		ShardedGOV3Function.main(new String[] { "--shards", "2", "-T", dir.toString(), functionFile.toString(), stringFile.toString() });
+		final GOV3Function<CharSequence> function = (GOV3Function<CharSequence>)BinIO.loadObject(functionFile);
+		for (int i = 0; i < 20000; i++) assertEquals(i, function.getLong(Integer.toString(i)));
+		assertEquals(2, dir.list().length);
+		functionFile.delete();
+		stringFile.delete();
+		dir.delete();
+	}
+}
@@ -45,6 +45,14 @@ public class TwoStepsLcpMonotoneMinimalPerfectHashFunctionTest {
 		// Exercise code for negative results
 		if (signatureWidth == 0) for (int i = size; i-- != 0;) mph.getLong(binary(i + size));
 		else for (int i = size; i-- != 0;) assertEquals(-1, mph.getLong(binary(i + size)));
+
+		final long[] result = new long[s.length];
+		mph.getLongs(s, result);
+		for (int i = s.length; i-- != 0;) assertEquals(i, result[i]);
+		final String[] t = new String[size];
+		for (int i = size; i-- != 0;) t[i] = binary(i + size);
+		mph.getLongs(t, result);
+		for (int i = size; i-- != 0;) assertEquals(mph.getLong(t[i]), result[i]);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -0,0 +1,253 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.objects.ObjectBidirectionalIterator;
+import it.unimi.dsi.fastutil.objects.ObjectRBTreeSet;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
+
+public class ConcurrentZFastTrieTest {
+
+	private static String key(final int i) {
+		return ZFastTrieTest.binary(i);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSequential() throws IOException, ClassNotFoundException {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		final ObjectRBTreeSet<String> set = new ObjectRBTreeSet<>();
+		ConcurrentZFastTrie<String> zft = new ConcurrentZFastTrie<>(TransformationStrategies.prefixFreeIso());
+		assertNull(zft.first());
+		assertFalse(zft.iterator().hasNext());
+
+		for (int i = 0; i < 10000; i++) {
+			final String s = key(r.nextInt(5000) * 2);
+			if (r.nextBoolean()) assertEquals(set.add(s), zft.add(s));
+			else assertEquals(set.remove(s), zft.remove(s));
+		}
+
+		assertEquals(set.size(), zft.size());
+		assertEquals(set, zft);
+		assertEquals(set.first(), zft.first());
+		assertEquals(set.last(), zft.last());
+
+		for (int i = 0; i < 10000; i++) {
+			final String s = key(i);
+			assertEquals(s, set.contains(s), zft.contains(s));
+			final String pred = set.headSet(s + "\0").isEmpty() ? null : set.headSet(s + "\0").last();
+			final String succ = set.tailSet(s).isEmpty() ? null : set.tailSet(s).first();
+			assertEquals(s, pred, zft.pred(s));
+			assertEquals(s, succ, zft.succ(s));
+		}
+
+		final ObjectBidirectionalIterator<String> iterator = zft.iterator(key(5001));
+		final ObjectBidirectionalIterator<String> expected = set.iterator(key(5000));
+		assertEquals(expected.next(), iterator.next());
+		assertEquals(expected.previous(), iterator.previous());
+		assertEquals(expected.previous(), iterator.previous());
+
+		final File temp = File.createTempFile(getClass().getSimpleName(), "test");
+		temp.deleteOnExit();
+		BinIO.storeObject(zft, temp);
+		zft = (ConcurrentZFastTrie<String>)BinIO.loadObject(temp);
+		assertEquals(set, zft);
+
+		zft.clear();
+		assertEquals(0, zft.size());
+		assertFalse(zft.iterator().hasNext());
+	}
+
+	@Test
+	public void testIteratorAcrossModifications() {
+		final ConcurrentZFastTrie<String> zft = new ConcurrentZFastTrie<>(TransformationStrategies.prefixFreeIso());
+		for (int i = 0; i < 100; i++) zft.add(key(i));
+
+		final ObjectBidirectionalIterator<String> iterator = zft.iterator();
+		for (int i = 0; i < 10; i++) assertEquals(key(i), iterator.next());
+		// Remove the last returned element and the next one
+		zft.remove(key(9));
+		zft.remove(key(10));
+		assertEquals(key(11), iterator.next());
+		// Add an element before the iterator position and one after
+		zft.add(key(1000));
+		zft.add(key(5 + 1000 * 1000));
+		assertEquals(key(11), iterator.previous());
+		assertEquals(key(8), iterator.previous());
+		zft.remove(key(8));
+		assertEquals(key(11), iterator.next());
+		assertEquals(key(12), iterator.next());
+
+		int c = 13;
+		while (c < 100) assertEquals(key(c++), iterator.next());
+		assertEquals(key(1000), iterator.next());
+		assertEquals(key(5 + 1000 * 1000), iterator.next());
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+		final int n = 10000;
+		final int readers = 4;
+		final ConcurrentZFastTrie<String> zft = new ConcurrentZFastTrie<>(TransformationStrategies.prefixFreeIso());
+		// Even keys are always present; odd keys are added and removed by the writer
+		for (int i = 0; i < n; i += 2) zft.add(key(i));
+
+		final AtomicBoolean stop = new AtomicBoolean();
+		final ExecutorService executorService = Executors.newFixedThreadPool(readers + 1);
+		final ExecutorCompletionService<Void> executorCompletionService = new ExecutorCompletionService<>(executorService);
+
+		executorCompletionService.submit(() -> {
+			final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+			for (int i = 0; i < 20 * n; i++) {
+				final String s = key(r.nextInt(n / 2) * 2 + 1);
+				if (r.nextBoolean()) zft.add(s);
+				else zft.remove(s);
+			}
+			stop.set(true);
+			return null;
+		});
+
+		for (int t = 0; t < readers; t++) {
+			final int seed = t;
+			executorCompletionService.submit(() -> {
+				final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(seed);
+				while (!stop.get()) {
+					final int x = r.nextInt(n / 2) * 2;
+					final String s = key(x);
+					assertTrue(s, zft.contains(s));
+					assertEquals(s, s, zft.pred(s));
+					assertEquals(s, s, zft.succ(s));
+					final String odd = key(x + 1);
+					final String pred = zft.pred(odd);
+					assertTrue(odd + " -> " + pred, pred.equals(s) || pred.equals(odd));
+					if (x + 2 < n) {
+						final String succ = zft.succ(odd);
+						assertTrue(odd + " -> " + succ, succ.equals(key(x + 2)) || succ.equals(odd));
+					}
+
+					// Iteration must be strictly increasing and must contain all even keys
+					int expected = x;
+					String prev = null;
+					final ObjectBidirectionalIterator<String> iterator = zft.iterator(s);
+					for (int j = 0; j < 20 && iterator.hasNext(); j++) {
+						final String next = iterator.next();
+						assertTrue(prev + " >= " + next, prev == null || prev.compareTo(next) < 0);
+						final int v = Integer.parseInt(next, 2);
+						if ((v & 1) == 0) assertEquals(expected, v);
+						expected = (v | 1) + 1;
+						prev = next;
+					}
+				}
+				return null;
+			});
+		}
+
+		executorService.shutdown();
+		try {
+			for (int t = readers + 1; t-- != 0;) executorCompletionService.take().get();
+		} finally {
+			stop.set(true);
+			executorService.shutdownNow();
+		}
+
+		final ArrayList<String> list = new ArrayList<>(zft);
+		final ArrayList<String> sorted = new ArrayList<>(list);
+		Collections.sort(sorted);
+		assertEquals(sorted, list);
+	}
+
+	@Test
+	public void testConcurrentRehash() throws Exception {
+		final int n = 1 << 14;
+		final int readers = 4;
+		final ConcurrentZFastTrie<String> zft = new ConcurrentZFastTrie<>(TransformationStrategies.prefixFreeIso());
+		// Keys smaller than added are in the trie, which grows from scratch, rehashing its handle-to-node map repeatedly
+		final AtomicInteger added = new AtomicInteger();
+		final AtomicBoolean stop = new AtomicBoolean();
+		final ExecutorService executorService = Executors.newFixedThreadPool(readers + 1);
+		final ExecutorCompletionService<Void> executorCompletionService = new ExecutorCompletionService<>(executorService);
+
+		executorCompletionService.submit(() -> {
+			for (int i = 0; i < n; i++) {
+				zft.add(key(i));
+				added.set(i + 1);
+			}
+			stop.set(true);
+			return null;
+		});
+
+		for (int t = 0; t < readers; t++) {
+			final int seed = t;
+			executorCompletionService.submit(() -> {
+				final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(seed);
+				while (!stop.get()) {
+					final int a = added.get();
+					if (a == 0) continue;
+					final String s = key(r.nextInt(a));
+					assertTrue(s, zft.contains(s));
+					assertEquals(s, s, zft.pred(s));
+					assertEquals(s, s, zft.succ(s));
+					final ObjectBidirectionalIterator<String> iterator = zft.iterator(s);
+					assertTrue(s, iterator.hasNext());
+					assertEquals(s, s, iterator.next());
+				}
+				return null;
+			});
+		}
+
+		executorService.shutdown();
+		try {
+			// A reader looking at an inconsistent view might never terminate
+			for (int t = readers + 1; t-- != 0;) {
+				final Future<Void> future = executorCompletionService.poll(1, TimeUnit.MINUTES);
+				assertNotNull(future);
+				future.get();
+			}
+		} finally {
+			stop.set(true);
+			executorService.shutdownNow();
+		}
+		assertEquals(n, zft.size());
+	}
+}
@@ -338,4 +338,48 @@ public class EliasFanoIndexedMonotoneLongBigListTest {
 		assertEquals(3, l.index());
 		assertEquals(3, l.strictSuccessorIndexUnsafe(9));
 	}
+
+	@Test
+	public void testBuilder() {
+		final XoRoShiRo128PlusRandom random = new XoRoShiRo128PlusRandom(0);
+		for (final int size : new int[] { 0, 1, 2, 10, 1000, 100000 }) {
+			for (final int jump : new int[] { 1, 10, 1000, 1 << 20 }) {
+				final long[] s = new long[size];
+				for (int i = 1; i < s.length; i++) s[i] = s[i - 1] + random.nextInt(jump);
+				// test() assumes that the upper bound is the last element plus one
+				final long upperBound = size == 0 ? 1 : s[size - 1] + 1 + (jump <= 1000 ? 0 : random.nextInt(jump));
+				final EliasFanoIndexedMonotoneLongBigList.Builder builder = new EliasFanoIndexedMonotoneLongBigList.Builder(size, upperBound);
+				for (final long v : s) builder.add(v);
+				final EliasFanoIndexedMonotoneLongBigList built = builder.build();
+				final EliasFanoIndexedMonotoneLongBigList e = new EliasFanoIndexedMonotoneLongBigList(size, upperBound, LongArrayList.wrap(s).iterator());
+				assertEquals(e, built);
+				assertEquals(e.selectUpper.bitVector(), built.selectUpper.bitVector());
+				for (int i = 0; i < 1000; i++) {
+					final long x = size == 0 ? 0 : random.nextLong(upperBound + 1);
+					assertEquals(e.successor(x), built.successor(x));
+					assertEquals(e.successorIndex(x), built.successorIndex(x));
+					assertEquals(e.strictSuccessor(x), built.strictSuccessor(x));
+					assertEquals(e.predecessor(x), built.predecessor(x));
+					assertEquals(e.weakPredecessor(x), built.weakPredecessor(x));
+					assertEquals(e.contains(x), built.contains(x));
+					assertEquals(e.indexOf(x), built.indexOf(x));
+				}
+				if (size > 0 && size <= 1000 && jump <= 1000) test(built);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBuilderNotMonotone() {
+		final EliasFanoIndexedMonotoneLongBigList.Builder builder = new EliasFanoIndexedMonotoneLongBigList.Builder(2, 10);
+		builder.add(5);
+		builder.add(4);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBuilderTooFew() {
+		final EliasFanoIndexedMonotoneLongBigList.Builder builder = new EliasFanoIndexedMonotoneLongBigList.Builder(2, 10);
+		builder.add(5);
+		builder.build();
+	}
 }
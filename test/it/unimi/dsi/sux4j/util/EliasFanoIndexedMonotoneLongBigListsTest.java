@@ -0,0 +1,129 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.sux4j.util.EliasFanoIndexedMonotoneLongBigLists.Intersection;
+import it.unimi.dsi.sux4j.util.EliasFanoIndexedMonotoneLongBigLists.SetOperation;
+import it.unimi.dsi.sux4j.util.EliasFanoIndexedMonotoneLongBigLists.Union;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
+
+public class EliasFanoIndexedMonotoneLongBigListsTest {
+
+	private static long[] drain(final SetOperation operation, final int batch) {
+		final LongArrayList result = new LongArrayList();
+		final long[] buffer = new long[batch + 2];
+		for (;;) {
+			final int n = operation.next(buffer, 1, batch);
+			result.addElements(result.size(), buffer, 1, n);
+			if (n < batch) return result.toLongArray();
+		}
+	}
+
+	private static void test(final long[][] a) {
+		final EliasFanoIndexedMonotoneLongBigList[] list = new EliasFanoIndexedMonotoneLongBigList[a.length];
+		for (int i = 0; i < a.length; i++) list[i] = new EliasFanoIndexedMonotoneLongBigList(LongArrayList.wrap(a[i]));
+
+		LongOpenHashSet intersection = null;
+		final LongOpenHashSet union = new LongOpenHashSet();
+		for (final long[] x : a) {
+			final LongOpenHashSet s = new LongOpenHashSet(x);
+			union.addAll(s);
+			if (intersection == null) intersection = s;
+			else intersection.retainAll(s);
+		}
+		final long[] expectedIntersection = intersection.toLongArray();
+		LongArrays.quickSort(expectedIntersection);
+		final long[] expectedUnion = union.toLongArray();
+		LongArrays.quickSort(expectedUnion);
+
+		for (final int batch : new int[] { 1, 3, 1000 }) {
+			assertArrayEquals(expectedIntersection, drain(new Intersection(list), batch));
+			assertArrayEquals(expectedUnion, drain(new Union(list), batch));
+		}
+	}
+
+	private static long[] random(final XoRoShiRo128PlusRandom r, final int n, final long u) {
+		final long[] a = new long[n];
+		for (int i = 0; i < n; i++) a[i] = r.nextLong(u);
+		Arrays.sort(a);
+		return a;
+	}
+
+	@Test
+	public void testSmall() {
+		test(new long[][] { { 0, 1, 2 } });
+		test(new long[][] { { 0, 1, 2 }, { 1, 2, 3 } });
+		test(new long[][] { { 0, 0, 5, 5, 9 }, { 5, 5, 9, 9 }, { 0, 5, 9 } });
+		test(new long[][] { { 10 }, { 1000000 } });
+	}
+
+	@Test
+	public void testRandom() {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		for (final int k : new int[] { 2, 3, 5, 10 }) {
+			for (final long u : new long[] { 100, 10000, 1L << 20, 1L << 40 }) {
+				final long[][] a = new long[k][];
+				for (int i = 0; i < k; i++) a[i] = random(r, 100 + r.nextInt(10000), u);
+				test(a);
+			}
+		}
+	}
+
+	@Test
+	public void testSkewed() {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(1);
+		// A short list against long, dense lists exercises long jumps
+		final long[][] a = { random(r, 100, 1 << 20), random(r, 500000, 1 << 20), random(r, 300000, 1 << 20) };
+		for (int i = 0; i < 50; i++) a[1][r.nextInt(a[1].length)] = a[0][i];
+		for (int i = 0; i < 50; i++) a[2][r.nextInt(a[2].length)] = a[0][i];
+		Arrays.sort(a[1]);
+		Arrays.sort(a[2]);
+		test(a);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoLists() {
+		new Union();
+	}
+
+	@Test
+	public void testResume() {
+		final EliasFanoIndexedMonotoneLongBigList a = new EliasFanoIndexedMonotoneLongBigList(LongArrayList.wrap(new long[] { 1, 2, 3, 4, 5 }));
+		final EliasFanoIndexedMonotoneLongBigList b = new EliasFanoIndexedMonotoneLongBigList(LongArrayList.wrap(new long[] { 2, 4, 5, 6 }));
+		final Intersection intersection = new Intersection(a, b);
+		final long[] buffer = new long[2];
+		assertEquals(2, intersection.next(buffer));
+		assertArrayEquals(new long[] { 2, 4 }, buffer);
+		assertEquals(1, intersection.next(buffer));
+		assertEquals(5, buffer[0]);
+		assertEquals(0, intersection.next(buffer));
+	}
+}
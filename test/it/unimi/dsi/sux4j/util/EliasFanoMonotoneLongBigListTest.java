@@ -23,9 +23,12 @@ package it.unimi.dsi.sux4j.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 
 import it.unimi.dsi.Util;
+import it.unimi.dsi.fastutil.BigArrays;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongBigArrayBigList;
 import it.unimi.dsi.fastutil.longs.LongBigListIterator;
@@ -157,4 +160,48 @@ public class EliasFanoMonotoneLongBigListTest {
 			}
 		}
 	}
+
+	@Test
+	public void testParallel() {
+		final XoRoShiRo128PlusRandom random = new XoRoShiRo128PlusRandom(0);
+		for (final int size : new int[] { 0, 1, 2, 3, 10, 100, 1000, 100000 }) {
+			for (final int jump : new int[] { 1, 10, 1000, 1 << 20 }) {
+				final long[] s = new long[size];
+				for (int i = 1; i < s.length; i++) s[i] = s[i - 1] + random.nextInt(jump);
+				final long upperBound = size == 0 ? 1 : s[size - 1] + 1 + random.nextInt(jump);
+				final EliasFanoMonotoneLongBigList sequential = new EliasFanoMonotoneLongBigList(size, upperBound, LongArrayList.wrap(s).iterator());
+				for (final int threads : new int[] { 1, 2, 3, 8 }) {
+					final EliasFanoMonotoneLongBigList list = new EliasFanoMonotoneLongBigList(LongBigArrayBigList.wrap(BigArrays.wrap(s)), upperBound, threads);
+					assertEquals(sequential, list);
+					assertEquals(sequential.selectUpper.bitVector(), list.selectUpper.bitVector());
+					assertEquals(sequential.numBits(), list.numBits(), 64 * 2);
+					assertEquals(sequential, new EliasFanoMonotoneLongBigList(BigArrays.wrap(s), upperBound, threads));
+					assertEquals(sequential, new EliasFanoMonotoneLongBigList(Arrays.stream(s).spliterator(), upperBound, threads));
+					assertEquals(sequential, new EliasFanoMonotoneLongBigList(LongArrayList.wrap(s).spliterator(), upperBound, threads));
+				}
+				if (size > 0 && size < 1000) test(new EliasFanoMonotoneLongBigList(LongBigArrayBigList.wrap(BigArrays.wrap(s)), upperBound, 4));
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParallelNotMonotone() {
+		final long[] s = new long[1000];
+		for (int i = 1; i < s.length; i++) s[i] = i;
+		s[500] = 0;
+		new EliasFanoMonotoneLongBigList(BigArrays.wrap(s), 1000, 4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParallelNotMonotoneAcrossRanges() {
+		final long[] s = new long[1000];
+		for (int i = 1; i < s.length; i++) s[i] = i < 500 ? 1000 : 2000;
+		s[500] = 999;
+		new EliasFanoMonotoneLongBigList(BigArrays.wrap(s), 3000, 2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParallelTooLarge() {
+		new EliasFanoMonotoneLongBigList(BigArrays.wrap(new long[] { 0, 1, 2 }), 2, 2);
+	}
 }
@@ -20,19 +20,24 @@
 
 package it.unimi.dsi.sux4j.util;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 
 import it.unimi.dsi.Util;
 import it.unimi.dsi.fastutil.longs.LongBigArrayBigList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongBigListIterator;
 import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
 
 public class EliasFanoPrefixSumLongBigListTest {
 
 	private static void test(final EliasFanoPrefixSumLongBigList l) {
+		testBulk(l);
 		for (long i = 0; i < l.size64(); i++) {
 			LongBigListIterator iterator = l.listIterator(i);
 			for (long j = i; j < l.size64(); j++) {
@@ -55,6 +60,35 @@ public class EliasFanoPrefixSumLongBigListTest {
 		}
 	}
 
+	private static void testBulk(final EliasFanoPrefixSumLongBigList l) {
+		final long n = l.size64();
+		for (long from = 0; from < n; from++) {
+			for (int length = 1; length <= Math.min(n - from, 20); length++) {
+				final long[] dest = new long[length + 2];
+				l.get(from, dest, 1, length);
+				for (int i = 0; i < length; i++) assertEquals(l.getLong(from + i), dest[i + 1]);
+				assertEquals(0, dest[0]);
+				assertEquals(0, dest[length + 1]);
+				assertArrayEquals(Arrays.copyOfRange(dest, 1, length + 1), l.get(from, new long[length]));
+			}
+			for (int length = 1; length <= Math.min(n + 1 - from, 20); length++) {
+				final long[] dest = l.prefixSums(from, new long[length]);
+				for (int i = 0; i < length; i++) assertEquals(l.prefixSum(from + i), dest[i]);
+			}
+			long sum = 0;
+			for (long to = from; to <= Math.min(n, from + 20); to++) {
+				assertEquals(sum, l.sum(from, to));
+				if (to < n) sum += l.getLong(to);
+			}
+		}
+		assertEquals(l.prefixSum(n), l.sum(0, n));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testSumOutOfBounds() {
+		new EliasFanoPrefixSumLongBigList(LongArrayList.wrap(new long[] { 1, 2, 3 })).sum(1, 4);
+	}
+
 	@Test
 	public void testSmall() {
 		LongBigArrayBigList l;
@@ -109,6 +143,13 @@ public class EliasFanoPrefixSumLongBigListTest {
 			c += Long.numberOfTrailingZeros(random.nextLong());
 			l.add(c);
 		}
-		assertEquals(l, new EliasFanoPrefixSumLongBigList(l));
+		final EliasFanoPrefixSumLongBigList prefixSumList = new EliasFanoPrefixSumLongBigList(l);
+		assertEquals(l, prefixSumList);
+		final long[] block = new long[1000];
+		for (long from = 0; from < l.size64(); from += 999983) {
+			final int length = (int)Math.min(block.length, l.size64() - from);
+			prefixSumList.get(from, block, 0, length);
+			for (int i = 0; i < length; i++) assertEquals(l.getLong(from + i), block[i]);
+		}
 	}
 }
@@ -0,0 +1,165 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
+
+public class OrdinalTreeTest {
+
+	/** Returns the children lists of a random tree; shape 0 is random, 1 a path, 2 a star, 3 a caterpillar. */
+	@SuppressWarnings("unchecked")
+	private static IntArrayList[] randomTree(final int n, final int shape, final XoRoShiRo128PlusRandom r) {
+		final IntArrayList[] children = new IntArrayList[n];
+		for (int i = 0; i < n; i++) children[i] = new IntArrayList();
+		for (int i = 1; i < n; i++) {
+			final int parent;
+			switch (shape) {
+			case 0: parent = r.nextInt(i); break;
+			case 1: parent = i - 1; break;
+			case 2: parent = 0; break;
+			default: parent = (i - 1) & ~1;
+			}
+			children[parent].add(i);
+		}
+		return children;
+	}
+
+	/**
+	 * Checks a tree against its children lists.
+	 *
+	 * @param children the children lists.
+	 * @param order the nodes of the tree in the order used by the implementation.
+	 * @param tree the tree.
+	 */
+	private static void check(final IntArrayList[] children, final int[] order, final OrdinalTree tree) {
+		final int n = children.length;
+		final int[] id = new int[n];
+		for (int i = 0; i < n; i++) id[order[i]] = i;
+		final int[] parent = new int[n], depth = new int[n], size = new int[n];
+		parent[0] = -1;
+		for (int i = 0; i < n; i++) for (final int c : children[i]) parent[c] = i;
+		for (int i = 1; i < n; i++) depth[i] = depth[parent[i]] + 1; // Parents precede children
+		for (int i = n; i-- != 0;) {
+			size[i]++;
+			if (i != 0) size[parent[i]] += size[i];
+		}
+
+		assertEquals(n, tree.size64());
+		assertEquals(0, tree.root());
+		for (int v = 0; v < n; v++) {
+			final int k = id[v];
+			final IntArrayList c = children[v];
+			assertEquals(parent[v] == -1 ? -1 : id[parent[v]], tree.parent(k));
+			assertEquals(c.size(), tree.degree(k));
+			assertEquals(c.isEmpty(), tree.isLeaf(k));
+			assertEquals(c.isEmpty() ? -1 : id[c.getInt(0)], tree.firstChild(k));
+			for (int i = 0; i < c.size(); i++) {
+				assertEquals(id[c.getInt(i)], tree.child(k, i));
+				assertEquals(i == c.size() - 1 ? -1 : id[c.getInt(i + 1)], tree.nextSibling(id[c.getInt(i)]));
+			}
+			assertEquals(-1, tree.child(k, c.size()));
+			assertEquals(depth[v], tree.depth(k));
+			assertEquals(size[v], tree.subtreeSize(k));
+		}
+		assertEquals(-1, tree.nextSibling(0));
+	}
+
+	private static int[] bfs(final IntArrayList[] children) {
+		final int[] order = new int[children.length];
+		final IntArrayFIFOQueue queue = new IntArrayFIFOQueue();
+		queue.enqueue(0);
+		for (int i = 0; !queue.isEmpty(); i++) {
+			final int v = order[i] = queue.dequeueInt();
+			for (final int c : children[v]) queue.enqueue(c);
+		}
+		return order;
+	}
+
+	private static int[] preorder(final IntArrayList[] children) {
+		final int[] order = new int[children.length];
+		final IntArrayList stack = new IntArrayList();
+		stack.push(0);
+		for (int i = 0; !stack.isEmpty(); i++) {
+			final int v = order[i] = stack.popInt();
+			for (int j = children[v].size(); j-- != 0;) stack.push(children[v].getInt(j));
+		}
+		return order;
+	}
+
+	@Test
+	public void testTrees() throws IOException, ClassNotFoundException {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		for (final int n : new int[] { 1, 2, 3, 10, 100, 1000, 10000 }) {
+			for (int shape = 0; shape < 4; shape++) {
+				final IntArrayList[] children = randomTree(n, shape, r);
+
+				final int[] bfs = bfs(children);
+				final LoudsOrdinalTree.Builder loudsBuilder = new LoudsOrdinalTree.Builder();
+				for (final int v : bfs) loudsBuilder.add(children[v].size());
+				final LoudsOrdinalTree louds = loudsBuilder.build();
+				check(children, bfs, louds);
+
+				final int[] preorder = preorder(children);
+				final DfudsOrdinalTree.Builder dfudsBuilder = new DfudsOrdinalTree.Builder();
+				for (final int v : preorder) dfudsBuilder.add(children[v].size());
+				DfudsOrdinalTree dfuds = dfudsBuilder.build();
+				check(children, preorder, dfuds);
+
+				final File temp = File.createTempFile(getClass().getSimpleName(), "test");
+				temp.deleteOnExit();
+				BinIO.storeObject(dfuds, temp);
+				dfuds = (DfudsOrdinalTree)BinIO.loadObject(temp);
+				check(children, preorder, dfuds);
+
+				if (n == 10000 && shape == 0) {
+					System.err.println("LOUDS: " + (double)louds.numBits() / n + " bits/node; DFUDS: " + (double)dfuds.numBits() / n + " bits/node");
+					assertTrue(louds.numBits() < 3 * n);
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoParent() {
+		new LoudsOrdinalTree.Builder().add(1).add(0).add(0);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMissingChildren() {
+		new DfudsOrdinalTree.Builder().add(2).add(0).build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testEmpty() {
+		new LoudsOrdinalTree.Builder().build();
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.sux4j.util.PartitionedEliasFanoMonotoneLongBigList.PartitionedEliasFanoMonotoneLongBigListIterator;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
+
+public class PartitionedEliasFanoMonotoneLongBigListTest {
+
+	private static void test(final long[] a) {
+		final PartitionedEliasFanoMonotoneLongBigList l = new PartitionedEliasFanoMonotoneLongBigList(LongArrayList.wrap(a));
+		final EliasFanoIndexedMonotoneLongBigList e = new EliasFanoIndexedMonotoneLongBigList(LongArrayList.wrap(a));
+		assertEquals(a.length, l.size64());
+		for (int i = 0; i < a.length; i++) assertEquals(Integer.toString(i), a[i], l.getLong(i));
+		assertEquals(e, l);
+
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		final long u = a[a.length - 1];
+		for (int t = 0; t < 2000; t++) {
+			final long x = t < 200 ? a[r.nextInt(a.length)] + r.nextInt(3) - 1 : r.nextLong(u + 3) - 1;
+			final String m = Long.toString(x);
+			assertEquals(m, e.successorIndex(x), l.successorIndex(x));
+			assertEquals(m, e.successor(x), l.successor(x));
+			assertEquals(m, e.index(), l.index());
+			assertEquals(m, e.strictSuccessorIndex(x), l.strictSuccessorIndex(x));
+			assertEquals(m, e.strictSuccessor(x), l.strictSuccessor(x));
+			assertEquals(m, e.index(), l.index());
+			assertEquals(m, e.predecessorIndex(x), l.predecessorIndex(x));
+			assertEquals(m, e.predecessor(x), l.predecessor(x));
+			assertEquals(m, e.index(), l.index());
+			assertEquals(m, e.weakPredecessorIndex(x), l.weakPredecessorIndex(x));
+			assertEquals(m, e.weakPredecessor(x), l.weakPredecessor(x));
+			assertEquals(m, e.index(), l.index());
+			assertEquals(m, e.indexOf(x), l.indexOf(x));
+			assertEquals(m, e.contains(x), l.contains(x));
+		}
+
+		for (int t = 0; t < 20; t++) {
+			final int from = r.nextInt(a.length + 1);
+			final PartitionedEliasFanoMonotoneLongBigListIterator i = l.listIterator(from);
+			int index = from;
+			long last = -1;
+			long x = from == a.length ? u : a[from];
+			for (int s = 0; s < 200; s++) {
+				switch (r.nextInt(4)) {
+				case 0:
+					if (index < a.length) assertEquals(last = a[index++], i.nextLong());
+					break;
+				case 1:
+					if (index > 0) assertEquals(last = a[--index], i.previousLong());
+					break;
+				default:
+					x = Math.min(u + 1, x + (r.nextInt(4) == 0 ? r.nextLong(u / 8 + 1) : r.nextInt(8)));
+					if (x <= last) assertEquals(last, i.skipTo(x));
+					else {
+						while (index < a.length && a[index] < x) index++;
+						assertEquals(Long.toString(x), index == a.length ? Long.MAX_VALUE : a[index], i.skipTo(x));
+					}
+				}
+				assertEquals(Long.toString(x), index, i.nextIndex());
+				assertEquals(index < a.length, i.hasNext());
+			}
+		}
+	}
+
+	@Test
+	public void testSmall() {
+		test(new long[] { 0 });
+		test(new long[] { 5 });
+		test(new long[] { 0, 0, 0 });
+		test(new long[] { 1, 2, 3, 10, 10, 11 });
+		test(new long[] { 3, 4, 5, 6, 7 });
+	}
+
+	@Test
+	public void testEmpty() {
+		final PartitionedEliasFanoMonotoneLongBigList l = new PartitionedEliasFanoMonotoneLongBigList(new LongArrayList());
+		assertEquals(0, l.size64());
+		assertFalse(l.iterator().hasNext());
+		assertEquals(0, l.successorIndex(0));
+		assertEquals(Long.MAX_VALUE, l.successor(1));
+		assertEquals(-1, l.predecessor(1));
+		assertFalse(l.contains(0));
+		assertEquals(Long.MAX_VALUE, l.iterator().skipTo(0));
+	}
+
+	@Test
+	public void testRandom() {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		for (final long u : new long[] { 10, 1000, 1L << 20, 1L << 40, Long.MAX_VALUE / 2 }) {
+			for (final int n : new int[] { 1, 10, 1000, 20000 }) {
+				final long[] a = new long[n];
+				for (int i = 0; i < n; i++) a[i] = r.nextLong(u);
+				LongArrays.quickSort(a);
+				test(a);
+			}
+		}
+	}
+
+	private static long[] clustered(final int n, final long seed) {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(seed);
+		final long[] a = new long[n];
+		long x = 0;
+		for (int i = 0; i < n;) {
+			// Alternate dense runs, sparse runs and runs of consecutive integers
+			final int run = 1 + r.nextInt(2000);
+			final int kind = r.nextInt(3);
+			for (int j = 0; j < run && i < n; j++) a[i++] = x += kind == 0 ? 1 : kind == 1 ? r.nextInt(3) : 1 + r.nextInt(100000);
+		}
+		return a;
+	}
+
+	@Test
+	public void testClustered() {
+		test(clustered(100000, 0));
+		final long[] a = new long[20000];
+		for (int i = 0; i < a.length; i++) a[i] = i + (i / 5000) * 1000000;
+		test(a);
+		// Long bitmap and Elias–Fano partitions, so that select samples are used
+		for (int i = 0; i < a.length; i++) a[i] = 2 * i;
+		test(a);
+		for (int i = 0; i < a.length; i++) a[i] = 10 * (i / 2);
+		test(a);
+	}
+
+	@Test
+	public void testSpace() {
+		final long[] a = clustered(1000000, 1);
+		final PartitionedEliasFanoMonotoneLongBigList l = new PartitionedEliasFanoMonotoneLongBigList(LongArrayList.wrap(a));
+		final EliasFanoMonotoneLongBigList e = new EliasFanoMonotoneLongBigList(LongArrayList.wrap(a));
+		assertTrue(l.numBits() + " >= " + e.numBits(), l.numBits() < e.numBits() * 3 / 4);
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		final long[] a = clustered(10000, 2);
+		final PartitionedEliasFanoMonotoneLongBigList l = new PartitionedEliasFanoMonotoneLongBigList(LongArrayList.wrap(a));
+		final File temp = File.createTempFile(getClass().getSimpleName(), "test");
+		temp.deleteOnExit();
+		BinIO.storeObject(l, temp);
+		final PartitionedEliasFanoMonotoneLongBigList m = (PartitionedEliasFanoMonotoneLongBigList)BinIO.loadObject(temp);
+		assertEquals(l, m);
+		assertEquals(l.successor(a[5000] + 1), m.successor(a[5000] + 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNotMonotone() {
+		new PartitionedEliasFanoMonotoneLongBigList(LongArrayList.wrap(new long[] { 1, 0 }));
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import it.unimi.dsi.bits.TransformationStrategies;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.objects.Object2LongFunction;
+import it.unimi.dsi.lang.MutableString;
+import it.unimi.dsi.sux4j.mph.CHDMinimalPerfectHashFunction;
+import it.unimi.dsi.sux4j.mph.GOV4Function;
+import it.unimi.dsi.sux4j.util.SignedFunctionStringMap.Eviction;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
+
+public class SignedFunctionStringMapTest {
+
+	private static String[] keys(final int n) {
+		final String[] s = new String[n];
+		for (int i = 0; i < n; i++) s[i] = "key" + i;
+		return s;
+	}
+
+	private static void check(final SignedFunctionStringMap map, final Object2LongFunction<? extends CharSequence> function, final String[] keys) {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		// Skewed lookups, so that the cache sees both hits and misses
+		for (int i = 0; i < 10 * keys.length; i++) {
+			final String key = keys[(int)(keys.length * Math.pow(r.nextDouble(), 4))];
+			assertEquals(key, function.getLong(key), map.getLong(key));
+			assertEquals(key, function.getLong(key), map.getLong(new MutableString(key)));
+			assertTrue(map.containsKey(key));
+			final String missing = key + "!";
+			assertEquals(missing, function.getLong(missing), map.getLong(missing));
+		}
+
+		final CharSequence[] batch = new CharSequence[100];
+		final long[] result = new long[batch.length];
+		for (int t = 0; t < 20; t++) {
+			for (int i = 0; i < batch.length; i++) batch[i] = r.nextInt(4) == 0 ? "missing" + i : keys[(int)(keys.length * Math.pow(r.nextDouble(), 4))];
+			map.getLongs(batch, result);
+			for (int i = 0; i < batch.length; i++) assertEquals(batch[i].toString(), function.getLong(batch[i]), result[i]);
+		}
+	}
+
+	@Test
+	public void testCache() throws IOException {
+		final String[] keys = keys(1000);
+		final GOV4Function<CharSequence> function = new GOV4Function.Builder<CharSequence>().keys(Arrays.asList(keys)).transform(TransformationStrategies.utf16()).signed(32).build();
+		check(new SignedFunctionStringMap(function), function, keys);
+		for (final Eviction eviction : Eviction.values()) {
+			check(new SignedFunctionStringMap(function, 100, eviction), function, keys);
+			check(new SignedFunctionStringMap(function, 1, eviction), function, keys);
+			check(new SignedFunctionStringMap(function, 100, 1, eviction), function, keys);
+		}
+		assertFalse(new SignedFunctionStringMap(function, 10, Eviction.LRU).containsKey("missing"));
+	}
+
+	@Test
+	public void testCHD() throws IOException {
+		final String[] keys = keys(1000);
+		final CHDMinimalPerfectHashFunction<CharSequence> function = new CHDMinimalPerfectHashFunction.Builder<CharSequence>().keys(Arrays.asList(keys)).transform(TransformationStrategies.utf16()).signed(32).build();
+		check(new SignedFunctionStringMap(function, 100, Eviction.FIFO), function, keys);
+	}
+
+	@Test
+	public void testMonotone() throws IOException {
+		final String[] keys = keys(1000);
+		Arrays.sort(keys);
+		final SignedFunctionStringMap map = new SignedFunctionStringMap(Arrays.asList(keys));
+		final long[] result = new long[keys.length];
+		map.getLongs(keys, result);
+		for (int i = 0; i < keys.length; i++) assertEquals(i, result[i]);
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		final String[] keys = keys(1000);
+		final GOV4Function<CharSequence> function = new GOV4Function.Builder<CharSequence>().keys(Arrays.asList(keys)).transform(TransformationStrategies.utf16()).signed(32).build();
+		final SignedFunctionStringMap map = new SignedFunctionStringMap(function, 100, Eviction.LRU);
+		check(map, function, keys);
+		final File temp = File.createTempFile(getClass().getSimpleName(), "map");
+		temp.deleteOnExit();
+		BinIO.storeObject(map, temp);
+		check((SignedFunctionStringMap)BinIO.loadObject(temp), function, keys);
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+		final String[] keys = keys(10000);
+		final GOV4Function<CharSequence> function = new GOV4Function.Builder<CharSequence>().keys(Arrays.asList(keys)).transform(TransformationStrategies.utf16()).signed(32).build();
+		final SignedFunctionStringMap map = new SignedFunctionStringMap(function, 500, 4, Eviction.LRU);
+		final int numThreads = 8;
+		final ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+		final ExecutorCompletionService<Void> executorCompletionService = new ExecutorCompletionService<>(executorService);
+		for (int t = 0; t < numThreads; t++) {
+			final int seed = t;
+			executorCompletionService.submit(() -> {
+				final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(seed);
+				for (int i = 0; i < 100000; i++) {
+					final String key = keys[(int)(keys.length * Math.pow(r.nextDouble(), 4))];
+					assertEquals(key, function.getLong(key), map.getLong(key));
+				}
+				return null;
+			});
+		}
+		try {
+			for (int t = 0; t < numThreads; t++) executorCompletionService.take().get();
+		} finally {
+			executorService.shutdown();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Sux4J: Succinct data structures for Java
+ *
+ * Copyright (C) 2020 Sebastiano Vigna
+ *
+ *  This library is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU Lesser General Public License as published by the Free
+ *  Software Foundation; either version 3 of the License, or (at your option)
+ *  any later version.
+ *
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package it.unimi.dsi.sux4j.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.BigArrays;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongBigArrayBigList;
+import it.unimi.dsi.util.XoRoShiRo128PlusRandom;
+
+public class WaveletMatrixTest {
+
+	private static void check(final long[] a, final WaveletMatrix w, final XoRoShiRo128PlusRandom r) {
+		final int n = a.length;
+		assertEquals(n, w.size64());
+		for (int i = 0; i < n; i++) assertEquals(a[i], w.getLong(i));
+
+		for (int t = 0; t < 100; t++) {
+			final long value = n == 0 || t % 10 == 0 ? r.nextLong() & Long.MAX_VALUE : a[r.nextInt(n)];
+			final int pos = r.nextInt(n + 1);
+			long count = 0;
+			for (int i = 0; i < pos; i++) if (a[i] == value) count++;
+			assertEquals(count, w.rank(value, pos));
+
+			long k = 0;
+			for (int i = 0; i < n; i++) if (a[i] == value) assertEquals(i, w.select(value, k++));
+			assertEquals(-1, w.select(value, k));
+
+			if (n == 0) continue;
+			final int from = r.nextInt(n), to = from + 1 + r.nextInt(n - from);
+			final long[] sorted = Arrays.copyOfRange(a, from, to);
+			LongArrays.quickSort(sorted);
+			final int q = r.nextInt(to - from);
+			assertEquals(sorted[q], w.quantile(from, to, q));
+
+			final long min = a[r.nextInt(n)], max = t % 2 == 0 ? a[r.nextInt(n)] : Long.MAX_VALUE;
+			count = 0;
+			for (int i = from; i < to; i++) if (a[i] >= min && a[i] < max) count++;
+			assertEquals(count, w.count(from, to, min, max));
+		}
+	}
+
+	@Test
+	public void testSmall() {
+		final long[] a = { 3, 1, 4, 1, 5, 9, 2, 6, 5, 3, 5 };
+		final WaveletMatrix w = new WaveletMatrix(a);
+		assertEquals(4, w.width());
+		assertEquals(3, w.rank(5, 11));
+		assertEquals(8, w.select(5, 1));
+		assertEquals(9, w.quantile(0, 11, 10));
+		assertEquals(1, w.quantile(0, 11, 0));
+		assertEquals(6, w.count(0, 11, 3, 6));
+		check(a, w, new XoRoShiRo128PlusRandom(0));
+	}
+
+	@Test
+	public void testEmpty() {
+		final WaveletMatrix w = new WaveletMatrix(new long[0]);
+		assertEquals(0, w.size64());
+		assertEquals(0, w.rank(0, 0));
+		assertEquals(-1, w.select(0, 0));
+	}
+
+	@Test
+	public void testRandom() throws IOException, ClassNotFoundException {
+		final XoRoShiRo128PlusRandom r = new XoRoShiRo128PlusRandom(0);
+		for (final int n : new int[] { 1, 10, 100, 1000, 200000 }) {
+			for (final long sigma : new long[] { 1, 2, 7, 256, 1L << 40, Long.MAX_VALUE }) {
+				final long[] a = new long[n];
+				for (int i = 0; i < n; i++) a[i] = (r.nextLong() & Long.MAX_VALUE) % sigma;
+				WaveletMatrix w = new WaveletMatrix(LongBigArrayBigList.wrap(BigArrays.wrap(a)), 4);
+				check(a, w, r);
+				if (n == 200000 && sigma == 7) {
+					final File temp = File.createTempFile(getClass().getSimpleName(), "test");
+					temp.deleteOnExit();
+					BinIO.storeObject(w, temp);
+					w = (WaveletMatrix)BinIO.loadObject(temp);
+					check(a, w, r);
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegative() {
+		new WaveletMatrix(new long[] { 0, -1 });
+	}
+}